@@ -20,4 +20,66 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
+    // Las pruebas de src/test son programas con main(), no clases JUnit: sin esto Gradle 9 falla el build
+    failOnNoDiscoveredTests = false
+}
+
+// Versiones SIMD (Vectorized*Utils) solo con -PvectorApi=true: sin eso no se compilan y el build no
+// usa jdk.incubator.vector. En tiempo de ejecucion ademas hay que activarlas con
+// -Dphantomcamera.grayscale.vectorized=true / -Dphantomcamera.sobel.vectorized=true.
+val vectorApiEnabled = (project.findProperty("vectorApi") ?: "false").toString().toBoolean()
+
+if (vectorApiEnabled) {
+    tasks.withType<JavaCompile> {
+        options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+    }
+
+    tasks.withType<JavaExec> {
+        jvmArgs("--add-modules", "jdk.incubator.vector")
+    }
+
+    tasks.test {
+        jvmArgs("--add-modules", "jdk.incubator.vector")
+    }
+} else {
+    sourceSets.main {
+        java.exclude("**/Vectorized*Utils.java")
+    }
+}
+
+// Benchmarks JMH por etapa (src/jmh/java), fuera de build/test porque tardan minutos.
+// ./gradlew jmh corre todos con -prof gc (bytes/op); -Pjmh.include=<regex> filtra por nombre.
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+
+dependencies {
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.37")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.37")
+}
+
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks with the GC profiler; results in build/reports/jmh/results.json."
+
+    dependsOn(jmh.classesTaskName)
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+
+    val jmhResultFile = layout.buildDirectory.file("reports/jmh/results.json").get().asFile
+
+    // Los forks de JMH heredan los argumentos de esta JVM (--add-modules jdk.incubator.vector con -PvectorApi=true)
+    args(
+        (project.findProperty("jmh.include") ?: ".*").toString(),
+        "-prof", "gc",
+        "-rf", "json",
+        "-rff", jmhResultFile.absolutePath
+    )
+
+    doFirst {
+        jmhResultFile.parentFile.mkdirs()
+    }
 }
@@ -0,0 +1,45 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTagAdaptiveThresholdSegmenter;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tile min/max, dilation, black/white/unknown classification and boundary marking of one
+ * grayscale frame with the default tile size and contrast, the alternative to the Sobel stage.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AprilTagAdaptiveThresholdSegmenterBenchmark extends SyntheticFrameBenchmarkState {
+
+    private AprilTagAdaptiveThresholdSegmenter aprilTagAdaptiveThresholdSegmenter;
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+
+        aprilTagAdaptiveThresholdSegmenter = new AprilTagAdaptiveThresholdSegmenter(frameWidth, frameHeight);
+    }
+
+    @Benchmark
+    public DirectFrameBuffer calculateBoundaryBinaryFrameBuffer() {
+        return aprilTagAdaptiveThresholdSegmenter.calculateBoundaryBinaryFrameBufferFromGrayscaleFrameBuffer(
+                grayscaleFrameBuffer
+        );
+    }
+}
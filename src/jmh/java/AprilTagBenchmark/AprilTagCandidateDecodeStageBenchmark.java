@@ -0,0 +1,88 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTagCandidateDecodeStage;
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor;
+import org.PhantomCamera.AprilTags.DetectedApriltag;
+import org.PhantomCamera.AprilTags.EdgeConnectedComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hull, quad fit, corner refinement and decode of every candidate of one frame, on the caller
+ * thread against one worker per core of the common pool. Labelling runs once in the setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AprilTagCandidateDecodeStageBenchmark extends SyntheticFrameBenchmarkState {
+
+    @Param({"SERIAL", "COMMON_POOL"})
+    public String decodeConfiguration;
+
+    /**
+     * Owns the coordinate slabs the components point into, so it stays referenced.
+     */
+    private AprilTagEdgeComponentExtractor aprilTagEdgeComponentExtractor;
+    private List<EdgeConnectedComponent> candidateComponentList;
+
+    private AprilTagCandidateDecodeStage aprilTagCandidateDecodeStage;
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+
+        aprilTagEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(frameWidth, frameHeight);
+        aprilTagEdgeComponentExtractor.setRowExtremalPixelRetentionEnabled(true);
+        aprilTagEdgeComponentExtractor.setEdgeComponentRejectionCriteria(
+                AprilTagDetector.DEFAULT_EDGE_COMPONENT_REJECTION_CRITERIA
+        );
+        candidateComponentList = aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+        AprilTag36h11Dictionary aprilTag36h11Dictionary = AprilTag36h11Dictionary.createTag36h11Dictionary();
+
+        switch (decodeConfiguration) {
+            case "SERIAL":
+                aprilTagCandidateDecodeStage =
+                        new AprilTagCandidateDecodeStage(frameWidth, frameHeight, aprilTag36h11Dictionary);
+                break;
+            case "COMMON_POOL":
+                aprilTagCandidateDecodeStage = new AprilTagCandidateDecodeStage(
+                        frameWidth,
+                        frameHeight,
+                        aprilTag36h11Dictionary,
+                        ForkJoinPool.commonPool(),
+                        0
+                );
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown decode configuration " + decodeConfiguration);
+        }
+    }
+
+    @Benchmark
+    public List<DetectedApriltag> decodeCandidateComponentList() {
+        return aprilTagCandidateDecodeStage.decodeCandidateComponentList(
+                candidateComponentList,
+                gradientMagnitudeIntegerArray,
+                grayscaleFrameBuffer
+        );
+    }
+}
@@ -0,0 +1,110 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTagConvexHullCalculator;
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor.EdgeComponentLabellingMode;
+import org.PhantomCamera.AprilTags.EdgeConnectedComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Convex hull of every candidate component of one frame: from raster-ordered row extrema
+ * (union-find with row extremal retention, as in the detector) and from all the pixels of
+ * BFS-ordered components, which takes the sorting path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AprilTagConvexHullCalculatorBenchmark extends SyntheticFrameBenchmarkState {
+
+    private final AprilTagConvexHullCalculator aprilTagConvexHullCalculator = new AprilTagConvexHullCalculator();
+
+    /**
+     * The extractors own the coordinate slabs the components point into, so they stay referenced.
+     */
+    private AprilTagEdgeComponentExtractor rowExtremalEdgeComponentExtractor;
+    private AprilTagEdgeComponentExtractor breadthFirstSearchEdgeComponentExtractor;
+
+    private List<EdgeConnectedComponent> rowExtremalCandidateComponentList;
+    private List<EdgeConnectedComponent> breadthFirstSearchCandidateComponentList;
+
+    private int[] hullXCoordinateArray;
+    private int[] hullYCoordinateArray;
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+
+        rowExtremalEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(frameWidth, frameHeight);
+        rowExtremalEdgeComponentExtractor.setRowExtremalPixelRetentionEnabled(true);
+        rowExtremalEdgeComponentExtractor.setEdgeComponentRejectionCriteria(
+                AprilTagDetector.DEFAULT_EDGE_COMPONENT_REJECTION_CRITERIA
+        );
+        rowExtremalCandidateComponentList =
+                rowExtremalEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+        breadthFirstSearchEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                frameWidth,
+                frameHeight,
+                EdgeComponentLabellingMode.BREADTH_FIRST_SEARCH
+        );
+        breadthFirstSearchEdgeComponentExtractor.setEdgeComponentRejectionCriteria(
+                AprilTagDetector.DEFAULT_EDGE_COMPONENT_REJECTION_CRITERIA
+        );
+        breadthFirstSearchCandidateComponentList =
+                breadthFirstSearchEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+        int maximumStoredPixelCoordinateCount = 0;
+        for (EdgeConnectedComponent candidateComponent : breadthFirstSearchCandidateComponentList) {
+            maximumStoredPixelCoordinateCount =
+                    Math.max(maximumStoredPixelCoordinateCount, candidateComponent.getStoredPixelCoordinateCount());
+        }
+
+        int requiredHullBufferLength =
+                AprilTagConvexHullCalculator.getRequiredHullBufferLength(maximumStoredPixelCoordinateCount);
+        hullXCoordinateArray = new int[requiredHullBufferLength];
+        hullYCoordinateArray = new int[requiredHullBufferLength];
+    }
+
+    @Benchmark
+    public int calculateConvexHullOfRowExtremalComponents() {
+        return calculateConvexHullOfEveryComponent(rowExtremalCandidateComponentList);
+    }
+
+    @Benchmark
+    public int calculateConvexHullOfBreadthFirstSearchComponents() {
+        return calculateConvexHullOfEveryComponent(breadthFirstSearchCandidateComponentList);
+    }
+
+    /**
+     * @return total hull point count, so the work cannot be eliminated
+     */
+    private int calculateConvexHullOfEveryComponent(List<EdgeConnectedComponent> candidateComponentList) {
+        int totalHullPointCount = 0;
+
+        for (int candidateIndex = 0; candidateIndex < candidateComponentList.size(); candidateIndex++) {
+            totalHullPointCount += aprilTagConvexHullCalculator.calculateConvexHull(
+                    candidateComponentList.get(candidateIndex),
+                    hullXCoordinateArray,
+                    hullYCoordinateArray
+            );
+        }
+
+        return totalHullPointCount;
+    }
+}
@@ -0,0 +1,74 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.DetectedApriltag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One BGR frame through the whole detector, from grayscale to decoded tags: serial with the
+ * fused front end, serial with the separate stages, with the adaptive threshold segmenter,
+ * with decimation 2 and with every stage on the common pool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AprilTagDetectorBenchmark extends SyntheticFrameBenchmarkState {
+
+    @Param({"SERIAL_FUSED", "SERIAL_SEPARATE", "SERIAL_ADAPTIVE_THRESHOLD", "SERIAL_DECIMATED", "COMMON_POOL"})
+    public String detectorConfiguration;
+
+    private AprilTagDetector aprilTagDetector;
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+
+        AprilTag36h11Dictionary aprilTag36h11Dictionary = AprilTag36h11Dictionary.createTag36h11Dictionary();
+
+        switch (detectorConfiguration) {
+            case "SERIAL_FUSED":
+                aprilTagDetector = new AprilTagDetector(aprilTag36h11Dictionary);
+                break;
+            case "SERIAL_SEPARATE":
+                aprilTagDetector = new AprilTagDetector(aprilTag36h11Dictionary);
+                aprilTagDetector.setFusedFrontEndEnabled(false);
+                break;
+            case "SERIAL_ADAPTIVE_THRESHOLD":
+                aprilTagDetector = new AprilTagDetector(aprilTag36h11Dictionary);
+                aprilTagDetector.setEdgeSegmentationMode(AprilTagDetector.EdgeSegmentationMode.ADAPTIVE_TILE_THRESHOLD);
+                break;
+            case "SERIAL_DECIMATED":
+                aprilTagDetector = new AprilTagDetector(aprilTag36h11Dictionary);
+                aprilTagDetector.setDecimationFactor(2);
+                break;
+            case "COMMON_POOL":
+                aprilTagDetector = new AprilTagDetector(aprilTag36h11Dictionary, ForkJoinPool.commonPool(), 0);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown detector configuration " + detectorConfiguration);
+        }
+    }
+
+    @Benchmark
+    public List<DetectedApriltag> detect() {
+        return aprilTagDetector.detect(colorFrameBuffer);
+    }
+}
@@ -0,0 +1,79 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor.EdgeComponentLabellingMode;
+import org.PhantomCamera.AprilTags.EdgeConnectedComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connected component labelling of one edge frame with the rejection criteria of
+ * {@link AprilTagDetector}. The union-find configurations also keep only the row extremal
+ * pixels, as the detector does; BFS cannot.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AprilTagEdgeComponentExtractorBenchmark extends SyntheticFrameBenchmarkState {
+
+    @Param({"UNION_FIND", "UNION_FIND_TILED", "BREADTH_FIRST_SEARCH"})
+    public String labellingConfiguration;
+
+    private AprilTagEdgeComponentExtractor aprilTagEdgeComponentExtractor;
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+
+        switch (labellingConfiguration) {
+            case "UNION_FIND":
+                aprilTagEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(frameWidth, frameHeight);
+                aprilTagEdgeComponentExtractor.setRowExtremalPixelRetentionEnabled(true);
+                break;
+            case "UNION_FIND_TILED":
+                aprilTagEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                        frameWidth,
+                        frameHeight,
+                        ForkJoinPool.commonPool(),
+                        0
+                );
+                aprilTagEdgeComponentExtractor.setRowExtremalPixelRetentionEnabled(true);
+                break;
+            case "BREADTH_FIRST_SEARCH":
+                aprilTagEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                        frameWidth,
+                        frameHeight,
+                        EdgeComponentLabellingMode.BREADTH_FIRST_SEARCH
+                );
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown labelling configuration " + labellingConfiguration);
+        }
+
+        aprilTagEdgeComponentExtractor.setEdgeComponentRejectionCriteria(
+                AprilTagDetector.DEFAULT_EDGE_COMPONENT_REJECTION_CRITERIA
+        );
+    }
+
+    @Benchmark
+    public List<EdgeConnectedComponent> extractEdgeConnectedComponentList() {
+        return aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+    }
+}
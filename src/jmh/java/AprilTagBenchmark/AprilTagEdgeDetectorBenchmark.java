@@ -0,0 +1,62 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sobel gradient and threshold of one grayscale frame, on the caller thread and split into
+ * row bands on the common pool.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AprilTagEdgeDetectorBenchmark extends SyntheticFrameBenchmarkState {
+
+    private AprilTagEdgeDetector aprilTagEdgeDetector;
+    private AprilTagEdgeDetector rowBandAprilTagEdgeDetector;
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+
+        aprilTagEdgeDetector = new AprilTagEdgeDetector(
+                frameWidth,
+                frameHeight,
+                AprilTagDetector.DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE
+        );
+        rowBandAprilTagEdgeDetector = new AprilTagEdgeDetector(
+                frameWidth,
+                frameHeight,
+                AprilTagDetector.DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE,
+                ForkJoinPool.commonPool(),
+                0
+        );
+    }
+
+    @Benchmark
+    public DirectFrameBuffer calculateEdgeBinaryFrameBuffer() {
+        return aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+    }
+
+    @Benchmark
+    public DirectFrameBuffer calculateEdgeBinaryFrameBufferInRowBands() {
+        return rowBandAprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+    }
+}
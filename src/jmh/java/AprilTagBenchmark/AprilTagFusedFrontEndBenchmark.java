@@ -0,0 +1,96 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
+import org.PhantomCamera.AprilTags.AprilTagFramePreProcessing;
+import org.PhantomCamera.AprilTags.AprilTagFusedFrontEnd;
+import org.PhantomCamera.Stadistics.EdgeStadistics;
+import org.PhantomCamera.Stadistics.GrayScaleStatistics;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BGR frame to grayscale, Sobel edges and frame statistics: one fused pass against
+ * preprocessing, the edge detector and both statistics passes run one after another.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AprilTagFusedFrontEndBenchmark extends SyntheticFrameBenchmarkState {
+
+    private AprilTagFusedFrontEnd aprilTagFusedFrontEnd;
+
+    private AprilTagFramePreProcessing aprilTagFramePreProcessing;
+    private AprilTagEdgeDetector aprilTagEdgeDetector;
+    private final EdgeStadistics edgeStadistics = new EdgeStadistics();
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+
+        aprilTagFusedFrontEnd = new AprilTagFusedFrontEnd(
+                frameWidth,
+                frameHeight,
+                AprilTagDetector.DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE
+        );
+
+        aprilTagFramePreProcessing = new AprilTagFramePreProcessing(frameWidth, frameHeight);
+        aprilTagEdgeDetector = new AprilTagEdgeDetector(
+                frameWidth,
+                frameHeight,
+                AprilTagDetector.DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE,
+                null,
+                1,
+                false
+        );
+    }
+
+    @Benchmark
+    public void fusedFrontEnd(Blackhole blackhole) {
+        blackhole.consume(aprilTagFusedFrontEnd.processColorBgrFrameBuffer(colorFrameBuffer));
+        blackhole.consume(aprilTagFusedFrontEnd.getGrayscaleFrameStatistics());
+        blackhole.consume(aprilTagFusedFrontEnd.getEdgeFrameStatistics());
+    }
+
+    @Benchmark
+    public void separateFrontEnd(Blackhole blackhole) {
+        DirectFrameBuffer currentGrayscaleFrameBuffer =
+                aprilTagFramePreProcessing.convertColorBgrFrameBufferToGrayscale(colorFrameBuffer);
+        DirectFrameBuffer currentEdgeBinaryFrameBuffer =
+                aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(currentGrayscaleFrameBuffer);
+
+        blackhole.consume(currentEdgeBinaryFrameBuffer);
+        blackhole.consume(GrayScaleStatistics.calculateGrayscaleFrameStatistics(
+                frameWidth, frameHeight, currentGrayscaleFrameBuffer.getPixelByteBuffer()
+        ));
+        blackhole.consume(edgeStadistics.calculateEdgeFrameStatistics(
+                frameWidth, frameHeight,
+                currentEdgeBinaryFrameBuffer.getPixelByteBuffer(), aprilTagEdgeDetector.getGradientMagnitudeIntegerArray()
+        ));
+    }
+
+    /**
+     * Only grayscale and edges, as {@link AprilTagDetector} runs them (no statistics).
+     */
+    @Benchmark
+    public DirectFrameBuffer separateFrontEndWithoutStatistics() {
+        return aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(
+                aprilTagFramePreProcessing.convertColorBgrFrameBufferToGrayscale(colorFrameBuffer)
+        );
+    }
+}
@@ -0,0 +1,91 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagPipelinedDetector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The three-stage pipelined detector on one frame.
+ * <p>
+ * submitAndAwaitResult is the latency of one frame from submit to listener, comparable to
+ * {@link AprilTagDetectorBenchmark} plus the thread hand-offs. submitFrame is only the caller
+ * side (grayscale conversion and hand-off) while the stage threads keep working, which is
+ * the cost the camera thread pays per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AprilTagPipelinedDetectorBenchmark extends SyntheticFrameBenchmarkState {
+
+    private AprilTagPipelinedDetector aprilTagPipelinedDetector;
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+
+        aprilTagPipelinedDetector = new AprilTagPipelinedDetector(
+                frameWidth,
+                frameHeight,
+                AprilTag36h11Dictionary.createTag36h11Dictionary(),
+                AprilTagDetector.EdgeSegmentationMode.SOBEL_GRADIENT_THRESHOLD,
+                AprilTagDetector.DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE,
+                1,
+                (frameSequenceNumber, frameSubmitTimestampNanoseconds, detectedApriltagList) -> {
+                }
+        );
+        aprilTagPipelinedDetector.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        aprilTagPipelinedDetector.release();
+    }
+
+    /**
+     * @return completed frame count
+     */
+    @Benchmark
+    public long submitAndAwaitResult() {
+        long finishedFrameCountBeforeSubmit = getFinishedFrameCount();
+
+        if (!aprilTagPipelinedDetector.submitFrame(colorFrameBuffer)) {
+            throw new IllegalStateException("Pipelined detector had no free slot");
+        }
+
+        // Con un frame a la vez nada se descarta: termina entregado o fallido
+        while (getFinishedFrameCount() == finishedFrameCountBeforeSubmit) {
+            LockSupport.parkNanos(1_000L);
+        }
+
+        return aprilTagPipelinedDetector.getCompletedFrameCount();
+    }
+
+    /**
+     * @return false when no slot was free
+     */
+    @Benchmark
+    public boolean submitFrame() {
+        return aprilTagPipelinedDetector.submitFrame(colorFrameBuffer);
+    }
+
+    private long getFinishedFrameCount() {
+        return aprilTagPipelinedDetector.getCompletedFrameCount() + aprilTagPipelinedDetector.getFailedFrameCount();
+    }
+}
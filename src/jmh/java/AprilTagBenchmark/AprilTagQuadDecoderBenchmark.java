@@ -0,0 +1,130 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTagConvexHullCalculator;
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor;
+import org.PhantomCamera.AprilTags.AprilTagQuadDecoder;
+import org.PhantomCamera.AprilTags.AprilTagQuadrilateralFitter;
+import org.PhantomCamera.AprilTags.DetectedApriltag;
+import org.PhantomCamera.AprilTags.EdgeConnectedComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sampling and dictionary lookup of every fitted quad of one frame: the synthetic tags plus
+ * the background quads the decoder has to reject. Hull, fit and refinement run once in the setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AprilTagQuadDecoderBenchmark extends SyntheticFrameBenchmarkState {
+
+    private AprilTagQuadDecoder aprilTagQuadDecoder;
+
+    /**
+     * Refined corners of every fitted quad, 8 coordinates each.
+     */
+    private double[] quadrilateralCornerCoordinateArray;
+    private int quadrilateralCount;
+
+    private final List<DetectedApriltag> detectedApriltagList = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+
+        aprilTagQuadDecoder = new AprilTagQuadDecoder(
+                frameWidth,
+                frameHeight,
+                AprilTag36h11Dictionary.createTag36h11Dictionary()
+        );
+
+        AprilTagEdgeComponentExtractor aprilTagEdgeComponentExtractor =
+                new AprilTagEdgeComponentExtractor(frameWidth, frameHeight);
+        aprilTagEdgeComponentExtractor.setRowExtremalPixelRetentionEnabled(true);
+        aprilTagEdgeComponentExtractor.setEdgeComponentRejectionCriteria(
+                AprilTagDetector.DEFAULT_EDGE_COMPONENT_REJECTION_CRITERIA
+        );
+
+        List<EdgeConnectedComponent> candidateComponentList =
+                aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+        AprilTagConvexHullCalculator aprilTagConvexHullCalculator = new AprilTagConvexHullCalculator();
+        AprilTagQuadrilateralFitter aprilTagQuadrilateralFitter = new AprilTagQuadrilateralFitter();
+
+        quadrilateralCornerCoordinateArray = new double[8 * candidateComponentList.size()];
+        quadrilateralCount = 0;
+
+        for (EdgeConnectedComponent candidateComponent : candidateComponentList) {
+            int requiredHullBufferLength = AprilTagConvexHullCalculator.getRequiredHullBufferLength(
+                    candidateComponent.getStoredPixelCoordinateCount()
+            );
+            int[] hullXCoordinateArray = new int[requiredHullBufferLength];
+            int[] hullYCoordinateArray = new int[requiredHullBufferLength];
+
+            int hullPointCount = aprilTagConvexHullCalculator.calculateConvexHull(
+                    candidateComponent,
+                    hullXCoordinateArray,
+                    hullYCoordinateArray
+            );
+
+            int cornerCoordinateOffset = 8 * quadrilateralCount;
+
+            if (!aprilTagQuadrilateralFitter.calculateQuadrilateralCornerCoordinatesFromConvexHull(
+                    hullXCoordinateArray,
+                    hullYCoordinateArray,
+                    hullPointCount,
+                    quadrilateralCornerCoordinateArray,
+                    cornerCoordinateOffset
+            )) {
+                continue;
+            }
+
+            aprilTagQuadrilateralFitter.refineQuadrilateralCornerCoordinatesWithGradientMagnitude(
+                    quadrilateralCornerCoordinateArray,
+                    cornerCoordinateOffset,
+                    gradientMagnitudeIntegerArray,
+                    frameWidth,
+                    frameHeight,
+                    quadrilateralCornerCoordinateArray,
+                    cornerCoordinateOffset
+            );
+
+            quadrilateralCount++;
+        }
+
+        quadrilateralCornerCoordinateArray = Arrays.copyOf(quadrilateralCornerCoordinateArray, 8 * quadrilateralCount);
+    }
+
+    /**
+     * @return decoded tag count
+     */
+    @Benchmark
+    public int decodeQuadrilateralBatch() {
+        detectedApriltagList.clear();
+
+        return aprilTagQuadDecoder.decodeQuadrilateralBatch(
+                quadrilateralCornerCoordinateArray,
+                quadrilateralCount,
+                grayscaleFrameBuffer,
+                detectedApriltagList
+        );
+    }
+}
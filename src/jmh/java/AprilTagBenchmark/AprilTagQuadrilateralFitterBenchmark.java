@@ -0,0 +1,167 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTagConvexHullCalculator;
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor;
+import org.PhantomCamera.AprilTags.AprilTagQuadrilateralFitter;
+import org.PhantomCamera.AprilTags.EdgeConnectedComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Quadrilateral fit of the convex hull of every candidate of one frame, alone and followed
+ * by the sub-pixel corner refinement (from the gradient magnitude and from the grayscale frame).
+ * Hulls are computed once in the setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AprilTagQuadrilateralFitterBenchmark extends SyntheticFrameBenchmarkState {
+
+    private final AprilTagQuadrilateralFitter aprilTagQuadrilateralFitter = new AprilTagQuadrilateralFitter();
+
+    private int[][] hullXCoordinateArrayPerCandidate;
+    private int[][] hullYCoordinateArrayPerCandidate;
+    private int[] hullPointCountPerCandidate;
+
+    private final double[] cornerCoordinateArray = new double[8];
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+
+        AprilTagEdgeComponentExtractor aprilTagEdgeComponentExtractor =
+                new AprilTagEdgeComponentExtractor(frameWidth, frameHeight);
+        aprilTagEdgeComponentExtractor.setRowExtremalPixelRetentionEnabled(true);
+        aprilTagEdgeComponentExtractor.setEdgeComponentRejectionCriteria(
+                AprilTagDetector.DEFAULT_EDGE_COMPONENT_REJECTION_CRITERIA
+        );
+
+        List<EdgeConnectedComponent> candidateComponentList =
+                aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+        AprilTagConvexHullCalculator aprilTagConvexHullCalculator = new AprilTagConvexHullCalculator();
+
+        int candidateCount = candidateComponentList.size();
+        hullXCoordinateArrayPerCandidate = new int[candidateCount][];
+        hullYCoordinateArrayPerCandidate = new int[candidateCount][];
+        hullPointCountPerCandidate = new int[candidateCount];
+
+        for (int candidateIndex = 0; candidateIndex < candidateCount; candidateIndex++) {
+            EdgeConnectedComponent candidateComponent = candidateComponentList.get(candidateIndex);
+
+            int requiredHullBufferLength = AprilTagConvexHullCalculator.getRequiredHullBufferLength(
+                    candidateComponent.getStoredPixelCoordinateCount()
+            );
+            int[] hullXCoordinateArray = new int[requiredHullBufferLength];
+            int[] hullYCoordinateArray = new int[requiredHullBufferLength];
+
+            int hullPointCount = aprilTagConvexHullCalculator.calculateConvexHull(
+                    candidateComponent,
+                    hullXCoordinateArray,
+                    hullYCoordinateArray
+            );
+
+            hullXCoordinateArrayPerCandidate[candidateIndex] = Arrays.copyOf(hullXCoordinateArray, hullPointCount);
+            hullYCoordinateArrayPerCandidate[candidateIndex] = Arrays.copyOf(hullYCoordinateArray, hullPointCount);
+            hullPointCountPerCandidate[candidateIndex] = hullPointCount;
+        }
+    }
+
+    /**
+     * @return fitted quadrilateral count
+     */
+    @Benchmark
+    public int calculateQuadrilateralCornerArrays() {
+        int fittedQuadrilateralCount = 0;
+
+        for (int candidateIndex = 0; candidateIndex < hullPointCountPerCandidate.length; candidateIndex++) {
+            if (fitQuadrilateral(candidateIndex)) {
+                fittedQuadrilateralCount++;
+            }
+        }
+
+        return fittedQuadrilateralCount;
+    }
+
+    /**
+     * @return sum of the refined coordinates
+     */
+    @Benchmark
+    public double calculateAndRefineWithGradientMagnitude() {
+        double refinedCoordinateSum = 0.0;
+
+        for (int candidateIndex = 0; candidateIndex < hullPointCountPerCandidate.length; candidateIndex++) {
+            if (!fitQuadrilateral(candidateIndex)) {
+                continue;
+            }
+
+            aprilTagQuadrilateralFitter.refineQuadrilateralCornerCoordinatesWithGradientMagnitude(
+                    cornerCoordinateArray,
+                    0,
+                    gradientMagnitudeIntegerArray,
+                    frameWidth,
+                    frameHeight,
+                    cornerCoordinateArray,
+                    0
+            );
+            refinedCoordinateSum += cornerCoordinateArray[0] + cornerCoordinateArray[7];
+        }
+
+        return refinedCoordinateSum;
+    }
+
+    /**
+     * @return sum of the refined coordinates
+     */
+    @Benchmark
+    public double calculateAndRefineWithGrayscaleFrame() {
+        double refinedCoordinateSum = 0.0;
+
+        for (int candidateIndex = 0; candidateIndex < hullPointCountPerCandidate.length; candidateIndex++) {
+            if (!fitQuadrilateral(candidateIndex)) {
+                continue;
+            }
+
+            aprilTagQuadrilateralFitter.refineDecimatedQuadrilateralCornerCoordinatesWithGrayscaleFrame(
+                    cornerCoordinateArray,
+                    0,
+                    1,
+                    grayscaleFrameBuffer,
+                    cornerCoordinateArray,
+                    0
+            );
+            refinedCoordinateSum += cornerCoordinateArray[0] + cornerCoordinateArray[7];
+        }
+
+        return refinedCoordinateSum;
+    }
+
+    /**
+     * Fits the candidate into cornerCoordinateArray; the refine benchmarks refine it in place.
+     */
+    private boolean fitQuadrilateral(int candidateIndex) {
+        return aprilTagQuadrilateralFitter.calculateQuadrilateralCornerCoordinatesFromConvexHull(
+                hullXCoordinateArrayPerCandidate[candidateIndex],
+                hullYCoordinateArrayPerCandidate[candidateIndex],
+                hullPointCountPerCandidate[candidateIndex],
+                cornerCoordinateArray,
+                0
+        );
+    }
+}
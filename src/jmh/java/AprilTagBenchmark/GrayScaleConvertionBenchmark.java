@@ -0,0 +1,79 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTagFramePreProcessing;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.PhantomCamera.Utils.GrayScaleConvertionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BGR to grayscale conversion: the byte array utility (vectorized when the Vector API is
+ * available, and the scalar fallback) and the direct buffer path of
+ * {@link AprilTagFramePreProcessing}, with and without fused decimation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GrayScaleConvertionBenchmark extends SyntheticFrameBenchmarkState {
+
+    private byte[] outputGrayscaleByteArray;
+
+    private AprilTagFramePreProcessing aprilTagFramePreProcessing;
+    private AprilTagFramePreProcessing decimatedAprilTagFramePreProcessing;
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+
+        outputGrayscaleByteArray = new byte[frameWidth * frameHeight];
+
+        aprilTagFramePreProcessing = new AprilTagFramePreProcessing(frameWidth, frameHeight);
+        decimatedAprilTagFramePreProcessing = new AprilTagFramePreProcessing(frameWidth, frameHeight, 2);
+    }
+
+    @Benchmark
+    public byte[] convertBgrByteArrayToGrayscaleByteArray() {
+        GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArray(
+                colorBgrByteArray,
+                frameWidth,
+                frameHeight,
+                outputGrayscaleByteArray
+        );
+        return outputGrayscaleByteArray;
+    }
+
+    @Benchmark
+    public byte[] convertBgrByteArrayToGrayscaleByteArrayScalar() {
+        GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArrayScalar(
+                colorBgrByteArray,
+                frameWidth,
+                frameHeight,
+                outputGrayscaleByteArray
+        );
+        return outputGrayscaleByteArray;
+    }
+
+    @Benchmark
+    public DirectFrameBuffer convertColorBgrFrameBufferToGrayscale() {
+        return aprilTagFramePreProcessing.convertColorBgrFrameBufferToGrayscale(colorFrameBuffer);
+    }
+
+    @Benchmark
+    public DirectFrameBuffer convertColorBgrFrameBufferToGrayscaleWithDecimation() {
+        decimatedAprilTagFramePreProcessing.convertColorBgrFrameBufferToGrayscale(colorFrameBuffer);
+        return decimatedAprilTagFramePreProcessing.getDetectionGrayscaleFrameBuffer();
+    }
+}
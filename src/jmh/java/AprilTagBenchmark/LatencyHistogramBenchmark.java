@@ -0,0 +1,75 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.Stadistics.LatencyHistogram;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics.PipelineStage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the latency instrumentation: recording one value (done several times per frame,
+ * must stay allocation-free), reading a percentile and formatting the full report.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyHistogramBenchmark {
+
+    private static final int RECORDED_VALUE_COUNT = 4096;
+
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+    private final PipelineStageLatencyMetrics pipelineStageLatencyMetrics = new PipelineStageLatencyMetrics();
+
+    /**
+     * Latencies from 1 us to about 30 ms, spread over many buckets.
+     */
+    private final long[] recordedValueNanosecondsArray = new long[RECORDED_VALUE_COUNT];
+    private int nextRecordedValueIndex = 0;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1234L);
+
+        for (int valueIndex = 0; valueIndex < RECORDED_VALUE_COUNT; valueIndex++) {
+            recordedValueNanosecondsArray[valueIndex] = (long) Math.exp(7.0 + 10.0 * random.nextDouble());
+        }
+
+        for (long recordedValueNanoseconds : recordedValueNanosecondsArray) {
+            latencyHistogram.recordValue(recordedValueNanoseconds);
+
+            for (PipelineStage pipelineStage : PipelineStage.values()) {
+                pipelineStageLatencyMetrics.recordStageLatency(pipelineStage, recordedValueNanoseconds);
+            }
+        }
+    }
+
+    @Benchmark
+    public void recordValue() {
+        latencyHistogram.recordValue(recordedValueNanosecondsArray[nextRecordedValueIndex]);
+        nextRecordedValueIndex = (nextRecordedValueIndex + 1) & (RECORDED_VALUE_COUNT - 1);
+    }
+
+    @Benchmark
+    public long getValueAtPercentile() {
+        return latencyHistogram.getValueAtPercentile(99.0);
+    }
+
+    @Benchmark
+    public String formatPercentileReport() {
+        return pipelineStageLatencyMetrics.formatPercentileReport();
+    }
+}
@@ -0,0 +1,71 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.Stadistics.EdgeStadistics;
+import org.PhantomCamera.Stadistics.EdgeStadistics.EdgeFrameStatistics;
+import org.PhantomCamera.Stadistics.GrayScaleStatistics;
+import org.PhantomCamera.Stadistics.GrayScaleStatistics.GrayscaleFrameStatistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame grayscale and edge statistics, from heap byte arrays and in place from direct buffers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StadisticsBenchmark extends SyntheticFrameBenchmarkState {
+
+    private final EdgeStadistics edgeStadistics = new EdgeStadistics();
+
+    @Setup
+    public void setUp() {
+        prepareSyntheticFrame();
+    }
+
+    @Benchmark
+    public GrayscaleFrameStatistics calculateGrayscaleFrameStatisticsFromByteArray() {
+        return GrayScaleStatistics.calculateGrayscaleFrameStatistics(frameWidth, frameHeight, grayscaleByteArray);
+    }
+
+    @Benchmark
+    public GrayscaleFrameStatistics calculateGrayscaleFrameStatisticsFromFrameBuffer() {
+        return GrayScaleStatistics.calculateGrayscaleFrameStatistics(
+                frameWidth,
+                frameHeight,
+                grayscaleFrameBuffer.getPixelByteBuffer()
+        );
+    }
+
+    @Benchmark
+    public EdgeFrameStatistics calculateEdgeFrameStatisticsFromByteArray() {
+        return edgeStadistics.calculateEdgeFrameStatistics(
+                frameWidth,
+                frameHeight,
+                edgeBinaryByteArray,
+                gradientMagnitudeIntegerArray
+        );
+    }
+
+    @Benchmark
+    public EdgeFrameStatistics calculateEdgeFrameStatisticsFromFrameBuffer() {
+        return edgeStadistics.calculateEdgeFrameStatistics(
+                frameWidth,
+                frameHeight,
+                edgeBinaryFrameBuffer.getPixelByteBuffer(),
+                gradientMagnitudeIntegerArray
+        );
+    }
+}
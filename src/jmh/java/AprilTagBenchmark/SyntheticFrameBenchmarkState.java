@@ -0,0 +1,98 @@
+package AprilTagBenchmark;
+
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
+import org.PhantomCamera.Camera.SyntheticFrameSource;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.PhantomCamera.Utils.GrayScaleConvertionUtils;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Synthetic input shared by the per-stage benchmarks: one frame of {@link SyntheticFrameSource}
+ * and the output of every stage before the one being measured, so each benchmark only times
+ * its own stage.
+ * <p>
+ * The background noise amplitude sets the edge density at the default gradient threshold:
+ * about 4 % of the pixels are edges at 0 (tag borders only), 10 % at 32 and 48 % at 64.
+ * Subclasses are the JMH states and call {@link #prepareSyntheticFrame()} from their setup;
+ * the annotation here is what lets JMH accept the inherited {@link Param} fields.
+ */
+@State(Scope.Thread)
+public abstract class SyntheticFrameBenchmarkState {
+
+    private static final int SYNTHETIC_TAG_COUNT = 8;
+    private static final long SYNTHETIC_RANDOM_SEED = 1234L;
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String frameResolution;
+
+    @Param({"0", "32", "64"})
+    public int backgroundNoiseAmplitude;
+
+    protected int frameWidth;
+    protected int frameHeight;
+
+    protected byte[] colorBgrByteArray;
+    protected DirectFrameBuffer colorFrameBuffer;
+
+    protected byte[] grayscaleByteArray;
+    protected DirectFrameBuffer grayscaleFrameBuffer;
+
+    protected byte[] edgeBinaryByteArray;
+    protected DirectFrameBuffer edgeBinaryFrameBuffer;
+    protected int[] gradientMagnitudeIntegerArray;
+
+    protected void prepareSyntheticFrame() {
+        String[] frameResolutionPartArray = frameResolution.split("x");
+
+        if (frameResolutionPartArray.length != 2) {
+            throw new IllegalArgumentException("Expected frame resolution as WxH but received " + frameResolution);
+        }
+
+        frameWidth = Integer.parseInt(frameResolutionPartArray[0]);
+        frameHeight = Integer.parseInt(frameResolutionPartArray[1]);
+
+        SyntheticFrameSource syntheticFrameSource = new SyntheticFrameSource(
+                frameWidth,
+                frameHeight,
+                SYNTHETIC_TAG_COUNT,
+                backgroundNoiseAmplitude,
+                SYNTHETIC_RANDOM_SEED
+        );
+
+        colorBgrByteArray = new byte[frameWidth * frameHeight * 3];
+        syntheticFrameSource.renderFrameIntoBgrByteArray(0, colorBgrByteArray);
+
+        colorFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 3);
+        colorFrameBuffer.copyFromByteArray(colorBgrByteArray);
+
+        grayscaleByteArray = new byte[frameWidth * frameHeight];
+        GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArrayScalar(
+                colorBgrByteArray,
+                frameWidth,
+                frameHeight,
+                grayscaleByteArray
+        );
+
+        grayscaleFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 1);
+        grayscaleFrameBuffer.copyFromByteArray(grayscaleByteArray);
+
+        AprilTagEdgeDetector aprilTagEdgeDetector = new AprilTagEdgeDetector(
+                frameWidth,
+                frameHeight,
+                AprilTagDetector.DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE
+        );
+
+        // Copias propias: el detector de bordes se descarta y el benchmark no depende de sus buffers
+        edgeBinaryByteArray = new byte[frameWidth * frameHeight];
+        aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer)
+                .copyToByteArray(edgeBinaryByteArray);
+
+        edgeBinaryFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 1);
+        edgeBinaryFrameBuffer.copyFromByteArray(edgeBinaryByteArray);
+
+        gradientMagnitudeIntegerArray = aprilTagEdgeDetector.getGradientMagnitudeIntegerArray().clone();
+    }
+}
@@ -0,0 +1,347 @@
+package org.PhantomCamera.AprilTags;
+
+import org.PhantomCamera.Stadistics.FlightRecorder.AprilTagEdgeEvent;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.Arrays;
+
+/**
+ * Alternative to the global Sobel threshold of {@link AprilTagEdgeDetector}: classifies every
+ * pixel as black, white or unknown against the local contrast, and marks the black pixels that
+ * touch a white pixel as boundary pixels.
+ * <p>
+ * The frame is split into square tiles (4x4 by default). The first pass stores the minimum and
+ * maximum intensity of every tile; each tile then takes the minimum and maximum of its 3x3 tile
+ * neighbourhood, so a tag edge that falls on a tile border still sees both of its sides. The
+ * second pass classifies each pixel against the midpoint of its tile: a tile whose range is
+ * below the minimum contrast is unknown, which drops flat areas and soft texture entirely
+ * instead of turning every small gradient into edge pixels.
+ * <p>
+ * The boundary frame has the same 0 / 255 layout as the Sobel edge frame, so it feeds
+ * {@link AprilTagEdgeComponentExtractor} unchanged. It is one pixel wide and sits on the dark
+ * side of each black/white transition, which is also where the tag border is. There is no
+ * gradient magnitude array in this mode; {@link AprilTagCandidateDecodeStage} refines the
+ * corners from the grayscale frame instead when it receives none.
+ * <p>
+ * The ternary frame itself only lives in the three-row window; it is copied to a whole frame
+ * only when {@link #setThresholdedFrameRetentionEnabled(boolean)} is on, for debugging views.
+ */
+public class AprilTagAdaptiveThresholdSegmenter {
+
+    public static final int DEFAULT_TILE_SIZE_IN_PIXELS = 4;
+    public static final int DEFAULT_MINIMUM_TILE_CONTRAST_VALUE = 30;
+
+    /**
+     * Values of the thresholded (ternary) frame.
+     */
+    public static final byte BLACK_PIXEL_VALUE = 0;
+    public static final byte UNKNOWN_PIXEL_VALUE = (byte) 127;
+    public static final byte WHITE_PIXEL_VALUE = (byte) 255;
+
+    private final int frameWidth;
+    private final int frameHeight;
+
+    private final int tileSizeInPixels;
+    private final int minimumTileContrastValue;
+
+    /**
+     * Tile grid size; partial tiles at the right and bottom borders are included.
+     */
+    private final int tileColumnCount;
+    private final int tileRowCount;
+
+    /**
+     * Minimum and maximum per tile, then the same after the 3x3 tile dilation.
+     */
+    private final int[] tileMinimumIntensityArray;
+    private final int[] tileMaximumIntensityArray;
+    private final int[] dilatedTileMinimumIntensityArray;
+    private final int[] dilatedTileMaximumIntensityArray;
+
+    /**
+     * Whole ternary frame, created when retention is first enabled; null before that.
+     */
+    private DirectFrameBuffer thresholdedFrameBuffer;
+    private boolean thresholdedFrameRetentionEnabled;
+
+    private final DirectFrameBuffer boundaryBinaryFrameBuffer;
+
+    /**
+     * Row staging: one grayscale row, a rolling window of three thresholded rows and one
+     * boundary output row.
+     */
+    private final byte[] grayscaleRowByteArray;
+    private byte[] topThresholdedRowByteArray;
+    private byte[] middleThresholdedRowByteArray;
+    private byte[] bottomThresholdedRowByteArray;
+    private final byte[] boundaryBinaryRowByteArray;
+
+    public AprilTagAdaptiveThresholdSegmenter(int frameWidth, int frameHeight) {
+        this(frameWidth, frameHeight, DEFAULT_TILE_SIZE_IN_PIXELS, DEFAULT_MINIMUM_TILE_CONTRAST_VALUE);
+    }
+
+    /**
+     * @param tileSizeInPixels         side of the square tiles
+     * @param minimumTileContrastValue smallest max - min of a dilated tile for its pixels to be
+     *                                 classified; lower contrast gives unknown pixels
+     */
+    public AprilTagAdaptiveThresholdSegmenter(
+            int frameWidth,
+            int frameHeight,
+            int tileSizeInPixels,
+            int minimumTileContrastValue
+    ) {
+        if (tileSizeInPixels < 1) {
+            throw new IllegalArgumentException(
+                    "Tile size must be at least 1 pixel but received " + tileSizeInPixels
+            );
+        }
+
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.tileSizeInPixels = tileSizeInPixels;
+        this.minimumTileContrastValue = minimumTileContrastValue;
+
+        this.tileColumnCount = (frameWidth + tileSizeInPixels - 1) / tileSizeInPixels;
+        this.tileRowCount = (frameHeight + tileSizeInPixels - 1) / tileSizeInPixels;
+
+        int tileCount = tileColumnCount * tileRowCount;
+
+        this.tileMinimumIntensityArray = new int[tileCount];
+        this.tileMaximumIntensityArray = new int[tileCount];
+        this.dilatedTileMinimumIntensityArray = new int[tileCount];
+        this.dilatedTileMaximumIntensityArray = new int[tileCount];
+
+        this.boundaryBinaryFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 1);
+
+        this.grayscaleRowByteArray = new byte[frameWidth];
+        this.topThresholdedRowByteArray = new byte[frameWidth];
+        this.middleThresholdedRowByteArray = new byte[frameWidth];
+        this.bottomThresholdedRowByteArray = new byte[frameWidth];
+        this.boundaryBinaryRowByteArray = new byte[frameWidth];
+    }
+
+    /**
+     * Segments a grayscale frame and returns the boundary frame (0 or 255 per pixel).
+     * With retention on, the thresholded frame is available afterwards through
+     * {@link #getThresholdedFrameBuffer()}.
+     *
+     * @param grayscaleFrameBuffer input grayscale frame (1 channel)
+     * @return reference to the internal boundary frame buffer
+     */
+    public DirectFrameBuffer calculateBoundaryBinaryFrameBufferFromGrayscaleFrameBuffer(
+            DirectFrameBuffer grayscaleFrameBuffer
+    ) {
+        if (grayscaleFrameBuffer.getFrameWidth() != frameWidth
+                || grayscaleFrameBuffer.getFrameHeight() != frameHeight
+                || grayscaleFrameBuffer.getChannelCount() != 1) {
+            throw new IllegalArgumentException(
+                    "Input grayscale frame does not match segmenter configuration. " +
+                            "Expected " + frameWidth + "x" + frameHeight + "x1" +
+                            " but received " + grayscaleFrameBuffer.getFrameWidth() +
+                            "x" + grayscaleFrameBuffer.getFrameHeight() +
+                            "x" + grayscaleFrameBuffer.getChannelCount()
+            );
+        }
+
+        // Leido una vez: cambiarlo a mitad de frame no deja un frame umbralizado a medias
+        DirectFrameBuffer retainedThresholdedFrameBuffer = thresholdedFrameRetentionEnabled ? thresholdedFrameBuffer : null;
+
+        AprilTagEdgeEvent edgeEvent = new AprilTagEdgeEvent();
+        edgeEvent.begin();
+
+        calculateTileMinimumAndMaximum(grayscaleFrameBuffer);
+        dilateTileMinimumAndMaximum();
+
+        // Ventana de tres filas umbralizadas: la del medio recibe su borde cuando llega la de abajo
+        for (int pixelYPosition = 0; pixelYPosition < frameHeight; pixelYPosition++) {
+            byte[] recycledThresholdedRowByteArray = topThresholdedRowByteArray;
+            topThresholdedRowByteArray = middleThresholdedRowByteArray;
+            middleThresholdedRowByteArray = bottomThresholdedRowByteArray;
+            bottomThresholdedRowByteArray = recycledThresholdedRowByteArray;
+
+            grayscaleFrameBuffer.readRow(pixelYPosition, grayscaleRowByteArray);
+            thresholdGrayscaleRow(pixelYPosition, bottomThresholdedRowByteArray);
+
+            if (retainedThresholdedFrameBuffer != null) {
+                retainedThresholdedFrameBuffer.writeRow(pixelYPosition, bottomThresholdedRowByteArray);
+            }
+
+            if (pixelYPosition >= 2 && frameWidth >= 3) {
+                calculateBoundaryRow();
+                boundaryBinaryFrameBuffer.writeRow(pixelYPosition - 1, boundaryBinaryRowByteArray);
+            }
+        }
+
+        edgeEvent.end();
+        if (edgeEvent.shouldCommit()) {
+            edgeEvent.edgeSegmentationMode = AprilTagDetector.EdgeSegmentationMode.ADAPTIVE_TILE_THRESHOLD.name();
+            edgeEvent.frameWidth = frameWidth;
+            edgeEvent.frameHeight = frameHeight;
+            edgeEvent.commit();
+        }
+
+        return boundaryBinaryFrameBuffer;
+    }
+
+    private void calculateTileMinimumAndMaximum(DirectFrameBuffer grayscaleFrameBuffer) {
+        Arrays.fill(tileMinimumIntensityArray, 255);
+        Arrays.fill(tileMaximumIntensityArray, 0);
+
+        for (int pixelYPosition = 0; pixelYPosition < frameHeight; pixelYPosition++) {
+            grayscaleFrameBuffer.readRow(pixelYPosition, grayscaleRowByteArray);
+
+            int tileRowStartIndex = (pixelYPosition / tileSizeInPixels) * tileColumnCount;
+
+            for (int tileColumnIndex = 0; tileColumnIndex < tileColumnCount; tileColumnIndex++) {
+                int tileIndex = tileRowStartIndex + tileColumnIndex;
+
+                int tileMinimumIntensityValue = tileMinimumIntensityArray[tileIndex];
+                int tileMaximumIntensityValue = tileMaximumIntensityArray[tileIndex];
+
+                int firstPixelXPosition = tileColumnIndex * tileSizeInPixels;
+                int endPixelXPosition = Math.min(frameWidth, firstPixelXPosition + tileSizeInPixels);
+
+                for (int pixelXPosition = firstPixelXPosition; pixelXPosition < endPixelXPosition; pixelXPosition++) {
+                    int intensityValue = grayscaleRowByteArray[pixelXPosition] & 0xFF;
+
+                    if (intensityValue < tileMinimumIntensityValue) {
+                        tileMinimumIntensityValue = intensityValue;
+                    }
+                    if (intensityValue > tileMaximumIntensityValue) {
+                        tileMaximumIntensityValue = intensityValue;
+                    }
+                }
+
+                tileMinimumIntensityArray[tileIndex] = tileMinimumIntensityValue;
+                tileMaximumIntensityArray[tileIndex] = tileMaximumIntensityValue;
+            }
+        }
+    }
+
+    /**
+     * Every tile takes the minimum and maximum of its 3x3 neighbourhood of tiles.
+     */
+    private void dilateTileMinimumAndMaximum() {
+        for (int tileRowIndex = 0; tileRowIndex < tileRowCount; tileRowIndex++) {
+            int firstNeighbourTileRowIndex = Math.max(0, tileRowIndex - 1);
+            int lastNeighbourTileRowIndex = Math.min(tileRowCount - 1, tileRowIndex + 1);
+
+            for (int tileColumnIndex = 0; tileColumnIndex < tileColumnCount; tileColumnIndex++) {
+                int firstNeighbourTileColumnIndex = Math.max(0, tileColumnIndex - 1);
+                int lastNeighbourTileColumnIndex = Math.min(tileColumnCount - 1, tileColumnIndex + 1);
+
+                int dilatedMinimumIntensityValue = 255;
+                int dilatedMaximumIntensityValue = 0;
+
+                for (int neighbourTileRowIndex = firstNeighbourTileRowIndex;
+                     neighbourTileRowIndex <= lastNeighbourTileRowIndex;
+                     neighbourTileRowIndex++) {
+
+                    for (int neighbourTileColumnIndex = firstNeighbourTileColumnIndex;
+                         neighbourTileColumnIndex <= lastNeighbourTileColumnIndex;
+                         neighbourTileColumnIndex++) {
+
+                        int neighbourTileIndex = neighbourTileRowIndex * tileColumnCount + neighbourTileColumnIndex;
+
+                        dilatedMinimumIntensityValue =
+                                Math.min(dilatedMinimumIntensityValue, tileMinimumIntensityArray[neighbourTileIndex]);
+                        dilatedMaximumIntensityValue =
+                                Math.max(dilatedMaximumIntensityValue, tileMaximumIntensityArray[neighbourTileIndex]);
+                    }
+                }
+
+                int tileIndex = tileRowIndex * tileColumnCount + tileColumnIndex;
+
+                dilatedTileMinimumIntensityArray[tileIndex] = dilatedMinimumIntensityValue;
+                dilatedTileMaximumIntensityArray[tileIndex] = dilatedMaximumIntensityValue;
+            }
+        }
+    }
+
+    /**
+     * Classifies grayscaleRowByteArray against the dilated tile range of each pixel.
+     */
+    private void thresholdGrayscaleRow(int pixelYPosition, byte[] thresholdedRowByteArray) {
+        int tileRowStartIndex = (pixelYPosition / tileSizeInPixels) * tileColumnCount;
+
+        for (int tileColumnIndex = 0; tileColumnIndex < tileColumnCount; tileColumnIndex++) {
+            int tileIndex = tileRowStartIndex + tileColumnIndex;
+
+            int tileMinimumIntensityValue = dilatedTileMinimumIntensityArray[tileIndex];
+            int tileMaximumIntensityValue = dilatedTileMaximumIntensityArray[tileIndex];
+
+            int firstPixelXPosition = tileColumnIndex * tileSizeInPixels;
+            int endPixelXPosition = Math.min(frameWidth, firstPixelXPosition + tileSizeInPixels);
+
+            if (tileMaximumIntensityValue - tileMinimumIntensityValue < minimumTileContrastValue) {
+                for (int pixelXPosition = firstPixelXPosition; pixelXPosition < endPixelXPosition; pixelXPosition++) {
+                    thresholdedRowByteArray[pixelXPosition] = UNKNOWN_PIXEL_VALUE;
+                }
+                continue;
+            }
+
+            int tileThresholdValue =
+                    tileMinimumIntensityValue + (tileMaximumIntensityValue - tileMinimumIntensityValue) / 2;
+
+            for (int pixelXPosition = firstPixelXPosition; pixelXPosition < endPixelXPosition; pixelXPosition++) {
+                thresholdedRowByteArray[pixelXPosition] =
+                        (grayscaleRowByteArray[pixelXPosition] & 0xFF) > tileThresholdValue
+                                ? WHITE_PIXEL_VALUE
+                                : BLACK_PIXEL_VALUE;
+            }
+        }
+    }
+
+    /**
+     * Marks the black pixels of the middle thresholded row that have a white 4-neighbour.
+     * The first and last entries are left untouched (always 0).
+     */
+    private void calculateBoundaryRow() {
+        for (int pixelXPosition = 1; pixelXPosition < frameWidth - 1; pixelXPosition++) {
+            boolean boundaryPixel = middleThresholdedRowByteArray[pixelXPosition] == BLACK_PIXEL_VALUE
+                    && (middleThresholdedRowByteArray[pixelXPosition - 1] == WHITE_PIXEL_VALUE
+                    || middleThresholdedRowByteArray[pixelXPosition + 1] == WHITE_PIXEL_VALUE
+                    || topThresholdedRowByteArray[pixelXPosition] == WHITE_PIXEL_VALUE
+                    || bottomThresholdedRowByteArray[pixelXPosition] == WHITE_PIXEL_VALUE);
+
+            boundaryBinaryRowByteArray[pixelXPosition] = boundaryPixel ? (byte) 255 : 0;
+        }
+    }
+
+    /**
+     * Copies every thresholded row into {@link #getThresholdedFrameBuffer()}. Off by default:
+     * detection only needs the boundary frame, and the copy is one extra frame write per call.
+     */
+    public void setThresholdedFrameRetentionEnabled(boolean thresholdedFrameRetentionEnabled) {
+        if (thresholdedFrameRetentionEnabled && thresholdedFrameBuffer == null) {
+            thresholdedFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 1);
+        }
+        this.thresholdedFrameRetentionEnabled = thresholdedFrameRetentionEnabled;
+    }
+
+    public boolean isThresholdedFrameRetentionEnabled() {
+        return thresholdedFrameRetentionEnabled;
+    }
+
+    /**
+     * Black / white / unknown frame computed by the last call with retention on, see
+     * {@link #BLACK_PIXEL_VALUE}, {@link #WHITE_PIXEL_VALUE} and {@link #UNKNOWN_PIXEL_VALUE}.
+     *
+     * @return null until {@link #setThresholdedFrameRetentionEnabled(boolean)} enables retention
+     */
+    public DirectFrameBuffer getThresholdedFrameBuffer() {
+        return thresholdedFrameBuffer;
+    }
+
+    /**
+     * Boundary frame (0 or 255 per pixel) computed by the last call, shared with OpenCV.
+     */
+    public DirectFrameBuffer getBoundaryBinaryFrameBuffer() {
+        return boundaryBinaryFrameBuffer;
+    }
+
+    public int getTileSizeInPixels() {
+        return tileSizeInPixels;
+    }
+}
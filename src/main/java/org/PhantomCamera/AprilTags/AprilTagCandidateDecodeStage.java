@@ -0,0 +1,493 @@
+package org.PhantomCamera.AprilTags;
+
+import org.PhantomCamera.Stadistics.FlightRecorder.AprilTagCandidateDecodeEvent;
+import org.PhantomCamera.Stadistics.FlightRecorder.AprilTagDecodedTagEvent;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics.PipelineStage;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs hull -> quad fit -> corner refinement -> decode for every candidate component of a frame.
+ * <p>
+ * Candidates are independent, so they are spread over a fixed number of workers: worker w takes
+ * candidates w, w + workerCount, w + 2 * workerCount, ... which balances the few large
+ * components against the many small ones. Each worker owns its hull calculator, fitter, decoder
+ * and buffers, so workers never share scratch. Every candidate writes its result into its own
+ * slot and the slots are gathered in candidate order, so the output does not depend on
+ * scheduling: the same frame always gives the same list in the same order.
+ * <p>
+ * The pool bounds the threads; workerCount bounds how many scratch sets exist and how many
+ * candidates run at the same time. Without a pool everything runs on the caller thread.
+ * <p>
+ * With a decimation factor above 1 the components come from the decimated frame of
+ * {@link AprilTagFramePreProcessing}: hull and quad fit stay in decimated coordinates, then
+ * the corners are scaled up and refined on the full resolution grayscale frame, which is
+ * also the frame the bits are sampled from. No gradient array is needed in that mode.
+ * The same grayscale refinement is used at full resolution when no gradient array is given,
+ * for example with {@link AprilTagAdaptiveThresholdSegmenter}.
+ */
+public class AprilTagCandidateDecodeStage {
+
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int decimationFactor;
+
+    private final ForkJoinPool candidateForkJoinPool;
+    private final int workerCount;
+
+    private final CandidateWorkerScratch[] candidateWorkerScratchArray;
+
+    /**
+     * Result slot per candidate of the current frame, grown on demand.
+     */
+    private DetectedApriltag[] candidateResultSlotArray = new DetectedApriltag[0];
+
+    /**
+     * Optional per-stage timings (hull, quad fit, decode), null when not measured.
+     */
+    private PipelineStageLatencyMetrics pipelineStageLatencyMetrics;
+
+    /**
+     * Whether the workers time their steps this frame: for the metrics or for the JFR event.
+     * Written before the workers start.
+     */
+    private boolean frameStageLatencyMeasured;
+
+    /**
+     * Single worker on the caller thread.
+     */
+    public AprilTagCandidateDecodeStage(
+            int frameWidth,
+            int frameHeight,
+            AprilTag36h11Dictionary aprilTag36h11Dictionary
+    ) {
+        this(frameWidth, frameHeight, aprilTag36h11Dictionary, 1, null, 1);
+    }
+
+    /**
+     * @param candidateForkJoinPool pool that runs the workers, or null for the caller thread
+     * @param workerCount           number of workers; 0 or less uses the pool parallelism
+     */
+    public AprilTagCandidateDecodeStage(
+            int frameWidth,
+            int frameHeight,
+            AprilTag36h11Dictionary aprilTag36h11Dictionary,
+            ForkJoinPool candidateForkJoinPool,
+            int workerCount
+    ) {
+        this(frameWidth, frameHeight, aprilTag36h11Dictionary, 1, candidateForkJoinPool, workerCount);
+    }
+
+    /**
+     * @param frameWidth       full resolution frame width
+     * @param frameHeight      full resolution frame height
+     * @param decimationFactor decimation factor of the frame the candidates were extracted from,
+     *                         1 when they come from the full resolution frame
+     */
+    public AprilTagCandidateDecodeStage(
+            int frameWidth,
+            int frameHeight,
+            AprilTag36h11Dictionary aprilTag36h11Dictionary,
+            int decimationFactor,
+            ForkJoinPool candidateForkJoinPool,
+            int workerCount
+    ) {
+        if (decimationFactor < 1 || decimationFactor > AprilTagFramePreProcessing.MAXIMUM_DECIMATION_FACTOR) {
+            throw new IllegalArgumentException(
+                    "Decimation factor must be between 1 and " + AprilTagFramePreProcessing.MAXIMUM_DECIMATION_FACTOR +
+                            " but received " + decimationFactor
+            );
+        }
+
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.decimationFactor = decimationFactor;
+        this.candidateForkJoinPool = candidateForkJoinPool;
+
+        if (candidateForkJoinPool == null) {
+            this.workerCount = 1;
+        } else if (workerCount <= 0) {
+            this.workerCount = Math.max(1, candidateForkJoinPool.getParallelism());
+        } else {
+            this.workerCount = workerCount;
+        }
+
+        this.candidateWorkerScratchArray = new CandidateWorkerScratch[this.workerCount];
+
+        for (int workerIndex = 0; workerIndex < this.workerCount; workerIndex++) {
+            candidateWorkerScratchArray[workerIndex] =
+                    new CandidateWorkerScratch(frameWidth, frameHeight, decimationFactor, aprilTag36h11Dictionary);
+        }
+    }
+
+    /**
+     * Decodes every candidate component.
+     *
+     * @param candidateComponentList        components of the current frame, e.g. from
+     *                                      {@link AprilTagEdgeComponentExtractor}
+     * @param gradientMagnitudeIntegerArray gradient magnitude of the same frame, used for corner refinement;
+     *                                      ignored with decimation; null refines from the grayscale frame
+     * @param grayscaleFrameBuffer          full resolution grayscale frame the tags are sampled from
+     * @return detected tags in candidate order
+     */
+    public List<DetectedApriltag> decodeCandidateComponentList(
+            List<EdgeConnectedComponent> candidateComponentList,
+            int[] gradientMagnitudeIntegerArray,
+            DirectFrameBuffer grayscaleFrameBuffer
+    ) {
+        if (decimationFactor == 1
+                && gradientMagnitudeIntegerArray != null
+                && gradientMagnitudeIntegerArray.length < frameWidth * frameHeight) {
+            throw new IllegalArgumentException(
+                    "Gradient magnitude array does not match frame size. Expected at least " +
+                            frameWidth + "x" + frameHeight + " values but received " + gradientMagnitudeIntegerArray.length
+            );
+        }
+
+        AprilTagCandidateDecodeEvent candidateDecodeEvent = new AprilTagCandidateDecodeEvent();
+        candidateDecodeEvent.begin();
+
+        frameStageLatencyMeasured = pipelineStageLatencyMetrics != null || candidateDecodeEvent.isEnabled();
+
+        int candidateCount = candidateComponentList.size();
+
+        if (candidateResultSlotArray.length < candidateCount) {
+            candidateResultSlotArray = new DetectedApriltag[candidateCount];
+        }
+
+        int activeWorkerCount = Math.max(1, Math.min(workerCount, candidateCount));
+
+        if (candidateForkJoinPool == null || activeWorkerCount == 1) {
+            decodeWorkerCandidates(0, 1, candidateComponentList, gradientMagnitudeIntegerArray, grayscaleFrameBuffer);
+        } else {
+            candidateForkJoinPool.invoke(new CandidateWorkerRangeTask(
+                    0,
+                    activeWorkerCount,
+                    activeWorkerCount,
+                    candidateComponentList,
+                    gradientMagnitudeIntegerArray,
+                    grayscaleFrameBuffer
+            ));
+        }
+
+        if (frameStageLatencyMeasured) {
+            recordFrameStageLatencies(activeWorkerCount, candidateDecodeEvent);
+        }
+
+        // Recoger en orden de candidato: el resultado no depende del reparto entre workers
+        List<DetectedApriltag> detectedApriltagList = new ArrayList<>();
+
+        for (int candidateIndex = 0; candidateIndex < candidateCount; candidateIndex++) {
+            if (candidateResultSlotArray[candidateIndex] != null) {
+                detectedApriltagList.add(candidateResultSlotArray[candidateIndex]);
+                candidateResultSlotArray[candidateIndex] = null;
+            }
+        }
+
+        candidateDecodeEvent.end();
+        if (candidateDecodeEvent.shouldCommit()) {
+            candidateDecodeEvent.candidateComponentCount = candidateCount;
+            candidateDecodeEvent.fittedQuadrilateralCount = sumFittedQuadrilateralCount(activeWorkerCount);
+            candidateDecodeEvent.decodedTagCount = detectedApriltagList.size();
+            candidateDecodeEvent.workerCount = activeWorkerCount;
+            candidateDecodeEvent.commit();
+        }
+
+        for (int tagIndex = 0; tagIndex < detectedApriltagList.size(); tagIndex++) {
+            commitDecodedTagEvent(detectedApriltagList.get(tagIndex));
+        }
+
+        return detectedApriltagList;
+    }
+
+    private int sumFittedQuadrilateralCount(int activeWorkerCount) {
+        int fittedQuadrilateralCount = 0;
+
+        for (int workerIndex = 0; workerIndex < activeWorkerCount; workerIndex++) {
+            fittedQuadrilateralCount += candidateWorkerScratchArray[workerIndex].fittedQuadrilateralCount;
+        }
+
+        return fittedQuadrilateralCount;
+    }
+
+    private static void commitDecodedTagEvent(DetectedApriltag detectedApriltag) {
+        AprilTagDecodedTagEvent decodedTagEvent = new AprilTagDecodedTagEvent();
+
+        if (!decodedTagEvent.shouldCommit()) {
+            return;
+        }
+
+        double[] cornerPixelPositionArray = detectedApriltag.getCornerPixelPositionArray();
+
+        decodedTagEvent.tagIdIdentifier = detectedApriltag.getTagIdIdentifier();
+        decodedTagEvent.hammingDistance = detectedApriltag.getHammingDistance();
+        decodedTagEvent.centerXPixelPosition = (cornerPixelPositionArray[0] + cornerPixelPositionArray[2]
+                + cornerPixelPositionArray[4] + cornerPixelPositionArray[6]) / 4.0;
+        decodedTagEvent.centerYPixelPosition = (cornerPixelPositionArray[1] + cornerPixelPositionArray[3]
+                + cornerPixelPositionArray[5] + cornerPixelPositionArray[7]) / 4.0;
+        decodedTagEvent.commit();
+    }
+
+    /**
+     * Processes candidates workerIndex, workerIndex + workerStride, ... with the scratch of that worker.
+     */
+    private void decodeWorkerCandidates(
+            int workerIndex,
+            int workerStride,
+            List<EdgeConnectedComponent> candidateComponentList,
+            int[] gradientMagnitudeIntegerArray,
+            DirectFrameBuffer grayscaleFrameBuffer
+    ) {
+        CandidateWorkerScratch candidateWorkerScratch = candidateWorkerScratchArray[workerIndex];
+        candidateWorkerScratch.fittedQuadrilateralCount = 0;
+
+        for (int candidateIndex = workerIndex;
+             candidateIndex < candidateComponentList.size();
+             candidateIndex += workerStride) {
+
+            candidateResultSlotArray[candidateIndex] = candidateWorkerScratch.decodeCandidateComponent(
+                    candidateComponentList.get(candidateIndex),
+                    gradientMagnitudeIntegerArray,
+                    grayscaleFrameBuffer,
+                    frameStageLatencyMeasured
+            );
+        }
+    }
+
+    /**
+     * Records in the metrics and the JFR event, per stage, the longest time any one worker spent
+     * in it during this frame. The workers run in parallel, so that is the stage's share of the
+     * frame's wall time; the sum over workers would be CPU time and grow with the worker count.
+     * With one worker both agree.
+     */
+    private void recordFrameStageLatencies(int activeWorkerCount, AprilTagCandidateDecodeEvent candidateDecodeEvent) {
+        long frameHullNanoseconds = 0L;
+        long frameQuadFitNanoseconds = 0L;
+        long frameDecodeNanoseconds = 0L;
+
+        for (int workerIndex = 0; workerIndex < activeWorkerCount; workerIndex++) {
+            CandidateWorkerScratch candidateWorkerScratch = candidateWorkerScratchArray[workerIndex];
+
+            frameHullNanoseconds = Math.max(frameHullNanoseconds, candidateWorkerScratch.hullNanoseconds);
+            frameQuadFitNanoseconds = Math.max(frameQuadFitNanoseconds, candidateWorkerScratch.quadFitNanoseconds);
+            frameDecodeNanoseconds = Math.max(frameDecodeNanoseconds, candidateWorkerScratch.decodeNanoseconds);
+
+            candidateWorkerScratch.hullNanoseconds = 0L;
+            candidateWorkerScratch.quadFitNanoseconds = 0L;
+            candidateWorkerScratch.decodeNanoseconds = 0L;
+        }
+
+        candidateDecodeEvent.hullDuration = frameHullNanoseconds;
+        candidateDecodeEvent.quadFitDuration = frameQuadFitNanoseconds;
+        candidateDecodeEvent.decodeDuration = frameDecodeNanoseconds;
+
+        PipelineStageLatencyMetrics currentStageLatencyMetrics = pipelineStageLatencyMetrics;
+        if (currentStageLatencyMetrics != null) {
+            currentStageLatencyMetrics.recordStageLatency(PipelineStage.HULL, frameHullNanoseconds);
+            currentStageLatencyMetrics.recordStageLatency(PipelineStage.QUAD_FIT, frameQuadFitNanoseconds);
+            currentStageLatencyMetrics.recordStageLatency(PipelineStage.DECODE, frameDecodeNanoseconds);
+        }
+    }
+
+    /**
+     * Records hull, quad fit (including refinement) and decode time per frame, or stops
+     * measuring when null. Timing costs two System.nanoTime calls per candidate and step.
+     */
+    public void setPipelineStageLatencyMetrics(PipelineStageLatencyMetrics pipelineStageLatencyMetrics) {
+        this.pipelineStageLatencyMetrics = pipelineStageLatencyMetrics;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public int getDecimationFactor() {
+        return decimationFactor;
+    }
+
+    /**
+     * Everything one worker needs for a candidate; reused for every candidate of that worker.
+     */
+    private static final class CandidateWorkerScratch {
+
+        private final int frameWidth;
+        private final int frameHeight;
+        private final int decimationFactor;
+
+        private final AprilTagConvexHullCalculator aprilTagConvexHullCalculator = new AprilTagConvexHullCalculator();
+        private final AprilTagQuadrilateralFitter aprilTagQuadrilateralFitter = new AprilTagQuadrilateralFitter();
+        private final AprilTagQuadDecoder aprilTagQuadDecoder;
+
+        private int[] hullXCoordinateArray = new int[0];
+        private int[] hullYCoordinateArray = new int[0];
+
+        /**
+         * Fitted corners of the current candidate, refined in place to sub-pixel positions.
+         */
+        private final double[] cornerCoordinateArray = new double[8];
+
+        /**
+         * Time spent by this worker in each step during the current frame, when measured.
+         */
+        private long hullNanoseconds;
+        private long quadFitNanoseconds;
+        private long decodeNanoseconds;
+
+        /**
+         * Candidates of the current frame whose hull fitted a quadrilateral.
+         */
+        private int fittedQuadrilateralCount;
+
+        private CandidateWorkerScratch(
+                int frameWidth,
+                int frameHeight,
+                int decimationFactor,
+                AprilTag36h11Dictionary aprilTag36h11Dictionary
+        ) {
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            this.decimationFactor = decimationFactor;
+            this.aprilTagQuadDecoder = new AprilTagQuadDecoder(frameWidth, frameHeight, aprilTag36h11Dictionary);
+        }
+
+        private DetectedApriltag decodeCandidateComponent(
+                EdgeConnectedComponent candidateComponent,
+                int[] gradientMagnitudeIntegerArray,
+                DirectFrameBuffer grayscaleFrameBuffer,
+                boolean stageLatencyMeasured
+        ) {
+            long hullStartNanoseconds = stageLatencyMeasured ? System.nanoTime() : 0L;
+
+            int requiredHullBufferLength = AprilTagConvexHullCalculator.getRequiredHullBufferLength(
+                    candidateComponent.getStoredPixelCoordinateCount()
+            );
+
+            if (hullXCoordinateArray.length < requiredHullBufferLength) {
+                hullXCoordinateArray = new int[requiredHullBufferLength];
+                hullYCoordinateArray = new int[requiredHullBufferLength];
+            }
+
+            int hullPointCount = aprilTagConvexHullCalculator.calculateConvexHull(
+                    candidateComponent,
+                    hullXCoordinateArray,
+                    hullYCoordinateArray
+            );
+
+            long hullEndNanoseconds = stageLatencyMeasured ? System.nanoTime() : 0L;
+
+            boolean quadrilateralFitted = aprilTagQuadrilateralFitter.calculateQuadrilateralCornerCoordinatesFromConvexHull(
+                    hullXCoordinateArray,
+                    hullYCoordinateArray,
+                    hullPointCount,
+                    cornerCoordinateArray,
+                    0
+            );
+
+            if (!quadrilateralFitted) {
+                if (stageLatencyMeasured) {
+                    hullNanoseconds += hullEndNanoseconds - hullStartNanoseconds;
+                    quadFitNanoseconds += System.nanoTime() - hullEndNanoseconds;
+                }
+                return null;
+            }
+
+            fittedQuadrilateralCount++;
+
+            // Refinamiento en el mismo arreglo: las esquinas enteras se reemplazan por las sub-pixel
+            if (decimationFactor > 1 || gradientMagnitudeIntegerArray == null) {
+                aprilTagQuadrilateralFitter.refineDecimatedQuadrilateralCornerCoordinatesWithGrayscaleFrame(
+                        cornerCoordinateArray,
+                        0,
+                        decimationFactor,
+                        grayscaleFrameBuffer,
+                        cornerCoordinateArray,
+                        0
+                );
+            } else {
+                aprilTagQuadrilateralFitter.refineQuadrilateralCornerCoordinatesWithGradientMagnitude(
+                        cornerCoordinateArray,
+                        0,
+                        gradientMagnitudeIntegerArray,
+                        frameWidth,
+                        frameHeight,
+                        cornerCoordinateArray,
+                        0
+                );
+            }
+
+            if (!stageLatencyMeasured) {
+                return aprilTagQuadDecoder.decodeQuadrilateral(cornerCoordinateArray, 0, grayscaleFrameBuffer);
+            }
+
+            long quadFitEndNanoseconds = System.nanoTime();
+
+            DetectedApriltag decodedApriltag =
+                    aprilTagQuadDecoder.decodeQuadrilateral(cornerCoordinateArray, 0, grayscaleFrameBuffer);
+
+            hullNanoseconds += hullEndNanoseconds - hullStartNanoseconds;
+            quadFitNanoseconds += quadFitEndNanoseconds - hullEndNanoseconds;
+            decodeNanoseconds += System.nanoTime() - quadFitEndNanoseconds;
+
+            return decodedApriltag;
+        }
+    }
+
+    /**
+     * Splits a range of worker indices in halves until single workers remain.
+     */
+    private final class CandidateWorkerRangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int firstWorkerIndex;
+        private final int endWorkerIndex;
+        private final int workerStride;
+
+        private final List<EdgeConnectedComponent> candidateComponentList;
+        private final int[] gradientMagnitudeIntegerArray;
+        private final DirectFrameBuffer grayscaleFrameBuffer;
+
+        private CandidateWorkerRangeTask(
+                int firstWorkerIndex,
+                int endWorkerIndex,
+                int workerStride,
+                List<EdgeConnectedComponent> candidateComponentList,
+                int[] gradientMagnitudeIntegerArray,
+                DirectFrameBuffer grayscaleFrameBuffer
+        ) {
+            this.firstWorkerIndex = firstWorkerIndex;
+            this.endWorkerIndex = endWorkerIndex;
+            this.workerStride = workerStride;
+            this.candidateComponentList = candidateComponentList;
+            this.gradientMagnitudeIntegerArray = gradientMagnitudeIntegerArray;
+            this.grayscaleFrameBuffer = grayscaleFrameBuffer;
+        }
+
+        @Override
+        protected void compute() {
+            if (endWorkerIndex - firstWorkerIndex > 1) {
+                int middleWorkerIndex = (firstWorkerIndex + endWorkerIndex) >>> 1;
+                invokeAll(
+                        new CandidateWorkerRangeTask(firstWorkerIndex, middleWorkerIndex,
+                                workerStride, candidateComponentList, gradientMagnitudeIntegerArray, grayscaleFrameBuffer),
+                        new CandidateWorkerRangeTask(middleWorkerIndex, endWorkerIndex,
+                                workerStride, candidateComponentList, gradientMagnitudeIntegerArray, grayscaleFrameBuffer)
+                );
+                return;
+            }
+
+            decodeWorkerCandidates(
+                    firstWorkerIndex,
+                    workerStride,
+                    candidateComponentList,
+                    gradientMagnitudeIntegerArray,
+                    grayscaleFrameBuffer
+            );
+        }
+    }
+}
@@ -1,12 +1,265 @@
 package org.PhantomCamera.AprilTags;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 
+/**
+ * Convex hull (monotone chain) of component pixels.
+ * <p>
+ * The list version works on {@link PixelCoordinate} objects. The primitive version works on
+ * x / y arrays such as the coordinate slabs of {@link EdgeConnectedComponent}, sorts with a
+ * radix sort on packed coordinates and writes into caller buffers, so it allocates nothing
+ * once its internal sort scratch has grown to the largest component. Because of that
+ * scratch an instance must not be shared between threads.
+ */
 public class AprilTagConvexHullCalculator {
 
+    /**
+     * Image coordinates are packed as (x << 16) | y, so both must fit in 16 bits.
+     */
+    private static final int MAXIMUM_PACKED_COORDINATE_VALUE = 0xFFFF;
+
+    private static final int RADIX_SORT_BUCKET_COUNT = 256;
+
+    /**
+     * Reusable radix sort scratch, grown on demand.
+     */
+    private int[] packedPixelCoordinateIntegerArray = new int[0];
+    private int[] packedPixelCoordinateSortScratchIntegerArray = new int[0];
+    private final int[] radixSortBucketCountIntegerArray = new int[RADIX_SORT_BUCKET_COUNT];
+
+    /**
+     * Minimum size of each hull output array for a component of pixelCount pixels.
+     * The monotone chain can temporarily hold more points than the final hull.
+     */
+    public static int getRequiredHullBufferLength(int pixelCount) {
+        return 2 * pixelCount + 1;
+    }
+
+    /**
+     * Convex hull of pixels [pixelCoordinateOffset, pixelCoordinateOffset + pixelCount) of the
+     * coordinate arrays, written to hullXCoordinateArray / hullYCoordinateArray in the same order
+     * as {@link #calculateConvexHullPixelPositionList(List)}: lower hull from left to right, then
+     * upper hull from right to left, without repeating the end points.
+     *
+     * @param hullXCoordinateArray output, at least {@link #getRequiredHullBufferLength(int)} entries
+     * @param hullYCoordinateArray output, at least {@link #getRequiredHullBufferLength(int)} entries
+     * @return number of hull points written
+     */
+    public int calculateConvexHull(
+            int[] pixelXCoordinateArray,
+            int[] pixelYCoordinateArray,
+            int pixelCoordinateOffset,
+            int pixelCount,
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray
+    ) {
+        validateHullBufferLength(pixelCount, hullXCoordinateArray, hullYCoordinateArray);
+
+        if (pixelCount <= 1) {
+            return copySinglePixelHull(
+                    pixelXCoordinateArray,
+                    pixelYCoordinateArray,
+                    pixelCoordinateOffset,
+                    pixelCount,
+                    hullXCoordinateArray,
+                    hullYCoordinateArray
+            );
+        }
+
+        int[] sortedPackedPixelCoordinateArray = sortPackedPixelCoordinates(
+                pixelXCoordinateArray,
+                pixelYCoordinateArray,
+                pixelCoordinateOffset,
+                pixelCount
+        );
+
+        int hullPointCount = 0;
+
+        // Construir la parte inferior del hull
+        for (int sortedIndex = 0; sortedIndex < pixelCount; sortedIndex++) {
+            int packedPixelCoordinate = sortedPackedPixelCoordinateArray[sortedIndex];
+
+            hullPointCount = appendHullPoint(
+                    packedPixelCoordinate >>> 16,
+                    packedPixelCoordinate & MAXIMUM_PACKED_COORDINATE_VALUE,
+                    hullXCoordinateArray,
+                    hullYCoordinateArray,
+                    hullPointCount,
+                    2
+            );
+        }
+
+        // Construir la parte superior del hull; el primer punto ya es el ultimo de la inferior
+        int lowerHullPointCount = hullPointCount;
+
+        for (int sortedIndex = pixelCount - 2; sortedIndex >= 0; sortedIndex--) {
+            int packedPixelCoordinate = sortedPackedPixelCoordinateArray[sortedIndex];
+
+            hullPointCount = appendHullPoint(
+                    packedPixelCoordinate >>> 16,
+                    packedPixelCoordinate & MAXIMUM_PACKED_COORDINATE_VALUE,
+                    hullXCoordinateArray,
+                    hullYCoordinateArray,
+                    hullPointCount,
+                    lowerHullPointCount + 1
+            );
+        }
+
+        // El ultimo punto repite el primero
+        return hullPointCount - 1;
+    }
+
+    /**
+     * Convex hull of pixels that are already in raster order (y ascending, then x ascending),
+     * such as the row-extremal pixels kept by {@link AprilTagEdgeComponentExtractor}. That is a
+     * valid sweep order for the monotone chain, so no sort is needed and the cost is linear in
+     * the stored pixels: with row extremal retention that is at most two per row, so
+     * O(component height).
+     * <p>
+     * The hull is counter clockwise like {@link #calculateConvexHull}, but it starts at the
+     * topmost pixel instead of the leftmost one.
+     *
+     * @param hullXCoordinateArray output, at least {@link #getRequiredHullBufferLength(int)} entries
+     * @param hullYCoordinateArray output, at least {@link #getRequiredHullBufferLength(int)} entries
+     * @return number of hull points written
+     * @throws IllegalArgumentException if the pixels are not in raster order
+     */
+    public int calculateConvexHullFromRasterOrderedPixels(
+            int[] pixelXCoordinateArray,
+            int[] pixelYCoordinateArray,
+            int pixelCoordinateOffset,
+            int pixelCount,
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray
+    ) {
+        validateHullBufferLength(pixelCount, hullXCoordinateArray, hullYCoordinateArray);
+
+        if (pixelCount <= 1) {
+            return copySinglePixelHull(
+                    pixelXCoordinateArray,
+                    pixelYCoordinateArray,
+                    pixelCoordinateOffset,
+                    pixelCount,
+                    hullXCoordinateArray,
+                    hullYCoordinateArray
+            );
+        }
+
+        int hullPointCount = 0;
+
+        // Cadena de ida: de arriba hacia abajo (comprobando el orden raster de paso)
+        for (int pixelIndex = 0; pixelIndex < pixelCount; pixelIndex++) {
+            int pixelXCoordinate = pixelXCoordinateArray[pixelCoordinateOffset + pixelIndex];
+            int pixelYCoordinate = pixelYCoordinateArray[pixelCoordinateOffset + pixelIndex];
+
+            if (pixelIndex > 0) {
+                int previousPixelXCoordinate = pixelXCoordinateArray[pixelCoordinateOffset + pixelIndex - 1];
+                int previousPixelYCoordinate = pixelYCoordinateArray[pixelCoordinateOffset + pixelIndex - 1];
+
+                if (pixelYCoordinate < previousPixelYCoordinate
+                        || (pixelYCoordinate == previousPixelYCoordinate && pixelXCoordinate < previousPixelXCoordinate)) {
+                    throw new IllegalArgumentException(
+                            "Pixels are not in raster order. Expected a pixel after (" +
+                                    previousPixelXCoordinate + ", " + previousPixelYCoordinate +
+                                    ") but received (" + pixelXCoordinate + ", " + pixelYCoordinate + ")"
+                    );
+                }
+            }
+
+            hullPointCount = appendHullPoint(
+                    pixelXCoordinate,
+                    pixelYCoordinate,
+                    hullXCoordinateArray,
+                    hullYCoordinateArray,
+                    hullPointCount,
+                    2
+            );
+        }
+
+        // Cadena de vuelta: de abajo hacia arriba
+        int forwardChainPointCount = hullPointCount;
+
+        for (int pixelIndex = pixelCount - 2; pixelIndex >= 0; pixelIndex--) {
+            hullPointCount = appendHullPoint(
+                    pixelXCoordinateArray[pixelCoordinateOffset + pixelIndex],
+                    pixelYCoordinateArray[pixelCoordinateOffset + pixelIndex],
+                    hullXCoordinateArray,
+                    hullYCoordinateArray,
+                    hullPointCount,
+                    forwardChainPointCount + 1
+            );
+        }
+
+        return hullPointCount - 1;
+    }
+
+    /**
+     * Convex hull of a component's stored pixels. Components whose pixels were stored in raster
+     * order (every component from the union-find extractor, with or without row extremal
+     * retention) take the linear {@link #calculateConvexHullFromRasterOrderedPixels} path;
+     * the rest are radix sorted by {@link #calculateConvexHull(int[], int[], int, int, int[], int[])}.
+     *
+     * @return number of hull points written
+     */
+    public int calculateConvexHull(
+            EdgeConnectedComponent edgeConnectedComponent,
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray
+    ) {
+        if (edgeConnectedComponent.arePixelCoordinatesInRasterOrder()) {
+            return calculateConvexHullFromRasterOrderedPixels(
+                    edgeConnectedComponent.getPixelXCoordinateArray(),
+                    edgeConnectedComponent.getPixelYCoordinateArray(),
+                    edgeConnectedComponent.getPixelCoordinateOffset(),
+                    edgeConnectedComponent.getStoredPixelCoordinateCount(),
+                    hullXCoordinateArray,
+                    hullYCoordinateArray
+            );
+        }
+
+        return calculateConvexHull(
+                edgeConnectedComponent.getPixelXCoordinateArray(),
+                edgeConnectedComponent.getPixelYCoordinateArray(),
+                edgeConnectedComponent.getPixelCoordinateOffset(),
+                edgeConnectedComponent.getStoredPixelCoordinateCount(),
+                hullXCoordinateArray,
+                hullYCoordinateArray
+        );
+    }
+
+    /**
+     * Convenience version for a component: primitive hull, returned as a (small) list.
+     */
+    public List<PixelCoordinate> calculateConvexHullPixelPositionList(
+            EdgeConnectedComponent edgeConnectedComponent
+    ) {
+        int requiredHullBufferLength =
+                getRequiredHullBufferLength(edgeConnectedComponent.getStoredPixelCoordinateCount());
+
+        int[] hullXCoordinateArray = new int[requiredHullBufferLength];
+        int[] hullYCoordinateArray = new int[requiredHullBufferLength];
+
+        int hullPointCount = calculateConvexHull(
+                edgeConnectedComponent,
+                hullXCoordinateArray,
+                hullYCoordinateArray
+        );
+
+        List<PixelCoordinate> convexHullPixelPositionList = new ArrayList<>(hullPointCount);
+
+        for (int hullIndex = 0; hullIndex < hullPointCount; hullIndex++) {
+            convexHullPixelPositionList.add(
+                    new PixelCoordinate(hullXCoordinateArray[hullIndex], hullYCoordinateArray[hullIndex])
+            );
+        }
+
+        return convexHullPixelPositionList;
+    }
+
     public List<PixelCoordinate> calculateConvexHullPixelPositionList(
             List<PixelCoordinate> inputPixelPositionList
     ) {
@@ -137,4 +390,148 @@ public class AprilTagConvexHullCalculator {
         return firstVectorXComponent * secondVectorYComponent
                 - firstVectorYComponent * secondVectorXComponent;
     }
+
+    private static void validateHullBufferLength(
+            int pixelCount,
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray
+    ) {
+        int requiredHullBufferLength = getRequiredHullBufferLength(pixelCount);
+
+        if (hullXCoordinateArray.length < requiredHullBufferLength
+                || hullYCoordinateArray.length < requiredHullBufferLength) {
+            throw new IllegalArgumentException(
+                    "Hull buffers are too small. Expected at least " + requiredHullBufferLength +
+                            " entries but received " + hullXCoordinateArray.length +
+                            " and " + hullYCoordinateArray.length
+            );
+        }
+    }
+
+    /**
+     * Hull of zero or one pixel: the pixel itself, if any.
+     */
+    private static int copySinglePixelHull(
+            int[] pixelXCoordinateArray,
+            int[] pixelYCoordinateArray,
+            int pixelCoordinateOffset,
+            int pixelCount,
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray
+    ) {
+        if (pixelCount == 1) {
+            hullXCoordinateArray[0] = pixelXCoordinateArray[pixelCoordinateOffset];
+            hullYCoordinateArray[0] = pixelYCoordinateArray[pixelCoordinateOffset];
+        }
+        return pixelCount;
+    }
+
+    /**
+     * Pushes a point onto the hull stack, first popping points that do not make a left turn.
+     * Points below minimumStackSize belong to an already finished chain and are kept.
+     */
+    private int appendHullPoint(
+            int currentXCoordinate,
+            int currentYCoordinate,
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray,
+            int hullPointCount,
+            int minimumStackSize
+    ) {
+        while (hullPointCount >= minimumStackSize) {
+            long firstVectorXComponent =
+                    hullXCoordinateArray[hullPointCount - 1] - hullXCoordinateArray[hullPointCount - 2];
+            long firstVectorYComponent =
+                    hullYCoordinateArray[hullPointCount - 1] - hullYCoordinateArray[hullPointCount - 2];
+            long secondVectorXComponent =
+                    currentXCoordinate - hullXCoordinateArray[hullPointCount - 2];
+            long secondVectorYComponent =
+                    currentYCoordinate - hullYCoordinateArray[hullPointCount - 2];
+
+            long crossProductValue = firstVectorXComponent * secondVectorYComponent
+                    - firstVectorYComponent * secondVectorXComponent;
+
+            if (crossProductValue <= 0) {
+                hullPointCount--;
+            } else {
+                break;
+            }
+        }
+
+        hullXCoordinateArray[hullPointCount] = currentXCoordinate;
+        hullYCoordinateArray[hullPointCount] = currentYCoordinate;
+
+        return hullPointCount + 1;
+    }
+
+    /**
+     * Packs every pixel as (x << 16) | y and sorts the keys as unsigned ints with an LSD radix
+     * sort on bytes, which orders by x and then y like the list version. Byte positions where
+     * every key has the same value are skipped, so small components usually need two passes.
+     *
+     * @return array holding the sorted keys in its first pixelCount entries
+     */
+    private int[] sortPackedPixelCoordinates(
+            int[] pixelXCoordinateArray,
+            int[] pixelYCoordinateArray,
+            int pixelCoordinateOffset,
+            int pixelCount
+    ) {
+        if (packedPixelCoordinateIntegerArray.length < pixelCount) {
+            packedPixelCoordinateIntegerArray = new int[pixelCount];
+            packedPixelCoordinateSortScratchIntegerArray = new int[pixelCount];
+        }
+
+        int[] sourceKeyArray = packedPixelCoordinateIntegerArray;
+        int[] destinationKeyArray = packedPixelCoordinateSortScratchIntegerArray;
+
+        for (int pixelIndex = 0; pixelIndex < pixelCount; pixelIndex++) {
+            int pixelXCoordinate = pixelXCoordinateArray[pixelCoordinateOffset + pixelIndex];
+            int pixelYCoordinate = pixelYCoordinateArray[pixelCoordinateOffset + pixelIndex];
+
+            if ((pixelXCoordinate | pixelYCoordinate) < 0
+                    || pixelXCoordinate > MAXIMUM_PACKED_COORDINATE_VALUE
+                    || pixelYCoordinate > MAXIMUM_PACKED_COORDINATE_VALUE) {
+                throw new IllegalArgumentException(
+                        "Pixel coordinates must be in 0.." + MAXIMUM_PACKED_COORDINATE_VALUE +
+                                " but received (" + pixelXCoordinate + ", " + pixelYCoordinate + ")"
+                );
+            }
+
+            sourceKeyArray[pixelIndex] = (pixelXCoordinate << 16) | pixelYCoordinate;
+        }
+
+        for (int byteShift = 0; byteShift < 32; byteShift += 8) {
+
+            Arrays.fill(radixSortBucketCountIntegerArray, 0);
+
+            for (int pixelIndex = 0; pixelIndex < pixelCount; pixelIndex++) {
+                radixSortBucketCountIntegerArray[(sourceKeyArray[pixelIndex] >>> byteShift) & 0xFF]++;
+            }
+
+            // Todas las claves tienen el mismo byte: este paso no cambia el orden
+            if (radixSortBucketCountIntegerArray[(sourceKeyArray[0] >>> byteShift) & 0xFF] == pixelCount) {
+                continue;
+            }
+
+            int bucketStartIndex = 0;
+            for (int bucketIndex = 0; bucketIndex < RADIX_SORT_BUCKET_COUNT; bucketIndex++) {
+                int bucketCount = radixSortBucketCountIntegerArray[bucketIndex];
+                radixSortBucketCountIntegerArray[bucketIndex] = bucketStartIndex;
+                bucketStartIndex += bucketCount;
+            }
+
+            for (int pixelIndex = 0; pixelIndex < pixelCount; pixelIndex++) {
+                int packedPixelCoordinate = sourceKeyArray[pixelIndex];
+                int bucketIndex = (packedPixelCoordinate >>> byteShift) & 0xFF;
+                destinationKeyArray[radixSortBucketCountIntegerArray[bucketIndex]++] = packedPixelCoordinate;
+            }
+
+            int[] swappedKeyArray = sourceKeyArray;
+            sourceKeyArray = destinationKeyArray;
+            destinationKeyArray = swappedKeyArray;
+        }
+
+        return sourceKeyArray;
+    }
 }
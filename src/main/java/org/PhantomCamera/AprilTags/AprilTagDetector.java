@@ -0,0 +1,452 @@
+package org.PhantomCamera.AprilTags;
+
+import org.PhantomCamera.Stadistics.FlightRecorder.AprilTagDetectionEvent;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics.PipelineStage;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Single entry point for tag detection: BGR frame in, {@link DetectedApriltag} list out.
+ * <p>
+ * Chains {@link AprilTagFramePreProcessing}, the edge stage ({@link AprilTagEdgeDetector} or
+ * {@link AprilTagAdaptiveThresholdSegmenter}), {@link AprilTagEdgeComponentExtractor} and
+ * {@link AprilTagCandidateDecodeStage} (hull, quad fit, refinement, decode). Run serially in
+ * Sobel mode without decimation, grayscale and edge come from one {@link AprilTagFusedFrontEnd}
+ * pass instead (same output, one pass over the frame). Every stage and
+ * buffer is created for one frame size and reused for every frame of that size; a frame of a
+ * different size, or a configuration change, rebuilds them once on the next call, so no
+ * frame-sized array is allocated per frame.
+ * <p>
+ * Not thread-safe: one detector per camera thread. The pool, when given, is only used inside
+ * each call to split the stages.
+ */
+public class AprilTagDetector {
+
+    public enum EdgeSegmentationMode {
+        /**
+         * Sobel gradient magnitude against one global threshold.
+         */
+        SOBEL_GRADIENT_THRESHOLD,
+        /**
+         * Black / white boundaries against per-tile min / max.
+         */
+        ADAPTIVE_TILE_THRESHOLD
+    }
+
+    public static final int DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE = 80;
+
+    /**
+     * Default limits, in pixels of the frame the components are extracted from (the decimated
+     * frame when decimation is on): big enough to drop noise specks, nothing else.
+     */
+    public static final EdgeComponentRejectionCriteria DEFAULT_EDGE_COMPONENT_REJECTION_CRITERIA =
+            new EdgeComponentRejectionCriteria(24, Integer.MAX_VALUE, 8, Integer.MAX_VALUE, 4.0, 0.0, 1.0);
+
+    private final AprilTag36h11Dictionary aprilTag36h11Dictionary;
+
+    /**
+     * Optional pool shared by the parallel stages, or null to run everything on the caller thread.
+     */
+    private final ForkJoinPool detectionForkJoinPool;
+    private final int workerCount;
+
+    private EdgeSegmentationMode edgeSegmentationMode = EdgeSegmentationMode.SOBEL_GRADIENT_THRESHOLD;
+    private int gradientMagnitudeThresholdValue = DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE;
+    private int decimationFactor = 1;
+    private EdgeComponentRejectionCriteria edgeComponentRejectionCriteria = DEFAULT_EDGE_COMPONENT_REJECTION_CRITERIA;
+    private PipelineStageLatencyMetrics pipelineStageLatencyMetrics;
+    private boolean fusedFrontEndEnabled = true;
+
+    /**
+     * Stages for the current frame size, null until the first frame or after a configuration change.
+     */
+    private DetectionPipeline detectionPipeline;
+
+    public AprilTagDetector(AprilTag36h11Dictionary aprilTag36h11Dictionary) {
+        this(aprilTag36h11Dictionary, null, 1);
+    }
+
+    /**
+     * @param detectionForkJoinPool pool for the edge, labelling and decode stages, or null for serial
+     * @param workerCount           bands / tiles / decode workers per stage; 0 or less uses the pool parallelism
+     */
+    public AprilTagDetector(
+            AprilTag36h11Dictionary aprilTag36h11Dictionary,
+            ForkJoinPool detectionForkJoinPool,
+            int workerCount
+    ) {
+        if (aprilTag36h11Dictionary == null) {
+            throw new IllegalArgumentException("AprilTag dictionary must not be null");
+        }
+
+        this.aprilTag36h11Dictionary = aprilTag36h11Dictionary;
+        this.detectionForkJoinPool = detectionForkJoinPool;
+        this.workerCount = workerCount;
+    }
+
+    /**
+     * Detects tags in a BGR Mat (CV_8UC3). An empty Mat gives an empty list.
+     */
+    public List<DetectedApriltag> detect(Mat inputColorFrameMatrix) {
+        if (inputColorFrameMatrix.empty()) {
+            return new ArrayList<>();
+        }
+
+        DetectionPipeline currentDetectionPipeline =
+                getDetectionPipeline(inputColorFrameMatrix.cols(), inputColorFrameMatrix.rows());
+
+        if (currentDetectionPipeline.inputColorFrameBuffer == null) {
+            currentDetectionPipeline.inputColorFrameBuffer =
+                    new DirectFrameBuffer(inputColorFrameMatrix.cols(), inputColorFrameMatrix.rows(), 3);
+        }
+
+        // Single native copy into direct memory, then the same path as a frame buffer
+        currentDetectionPipeline.inputColorFrameBuffer.copyFromFrameMatrix(inputColorFrameMatrix);
+
+        return currentDetectionPipeline.detect(currentDetectionPipeline.inputColorFrameBuffer);
+    }
+
+    /**
+     * Detects tags in a BGR frame buffer (3 channels), reading it in place.
+     */
+    public List<DetectedApriltag> detect(DirectFrameBuffer inputColorFrameBuffer) {
+        if (inputColorFrameBuffer.getChannelCount() != 3) {
+            throw new IllegalArgumentException(
+                    "Input frame buffer must have 3 channels but has " + inputColorFrameBuffer.getChannelCount()
+            );
+        }
+
+        return getDetectionPipeline(inputColorFrameBuffer.getFrameWidth(), inputColorFrameBuffer.getFrameHeight())
+                .detect(inputColorFrameBuffer);
+    }
+
+    private DetectionPipeline getDetectionPipeline(int frameWidth, int frameHeight) {
+        if (detectionPipeline == null
+                || detectionPipeline.frameWidth != frameWidth
+                || detectionPipeline.frameHeight != frameHeight) {
+            detectionPipeline = new DetectionPipeline(frameWidth, frameHeight);
+        }
+        return detectionPipeline;
+    }
+
+    public void setEdgeSegmentationMode(EdgeSegmentationMode edgeSegmentationMode) {
+        if (edgeSegmentationMode == null) {
+            throw new IllegalArgumentException("Edge segmentation mode must not be null");
+        }
+        this.edgeSegmentationMode = edgeSegmentationMode;
+        this.detectionPipeline = null;
+    }
+
+    public EdgeSegmentationMode getEdgeSegmentationMode() {
+        return edgeSegmentationMode;
+    }
+
+    /**
+     * Threshold of {@link EdgeSegmentationMode#SOBEL_GRADIENT_THRESHOLD}.
+     */
+    public void setGradientMagnitudeThresholdValue(int gradientMagnitudeThresholdValue) {
+        this.gradientMagnitudeThresholdValue = gradientMagnitudeThresholdValue;
+        this.detectionPipeline = null;
+    }
+
+    public int getGradientMagnitudeThresholdValue() {
+        return gradientMagnitudeThresholdValue;
+    }
+
+    /**
+     * 1 (off) to {@link AprilTagFramePreProcessing#MAXIMUM_DECIMATION_FACTOR}.
+     */
+    public void setDecimationFactor(int decimationFactor) {
+        if (decimationFactor < 1 || decimationFactor > AprilTagFramePreProcessing.MAXIMUM_DECIMATION_FACTOR) {
+            throw new IllegalArgumentException(
+                    "Decimation factor must be between 1 and " + AprilTagFramePreProcessing.MAXIMUM_DECIMATION_FACTOR +
+                            " but received " + decimationFactor
+            );
+        }
+        this.decimationFactor = decimationFactor;
+        this.detectionPipeline = null;
+    }
+
+    public int getDecimationFactor() {
+        return decimationFactor;
+    }
+
+    /**
+     * Uses {@link AprilTagFusedFrontEnd} for grayscale and edge when it applies: Sobel mode, no
+     * decimation, no pool and the scalar Sobel kernel. On by default; off always runs
+     * {@link AprilTagFramePreProcessing} and {@link AprilTagEdgeDetector} separately.
+     */
+    public void setFusedFrontEndEnabled(boolean fusedFrontEndEnabled) {
+        this.fusedFrontEndEnabled = fusedFrontEndEnabled;
+        this.detectionPipeline = null;
+    }
+
+    public boolean isFusedFrontEndEnabled() {
+        return fusedFrontEndEnabled;
+    }
+
+    /**
+     * true when the current configuration runs the fused front end.
+     */
+    public boolean isFusedFrontEndInUse() {
+        return fusedFrontEndEnabled
+                && edgeSegmentationMode == EdgeSegmentationMode.SOBEL_GRADIENT_THRESHOLD
+                && decimationFactor == 1
+                && detectionForkJoinPool == null
+                && !AprilTagEdgeDetector.isVectorizedSobelEnabled();
+    }
+
+    /**
+     * Component limits, in pixels of the frame the components are extracted from.
+     * Applied from the next frame without rebuilding the stages.
+     */
+    public void setEdgeComponentRejectionCriteria(EdgeComponentRejectionCriteria edgeComponentRejectionCriteria) {
+        if (edgeComponentRejectionCriteria == null) {
+            throw new IllegalArgumentException("Edge component rejection criteria must not be null");
+        }
+        this.edgeComponentRejectionCriteria = edgeComponentRejectionCriteria;
+
+        if (detectionPipeline != null) {
+            detectionPipeline.aprilTagEdgeComponentExtractor.setEdgeComponentRejectionCriteria(edgeComponentRejectionCriteria);
+        }
+    }
+
+    public EdgeComponentRejectionCriteria getEdgeComponentRejectionCriteria() {
+        return edgeComponentRejectionCriteria;
+    }
+
+    /**
+     * Records grayscale, edge, labelling, hull, quad fit and decode time of every frame, or
+     * stops measuring when null. Applied from the next frame without rebuilding the stages.
+     * With the fused front end the single grayscale + edge pass is recorded as edge.
+     */
+    public void setPipelineStageLatencyMetrics(PipelineStageLatencyMetrics pipelineStageLatencyMetrics) {
+        this.pipelineStageLatencyMetrics = pipelineStageLatencyMetrics;
+
+        if (detectionPipeline != null) {
+            detectionPipeline.aprilTagCandidateDecodeStage.setPipelineStageLatencyMetrics(pipelineStageLatencyMetrics);
+        }
+    }
+
+    public PipelineStageLatencyMetrics getPipelineStageLatencyMetrics() {
+        return pipelineStageLatencyMetrics;
+    }
+
+    /**
+     * Grayscale frame of the last call (full resolution), or null before the first frame.
+     */
+    public DirectFrameBuffer getGrayscaleFrameBuffer() {
+        return detectionPipeline == null ? null : detectionPipeline.getGrayscaleFrameBuffer();
+    }
+
+    /**
+     * Edge or boundary frame of the last call, at detection resolution, or null before the first frame.
+     */
+    public DirectFrameBuffer getEdgeBinaryFrameBuffer() {
+        return detectionPipeline == null ? null : detectionPipeline.edgeBinaryFrameBuffer;
+    }
+
+    /**
+     * Every stage and buffer for one frame size, built with the configuration current at that time.
+     */
+    private final class DetectionPipeline {
+
+        private final int frameWidth;
+        private final int frameHeight;
+
+        /**
+         * Either the fused front end or preprocessing plus the stage of the selected
+         * segmentation mode is created; the others stay null.
+         */
+        private final AprilTagFusedFrontEnd aprilTagFusedFrontEnd;
+        private final AprilTagFramePreProcessing aprilTagFramePreProcessing;
+        private final AprilTagEdgeDetector aprilTagEdgeDetector;
+        private final AprilTagAdaptiveThresholdSegmenter aprilTagAdaptiveThresholdSegmenter;
+
+        private final AprilTagEdgeComponentExtractor aprilTagEdgeComponentExtractor;
+        private final AprilTagCandidateDecodeStage aprilTagCandidateDecodeStage;
+
+        /**
+         * Color input copy, only used when the input arrives as a Mat. Created on first use.
+         */
+        private DirectFrameBuffer inputColorFrameBuffer;
+
+        private DirectFrameBuffer edgeBinaryFrameBuffer;
+
+        private DetectionPipeline(int frameWidth, int frameHeight) {
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+
+            int detectionFrameWidth;
+            int detectionFrameHeight;
+
+            if (isFusedFrontEndInUse()) {
+                this.aprilTagFusedFrontEnd =
+                        new AprilTagFusedFrontEnd(frameWidth, frameHeight, gradientMagnitudeThresholdValue);
+                this.aprilTagFramePreProcessing = null;
+
+                detectionFrameWidth = frameWidth;
+                detectionFrameHeight = frameHeight;
+            } else {
+                this.aprilTagFusedFrontEnd = null;
+                this.aprilTagFramePreProcessing = new AprilTagFramePreProcessing(frameWidth, frameHeight, decimationFactor);
+
+                detectionFrameWidth = aprilTagFramePreProcessing.getDetectionGrayscaleFrameBuffer().getFrameWidth();
+                detectionFrameHeight = aprilTagFramePreProcessing.getDetectionGrayscaleFrameBuffer().getFrameHeight();
+            }
+
+            if (aprilTagFusedFrontEnd != null) {
+                this.aprilTagEdgeDetector = null;
+                this.aprilTagAdaptiveThresholdSegmenter = null;
+            } else if (edgeSegmentationMode == EdgeSegmentationMode.SOBEL_GRADIENT_THRESHOLD) {
+                this.aprilTagEdgeDetector = new AprilTagEdgeDetector(
+                        detectionFrameWidth,
+                        detectionFrameHeight,
+                        gradientMagnitudeThresholdValue,
+                        detectionForkJoinPool,
+                        workerCount
+                );
+                this.aprilTagAdaptiveThresholdSegmenter = null;
+            } else {
+                this.aprilTagEdgeDetector = null;
+                this.aprilTagAdaptiveThresholdSegmenter =
+                        new AprilTagAdaptiveThresholdSegmenter(detectionFrameWidth, detectionFrameHeight);
+            }
+
+            if (detectionForkJoinPool == null) {
+                this.aprilTagEdgeComponentExtractor =
+                        new AprilTagEdgeComponentExtractor(detectionFrameWidth, detectionFrameHeight);
+            } else {
+                this.aprilTagEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                        detectionFrameWidth,
+                        detectionFrameHeight,
+                        detectionForkJoinPool,
+                        workerCount
+                );
+            }
+            aprilTagEdgeComponentExtractor.setRowExtremalPixelRetentionEnabled(true);
+            aprilTagEdgeComponentExtractor.setEdgeComponentRejectionCriteria(edgeComponentRejectionCriteria);
+
+            this.aprilTagCandidateDecodeStage = new AprilTagCandidateDecodeStage(
+                    frameWidth,
+                    frameHeight,
+                    aprilTag36h11Dictionary,
+                    decimationFactor,
+                    detectionForkJoinPool,
+                    workerCount
+            );
+            aprilTagCandidateDecodeStage.setPipelineStageLatencyMetrics(pipelineStageLatencyMetrics);
+        }
+
+        private List<DetectedApriltag> detect(DirectFrameBuffer inputColorFrameBuffer) {
+            AprilTagDetectionEvent detectionEvent = new AprilTagDetectionEvent();
+            detectionEvent.begin();
+
+            List<DetectedApriltag> detectedApriltagList = detectFrame(inputColorFrameBuffer);
+
+            detectionEvent.end();
+            if (detectionEvent.shouldCommit()) {
+                detectionEvent.frameWidth = frameWidth;
+                detectionEvent.frameHeight = frameHeight;
+                detectionEvent.decimationFactor = decimationFactor;
+                detectionEvent.edgeSegmentationMode = edgeSegmentationMode.name();
+                detectionEvent.fusedFrontEnd = aprilTagFusedFrontEnd != null;
+                detectionEvent.detectedTagCount = detectedApriltagList.size();
+                detectionEvent.commit();
+            }
+
+            return detectedApriltagList;
+        }
+
+        private List<DetectedApriltag> detectFrame(DirectFrameBuffer inputColorFrameBuffer) {
+            PipelineStageLatencyMetrics currentStageLatencyMetrics = pipelineStageLatencyMetrics;
+            long stageStartNanoseconds = currentStageLatencyMetrics == null ? 0L : System.nanoTime();
+
+            if (aprilTagFusedFrontEnd != null) {
+                edgeBinaryFrameBuffer = aprilTagFusedFrontEnd.processColorBgrFrameBuffer(inputColorFrameBuffer);
+
+                if (currentStageLatencyMetrics != null) {
+                    stageStartNanoseconds = recordStageLatency(currentStageLatencyMetrics, PipelineStage.EDGE, stageStartNanoseconds);
+                }
+
+                return extractAndDecodeCandidates(
+                        aprilTagFusedFrontEnd.getGradientMagnitudeIntegerArray(),
+                        currentStageLatencyMetrics,
+                        stageStartNanoseconds
+                );
+            }
+
+            aprilTagFramePreProcessing.convertColorBgrFrameBufferToGrayscale(inputColorFrameBuffer);
+
+            if (currentStageLatencyMetrics != null) {
+                stageStartNanoseconds = recordStageLatency(currentStageLatencyMetrics, PipelineStage.GRAYSCALE, stageStartNanoseconds);
+            }
+
+            DirectFrameBuffer detectionGrayscaleFrameBuffer = aprilTagFramePreProcessing.getDetectionGrayscaleFrameBuffer();
+
+            int[] gradientMagnitudeIntegerArray = null;
+
+            if (aprilTagEdgeDetector != null) {
+                edgeBinaryFrameBuffer =
+                        aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(detectionGrayscaleFrameBuffer);
+
+                // Con decimacion el gradiente es de la imagen reducida: la etapa refina sobre el gris completo
+                if (decimationFactor == 1) {
+                    gradientMagnitudeIntegerArray = aprilTagEdgeDetector.getGradientMagnitudeIntegerArray();
+                }
+            } else {
+                edgeBinaryFrameBuffer = aprilTagAdaptiveThresholdSegmenter
+                        .calculateBoundaryBinaryFrameBufferFromGrayscaleFrameBuffer(detectionGrayscaleFrameBuffer);
+            }
+
+            if (currentStageLatencyMetrics != null) {
+                stageStartNanoseconds = recordStageLatency(currentStageLatencyMetrics, PipelineStage.EDGE, stageStartNanoseconds);
+            }
+
+            return extractAndDecodeCandidates(gradientMagnitudeIntegerArray, currentStageLatencyMetrics, stageStartNanoseconds);
+        }
+
+        private List<DetectedApriltag> extractAndDecodeCandidates(
+                int[] gradientMagnitudeIntegerArray,
+                PipelineStageLatencyMetrics currentStageLatencyMetrics,
+                long stageStartNanoseconds
+        ) {
+            List<EdgeConnectedComponent> candidateComponentList =
+                    aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+            if (currentStageLatencyMetrics != null) {
+                recordStageLatency(currentStageLatencyMetrics, PipelineStage.LABELLING, stageStartNanoseconds);
+            }
+
+            return aprilTagCandidateDecodeStage.decodeCandidateComponentList(
+                    candidateComponentList,
+                    gradientMagnitudeIntegerArray,
+                    getGrayscaleFrameBuffer()
+            );
+        }
+
+        private DirectFrameBuffer getGrayscaleFrameBuffer() {
+            return aprilTagFusedFrontEnd != null
+                    ? aprilTagFusedFrontEnd.getGrayscaleFrameBuffer()
+                    : aprilTagFramePreProcessing.getGrayscaleFrameBuffer();
+        }
+    }
+
+    /**
+     * Records the time since stageStartNanoseconds and returns the current time as the start of the next stage.
+     */
+    private static long recordStageLatency(
+            PipelineStageLatencyMetrics pipelineStageLatencyMetrics,
+            PipelineStage pipelineStage,
+            long stageStartNanoseconds
+    ) {
+        long stageEndNanoseconds = System.nanoTime();
+        pipelineStageLatencyMetrics.recordStageLatency(pipelineStage, stageEndNanoseconds - stageStartNanoseconds);
+        return stageEndNanoseconds;
+    }
+}
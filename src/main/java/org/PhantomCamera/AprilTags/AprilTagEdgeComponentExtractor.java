@@ -1,28 +1,167 @@
 package org.PhantomCamera.AprilTags;
 
+import org.PhantomCamera.Stadistics.FlightRecorder.AprilTagLabellingEvent;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
 import org.opencv.core.Mat;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
 
 /**
  * Extracts connected components from a binary edge frame.
  * Each component groups together edge pixels that are connected
  * under 8-connectivity in the image grid.
+ * <p>
+ * Two labelling strategies are available, both returning the same components with the
+ * same labels (label 1 is the component whose first pixel comes first in raster order, and so on):
+ * <ul>
+ *     <li>{@link EdgeComponentLabellingMode#UNION_FIND}: two-pass raster scan with a flat
+ *     union-find (default). Cost is linear in the pixel count regardless of how dense the edges are.</li>
+ *     <li>{@link EdgeComponentLabellingMode#BREADTH_FIRST_SEARCH}: one BFS per seed pixel.
+ *     Pixels of each component are listed in BFS order instead of raster order.</li>
+ * </ul>
+ * The union-find mode can also run tiled on a {@link ForkJoinPool}: the frame is split into
+ * full-width horizontal tiles labelled independently, equivalences across tile seams are merged
+ * with a lock-free union-find, each tile counts its components and scatters their pixels, and
+ * only a pass over the per-tile components (not the pixels) stays serial. The result is the same
+ * as the serial labeller.
  */
 public class AprilTagEdgeComponentExtractor {
 
+    public enum EdgeComponentLabellingMode {
+        UNION_FIND,
+        BREADTH_FIRST_SEARCH
+    }
+
+    /**
+     * Atomic access to the union-find parent array while tile seams are merged in parallel.
+     */
+    private static final VarHandle PARENT_LABEL_ARRAY_HANDLE = MethodHandles.arrayElementVarHandle(int[].class);
+
     private final int frameWidthInPixels;
     private final int frameHeightInPixels;
 
+    private final EdgeComponentLabellingMode edgeComponentLabellingMode;
+
     /**
      * Reusable arrays to avoid creating new memory on every frame.
+     * Only the arrays of the selected labelling mode are allocated.
      */
-    private final byte[] edgeBinaryByteArray;
     private final boolean[] visitedPixelBooleanArray;
     private final int[] breadthFirstSearchQueuePixelIndexArray;
 
+    /**
+     * Union-find state: provisional label per pixel (0 = background), parent and rank per
+     * provisional label, and the compact component label assigned to each root.
+     * Every pixel label is rewritten in the first pass and entries of the other arrays are
+     * initialized when their label is created, so nothing needs clearing between frames.
+     */
+    private final int[] provisionalPixelLabelIntegerArray;
+    private final int[] unionFindParentLabelIntegerArray;
+    private final byte[] unionFindRankByteArray;
+    private final int[] compactComponentLabelIntegerArray;
+
+    /**
+     * Pixel count and bounding box per compact component label (union-find mode), filled by
+     * the compact pass (or, tiled, by merging the tile slots) so components can be rejected
+     * before any coordinate is stored.
+     * Two pixels inside the same 2x2 block are always 8-connected, so a frame holds at most
+     * one component per 2x2 block; that bounds the size of these arrays.
+     */
+    private final int[] componentPixelCountIntegerArray;
+    private final int[] componentMinimumXCoordinateIntegerArray;
+    private final int[] componentMaximumXCoordinateIntegerArray;
+    private final int[] componentMinimumYCoordinateIntegerArray;
+    private final int[] componentMaximumYCoordinateIntegerArray;
+
+    /**
+     * Tiled mode only: one slot per component touching a tile, holding what the tile saw of it
+     * (root label, pixel count, bounding box, coordinates to store). Tile t owns the slots from
+     * tileFirstSlotIndexArray[t]; a tile holds at most one component per 2x2 block of its rows,
+     * which bounds its range. Before the scatter pass the maximum y and row count are reused to
+     * follow the current row, and the stored count becomes the next slab index of the slot.
+     */
+    private final int[] tileFirstSlotIndexArray;
+    private final int[] tileSlotCountArray;
+    private final int[] slotRootLabelIntegerArray;
+    private final int[] slotComponentLabelIntegerArray;
+    private final int[] slotPixelCountIntegerArray;
+    private final int[] slotMinimumXCoordinateIntegerArray;
+    private final int[] slotMaximumXCoordinateIntegerArray;
+    private final int[] slotMinimumYCoordinateIntegerArray;
+    private final int[] slotMaximumYCoordinateIntegerArray;
+    private final int[] slotRowStoredPixelCountIntegerArray;
+    private final int[] slotStoredPixelCoordinateCountIntegerArray;
+
+    /**
+     * Tiled mode only: coordinates stored per compact component label, then, once offsets are
+     * assigned, the next slab index of that component while the slots take their ranges.
+     */
+    private final int[] componentPixelCoordinateIndexIntegerArray;
+
+    /**
+     * Tiled mode only: per tile, open-addressing table from the root label of a component that
+     * started in a tile above to its slot. Such components all cross the tile's first row, so
+     * there are at most (frameWidthInPixels + 1) / 2 of them.
+     */
+    private final int[][] foreignRootLabelHashArrayPerTile;
+    private final int[][] foreignRootSlotHashArrayPerTile;
+    private final int foreignRootHashBitCount;
+
+    /**
+     * Components that break these limits are dropped during extraction and get no
+     * coordinate storage. Accepts everything by default.
+     */
+    private EdgeComponentRejectionCriteria edgeComponentRejectionCriteria =
+            EdgeComponentRejectionCriteria.ACCEPT_ALL_COMPONENTS;
+
+    /**
+     * When enabled, components keep only the leftmost and rightmost pixel of each row
+     * (union-find mode only), which is all the convex hull needs.
+     */
+    private boolean rowExtremalPixelRetentionEnabled;
+
+    /**
+     * Components found in the last frame before rejection, for the labelling event.
+     */
+    private int lastLabelledComponentCount;
+
+    /**
+     * Shared coordinate slabs: every component of a frame is an offset + length view into
+     * these arrays, so extracting components allocates nothing per pixel. They are
+     * overwritten by the next call.
+     */
+    private final int[] pixelXCoordinateSlabArray;
+    private final int[] pixelYCoordinateSlabArray;
+
+    /**
+     * Edge input row staging array for the first union-find pass, one per tile.
+     */
+    private final byte[][] edgeBinaryRowByteArrayPerTile;
+
+    /**
+     * Optional tiled mode (union-find only): pool that labels the tiles, or null for serial.
+     */
+    private final ForkJoinPool tileForkJoinPool;
+
+    /**
+     * Number of full-width horizontal tiles (1 when running serially).
+     */
+    private final int tileCount;
+
+    /**
+     * Edge input copy, only used when the input arrives as a foreign Mat.
+     * Created on first use.
+     */
+    private DirectFrameBuffer edgeBinaryFrameBuffer;
+
     /**
      * Constructor.
      *
@@ -32,20 +171,152 @@ public class AprilTagEdgeComponentExtractor {
     public AprilTagEdgeComponentExtractor(
             int frameWidthInPixels,
             int frameHeightInPixels
+    ) {
+        this(frameWidthInPixels, frameHeightInPixels, EdgeComponentLabellingMode.UNION_FIND);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param frameWidthInPixels         frame width in pixels
+     * @param frameHeightInPixels        frame height in pixels
+     * @param edgeComponentLabellingMode labelling strategy
+     */
+    public AprilTagEdgeComponentExtractor(
+            int frameWidthInPixels,
+            int frameHeightInPixels,
+            EdgeComponentLabellingMode edgeComponentLabellingMode
+    ) {
+        this(frameWidthInPixels, frameHeightInPixels, edgeComponentLabellingMode, null, 1);
+    }
+
+    /**
+     * Tiled union-find constructor.
+     *
+     * @param frameWidthInPixels  frame width in pixels
+     * @param frameHeightInPixels frame height in pixels
+     * @param tileForkJoinPool    pool that labels the tiles and merges the seams
+     * @param tileCount           number of horizontal tiles; 0 or less uses the pool parallelism
+     */
+    public AprilTagEdgeComponentExtractor(
+            int frameWidthInPixels,
+            int frameHeightInPixels,
+            ForkJoinPool tileForkJoinPool,
+            int tileCount
+    ) {
+        this(frameWidthInPixels, frameHeightInPixels, EdgeComponentLabellingMode.UNION_FIND, tileForkJoinPool, tileCount);
+    }
+
+    private AprilTagEdgeComponentExtractor(
+            int frameWidthInPixels,
+            int frameHeightInPixels,
+            EdgeComponentLabellingMode edgeComponentLabellingMode,
+            ForkJoinPool tileForkJoinPool,
+            int tileCount
     ) {
         this.frameWidthInPixels = frameWidthInPixels;
         this.frameHeightInPixels = frameHeightInPixels;
+        this.edgeComponentLabellingMode = edgeComponentLabellingMode;
+        this.tileForkJoinPool = tileForkJoinPool;
+
+        if (tileForkJoinPool == null) {
+            this.tileCount = 1;
+        } else if (tileCount <= 0) {
+            this.tileCount = Math.max(1, Math.min(frameHeightInPixels, tileForkJoinPool.getParallelism()));
+        } else {
+            this.tileCount = Math.max(1, Math.min(frameHeightInPixels, tileCount));
+        }
 
         int totalPixelCount = frameWidthInPixels * frameHeightInPixels;
 
-        this.edgeBinaryByteArray = new byte[totalPixelCount];
-        this.visitedPixelBooleanArray = new boolean[totalPixelCount];
-        this.breadthFirstSearchQueuePixelIndexArray = new int[totalPixelCount];
+        this.pixelXCoordinateSlabArray = new int[totalPixelCount];
+        this.pixelYCoordinateSlabArray = new int[totalPixelCount];
+
+        if (edgeComponentLabellingMode == EdgeComponentLabellingMode.BREADTH_FIRST_SEARCH) {
+            this.visitedPixelBooleanArray = new boolean[totalPixelCount];
+            this.breadthFirstSearchQueuePixelIndexArray = new int[totalPixelCount];
+
+            this.provisionalPixelLabelIntegerArray = null;
+            this.unionFindParentLabelIntegerArray = null;
+            this.unionFindRankByteArray = null;
+            this.compactComponentLabelIntegerArray = null;
+            this.componentPixelCountIntegerArray = null;
+            this.componentMinimumXCoordinateIntegerArray = null;
+            this.componentMaximumXCoordinateIntegerArray = null;
+            this.componentMinimumYCoordinateIntegerArray = null;
+            this.componentMaximumYCoordinateIntegerArray = null;
+            this.edgeBinaryRowByteArrayPerTile = null;
+        } else {
+            this.visitedPixelBooleanArray = null;
+            this.breadthFirstSearchQueuePixelIndexArray = null;
+
+            // Label 0 is background, so there can be at most totalPixelCount + 1 labels
+            this.provisionalPixelLabelIntegerArray = new int[totalPixelCount];
+            this.unionFindParentLabelIntegerArray = new int[totalPixelCount + 1];
+            this.unionFindRankByteArray = new byte[totalPixelCount + 1];
+            this.compactComponentLabelIntegerArray = new int[totalPixelCount + 1];
+
+            int maximumComponentCount = ((frameWidthInPixels + 1) / 2) * ((frameHeightInPixels + 1) / 2);
+            this.componentPixelCountIntegerArray = new int[maximumComponentCount + 1];
+            this.componentMinimumXCoordinateIntegerArray = new int[maximumComponentCount + 1];
+            this.componentMaximumXCoordinateIntegerArray = new int[maximumComponentCount + 1];
+            this.componentMinimumYCoordinateIntegerArray = new int[maximumComponentCount + 1];
+            this.componentMaximumYCoordinateIntegerArray = new int[maximumComponentCount + 1];
+            this.edgeBinaryRowByteArrayPerTile = new byte[this.tileCount][frameWidthInPixels];
+        }
+
+        if (edgeComponentLabellingMode == EdgeComponentLabellingMode.BREADTH_FIRST_SEARCH || this.tileCount == 1) {
+            this.tileFirstSlotIndexArray = null;
+            this.tileSlotCountArray = null;
+            this.slotRootLabelIntegerArray = null;
+            this.slotComponentLabelIntegerArray = null;
+            this.slotPixelCountIntegerArray = null;
+            this.slotMinimumXCoordinateIntegerArray = null;
+            this.slotMaximumXCoordinateIntegerArray = null;
+            this.slotMinimumYCoordinateIntegerArray = null;
+            this.slotMaximumYCoordinateIntegerArray = null;
+            this.slotRowStoredPixelCountIntegerArray = null;
+            this.slotStoredPixelCoordinateCountIntegerArray = null;
+            this.componentPixelCoordinateIndexIntegerArray = null;
+            this.foreignRootLabelHashArrayPerTile = null;
+            this.foreignRootSlotHashArrayPerTile = null;
+            this.foreignRootHashBitCount = 0;
+        } else {
+            this.tileFirstSlotIndexArray = new int[this.tileCount + 1];
+
+            for (int tileIndex = 0; tileIndex < this.tileCount; tileIndex++) {
+                int tileRowCount = getTileFirstPixelYPosition(tileIndex + 1) - getTileFirstPixelYPosition(tileIndex);
+                this.tileFirstSlotIndexArray[tileIndex + 1] = this.tileFirstSlotIndexArray[tileIndex]
+                        + ((frameWidthInPixels + 1) / 2) * ((tileRowCount + 1) / 2);
+            }
+
+            int slotCapacity = this.tileFirstSlotIndexArray[this.tileCount];
+
+            this.tileSlotCountArray = new int[this.tileCount];
+            this.slotRootLabelIntegerArray = new int[slotCapacity];
+            this.slotComponentLabelIntegerArray = new int[slotCapacity];
+            this.slotPixelCountIntegerArray = new int[slotCapacity];
+            this.slotMinimumXCoordinateIntegerArray = new int[slotCapacity];
+            this.slotMaximumXCoordinateIntegerArray = new int[slotCapacity];
+            this.slotMinimumYCoordinateIntegerArray = new int[slotCapacity];
+            this.slotMaximumYCoordinateIntegerArray = new int[slotCapacity];
+            this.slotRowStoredPixelCountIntegerArray = new int[slotCapacity];
+            this.slotStoredPixelCoordinateCountIntegerArray = new int[slotCapacity];
+            this.componentPixelCoordinateIndexIntegerArray = new int[this.componentPixelCountIntegerArray.length];
+
+            // At least twice the number of entries, so probes stay short
+            int foreignRootHashCapacity = Integer.highestOneBit(Math.max(1, frameWidthInPixels)) * 4;
+            this.foreignRootHashBitCount = Integer.numberOfTrailingZeros(foreignRootHashCapacity);
+            this.foreignRootLabelHashArrayPerTile = new int[this.tileCount][foreignRootHashCapacity];
+            this.foreignRootSlotHashArrayPerTile = new int[this.tileCount][foreignRootHashCapacity];
+        }
     }
 
     /**
      * Extracts a list of connected components from the given binary edge frame.
      * The input frame must be CV_8UC1 and contain 0 or 255 values.
+     * Pixel coordinates of the returned components are views into slabs owned by this
+     * extractor and are only valid until the next call.
      *
      * @param edgeBinaryFrameMatrix binary edge frame (one channel, 8-bit)
      * @return list of connected components found in the frame
@@ -56,20 +327,54 @@ public class AprilTagEdgeComponentExtractor {
             return new ArrayList<>();
         }
 
-        if (edgeBinaryFrameMatrix.cols() != frameWidthInPixels
-                || edgeBinaryFrameMatrix.rows() != frameHeightInPixels) {
-            throw new IllegalArgumentException(
-                    "Input edge frame size does not match edge component extractor configuration. " +
-                            "Expected " + frameWidthInPixels + "x" + frameHeightInPixels +
-                            " but received " + edgeBinaryFrameMatrix.cols() +
-                            "x" + edgeBinaryFrameMatrix.rows()
-            );
+        validateFrameSize(edgeBinaryFrameMatrix.cols(), edgeBinaryFrameMatrix.rows());
+
+        if (edgeBinaryFrameBuffer == null) {
+            edgeBinaryFrameBuffer = new DirectFrameBuffer(frameWidthInPixels, frameHeightInPixels, 1);
         }
 
+        // Single native copy into direct memory instead of a JNI copy into the Java heap
+        edgeBinaryFrameBuffer.copyFromFrameMatrix(edgeBinaryFrameMatrix);
+
+        return extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+    }
+
+    /**
+     * Same as {@link #extractEdgeConnectedComponentList(Mat)} but reads the edge pixels
+     * in place, for example from {@link AprilTagEdgeDetector#getEdgeBinaryFrameBuffer()}.
+     *
+     * @param edgeBinaryFrameBuffer binary edge frame (one channel, 0 or 255 values)
+     * @return list of connected components found in the frame
+     */
+    public List<EdgeConnectedComponent> extractEdgeConnectedComponentList(DirectFrameBuffer edgeBinaryFrameBuffer) {
+
+        validateFrameSize(edgeBinaryFrameBuffer.getFrameWidth(), edgeBinaryFrameBuffer.getFrameHeight());
+
+        AprilTagLabellingEvent labellingEvent = new AprilTagLabellingEvent();
+        labellingEvent.begin();
+
+        List<EdgeConnectedComponent> edgeConnectedComponentList =
+                edgeComponentLabellingMode == EdgeComponentLabellingMode.UNION_FIND
+                        ? extractEdgeConnectedComponentListWithUnionFind(edgeBinaryFrameBuffer)
+                        : extractEdgeConnectedComponentListWithBreadthFirstSearch(edgeBinaryFrameBuffer);
+
+        labellingEvent.end();
+        if (labellingEvent.shouldCommit()) {
+            labellingEvent.labellingMode = edgeComponentLabellingMode.name();
+            labellingEvent.labelledComponentCount = lastLabelledComponentCount;
+            labellingEvent.candidateComponentCount = edgeConnectedComponentList.size();
+            labellingEvent.commit();
+        }
+
+        return edgeConnectedComponentList;
+    }
+
+    private List<EdgeConnectedComponent> extractEdgeConnectedComponentListWithBreadthFirstSearch(
+            DirectFrameBuffer edgeBinaryFrameBuffer
+    ) {
         int totalPixelCount = frameWidthInPixels * frameHeightInPixels;
 
-        // Copy binary edge data into reusable array
-        edgeBinaryFrameMatrix.get(0, 0, edgeBinaryByteArray);
+        ByteBuffer edgeBinaryByteBuffer = edgeBinaryFrameBuffer.getPixelByteBuffer();
 
         // Reset visited pixels
         Arrays.fill(visitedPixelBooleanArray, false);
@@ -78,13 +383,16 @@ public class AprilTagEdgeComponentExtractor {
 
         int nextComponentLabelValue = 1;
 
+        // Components fill the coordinate slabs one after another
+        int pixelCoordinateOffset = 0;
+
         for (int pixelIndex = 0; pixelIndex < totalPixelCount; pixelIndex++) {
 
             if (visitedPixelBooleanArray[pixelIndex]) {
                 continue;
             }
 
-            int pixelIntensityValue = edgeBinaryByteArray[pixelIndex] & 0xFF;
+            int pixelIntensityValue = edgeBinaryByteBuffer.get(pixelIndex) & 0xFF;
             if (pixelIntensityValue == 0) {
                 // background pixel
                 continue;
@@ -92,34 +400,750 @@ public class AprilTagEdgeComponentExtractor {
 
             EdgeConnectedComponent edgeConnectedComponent =
                     performBreadthFirstSearchFromSeedPixelIndex(
+                            edgeBinaryByteBuffer,
                             pixelIndex,
-                            nextComponentLabelValue
+                            nextComponentLabelValue,
+                            pixelCoordinateOffset
                     );
 
-            if (edgeConnectedComponent.componentPixelCount > 0) {
+            // Labels advance for rejected components too, so they match the union-find labels
+            nextComponentLabelValue++;
+
+            if (isEdgeConnectedComponentAccepted(edgeConnectedComponent)) {
                 edgeConnectedComponentList.add(edgeConnectedComponent);
-                nextComponentLabelValue++;
+                pixelCoordinateOffset += edgeConnectedComponent.getStoredPixelCoordinateCount();
             }
         }
 
+        lastLabelledComponentCount = nextComponentLabelValue - 1;
+
         return edgeConnectedComponentList;
     }
 
+    public EdgeComponentLabellingMode getEdgeComponentLabellingMode() {
+        return edgeComponentLabellingMode;
+    }
+
+    /**
+     * Sets the limits used to drop components during extraction. Rejected components are
+     * not returned and store no coordinates; labels of the kept components do not change.
+     */
+    public void setEdgeComponentRejectionCriteria(EdgeComponentRejectionCriteria edgeComponentRejectionCriteria) {
+        if (edgeComponentRejectionCriteria == null) {
+            throw new IllegalArgumentException("Edge component rejection criteria must not be null");
+        }
+        this.edgeComponentRejectionCriteria = edgeComponentRejectionCriteria;
+    }
+
+    public EdgeComponentRejectionCriteria getEdgeComponentRejectionCriteria() {
+        return edgeComponentRejectionCriteria;
+    }
+
+    /**
+     * Keeps only the leftmost and rightmost pixel of every row of each component. Pixel count
+     * and bounding box still cover every pixel. Needs raster order, so only union-find mode supports it.
+     * The retained pixels stay in raster order, so
+     * {@link AprilTagConvexHullCalculator#calculateConvexHull(EdgeConnectedComponent, int[], int[])}
+     * builds the hull from them in O(component height) without sorting.
+     */
+    public void setRowExtremalPixelRetentionEnabled(boolean rowExtremalPixelRetentionEnabled) {
+        if (rowExtremalPixelRetentionEnabled
+                && edgeComponentLabellingMode != EdgeComponentLabellingMode.UNION_FIND) {
+            throw new IllegalArgumentException(
+                    "Row extremal pixel retention requires UNION_FIND labelling but mode is " + edgeComponentLabellingMode
+            );
+        }
+        this.rowExtremalPixelRetentionEnabled = rowExtremalPixelRetentionEnabled;
+    }
+
+    public boolean isRowExtremalPixelRetentionEnabled() {
+        return rowExtremalPixelRetentionEnabled;
+    }
+
+    private boolean isEdgeConnectedComponentAccepted(EdgeConnectedComponent edgeConnectedComponent) {
+        return edgeConnectedComponent.componentPixelCount > 0
+                && edgeComponentRejectionCriteria.isAccepted(
+                        edgeConnectedComponent.componentPixelCount,
+                        edgeConnectedComponent.getComponentWidthInPixels(),
+                        edgeConnectedComponent.getComponentHeightInPixels()
+                );
+    }
+
+    /**
+     * Two-pass raster-scan labelling.
+     * <p>
+     * First pass: every edge pixel takes a provisional label from its already visited
+     * neighbours (west, north-west, north, north-east) and equivalent labels are merged in the
+     * union-find. Second pass: each pixel resolves its label to the root, roots get compact
+     * labels in order of first appearance, and the pixel is added to its component.
+     * In tiled mode {@link #extractEdgeConnectedComponentListWithTiledUnionFind} runs instead.
+     */
+    private List<EdgeConnectedComponent> extractEdgeConnectedComponentListWithUnionFind(
+            DirectFrameBuffer edgeBinaryFrameBuffer
+    ) {
+        if (tileForkJoinPool != null && tileCount > 1) {
+            return extractEdgeConnectedComponentListWithTiledUnionFind(edgeBinaryFrameBuffer);
+        }
+
+        labelTileRows(edgeBinaryFrameBuffer, 0, frameHeightInPixels, edgeBinaryRowByteArrayPerTile[0]);
+
+        // Compact pass: roots get labels in raster first-appearance order, each pixel keeps its
+        // compact label and every component counts its pixels and grows its bounding box
+        int componentCount = 0;
+
+        for (int pixelYPosition = 0; pixelYPosition < frameHeightInPixels; pixelYPosition++) {
+
+            int currentRowStartIndex = pixelYPosition * frameWidthInPixels;
+
+            for (int pixelXPosition = 0; pixelXPosition < frameWidthInPixels; pixelXPosition++) {
+
+                int pixelIndex = currentRowStartIndex + pixelXPosition;
+
+                int provisionalLabelValue = provisionalPixelLabelIntegerArray[pixelIndex];
+
+                if (provisionalLabelValue == 0) {
+                    continue;
+                }
+
+                int rootLabelValue = findRootProvisionalLabel(provisionalLabelValue);
+
+                int compactLabelValue = compactComponentLabelIntegerArray[rootLabelValue];
+
+                if (compactLabelValue == 0) {
+                    componentCount++;
+                    compactLabelValue = componentCount;
+                    compactComponentLabelIntegerArray[rootLabelValue] = compactLabelValue;
+                    componentPixelCountIntegerArray[compactLabelValue] = 0;
+                    componentMinimumXCoordinateIntegerArray[compactLabelValue] = pixelXPosition;
+                    componentMaximumXCoordinateIntegerArray[compactLabelValue] = pixelXPosition;
+                    componentMinimumYCoordinateIntegerArray[compactLabelValue] = pixelYPosition;
+                }
+
+                componentPixelCountIntegerArray[compactLabelValue]++;
+
+                // Raster order: the row only grows, x needs both comparisons
+                componentMaximumYCoordinateIntegerArray[compactLabelValue] = pixelYPosition;
+                if (pixelXPosition < componentMinimumXCoordinateIntegerArray[compactLabelValue]) {
+                    componentMinimumXCoordinateIntegerArray[compactLabelValue] = pixelXPosition;
+                }
+                if (pixelXPosition > componentMaximumXCoordinateIntegerArray[compactLabelValue]) {
+                    componentMaximumXCoordinateIntegerArray[compactLabelValue] = pixelXPosition;
+                }
+
+                provisionalPixelLabelIntegerArray[pixelIndex] = compactLabelValue;
+            }
+        }
+
+        lastLabelledComponentCount = componentCount;
+
+        // Accepted components get a contiguous range of the coordinate slabs; rejected ones get nothing
+        EdgeConnectedComponent[] edgeConnectedComponentArray = new EdgeConnectedComponent[componentCount + 1];
+        List<EdgeConnectedComponent> edgeConnectedComponentList = new ArrayList<>();
+
+        int pixelCoordinateOffset = 0;
+
+        for (int compactLabelValue = 1; compactLabelValue <= componentCount; compactLabelValue++) {
+
+            int componentPixelCount = componentPixelCountIntegerArray[compactLabelValue];
+            int componentWidthInPixels = componentMaximumXCoordinateIntegerArray[compactLabelValue]
+                    - componentMinimumXCoordinateIntegerArray[compactLabelValue] + 1;
+            int componentHeightInPixels = componentMaximumYCoordinateIntegerArray[compactLabelValue]
+                    - componentMinimumYCoordinateIntegerArray[compactLabelValue] + 1;
+
+            if (!edgeComponentRejectionCriteria.isAccepted(componentPixelCount, componentWidthInPixels, componentHeightInPixels)) {
+                continue;
+            }
+
+            EdgeConnectedComponent edgeConnectedComponent = new EdgeConnectedComponent(
+                    compactLabelValue,
+                    pixelXCoordinateSlabArray,
+                    pixelYCoordinateSlabArray,
+                    pixelCoordinateOffset
+            );
+
+            edgeConnectedComponentArray[compactLabelValue] = edgeConnectedComponent;
+            edgeConnectedComponentList.add(edgeConnectedComponent);
+
+            pixelCoordinateOffset += rowExtremalPixelRetentionEnabled
+                    ? Math.min(componentPixelCount, 2 * componentHeightInPixels)
+                    : componentPixelCount;
+        }
+
+        // Scatter pass: pixels land in their component range in raster order
+        for (int pixelYPosition = 0; pixelYPosition < frameHeightInPixels; pixelYPosition++) {
+
+            int currentRowStartIndex = pixelYPosition * frameWidthInPixels;
+
+            for (int pixelXPosition = 0; pixelXPosition < frameWidthInPixels; pixelXPosition++) {
+
+                int compactLabelValue = provisionalPixelLabelIntegerArray[currentRowStartIndex + pixelXPosition];
+
+                if (compactLabelValue == 0) {
+                    continue;
+                }
+
+                EdgeConnectedComponent edgeConnectedComponent = edgeConnectedComponentArray[compactLabelValue];
+
+                if (edgeConnectedComponent == null) {
+                    // rejected component
+                    continue;
+                }
+
+                if (rowExtremalPixelRetentionEnabled) {
+                    edgeConnectedComponent.updateWithRowExtremalPixel(pixelXPosition, pixelYPosition);
+                } else {
+                    edgeConnectedComponent.updateWithPixel(pixelXPosition, pixelYPosition);
+                }
+            }
+        }
+
+        return edgeConnectedComponentList;
+    }
+
+    /**
+     * Same labelling as {@link #extractEdgeConnectedComponentListWithUnionFind}, with every pass
+     * over the pixels split by tile on the pool:
+     * <ol>
+     *     <li>each tile labels its rows, then the seams between tiles are merged;</li>
+     *     <li>each tile resolves its pixels to their roots and gives every component it touches a
+     *     slot with its pixel count, bounding box and coordinates to store inside the tile;</li>
+     *     <li>serially, over the slots only: components get compact labels in raster
+     *     first-appearance order, slots are merged per component, rejected components are dropped
+     *     and every slot gets its slab offset (its component's offset plus what the same component
+     *     stores in the tiles above);</li>
+     *     <li>each tile scatters its pixels from those offsets, so every component still lists its
+     *     pixels in raster order.</li>
+     * </ol>
+     */
+    private List<EdgeConnectedComponent> extractEdgeConnectedComponentListWithTiledUnionFind(
+            DirectFrameBuffer edgeBinaryFrameBuffer
+    ) {
+        invokeForEachTile(tileIndex -> labelTileRows(
+                edgeBinaryFrameBuffer,
+                getTileFirstPixelYPosition(tileIndex),
+                getTileFirstPixelYPosition(tileIndex + 1),
+                edgeBinaryRowByteArrayPerTile[tileIndex]
+        ));
+
+        invokeForEachTile(tileIndex -> {
+            if (tileIndex > 0) {
+                mergeTileSeam(getTileFirstPixelYPosition(tileIndex));
+            }
+        });
+
+        invokeForEachTile(this::collectTileComponentSlots);
+
+        // A component's root lies in the topmost tile it touches (seam unions keep the smaller
+        // root and every label of a tile is smaller than the labels of the tiles below), so the
+        // slot of its root is its first slot: walking the slots in order numbers the components
+        // in raster first-appearance order
+        int componentCount = 0;
+
+        for (int tileIndex = 0; tileIndex < tileCount; tileIndex++) {
+
+            int endSlotIndex = tileFirstSlotIndexArray[tileIndex] + tileSlotCountArray[tileIndex];
+
+            for (int slotIndex = tileFirstSlotIndexArray[tileIndex]; slotIndex < endSlotIndex; slotIndex++) {
+
+                int rootSlotIndex = compactComponentLabelIntegerArray[slotRootLabelIntegerArray[slotIndex]] - 1;
+
+                if (rootSlotIndex == slotIndex) {
+                    componentCount++;
+                    slotComponentLabelIntegerArray[slotIndex] = componentCount;
+
+                    componentPixelCountIntegerArray[componentCount] = slotPixelCountIntegerArray[slotIndex];
+                    componentMinimumXCoordinateIntegerArray[componentCount] = slotMinimumXCoordinateIntegerArray[slotIndex];
+                    componentMaximumXCoordinateIntegerArray[componentCount] = slotMaximumXCoordinateIntegerArray[slotIndex];
+                    componentMinimumYCoordinateIntegerArray[componentCount] = slotMinimumYCoordinateIntegerArray[slotIndex];
+                    componentMaximumYCoordinateIntegerArray[componentCount] = slotMaximumYCoordinateIntegerArray[slotIndex];
+                    componentPixelCoordinateIndexIntegerArray[componentCount] = slotStoredPixelCoordinateCountIntegerArray[slotIndex];
+                    continue;
+                }
+
+                // Lower tile of a component that started above: only x and the last row can grow
+                int compactLabelValue = slotComponentLabelIntegerArray[rootSlotIndex];
+                slotComponentLabelIntegerArray[slotIndex] = compactLabelValue;
+
+                componentPixelCountIntegerArray[compactLabelValue] += slotPixelCountIntegerArray[slotIndex];
+                componentMinimumXCoordinateIntegerArray[compactLabelValue] = Math.min(
+                        componentMinimumXCoordinateIntegerArray[compactLabelValue], slotMinimumXCoordinateIntegerArray[slotIndex]);
+                componentMaximumXCoordinateIntegerArray[compactLabelValue] = Math.max(
+                        componentMaximumXCoordinateIntegerArray[compactLabelValue], slotMaximumXCoordinateIntegerArray[slotIndex]);
+                componentMaximumYCoordinateIntegerArray[compactLabelValue] = Math.max(
+                        componentMaximumYCoordinateIntegerArray[compactLabelValue], slotMaximumYCoordinateIntegerArray[slotIndex]);
+                componentPixelCoordinateIndexIntegerArray[compactLabelValue] += slotStoredPixelCoordinateCountIntegerArray[slotIndex];
+            }
+        }
+
+        lastLabelledComponentCount = componentCount;
+
+        // Accepted components get exactly the coordinates they will store; the index array now
+        // turns into the next free slab index of each component
+        EdgeConnectedComponent[] edgeConnectedComponentArray = new EdgeConnectedComponent[componentCount + 1];
+        List<EdgeConnectedComponent> edgeConnectedComponentList = new ArrayList<>();
+
+        int pixelCoordinateOffset = 0;
+
+        for (int compactLabelValue = 1; compactLabelValue <= componentCount; compactLabelValue++) {
+
+            int componentPixelCount = componentPixelCountIntegerArray[compactLabelValue];
+            int componentWidthInPixels = componentMaximumXCoordinateIntegerArray[compactLabelValue]
+                    - componentMinimumXCoordinateIntegerArray[compactLabelValue] + 1;
+            int componentHeightInPixels = componentMaximumYCoordinateIntegerArray[compactLabelValue]
+                    - componentMinimumYCoordinateIntegerArray[compactLabelValue] + 1;
+
+            if (!edgeComponentRejectionCriteria.isAccepted(componentPixelCount, componentWidthInPixels, componentHeightInPixels)) {
+                continue;
+            }
+
+            EdgeConnectedComponent edgeConnectedComponent = new EdgeConnectedComponent(
+                    compactLabelValue,
+                    pixelXCoordinateSlabArray,
+                    pixelYCoordinateSlabArray,
+                    pixelCoordinateOffset
+            );
+
+            int storedPixelCoordinateCount = componentPixelCoordinateIndexIntegerArray[compactLabelValue];
+
+            edgeConnectedComponent.setRasterOrderedSlabPixels(
+                    componentPixelCount,
+                    storedPixelCoordinateCount,
+                    componentMinimumXCoordinateIntegerArray[compactLabelValue],
+                    componentMaximumXCoordinateIntegerArray[compactLabelValue],
+                    componentMinimumYCoordinateIntegerArray[compactLabelValue],
+                    componentMaximumYCoordinateIntegerArray[compactLabelValue]
+            );
+
+            edgeConnectedComponentArray[compactLabelValue] = edgeConnectedComponent;
+            edgeConnectedComponentList.add(edgeConnectedComponent);
+
+            componentPixelCoordinateIndexIntegerArray[compactLabelValue] = pixelCoordinateOffset;
+            pixelCoordinateOffset += storedPixelCoordinateCount;
+        }
+
+        // Slots take consecutive ranges of their component in tile order (-1 = rejected component)
+        for (int tileIndex = 0; tileIndex < tileCount; tileIndex++) {
+
+            int endSlotIndex = tileFirstSlotIndexArray[tileIndex] + tileSlotCountArray[tileIndex];
+
+            for (int slotIndex = tileFirstSlotIndexArray[tileIndex]; slotIndex < endSlotIndex; slotIndex++) {
+
+                int compactLabelValue = slotComponentLabelIntegerArray[slotIndex];
+
+                if (edgeConnectedComponentArray[compactLabelValue] == null) {
+                    slotStoredPixelCoordinateCountIntegerArray[slotIndex] = -1;
+                    continue;
+                }
+
+                int slotStoredPixelCoordinateCount = slotStoredPixelCoordinateCountIntegerArray[slotIndex];
+
+                slotStoredPixelCoordinateCountIntegerArray[slotIndex] = componentPixelCoordinateIndexIntegerArray[compactLabelValue];
+                componentPixelCoordinateIndexIntegerArray[compactLabelValue] += slotStoredPixelCoordinateCount;
+
+                slotMaximumYCoordinateIntegerArray[slotIndex] = -1;
+            }
+        }
+
+        invokeForEachTile(this::scatterTilePixels);
+
+        return edgeConnectedComponentList;
+    }
+
+    /**
+     * Resolves every pixel of the tile to its root and accumulates one slot per component: pixel
+     * count, bounding box and the coordinates the scatter pass will store (all of them, or at most
+     * two per row with row extremal retention). Pixel labels are replaced by slot index + 1.
+     * Roots of this tile keep their slot in compactComponentLabelIntegerArray, which only this
+     * tile writes for its label range; roots from the tiles above go to the tile's hash table.
+     * Runs after all unions, so concurrent path compression only ever writes final roots.
+     */
+    private void collectTileComponentSlots(int tileIndex) {
+        int firstPixelYPosition = getTileFirstPixelYPosition(tileIndex);
+        int endPixelYPosition = getTileFirstPixelYPosition(tileIndex + 1);
+
+        int firstOwnedLabelValue = firstPixelYPosition * frameWidthInPixels + 1;
+        int firstSlotIndex = tileFirstSlotIndexArray[tileIndex];
+        int nextSlotIndex = firstSlotIndex;
+
+        int[] foreignRootLabelHashArray = foreignRootLabelHashArrayPerTile[tileIndex];
+        int[] foreignRootSlotHashArray = foreignRootSlotHashArrayPerTile[tileIndex];
+        int foreignRootHashMask = foreignRootLabelHashArray.length - 1;
+
+        // Label 0 is background, so 0 marks an empty entry
+        Arrays.fill(foreignRootLabelHashArray, 0);
+
+        for (int pixelYPosition = firstPixelYPosition; pixelYPosition < endPixelYPosition; pixelYPosition++) {
+
+            int currentRowStartIndex = pixelYPosition * frameWidthInPixels;
+
+            for (int pixelXPosition = 0; pixelXPosition < frameWidthInPixels; pixelXPosition++) {
+
+                int pixelIndex = currentRowStartIndex + pixelXPosition;
+
+                int provisionalLabelValue = provisionalPixelLabelIntegerArray[pixelIndex];
+
+                if (provisionalLabelValue == 0) {
+                    continue;
+                }
+
+                int rootLabelValue = findRootProvisionalLabel(provisionalLabelValue);
+
+                int slotIndex;
+
+                if (rootLabelValue >= firstOwnedLabelValue) {
+                    slotIndex = compactComponentLabelIntegerArray[rootLabelValue] - 1;
+
+                    if (slotIndex < 0) {
+                        slotIndex = nextSlotIndex;
+                        nextSlotIndex++;
+                        compactComponentLabelIntegerArray[rootLabelValue] = slotIndex + 1;
+                        openComponentSlot(slotIndex, rootLabelValue, pixelXPosition, pixelYPosition);
+                    }
+                } else {
+                    int hashPosition = (rootLabelValue * 0x9E3779B1) >>> (32 - foreignRootHashBitCount);
+
+                    while (foreignRootLabelHashArray[hashPosition] != rootLabelValue
+                            && foreignRootLabelHashArray[hashPosition] != 0) {
+                        hashPosition = (hashPosition + 1) & foreignRootHashMask;
+                    }
+
+                    if (foreignRootLabelHashArray[hashPosition] == 0) {
+                        slotIndex = nextSlotIndex;
+                        nextSlotIndex++;
+                        foreignRootLabelHashArray[hashPosition] = rootLabelValue;
+                        foreignRootSlotHashArray[hashPosition] = slotIndex;
+                        openComponentSlot(slotIndex, rootLabelValue, pixelXPosition, pixelYPosition);
+                    } else {
+                        slotIndex = foreignRootSlotHashArray[hashPosition];
+                    }
+                }
+
+                slotPixelCountIntegerArray[slotIndex]++;
+
+                // Raster order: y only grows, x needs both comparisons
+                if (pixelXPosition < slotMinimumXCoordinateIntegerArray[slotIndex]) {
+                    slotMinimumXCoordinateIntegerArray[slotIndex] = pixelXPosition;
+                }
+                if (pixelXPosition > slotMaximumXCoordinateIntegerArray[slotIndex]) {
+                    slotMaximumXCoordinateIntegerArray[slotIndex] = pixelXPosition;
+                }
+                if (pixelYPosition != slotMaximumYCoordinateIntegerArray[slotIndex]) {
+                    slotMaximumYCoordinateIntegerArray[slotIndex] = pixelYPosition;
+                    slotRowStoredPixelCountIntegerArray[slotIndex] = 0;
+                }
+
+                if (!rowExtremalPixelRetentionEnabled || slotRowStoredPixelCountIntegerArray[slotIndex] < 2) {
+                    slotRowStoredPixelCountIntegerArray[slotIndex]++;
+                    slotStoredPixelCoordinateCountIntegerArray[slotIndex]++;
+                }
+
+                provisionalPixelLabelIntegerArray[pixelIndex] = slotIndex + 1;
+            }
+        }
+
+        tileSlotCountArray[tileIndex] = nextSlotIndex - firstSlotIndex;
+    }
+
+    private void openComponentSlot(int slotIndex, int rootLabelValue, int pixelXPosition, int pixelYPosition) {
+        slotRootLabelIntegerArray[slotIndex] = rootLabelValue;
+        slotPixelCountIntegerArray[slotIndex] = 0;
+        slotMinimumXCoordinateIntegerArray[slotIndex] = pixelXPosition;
+        slotMaximumXCoordinateIntegerArray[slotIndex] = pixelXPosition;
+        slotMinimumYCoordinateIntegerArray[slotIndex] = pixelYPosition;
+        slotMaximumYCoordinateIntegerArray[slotIndex] = pixelYPosition;
+        slotRowStoredPixelCountIntegerArray[slotIndex] = 0;
+        slotStoredPixelCoordinateCountIntegerArray[slotIndex] = 0;
+    }
+
+    /**
+     * Writes the tile's pixels into the slabs from the slab index of their slot, keeping only the
+     * leftmost and rightmost pixel of each row when row extremal retention is enabled (the
+     * rightmost one is overwritten as the row goes on, as in
+     * {@link EdgeConnectedComponent#updateWithRowExtremalPixel}). Tiles write disjoint ranges.
+     */
+    private void scatterTilePixels(int tileIndex) {
+        int firstPixelYPosition = getTileFirstPixelYPosition(tileIndex);
+        int endPixelYPosition = getTileFirstPixelYPosition(tileIndex + 1);
+
+        for (int pixelYPosition = firstPixelYPosition; pixelYPosition < endPixelYPosition; pixelYPosition++) {
+
+            int currentRowStartIndex = pixelYPosition * frameWidthInPixels;
+
+            for (int pixelXPosition = 0; pixelXPosition < frameWidthInPixels; pixelXPosition++) {
+
+                int slotLabelValue = provisionalPixelLabelIntegerArray[currentRowStartIndex + pixelXPosition];
+
+                if (slotLabelValue == 0) {
+                    continue;
+                }
+
+                int slotIndex = slotLabelValue - 1;
+                int pixelCoordinateIndex = slotStoredPixelCoordinateCountIntegerArray[slotIndex];
+
+                if (pixelCoordinateIndex < 0) {
+                    // rejected component
+                    continue;
+                }
+
+                if (rowExtremalPixelRetentionEnabled) {
+                    if (pixelYPosition != slotMaximumYCoordinateIntegerArray[slotIndex]) {
+                        slotMaximumYCoordinateIntegerArray[slotIndex] = pixelYPosition;
+                        slotRowStoredPixelCountIntegerArray[slotIndex] = 0;
+                    }
+
+                    if (slotRowStoredPixelCountIntegerArray[slotIndex] == 2) {
+                        pixelXCoordinateSlabArray[pixelCoordinateIndex - 1] = pixelXPosition;
+                        continue;
+                    }
+
+                    slotRowStoredPixelCountIntegerArray[slotIndex]++;
+                }
+
+                pixelXCoordinateSlabArray[pixelCoordinateIndex] = pixelXPosition;
+                pixelYCoordinateSlabArray[pixelCoordinateIndex] = pixelYPosition;
+                slotStoredPixelCoordinateCountIntegerArray[slotIndex] = pixelCoordinateIndex + 1;
+            }
+        }
+    }
+
+    /**
+     * First union-find pass over rows [firstPixelYPosition, endPixelYPosition).
+     * Provisional labels of a tile start at firstPixelYPosition * frameWidthInPixels + 1, so
+     * tiles never share labels and only touch their own part of the union-find arrays.
+     */
+    private void labelTileRows(
+            DirectFrameBuffer edgeBinaryFrameBuffer,
+            int firstPixelYPosition,
+            int endPixelYPosition,
+            byte[] edgeBinaryRowByteArray
+    ) {
+        int nextProvisionalLabelValue = firstPixelYPosition * frameWidthInPixels + 1;
+
+        for (int pixelYPosition = firstPixelYPosition; pixelYPosition < endPixelYPosition; pixelYPosition++) {
+
+            edgeBinaryFrameBuffer.readRow(pixelYPosition, edgeBinaryRowByteArray);
+
+            int currentRowStartIndex = pixelYPosition * frameWidthInPixels;
+            int previousRowStartIndex = currentRowStartIndex - frameWidthInPixels;
+
+            for (int pixelXPosition = 0; pixelXPosition < frameWidthInPixels; pixelXPosition++) {
+
+                int pixelIndex = currentRowStartIndex + pixelXPosition;
+
+                if (edgeBinaryRowByteArray[pixelXPosition] == 0) {
+                    // background pixel
+                    provisionalPixelLabelIntegerArray[pixelIndex] = 0;
+                    continue;
+                }
+
+                // The first row of a tile does not look above; the seam merge connects it later
+                boolean hasPreviousRow = pixelYPosition > firstPixelYPosition;
+                boolean hasWestColumn = pixelXPosition > 0;
+                boolean hasEastColumn = pixelXPosition < frameWidthInPixels - 1;
+
+                int northLabelValue = hasPreviousRow
+                        ? provisionalPixelLabelIntegerArray[previousRowStartIndex + pixelXPosition] : 0;
+
+                int pixelLabelValue;
+
+                if (northLabelValue != 0) {
+                    // West, north-west and north-east all touch the north pixel,
+                    // so they are already in its component
+                    pixelLabelValue = northLabelValue;
+                } else {
+                    int westLabelValue = hasWestColumn
+                            ? provisionalPixelLabelIntegerArray[pixelIndex - 1] : 0;
+                    int northWestLabelValue = hasPreviousRow && hasWestColumn
+                            ? provisionalPixelLabelIntegerArray[previousRowStartIndex + pixelXPosition - 1] : 0;
+                    int northEastLabelValue = hasPreviousRow && hasEastColumn
+                            ? provisionalPixelLabelIntegerArray[previousRowStartIndex + pixelXPosition + 1] : 0;
+
+                    // West and north-west touch each other, so at most one of them matters
+                    int westOrNorthWestLabelValue = westLabelValue != 0 ? westLabelValue : northWestLabelValue;
+
+                    if (westOrNorthWestLabelValue != 0) {
+                        pixelLabelValue = westOrNorthWestLabelValue;
+                        if (northEastLabelValue != 0) {
+                            unionProvisionalLabels(westOrNorthWestLabelValue, northEastLabelValue);
+                        }
+                    } else if (northEastLabelValue != 0) {
+                        pixelLabelValue = northEastLabelValue;
+                    } else {
+                        pixelLabelValue = nextProvisionalLabelValue;
+                        unionFindParentLabelIntegerArray[pixelLabelValue] = pixelLabelValue;
+                        unionFindRankByteArray[pixelLabelValue] = 0;
+                        compactComponentLabelIntegerArray[pixelLabelValue] = 0;
+                        nextProvisionalLabelValue++;
+                    }
+                }
+
+                provisionalPixelLabelIntegerArray[pixelIndex] = pixelLabelValue;
+            }
+        }
+    }
+
+    /**
+     * Connects the first row of a tile with the last row of the tile above.
+     * Different seams can reach the same roots at the same time, so unions here are lock-free.
+     */
+    private void mergeTileSeam(int seamPixelYPosition) {
+        int currentRowStartIndex = seamPixelYPosition * frameWidthInPixels;
+        int previousRowStartIndex = currentRowStartIndex - frameWidthInPixels;
+
+        for (int pixelXPosition = 0; pixelXPosition < frameWidthInPixels; pixelXPosition++) {
+
+            int pixelLabelValue = provisionalPixelLabelIntegerArray[currentRowStartIndex + pixelXPosition];
+
+            if (pixelLabelValue == 0) {
+                continue;
+            }
+
+            int firstNeighborXPosition = Math.max(0, pixelXPosition - 1);
+            int lastNeighborXPosition = Math.min(frameWidthInPixels - 1, pixelXPosition + 1);
+
+            for (int neighborXPosition = firstNeighborXPosition;
+                 neighborXPosition <= lastNeighborXPosition;
+                 neighborXPosition++) {
+
+                int neighborLabelValue = provisionalPixelLabelIntegerArray[previousRowStartIndex + neighborXPosition];
+
+                if (neighborLabelValue != 0) {
+                    unionProvisionalLabelsConcurrently(pixelLabelValue, neighborLabelValue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lock-free union: the root with the larger label is linked under the other one with a CAS,
+     * retrying if another thread changed either root in the meantime. Rank is not used here.
+     */
+    private void unionProvisionalLabelsConcurrently(int firstProvisionalLabelValue, int secondProvisionalLabelValue) {
+        while (true) {
+            int firstRootLabelValue = findRootProvisionalLabelConcurrently(firstProvisionalLabelValue);
+            int secondRootLabelValue = findRootProvisionalLabelConcurrently(secondProvisionalLabelValue);
+
+            if (firstRootLabelValue == secondRootLabelValue) {
+                return;
+            }
+
+            int childRootLabelValue = Math.max(firstRootLabelValue, secondRootLabelValue);
+            int parentRootLabelValue = Math.min(firstRootLabelValue, secondRootLabelValue);
+
+            if (PARENT_LABEL_ARRAY_HANDLE.compareAndSet(
+                    unionFindParentLabelIntegerArray, childRootLabelValue, childRootLabelValue, parentRootLabelValue)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Find with path halving through CAS, safe while other threads are linking roots.
+     */
+    private int findRootProvisionalLabelConcurrently(int provisionalLabelValue) {
+        while (true) {
+            int parentLabelValue = (int) PARENT_LABEL_ARRAY_HANDLE.getVolatile(unionFindParentLabelIntegerArray, provisionalLabelValue);
+
+            if (parentLabelValue == provisionalLabelValue) {
+                return provisionalLabelValue;
+            }
+
+            int grandParentLabelValue = (int) PARENT_LABEL_ARRAY_HANDLE.getVolatile(unionFindParentLabelIntegerArray, parentLabelValue);
+
+            if (grandParentLabelValue != parentLabelValue) {
+                PARENT_LABEL_ARRAY_HANDLE.compareAndSet(
+                        unionFindParentLabelIntegerArray, provisionalLabelValue, parentLabelValue, grandParentLabelValue);
+            }
+
+            provisionalLabelValue = parentLabelValue;
+        }
+    }
+
+    /**
+     * First row of a tile; tile tileCount gives the frame height.
+     */
+    private int getTileFirstPixelYPosition(int tileIndex) {
+        return (int) ((long) frameHeightInPixels * tileIndex / tileCount);
+    }
+
+    /**
+     * Runs the action for every tile index on the tile pool and waits for all of them.
+     */
+    private void invokeForEachTile(IntConsumer tileAction) {
+        tileForkJoinPool.invoke(new TileRangeTask(tileAction, 0, tileCount));
+    }
+
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    /**
+     * Finds the root label with path compression (every visited label ends up pointing to the root).
+     */
+    private int findRootProvisionalLabel(int provisionalLabelValue) {
+        int rootLabelValue = provisionalLabelValue;
+
+        while (unionFindParentLabelIntegerArray[rootLabelValue] != rootLabelValue) {
+            rootLabelValue = unionFindParentLabelIntegerArray[rootLabelValue];
+        }
+
+        while (unionFindParentLabelIntegerArray[provisionalLabelValue] != rootLabelValue) {
+            int nextLabelValue = unionFindParentLabelIntegerArray[provisionalLabelValue];
+            unionFindParentLabelIntegerArray[provisionalLabelValue] = rootLabelValue;
+            provisionalLabelValue = nextLabelValue;
+        }
+
+        return rootLabelValue;
+    }
+
+    /**
+     * Merges two provisional labels, attaching the lower-rank root under the higher-rank one.
+     */
+    private void unionProvisionalLabels(int firstProvisionalLabelValue, int secondProvisionalLabelValue) {
+        int firstRootLabelValue = findRootProvisionalLabel(firstProvisionalLabelValue);
+        int secondRootLabelValue = findRootProvisionalLabel(secondProvisionalLabelValue);
+
+        if (firstRootLabelValue == secondRootLabelValue) {
+            return;
+        }
+
+        byte firstRootRankValue = unionFindRankByteArray[firstRootLabelValue];
+        byte secondRootRankValue = unionFindRankByteArray[secondRootLabelValue];
+
+        if (firstRootRankValue < secondRootRankValue) {
+            unionFindParentLabelIntegerArray[firstRootLabelValue] = secondRootLabelValue;
+        } else if (firstRootRankValue > secondRootRankValue) {
+            unionFindParentLabelIntegerArray[secondRootLabelValue] = firstRootLabelValue;
+        } else {
+            unionFindParentLabelIntegerArray[secondRootLabelValue] = firstRootLabelValue;
+            unionFindRankByteArray[firstRootLabelValue] = (byte) (firstRootRankValue + 1);
+        }
+    }
+
     /**
      * Performs a breadth-first search starting from the given seed pixel index and
      * returns a connected component with all reachable edge pixels.
      * Connectivity is 8-connected.
      *
+     * @param edgeBinaryByteBuffer binary edge pixels, read in place
      * @param seedPixelIndex      starting pixel index
      * @param componentLabelValue label assigned to this component
+     * @param pixelCoordinateOffset first free entry of the coordinate slabs
      * @return connected component containing all pixels in this region
      */
     private EdgeConnectedComponent performBreadthFirstSearchFromSeedPixelIndex(
+            ByteBuffer edgeBinaryByteBuffer,
             int seedPixelIndex,
-            int componentLabelValue
+            int componentLabelValue,
+            int pixelCoordinateOffset
     ) {
         EdgeConnectedComponent edgeConnectedComponent =
-                new EdgeConnectedComponent(componentLabelValue);
+                new EdgeConnectedComponent(
+                        componentLabelValue,
+                        pixelXCoordinateSlabArray,
+                        pixelYCoordinateSlabArray,
+                        pixelCoordinateOffset
+                );
 
         int queueHeadIndex = 0;
         int queueTailIndex = 0;
@@ -129,6 +1153,8 @@ public class AprilTagEdgeComponentExtractor {
 
         visitedPixelBooleanArray[seedPixelIndex] = true;
 
+        boolean storePixelCoordinates = true;
+
         while (queueHeadIndex < queueTailIndex) {
             int currentPixelIndex =
                     breadthFirstSearchQueuePixelIndexArray[queueHeadIndex];
@@ -137,11 +1163,25 @@ public class AprilTagEdgeComponentExtractor {
             int currentPixelYPosition = currentPixelIndex / frameWidthInPixels;
             int currentPixelXPosition = currentPixelIndex % frameWidthInPixels;
 
-            // Update component (count, bounding box and pixel list)
-            edgeConnectedComponent.updateWithPixel(
-                    currentPixelXPosition,
-                    currentPixelYPosition
-            );
+            // Update component (count, bounding box and pixel coordinates). Once the component
+            // breaks a limit that only grows, it will be rejected, so its coordinates stop being stored
+            if (storePixelCoordinates) {
+                edgeConnectedComponent.updateWithPixel(
+                        currentPixelXPosition,
+                        currentPixelYPosition
+                );
+
+                storePixelCoordinates = !edgeComponentRejectionCriteria.exceedsGrowingLimits(
+                        edgeConnectedComponent.componentPixelCount,
+                        edgeConnectedComponent.getComponentWidthInPixels(),
+                        edgeConnectedComponent.getComponentHeightInPixels()
+                );
+            } else {
+                edgeConnectedComponent.updateBoundingBoxWithPixel(
+                        currentPixelXPosition,
+                        currentPixelYPosition
+                );
+            }
 
             // Explore 8-connected neighbors
             for (int neighborDeltaYPosition = -1;
@@ -176,7 +1216,7 @@ public class AprilTagEdgeComponentExtractor {
                     }
 
                     int neighborPixelIntensityValue =
-                            edgeBinaryByteArray[neighborPixelIndex] & 0xFF;
+                            edgeBinaryByteBuffer.get(neighborPixelIndex) & 0xFF;
 
                     if (neighborPixelIntensityValue == 0) {
                         // background neighbor, skip
@@ -194,4 +1234,47 @@ public class AprilTagEdgeComponentExtractor {
         return edgeConnectedComponent;
     }
 
+    private void validateFrameSize(int inputFrameWidth, int inputFrameHeight) {
+        if (inputFrameWidth != frameWidthInPixels
+                || inputFrameHeight != frameHeightInPixels) {
+            throw new IllegalArgumentException(
+                    "Input edge frame size does not match edge component extractor configuration. " +
+                            "Expected " + frameWidthInPixels + "x" + frameHeightInPixels +
+                            " but received " + inputFrameWidth +
+                            "x" + inputFrameHeight
+            );
+        }
+    }
+
+    /**
+     * Splits a range of tile indices in halves until single tiles remain.
+     */
+    private static final class TileRangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IntConsumer tileAction;
+        private final int firstTileIndex;
+        private final int endTileIndex;
+
+        private TileRangeTask(IntConsumer tileAction, int firstTileIndex, int endTileIndex) {
+            this.tileAction = tileAction;
+            this.firstTileIndex = firstTileIndex;
+            this.endTileIndex = endTileIndex;
+        }
+
+        @Override
+        protected void compute() {
+            if (endTileIndex - firstTileIndex > 1) {
+                int middleTileIndex = (firstTileIndex + endTileIndex) >>> 1;
+                invokeAll(
+                        new TileRangeTask(tileAction, firstTileIndex, middleTileIndex),
+                        new TileRangeTask(tileAction, middleTileIndex, endTileIndex)
+                );
+                return;
+            }
+
+            tileAction.accept(firstTileIndex);
+        }
+    }
 }
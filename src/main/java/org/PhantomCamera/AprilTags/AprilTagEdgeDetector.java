@@ -1,9 +1,14 @@
 package org.PhantomCamera.AprilTags;
 
-import org.opencv.core.CvType;
+import org.PhantomCamera.Stadistics.FlightRecorder.AprilTagEdgeEvent;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.PhantomCamera.Utils.VectorSupport;
 import org.opencv.core.Mat;
 
-import java.util.Arrays;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Computes image gradients and a simple binary edge map from a grayscale frame.
@@ -11,6 +16,30 @@ import java.util.Arrays;
  */
 public class AprilTagEdgeDetector {
 
+    /**
+     * System property to choose the Sobel implementation: "true" uses VectorizedSobelEdgeUtils
+     * when it was built (-PvectorApi=true) and jdk.incubator.vector is available, otherwise the
+     * scalar loop is used. Off by default until the vector kernel stops allocating per row.
+     */
+    public static final String VECTORIZED_SOBEL_PROPERTY_NAME = "phantomcamera.sobel.vectorized";
+
+    /**
+     * VectorizedSobelEdgeUtils.calculateSobelEdgeRow, or null when the vector kernel is not available.
+     */
+    private static final MethodHandle VECTORIZED_SOBEL_ROW_HANDLE = VectorSupport.findVectorizedKernel(
+            "org.PhantomCamera.Utils.VectorizedSobelEdgeUtils",
+            "calculateSobelEdgeRow",
+            MethodType.methodType(
+                    void.class,
+                    byte[].class, byte[].class, byte[].class, int.class,
+                    short[].class, short[].class, int[].class,
+                    int.class, int.class, byte[].class
+            )
+    );
+
+    private static final boolean VECTORIZED_SOBEL_ENABLED =
+            VECTORIZED_SOBEL_ROW_HANDLE != null && VectorSupport.isVectorizedPathEnabled(VECTORIZED_SOBEL_PROPERTY_NAME);
+
     private final int frameWidth;
     private final int frameHeight;
 
@@ -20,39 +49,122 @@ public class AprilTagEdgeDetector {
      */
     private final int gradientMagnitudeThresholdValue;
 
+    /**
+     * Row kernel of this instance; defaults to {@link #VECTORIZED_SOBEL_PROPERTY_NAME}.
+     */
+    private final boolean vectorizedSobelEnabled;
+
     /**
      * Reusable arrays to avoid memory allocations every frame.
+     * Every interior pixel is overwritten on each frame and the one-pixel border
+     * is never written, so it keeps the zero it was allocated with and the arrays
+     * need no clearing between frames. Gx and Gy themselves are not kept: only the
+     * magnitude is read downstream.
      */
-    private final byte[] grayscaleByteArray;
-    private final short[] gradientXShortArray;
-    private final short[] gradientYShortArray;
     private final int[] gradientMagnitudeIntegerArray;
-    private final byte[] edgeBinaryByteArray;
 
     /**
-     * Output Mat containing the binary edge frame (single channel, 8-bit).
+     * Row staging arrays, one set per row band. The serial path only uses the first one.
      */
-    private final Mat edgeBinaryFrameMatrix;
+    private final SobelRowBandScratch[] sobelRowBandScratchArray;
+
+    /**
+     * Optional parallel mode: the interior rows are split into horizontal bands
+     * processed on this pool. Null means serial.
+     */
+    private final ForkJoinPool rowBandForkJoinPool;
+
+    /**
+     * Number of horizontal bands used in parallel mode (1 in serial mode).
+     */
+    private final int rowBandCount;
+
+    /**
+     * Output binary edge frame (single channel, 8-bit) shared with OpenCV.
+     */
+    private final DirectFrameBuffer edgeBinaryFrameBuffer;
+
+    /**
+     * Grayscale input copy, only used when the input arrives as a foreign Mat.
+     * Created on first use.
+     */
+    private DirectFrameBuffer grayscaleFrameBuffer;
 
     public AprilTagEdgeDetector(
             int frameWidth,
             int frameHeight,
             int gradientMagnitudeThresholdValue
     ) {
+        this(frameWidth, frameHeight, gradientMagnitudeThresholdValue, null, 1);
+    }
+
+    /**
+     * Parallel mode. Each output row depends only on three input rows, so the frame is split
+     * into horizontal bands of interior rows; every band reads its own rows (including the
+     * one-row halo above and below) with its own scratch, and writes only its own rows.
+     * The output is identical to the serial path.
+     *
+     * @param rowBandForkJoinPool pool that runs the bands, or null for the serial path
+     * @param rowBandCount        number of bands; 0 or less picks twice the pool parallelism
+     */
+    public AprilTagEdgeDetector(
+            int frameWidth,
+            int frameHeight,
+            int gradientMagnitudeThresholdValue,
+            ForkJoinPool rowBandForkJoinPool,
+            int rowBandCount
+    ) {
+        this(frameWidth, frameHeight, gradientMagnitudeThresholdValue, rowBandForkJoinPool, rowBandCount, VECTORIZED_SOBEL_ENABLED);
+    }
+
+    /**
+     * Same as the parallel constructor but picks the row kernel explicitly instead of from
+     * {@link #VECTORIZED_SOBEL_PROPERTY_NAME}; both kernels give identical output.
+     *
+     * @param vectorizedSobelEnabled true for the vector kernel, which must be available
+     *                               (see {@link #isVectorizedSobelAvailable()})
+     */
+    public AprilTagEdgeDetector(
+            int frameWidth,
+            int frameHeight,
+            int gradientMagnitudeThresholdValue,
+            ForkJoinPool rowBandForkJoinPool,
+            int rowBandCount,
+            boolean vectorizedSobelEnabled
+    ) {
+        if (vectorizedSobelEnabled && VECTORIZED_SOBEL_ROW_HANDLE == null) {
+            throw new IllegalStateException(
+                    "Vectorized Sobel is not available. Build with -PvectorApi=true and run with --add-modules jdk.incubator.vector"
+            );
+        }
+
         this.frameWidth = frameWidth;
         this.frameHeight = frameHeight;
         this.gradientMagnitudeThresholdValue = gradientMagnitudeThresholdValue;
+        this.vectorizedSobelEnabled = vectorizedSobelEnabled;
+        this.rowBandForkJoinPool = rowBandForkJoinPool;
+
+        int interiorRowCount = Math.max(1, frameHeight - 2);
+
+        if (rowBandForkJoinPool == null) {
+            this.rowBandCount = 1;
+        } else if (rowBandCount <= 0) {
+            // Two bands per worker so an unlucky slow band does not leave the others idle
+            this.rowBandCount = Math.min(interiorRowCount, 2 * rowBandForkJoinPool.getParallelism());
+        } else {
+            this.rowBandCount = Math.min(interiorRowCount, rowBandCount);
+        }
 
         int totalPixelCount = frameWidth * frameHeight;
 
-        this.grayscaleByteArray = new byte[totalPixelCount];
-        this.gradientXShortArray = new short[totalPixelCount];
-        this.gradientYShortArray = new short[totalPixelCount];
         this.gradientMagnitudeIntegerArray = new int[totalPixelCount];
-        this.edgeBinaryByteArray = new byte[totalPixelCount];
 
-        this.edgeBinaryFrameMatrix =
-                new Mat(frameHeight, frameWidth, CvType.CV_8UC1);
+        this.sobelRowBandScratchArray = new SobelRowBandScratch[this.rowBandCount];
+        for (int rowBandIndex = 0; rowBandIndex < this.rowBandCount; rowBandIndex++) {
+            sobelRowBandScratchArray[rowBandIndex] = new SobelRowBandScratch(frameWidth, vectorizedSobelEnabled);
+        }
+
+        this.edgeBinaryFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 1);
     }
 
     /**
@@ -64,117 +176,335 @@ public class AprilTagEdgeDetector {
      */
     public Mat calculateEdgeBinaryFrameFromGrayscaleFrame(Mat grayscaleFrameMatrix) {
         if (grayscaleFrameMatrix.empty()) {
-            return edgeBinaryFrameMatrix;
+            return edgeBinaryFrameBuffer.getFrameMatrix();
         }
 
-        if (grayscaleFrameMatrix.cols() != frameWidth
-                || grayscaleFrameMatrix.rows() != frameHeight) {
-            throw new IllegalArgumentException(
-                    "Input grayscale frame size does not match edge detector configuration. " +
-                            "Expected " + frameWidth + "x" + frameHeight +
-                            " but received " + grayscaleFrameMatrix.cols() +
-                            "x" + grayscaleFrameMatrix.rows()
-            );
+        validateFrameSize(grayscaleFrameMatrix.cols(), grayscaleFrameMatrix.rows());
+
+        if (grayscaleFrameBuffer == null) {
+            grayscaleFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 1);
         }
 
-        int totalPixelCount = frameWidth * frameHeight;
+        // Single native copy into direct memory instead of a JNI copy into the Java heap
+        grayscaleFrameBuffer.copyFromFrameMatrix(grayscaleFrameMatrix);
+
+        calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+
+        return edgeBinaryFrameBuffer.getFrameMatrix();
+    }
+
+    /**
+     * Same as {@link #calculateEdgeBinaryFrameFromGrayscaleFrame(Mat)} but reads the
+     * grayscale pixels in place, for example from {@link AprilTagFramePreProcessing#getGrayscaleFrameBuffer()}.
+     *
+     * @param grayscaleFrameBuffer input grayscale frame (1 channel)
+     * @return reference to the internal binary edge frame buffer
+     */
+    public DirectFrameBuffer calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(
+            DirectFrameBuffer grayscaleFrameBuffer
+    ) {
+        validateFrameSize(grayscaleFrameBuffer.getFrameWidth(), grayscaleFrameBuffer.getFrameHeight());
+
+        if (frameWidth < 3 || frameHeight < 3) {
+            return edgeBinaryFrameBuffer;
+        }
+
+        AprilTagEdgeEvent edgeEvent = new AprilTagEdgeEvent();
+        edgeEvent.begin();
 
-        // Copy grayscale data from Mat into reusable array
-        grayscaleFrameMatrix.get(0, 0, grayscaleByteArray);
+        if (rowBandForkJoinPool == null || rowBandCount == 1) {
+            calculateSobelEdgeRowBand(grayscaleFrameBuffer, 1, frameHeight - 1, sobelRowBandScratchArray[0]);
+        } else {
+            rowBandForkJoinPool.invoke(new SobelRowBandTask(grayscaleFrameBuffer, 0, rowBandCount));
+        }
+
+        edgeEvent.end();
+        if (edgeEvent.shouldCommit()) {
+            edgeEvent.edgeSegmentationMode = AprilTagDetector.EdgeSegmentationMode.SOBEL_GRADIENT_THRESHOLD.name();
+            edgeEvent.frameWidth = frameWidth;
+            edgeEvent.frameHeight = frameHeight;
+            edgeEvent.commit();
+        }
 
-        // Initialize arrays for the new frame
-        Arrays.fill(gradientXShortArray, (short) 0);
-        Arrays.fill(gradientYShortArray, (short) 0);
-        Arrays.fill(gradientMagnitudeIntegerArray, 0);
-        Arrays.fill(edgeBinaryByteArray, (byte) 0);
+        return edgeBinaryFrameBuffer;
+    }
+
+    /**
+     * Runs the rolling three-row window over interior rows [firstPixelYPosition, endPixelYPosition).
+     */
+    private void calculateSobelEdgeRowBand(
+            DirectFrameBuffer grayscaleFrameBuffer,
+            int firstPixelYPosition,
+            int endPixelYPosition,
+            SobelRowBandScratch sobelRowBandScratch
+    ) {
+        grayscaleFrameBuffer.readRow(firstPixelYPosition - 1, sobelRowBandScratch.middleGrayscaleRowByteArray);
+        grayscaleFrameBuffer.readRow(firstPixelYPosition, sobelRowBandScratch.bottomGrayscaleRowByteArray);
 
         // Apply Sobel operator (3x3) to compute gradients.
-        for (int pixelYPosition = 1;
-             pixelYPosition < frameHeight - 1;
+        for (int pixelYPosition = firstPixelYPosition;
+             pixelYPosition < endPixelYPosition;
              pixelYPosition++) {
 
-            int topRowStartIndex =
-                    (pixelYPosition - 1) * frameWidth;
-            int middleRowStartIndex =
-                    pixelYPosition * frameWidth;
-            int bottomRowStartIndex =
-                    (pixelYPosition + 1) * frameWidth;
-
-            for (int pixelXPosition = 1;
-                 pixelXPosition < frameWidth - 1;
-                 pixelXPosition++) {
-
-                int pixelXPositionMinusOne = pixelXPosition - 1;
-                int pixelXPositionPlusOne = pixelXPosition + 1;
-
-                int pixelIndex = middleRowStartIndex + pixelXPosition;
-
-                int pixelTopLeftIntensityValue =
-                        grayscaleByteArray[topRowStartIndex + pixelXPositionMinusOne] & 0xFF;
-                int pixelTopCenterIntensityValue =
-                        grayscaleByteArray[topRowStartIndex + pixelXPosition] & 0xFF;
-                int pixelTopRightIntensityValue =
-                        grayscaleByteArray[topRowStartIndex + pixelXPositionPlusOne] & 0xFF;
-
-                int pixelMiddleLeftIntensityValue =
-                        grayscaleByteArray[middleRowStartIndex + pixelXPositionMinusOne] & 0xFF;
-                int pixelMiddleCenterIntensityValue =
-                        grayscaleByteArray[middleRowStartIndex + pixelXPosition] & 0xFF;
-                int pixelMiddleRightIntensityValue =
-                        grayscaleByteArray[middleRowStartIndex + pixelXPositionPlusOne] & 0xFF;
-
-                int pixelBottomLeftIntensityValue =
-                        grayscaleByteArray[bottomRowStartIndex + pixelXPositionMinusOne] & 0xFF;
-                int pixelBottomCenterIntensityValue =
-                        grayscaleByteArray[bottomRowStartIndex + pixelXPosition] & 0xFF;
-                int pixelBottomRightIntensityValue =
-                        grayscaleByteArray[bottomRowStartIndex + pixelXPositionPlusOne] & 0xFF;
-
-                // Sobel Gx
-                int gradientXValue =
-                        (-1 * pixelTopLeftIntensityValue) +
-                                (1 * pixelTopRightIntensityValue) +
-                                (-2 * pixelMiddleLeftIntensityValue) +
-                                (2 * pixelMiddleRightIntensityValue) +
-                                (-1 * pixelBottomLeftIntensityValue) +
-                                (1 * pixelBottomRightIntensityValue);
-
-                // Sobel Gy
-                int gradientYValue =
-                        (1 * pixelTopLeftIntensityValue) +
-                                (2 * pixelTopCenterIntensityValue) +
-                                (1 * pixelTopRightIntensityValue) +
-                                (-1 * pixelBottomLeftIntensityValue) +
-                                (-2 * pixelBottomCenterIntensityValue) +
-                                (-1 * pixelBottomRightIntensityValue);
-
-                gradientXShortArray[pixelIndex] = (short) gradientXValue;
-                gradientYShortArray[pixelIndex] = (short) gradientYValue;
-
-                int gradientMagnitudeValue =
-                        Math.abs(gradientXValue) + Math.abs(gradientYValue);
-
-                gradientMagnitudeIntegerArray[pixelIndex] = gradientMagnitudeValue;
-
-                if (gradientMagnitudeValue >= gradientMagnitudeThresholdValue) {
-                    edgeBinaryByteArray[pixelIndex] = (byte) 255;
-                } else {
-                    edgeBinaryByteArray[pixelIndex] = 0;
-                }
+            // Roll the three-row window down by one row
+            sobelRowBandScratch.rollRowWindow();
+
+            grayscaleFrameBuffer.readRow(pixelYPosition + 1, sobelRowBandScratch.bottomGrayscaleRowByteArray);
+
+            if (vectorizedSobelEnabled) {
+                calculateVectorizedSobelEdgeRow(
+                        sobelRowBandScratch.topGrayscaleRowByteArray,
+                        sobelRowBandScratch.middleGrayscaleRowByteArray,
+                        sobelRowBandScratch.bottomGrayscaleRowByteArray,
+                        frameWidth,
+                        sobelRowBandScratch.columnSmoothShortArray,
+                        sobelRowBandScratch.columnDifferenceShortArray,
+                        gradientMagnitudeIntegerArray,
+                        pixelYPosition * frameWidth,
+                        gradientMagnitudeThresholdValue,
+                        sobelRowBandScratch.edgeBinaryRowByteArray
+                );
+            } else {
+                calculateSobelEdgeRow(
+                        pixelYPosition,
+                        sobelRowBandScratch.topGrayscaleRowByteArray,
+                        sobelRowBandScratch.middleGrayscaleRowByteArray,
+                        sobelRowBandScratch.bottomGrayscaleRowByteArray,
+                        sobelRowBandScratch.edgeBinaryRowByteArray
+                );
             }
+
+            edgeBinaryFrameBuffer.writeRow(pixelYPosition, sobelRowBandScratch.edgeBinaryRowByteArray);
         }
+    }
 
-        // Copy binary edge data into the Mat
-        edgeBinaryFrameMatrix.put(0, 0, edgeBinaryByteArray);
+    private static void calculateVectorizedSobelEdgeRow(
+            byte[] topGrayscaleRowByteArray,
+            byte[] middleGrayscaleRowByteArray,
+            byte[] bottomGrayscaleRowByteArray,
+            int frameWidth,
+            short[] columnSmoothShortArray,
+            short[] columnDifferenceShortArray,
+            int[] gradientMagnitudeIntegerArray,
+            int middleRowStartIndex,
+            int gradientMagnitudeThresholdValue,
+            byte[] edgeBinaryRowByteArray
+    ) {
+        try {
+            VECTORIZED_SOBEL_ROW_HANDLE.invokeExact(
+                    topGrayscaleRowByteArray,
+                    middleGrayscaleRowByteArray,
+                    bottomGrayscaleRowByteArray,
+                    frameWidth,
+                    columnSmoothShortArray,
+                    columnDifferenceShortArray,
+                    gradientMagnitudeIntegerArray,
+                    middleRowStartIndex,
+                    gradientMagnitudeThresholdValue,
+                    edgeBinaryRowByteArray
+            );
+        } catch (RuntimeException | Error uncheckedException) {
+            throw uncheckedException;
+        } catch (Throwable throwable) {
+            throw new IllegalStateException("Vectorized Sobel kernel failed", throwable);
+        }
+    }
 
-        return edgeBinaryFrameMatrix;
+    /**
+     * Computes the gradient magnitude and the binary edge row for one interior row.
+     * The first and last entries of the edge row are left untouched (always 0).
+     */
+    private void calculateSobelEdgeRow(
+            int pixelYPosition,
+            byte[] topGrayscaleRowByteArray,
+            byte[] middleGrayscaleRowByteArray,
+            byte[] bottomGrayscaleRowByteArray,
+            byte[] edgeBinaryRowByteArray
+    ) {
+        int middleRowStartIndex = pixelYPosition * frameWidth;
+
+        for (int pixelXPosition = 1;
+             pixelXPosition < frameWidth - 1;
+             pixelXPosition++) {
+
+            int pixelXPositionMinusOne = pixelXPosition - 1;
+            int pixelXPositionPlusOne = pixelXPosition + 1;
+
+            int pixelIndex = middleRowStartIndex + pixelXPosition;
+
+            int pixelTopLeftIntensityValue =
+                    topGrayscaleRowByteArray[pixelXPositionMinusOne] & 0xFF;
+            int pixelTopCenterIntensityValue =
+                    topGrayscaleRowByteArray[pixelXPosition] & 0xFF;
+            int pixelTopRightIntensityValue =
+                    topGrayscaleRowByteArray[pixelXPositionPlusOne] & 0xFF;
+
+            int pixelMiddleLeftIntensityValue =
+                    middleGrayscaleRowByteArray[pixelXPositionMinusOne] & 0xFF;
+            int pixelMiddleRightIntensityValue =
+                    middleGrayscaleRowByteArray[pixelXPositionPlusOne] & 0xFF;
+
+            int pixelBottomLeftIntensityValue =
+                    bottomGrayscaleRowByteArray[pixelXPositionMinusOne] & 0xFF;
+            int pixelBottomCenterIntensityValue =
+                    bottomGrayscaleRowByteArray[pixelXPosition] & 0xFF;
+            int pixelBottomRightIntensityValue =
+                    bottomGrayscaleRowByteArray[pixelXPositionPlusOne] & 0xFF;
+
+            // Sobel Gx
+            int gradientXValue =
+                    (-1 * pixelTopLeftIntensityValue) +
+                            (1 * pixelTopRightIntensityValue) +
+                            (-2 * pixelMiddleLeftIntensityValue) +
+                            (2 * pixelMiddleRightIntensityValue) +
+                            (-1 * pixelBottomLeftIntensityValue) +
+                            (1 * pixelBottomRightIntensityValue);
+
+            // Sobel Gy
+            int gradientYValue =
+                    (1 * pixelTopLeftIntensityValue) +
+                            (2 * pixelTopCenterIntensityValue) +
+                            (1 * pixelTopRightIntensityValue) +
+                            (-1 * pixelBottomLeftIntensityValue) +
+                            (-2 * pixelBottomCenterIntensityValue) +
+                            (-1 * pixelBottomRightIntensityValue);
+
+            int gradientMagnitudeValue =
+                    Math.abs(gradientXValue) + Math.abs(gradientYValue);
+
+            gradientMagnitudeIntegerArray[pixelIndex] = gradientMagnitudeValue;
+
+            if (gradientMagnitudeValue >= gradientMagnitudeThresholdValue) {
+                edgeBinaryRowByteArray[pixelXPosition] = (byte) 255;
+            } else {
+                edgeBinaryRowByteArray[pixelXPosition] = 0;
+            }
+        }
     }
 
-    public byte[] getEdgeBinaryByteArray(){
-        return  edgeBinaryByteArray;
+    private void validateFrameSize(int inputFrameWidth, int inputFrameHeight) {
+        if (inputFrameWidth != frameWidth
+                || inputFrameHeight != frameHeight) {
+            throw new IllegalArgumentException(
+                    "Input grayscale frame size does not match edge detector configuration. " +
+                            "Expected " + frameWidth + "x" + frameHeight +
+                            " but received " + inputFrameWidth +
+                            "x" + inputFrameHeight
+            );
+        }
+    }
+
+    /**
+     * Number of horizontal bands per frame (1 when running serially).
+     */
+    public int getRowBandCount() {
+        return rowBandCount;
+    }
+
+    /**
+     * Kernel picked by the constructors without an explicit choice.
+     */
+    public static boolean isVectorizedSobelEnabled() {
+        return VECTORIZED_SOBEL_ENABLED;
+    }
+
+    /**
+     * true when the vector kernel was built and jdk.incubator.vector is present, even if it is not the default.
+     */
+    public static boolean isVectorizedSobelAvailable() {
+        return VECTORIZED_SOBEL_ROW_HANDLE != null;
+    }
+
+    public boolean isVectorizedSobelKernelInUse() {
+        return vectorizedSobelEnabled;
+    }
+
+    /**
+     * Binary edge frame (0 or 255 per pixel) computed by the last call, shared with OpenCV.
+     */
+    public DirectFrameBuffer getEdgeBinaryFrameBuffer() {
+        return edgeBinaryFrameBuffer;
     }
 
     public int[] getGradientMagnitudeIntegerArray(){
         return  gradientMagnitudeIntegerArray;
     }
+
+    /**
+     * Splits the band range in halves until a single band remains, then processes it.
+     */
+    private final class SobelRowBandTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final DirectFrameBuffer grayscaleFrameBuffer;
+        private final int firstRowBandIndex;
+        private final int endRowBandIndex;
+
+        private SobelRowBandTask(DirectFrameBuffer grayscaleFrameBuffer, int firstRowBandIndex, int endRowBandIndex) {
+            this.grayscaleFrameBuffer = grayscaleFrameBuffer;
+            this.firstRowBandIndex = firstRowBandIndex;
+            this.endRowBandIndex = endRowBandIndex;
+        }
+
+        @Override
+        protected void compute() {
+            if (endRowBandIndex - firstRowBandIndex > 1) {
+                int middleRowBandIndex = (firstRowBandIndex + endRowBandIndex) >>> 1;
+                invokeAll(
+                        new SobelRowBandTask(grayscaleFrameBuffer, firstRowBandIndex, middleRowBandIndex),
+                        new SobelRowBandTask(grayscaleFrameBuffer, middleRowBandIndex, endRowBandIndex)
+                );
+                return;
+            }
+
+            int interiorRowCount = frameHeight - 2;
+
+            // Interior rows are 1 .. frameHeight - 2; band i gets a contiguous, nearly equal share
+            int firstPixelYPosition = 1 + (int) ((long) interiorRowCount * firstRowBandIndex / rowBandCount);
+            int endPixelYPosition = 1 + (int) ((long) interiorRowCount * endRowBandIndex / rowBandCount);
+
+            if (firstPixelYPosition < endPixelYPosition) {
+                calculateSobelEdgeRowBand(
+                        grayscaleFrameBuffer,
+                        firstPixelYPosition,
+                        endPixelYPosition,
+                        sobelRowBandScratchArray[firstRowBandIndex]
+                );
+            }
+        }
+    }
+
+    /**
+     * Row-sized staging arrays owned by one band: three grayscale input rows that roll
+     * down the band, one binary edge output row, and the per-column sums used by the
+     * vectorized kernel (only allocated when that kernel is enabled).
+     */
+    private static final class SobelRowBandScratch {
+
+        private byte[] topGrayscaleRowByteArray;
+        private byte[] middleGrayscaleRowByteArray;
+        private byte[] bottomGrayscaleRowByteArray;
+        private final byte[] edgeBinaryRowByteArray;
+
+        private final short[] columnSmoothShortArray;
+        private final short[] columnDifferenceShortArray;
+
+        private SobelRowBandScratch(int frameWidth, boolean vectorizedSobelEnabled) {
+            this.topGrayscaleRowByteArray = new byte[frameWidth];
+            this.middleGrayscaleRowByteArray = new byte[frameWidth];
+            this.bottomGrayscaleRowByteArray = new byte[frameWidth];
+            this.edgeBinaryRowByteArray = new byte[frameWidth];
+
+            this.columnSmoothShortArray = vectorizedSobelEnabled ? new short[frameWidth] : null;
+            this.columnDifferenceShortArray = vectorizedSobelEnabled ? new short[frameWidth] : null;
+        }
+
+        private void rollRowWindow() {
+            byte[] recycledGrayscaleRowByteArray = topGrayscaleRowByteArray;
+            topGrayscaleRowByteArray = middleGrayscaleRowByteArray;
+            middleGrayscaleRowByteArray = bottomGrayscaleRowByteArray;
+            bottomGrayscaleRowByteArray = recycledGrayscaleRowByteArray;
+        }
+    }
 }
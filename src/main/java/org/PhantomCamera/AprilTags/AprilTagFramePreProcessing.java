@@ -1,85 +1,268 @@
 package org.PhantomCamera.AprilTags;
 
+import org.PhantomCamera.Stadistics.FlightRecorder.AprilTagGrayscaleEvent;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
 import org.PhantomCamera.Utils.GrayScaleConvertionUtils;
-import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 
+import java.util.Arrays;
+
 /**
  * Preprocesses camera frames for AprilTag detection.
  * Step 1: manual conversion from BGR color to grayscale.
+ * <p>
+ * Optionally the grayscale frame is also box-decimated by 2, 3 or 4 in the same row pass:
+ * every decimated pixel is the rounded mean of a factor x factor block of full resolution
+ * pixels. Edge detection, labelling and quad fitting can then run on the decimated frame
+ * (1/4 to 1/16 of the pixels), while corner refinement and bit sampling keep using the full
+ * resolution grayscale frame. Trailing columns and rows that do not fill a whole block are
+ * left out of the decimated frame.
  */
 public class AprilTagFramePreProcessing {
 
+    public static final int MAXIMUM_DECIMATION_FACTOR = 4;
+
     private final int frameWidth;
     private final int frameHeight;
 
     /**
-     * Reusable grayscale frame matrix (single channel, 8-bit).
+     * 1 when decimation is off.
+     */
+    private final int decimationFactor;
+    private final int decimatedFrameWidth;
+    private final int decimatedFrameHeight;
+
+    /**
+     * Reusable grayscale frame (single channel, 8-bit) shared with OpenCV
+     * through a direct buffer, so no Mat.put is needed after the conversion.
      */
-    private final Mat grayscaleFrameMatrix;
+    private final DirectFrameBuffer grayscaleFrameBuffer;
 
     /**
-     * Reusable input color byte array (B, G, R per pixel → 3 bytes per pixel).
+     * Reusable input color frame (B, G, R per pixel → 3 bytes per pixel), only used
+     * when the input arrives as a foreign Mat. Created on first use.
      */
-    private final byte[] inputColorByteArray;
+    private DirectFrameBuffer inputColorFrameBuffer;
 
     /**
-     * Reusable output grayscale byte array (one byte per pixel).
+     * Reusable row-sized staging arrays; one row stays in cache while it is converted.
      */
-    private final byte[] outputGrayscaleByteArray;
+    private final byte[] inputColorRowByteArray;
+    private final byte[] outputGrayscaleRowByteArray;
+
+    /**
+     * Decimated grayscale frame and its staging: per decimated column the running sum of the
+     * block rows seen so far, and the finished decimated row. Null when decimation is off.
+     */
+    private final DirectFrameBuffer decimatedGrayscaleFrameBuffer;
+    private final int[] decimatedBlockSumIntegerArray;
+    private final byte[] decimatedGrayscaleRowByteArray;
 
     public AprilTagFramePreProcessing(int frameWidth, int frameHeight) {
+        this(frameWidth, frameHeight, 1);
+    }
+
+    /**
+     * @param decimationFactor 1 (no decimation) to {@link #MAXIMUM_DECIMATION_FACTOR}
+     */
+    public AprilTagFramePreProcessing(int frameWidth, int frameHeight, int decimationFactor) {
+        if (decimationFactor < 1 || decimationFactor > MAXIMUM_DECIMATION_FACTOR) {
+            throw new IllegalArgumentException(
+                    "Decimation factor must be between 1 and " + MAXIMUM_DECIMATION_FACTOR +
+                            " but received " + decimationFactor
+            );
+        }
+
+        if (frameWidth < 1 || frameHeight < 1) {
+            throw new IllegalArgumentException(
+                    "Frame size must be at least 1x1 but received " + frameWidth + "x" + frameHeight
+            );
+        }
+
+        // Con menos de un bloque completo el frame decimado tendria 0 pixeles de ancho o de alto
+        if (frameWidth < decimationFactor || frameHeight < decimationFactor) {
+            throw new IllegalArgumentException(
+                    "Frame " + frameWidth + "x" + frameHeight + " is smaller than the decimation factor " +
+                            decimationFactor + ": the decimated frame would be " + (frameWidth / decimationFactor) +
+                            "x" + (frameHeight / decimationFactor)
+            );
+        }
+
         this.frameWidth = frameWidth;
         this.frameHeight = frameHeight;
+        this.decimationFactor = decimationFactor;
+        this.decimatedFrameWidth = frameWidth / decimationFactor;
+        this.decimatedFrameHeight = frameHeight / decimationFactor;
 
-        int totalPixelCount = frameWidth * frameHeight;
-        int totalColorByteCount = totalPixelCount * 3;
+        this.grayscaleFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 1);
+        this.inputColorRowByteArray = new byte[frameWidth * 3];
+        this.outputGrayscaleRowByteArray = new byte[frameWidth];
 
-        this.grayscaleFrameMatrix = new Mat(frameHeight, frameWidth, CvType.CV_8UC1);
-        this.inputColorByteArray = new byte[totalColorByteCount];
-        this.outputGrayscaleByteArray = new byte[totalPixelCount];
+        if (decimationFactor > 1) {
+            this.decimatedGrayscaleFrameBuffer = new DirectFrameBuffer(decimatedFrameWidth, decimatedFrameHeight, 1);
+            this.decimatedBlockSumIntegerArray = new int[decimatedFrameWidth];
+            this.decimatedGrayscaleRowByteArray = new byte[decimatedFrameWidth];
+        } else {
+            this.decimatedGrayscaleFrameBuffer = null;
+            this.decimatedBlockSumIntegerArray = null;
+            this.decimatedGrayscaleRowByteArray = null;
+        }
     }
 
     /**
      * Converts a BGR color frame into a grayscale frame using a manual
      * luminance formula through a shared utility. The result is stored inside
-     * this.preallocated grayscaleFrameMatrix and returned.
+     * this.preallocated grayscale frame buffer and returned as a Mat over it.
      *
      * @param inputColorFrameMatrix input frame in BGR format (CV_8UC3)
      * @return reference to an internal grayscale Mat (CV_8UC1)
      */
     public Mat convertColorBgrFrameToGrayscale(Mat inputColorFrameMatrix) {
         if (inputColorFrameMatrix.empty()) {
-            return grayscaleFrameMatrix;
+            return grayscaleFrameBuffer.getFrameMatrix();
+        }
+
+        validateFrameSize(inputColorFrameMatrix.cols(), inputColorFrameMatrix.rows());
+
+        if (inputColorFrameBuffer == null) {
+            inputColorFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 3);
         }
 
-        if (inputColorFrameMatrix.cols() != frameWidth
-                || inputColorFrameMatrix.rows() != frameHeight) {
+        // Single native copy into direct memory instead of a JNI copy into the Java heap
+        inputColorFrameBuffer.copyFromFrameMatrix(inputColorFrameMatrix);
+
+        convertColorBgrFrameBufferToGrayscale(inputColorFrameBuffer);
+
+        return grayscaleFrameBuffer.getFrameMatrix();
+    }
+
+    /**
+     * Converts a BGR color frame buffer into the internal grayscale frame buffer,
+     * reading and writing both frames in place. With decimation on, the decimated
+     * frame is filled in the same pass while each grayscale row is still in cache.
+     *
+     * @param inputColorFrameBuffer input frame in BGR format (3 channels)
+     * @return reference to the internal grayscale frame buffer
+     */
+    public DirectFrameBuffer convertColorBgrFrameBufferToGrayscale(DirectFrameBuffer inputColorFrameBuffer) {
+        validateFrameSize(inputColorFrameBuffer.getFrameWidth(), inputColorFrameBuffer.getFrameHeight());
+
+        if (inputColorFrameBuffer.getChannelCount() != 3) {
             throw new IllegalArgumentException(
-                    "Input frame size does not match preprocessor configuration. " +
-                            "Expected " + frameWidth + "x" + frameHeight +
-                            " but received " + inputColorFrameMatrix.cols() +
-                            "x" + inputColorFrameMatrix.rows()
+                    "Input frame buffer must have 3 channels but has " + inputColorFrameBuffer.getChannelCount()
+            );
+        }
+
+        AprilTagGrayscaleEvent grayscaleEvent = new AprilTagGrayscaleEvent();
+        grayscaleEvent.begin();
+
+        // Convert row by row using the shared utility
+        for (int pixelYPosition = 0; pixelYPosition < frameHeight; pixelYPosition++) {
+            inputColorFrameBuffer.readRow(pixelYPosition, inputColorRowByteArray);
+
+            GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArray(
+                    inputColorRowByteArray,
+                    frameWidth,
+                    1,
+                    outputGrayscaleRowByteArray
             );
+
+            grayscaleFrameBuffer.writeRow(pixelYPosition, outputGrayscaleRowByteArray);
+
+            if (decimationFactor > 1) {
+                accumulateDecimatedGrayscaleRow(pixelYPosition);
+            }
         }
 
-        int totalPixelCount = frameWidth * frameHeight;
+        grayscaleEvent.end();
+        if (grayscaleEvent.shouldCommit()) {
+            grayscaleEvent.frameWidth = frameWidth;
+            grayscaleEvent.frameHeight = frameHeight;
+            grayscaleEvent.decimationFactor = decimationFactor;
+            grayscaleEvent.commit();
+        }
 
-        // Copy the BGR data from the Mat into our reusable byte array
-        inputColorFrameMatrix.get(0, 0, inputColorByteArray);
+        return grayscaleFrameBuffer;
+    }
 
-        // Convert each pixel from BGR to grayscale using the shared utility
-        GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArray(
-                inputColorByteArray,
-                frameWidth,
-                frameHeight,
-                outputGrayscaleByteArray
-        );
+    /**
+     * Adds one full resolution grayscale row to the block sums and writes the decimated row
+     * once the last row of the block has been added.
+     */
+    private void accumulateDecimatedGrayscaleRow(int pixelYPosition) {
+        int decimatedYPosition = pixelYPosition / decimationFactor;
 
-        // Write the grayscale data back into the Mat
-        grayscaleFrameMatrix.put(0, 0, outputGrayscaleByteArray);
+        if (decimatedYPosition >= decimatedFrameHeight) {
+            return;
+        }
 
-        return grayscaleFrameMatrix;
+        int blockRowIndex = pixelYPosition - decimatedYPosition * decimationFactor;
+
+        if (blockRowIndex == 0) {
+            Arrays.fill(decimatedBlockSumIntegerArray, 0);
+        }
+
+        int pixelXPosition = 0;
+
+        for (int decimatedXPosition = 0; decimatedXPosition < decimatedFrameWidth; decimatedXPosition++) {
+            int blockRowSum = 0;
+
+            for (int blockColumnIndex = 0; blockColumnIndex < decimationFactor; blockColumnIndex++) {
+                blockRowSum += outputGrayscaleRowByteArray[pixelXPosition++] & 0xFF;
+            }
+
+            decimatedBlockSumIntegerArray[decimatedXPosition] += blockRowSum;
+        }
+
+        if (blockRowIndex != decimationFactor - 1) {
+            return;
+        }
+
+        int blockPixelCount = decimationFactor * decimationFactor;
+        int roundingOffset = blockPixelCount / 2;
+
+        for (int decimatedXPosition = 0; decimatedXPosition < decimatedFrameWidth; decimatedXPosition++) {
+            decimatedGrayscaleRowByteArray[decimatedXPosition] =
+                    (byte) ((decimatedBlockSumIntegerArray[decimatedXPosition] + roundingOffset) / blockPixelCount);
+        }
+
+        decimatedGrayscaleFrameBuffer.writeRow(decimatedYPosition, decimatedGrayscaleRowByteArray);
+    }
+
+    public DirectFrameBuffer getGrayscaleFrameBuffer() {
+        return grayscaleFrameBuffer;
+    }
+
+    /**
+     * Frame the quad detection front end should run on: the decimated frame when decimation
+     * is on, otherwise the full resolution grayscale frame.
+     */
+    public DirectFrameBuffer getDetectionGrayscaleFrameBuffer() {
+        return decimationFactor > 1 ? decimatedGrayscaleFrameBuffer : grayscaleFrameBuffer;
+    }
+
+    public int getDecimationFactor() {
+        return decimationFactor;
+    }
+
+    public int getDecimatedFrameWidth() {
+        return decimatedFrameWidth;
+    }
+
+    public int getDecimatedFrameHeight() {
+        return decimatedFrameHeight;
+    }
+
+    private void validateFrameSize(int inputFrameWidth, int inputFrameHeight) {
+        if (inputFrameWidth != frameWidth
+                || inputFrameHeight != frameHeight) {
+            throw new IllegalArgumentException(
+                    "Input frame size does not match preprocessor configuration. " +
+                            "Expected " + frameWidth + "x" + frameHeight +
+                            " but received " + inputFrameWidth +
+                            "x" + inputFrameHeight
+            );
+        }
     }
 
 }
@@ -0,0 +1,332 @@
+package org.PhantomCamera.AprilTags;
+
+import org.PhantomCamera.Stadistics.EdgeStadistics.EdgeFrameStatistics;
+import org.PhantomCamera.Stadistics.FlightRecorder.AprilTagEdgeEvent;
+import org.PhantomCamera.Stadistics.GrayScaleStatistics.GrayscaleFrameStatistics;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.PhantomCamera.Utils.GrayScaleConvertionUtils;
+import org.opencv.core.Mat;
+
+/**
+ * Fused front end for AprilTag detection: reads the BGR frame once and, in a
+ * single sliding three-row pass, produces the grayscale frame, the gradient
+ * magnitude, the binary Sobel edge frame and the statistics that
+ * {@link org.PhantomCamera.Stadistics.GrayScaleStatistics} and
+ * {@link org.PhantomCamera.Stadistics.EdgeStadistics} would compute separately.
+ * <p>
+ * Results are identical to running {@link AprilTagFramePreProcessing},
+ * {@link AprilTagEdgeDetector} and both statistics passes one after another,
+ * but the frame goes through memory roughly once instead of four times.
+ * {@link AprilTagDetector} uses it as its front end when it runs serially in Sobel mode
+ * without decimation. The statistics are kept as primitives; the statistics objects are
+ * only created when asked for.
+ * <p>
+ * Grayscale and edges are interleaved row by row, so each frame emits one
+ * {@link AprilTagEdgeEvent} marked as fused with the grayscale conversion instead of
+ * separate grayscale and edge events.
+ */
+public class AprilTagFusedFrontEnd {
+
+    private final int frameWidth;
+    private final int frameHeight;
+
+    /**
+     * Threshold on gradient magnitude to decide whether a pixel is considered an edge.
+     */
+    private final int gradientMagnitudeThresholdValue;
+
+    /**
+     * Output frames shared with OpenCV, and the gradient magnitude per pixel.
+     * Border pixels are never written, so they stay 0 without clearing.
+     */
+    private final DirectFrameBuffer grayscaleFrameBuffer;
+    private final DirectFrameBuffer edgeBinaryFrameBuffer;
+    private final int[] gradientMagnitudeIntegerArray;
+
+    /**
+     * Reusable row-sized staging arrays: one color input row, a rolling window of
+     * three grayscale rows and one binary edge output row.
+     */
+    private final byte[] inputColorRowByteArray;
+    private byte[] topGrayscaleRowByteArray;
+    private byte[] middleGrayscaleRowByteArray;
+    private byte[] bottomGrayscaleRowByteArray;
+    private final byte[] edgeBinaryRowByteArray;
+
+    /**
+     * Color input copy, only used when the input arrives as a foreign Mat.
+     * Created on first use.
+     */
+    private DirectFrameBuffer inputColorFrameBuffer;
+
+    /**
+     * Per-frame statistics of the grayscale frame and accumulators for the edge rows.
+     */
+    private int frameMinimumIntensityValue;
+    private int frameMaximumIntensityValue;
+    private long frameIntensitySum;
+    private int frameEdgePixelCount;
+    private int frameMaximumGradientMagnitudeValue;
+
+    /**
+     * false until the first frame, so the statistics getters return null before it.
+     */
+    private boolean frameProcessed;
+
+    public AprilTagFusedFrontEnd(
+            int frameWidth,
+            int frameHeight,
+            int gradientMagnitudeThresholdValue
+    ) {
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.gradientMagnitudeThresholdValue = gradientMagnitudeThresholdValue;
+
+        this.grayscaleFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 1);
+        this.edgeBinaryFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 1);
+        this.gradientMagnitudeIntegerArray = new int[frameWidth * frameHeight];
+
+        this.inputColorRowByteArray = new byte[frameWidth * 3];
+        this.topGrayscaleRowByteArray = new byte[frameWidth];
+        this.middleGrayscaleRowByteArray = new byte[frameWidth];
+        this.bottomGrayscaleRowByteArray = new byte[frameWidth];
+        this.edgeBinaryRowByteArray = new byte[frameWidth];
+    }
+
+    /**
+     * Runs the fused front end on a BGR Mat.
+     *
+     * @param inputColorFrameMatrix input frame in BGR format (CV_8UC3)
+     * @return reference to an internal Mat containing the binary edge frame
+     */
+    public Mat processColorBgrFrame(Mat inputColorFrameMatrix) {
+        if (inputColorFrameMatrix.empty()) {
+            return edgeBinaryFrameBuffer.getFrameMatrix();
+        }
+
+        validateFrameSize(inputColorFrameMatrix.cols(), inputColorFrameMatrix.rows());
+
+        if (inputColorFrameBuffer == null) {
+            inputColorFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 3);
+        }
+
+        inputColorFrameBuffer.copyFromFrameMatrix(inputColorFrameMatrix);
+
+        processColorBgrFrameBuffer(inputColorFrameBuffer);
+
+        return edgeBinaryFrameBuffer.getFrameMatrix();
+    }
+
+    /**
+     * Runs the fused front end on a BGR frame buffer, reading it in place.
+     * Emits one {@link AprilTagEdgeEvent} for the whole pass.
+     *
+     * @param inputColorFrameBuffer input frame in BGR format (3 channels)
+     * @return reference to the internal binary edge frame buffer
+     */
+    public DirectFrameBuffer processColorBgrFrameBuffer(DirectFrameBuffer inputColorFrameBuffer) {
+        validateFrameSize(inputColorFrameBuffer.getFrameWidth(), inputColorFrameBuffer.getFrameHeight());
+
+        if (inputColorFrameBuffer.getChannelCount() != 3) {
+            throw new IllegalArgumentException(
+                    "Input frame buffer must have 3 channels but has " + inputColorFrameBuffer.getChannelCount()
+            );
+        }
+
+        AprilTagEdgeEvent edgeEvent = new AprilTagEdgeEvent();
+        edgeEvent.begin();
+
+        int minimumIntensityValue = 255;
+        int maximumIntensityValue = 0;
+        long sumIntensityValue = 0L;
+
+        frameEdgePixelCount = 0;
+        frameMaximumGradientMagnitudeValue = 0;
+
+        for (int pixelYPosition = 0; pixelYPosition < frameHeight; pixelYPosition++) {
+
+            // Roll the three-row window down by one row; the new row enters at the bottom
+            byte[] recycledGrayscaleRowByteArray = topGrayscaleRowByteArray;
+            topGrayscaleRowByteArray = middleGrayscaleRowByteArray;
+            middleGrayscaleRowByteArray = bottomGrayscaleRowByteArray;
+            bottomGrayscaleRowByteArray = recycledGrayscaleRowByteArray;
+
+            inputColorFrameBuffer.readRow(pixelYPosition, inputColorRowByteArray);
+
+            GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArray(
+                    inputColorRowByteArray,
+                    frameWidth,
+                    1,
+                    bottomGrayscaleRowByteArray
+            );
+
+            grayscaleFrameBuffer.writeRow(pixelYPosition, bottomGrayscaleRowByteArray);
+
+            for (int pixelXPosition = 0; pixelXPosition < frameWidth; pixelXPosition++) {
+                int intensityValue = bottomGrayscaleRowByteArray[pixelXPosition] & 0xFF;
+
+                if (intensityValue < minimumIntensityValue) {
+                    minimumIntensityValue = intensityValue;
+                }
+                if (intensityValue > maximumIntensityValue) {
+                    maximumIntensityValue = intensityValue;
+                }
+                sumIntensityValue += intensityValue;
+            }
+
+            // Once three rows are available, the middle one gets its edges
+            if (pixelYPosition >= 2 && frameWidth >= 3) {
+                calculateSobelEdgeRow(pixelYPosition - 1);
+                edgeBinaryFrameBuffer.writeRow(pixelYPosition - 1, edgeBinaryRowByteArray);
+            }
+        }
+
+        frameMinimumIntensityValue = minimumIntensityValue;
+        frameMaximumIntensityValue = maximumIntensityValue;
+        frameIntensitySum = sumIntensityValue;
+        frameProcessed = true;
+
+        edgeEvent.end();
+        if (edgeEvent.shouldCommit()) {
+            edgeEvent.edgeSegmentationMode = AprilTagDetector.EdgeSegmentationMode.SOBEL_GRADIENT_THRESHOLD.name();
+            edgeEvent.frameWidth = frameWidth;
+            edgeEvent.frameHeight = frameHeight;
+            edgeEvent.fusedWithGrayscale = true;
+            edgeEvent.commit();
+        }
+
+        return edgeBinaryFrameBuffer;
+    }
+
+    /**
+     * Computes gradient magnitude and the binary edge row for one interior row
+     * from the current three-row window, and updates the edge statistics.
+     */
+    private void calculateSobelEdgeRow(int pixelYPosition) {
+        int middleRowStartIndex = pixelYPosition * frameWidth;
+
+        int rowEdgePixelCount = 0;
+        int rowMaximumGradientMagnitudeValue = frameMaximumGradientMagnitudeValue;
+
+        for (int pixelXPosition = 1;
+             pixelXPosition < frameWidth - 1;
+             pixelXPosition++) {
+
+            int pixelXPositionMinusOne = pixelXPosition - 1;
+            int pixelXPositionPlusOne = pixelXPosition + 1;
+
+            int pixelTopLeftIntensityValue =
+                    topGrayscaleRowByteArray[pixelXPositionMinusOne] & 0xFF;
+            int pixelTopCenterIntensityValue =
+                    topGrayscaleRowByteArray[pixelXPosition] & 0xFF;
+            int pixelTopRightIntensityValue =
+                    topGrayscaleRowByteArray[pixelXPositionPlusOne] & 0xFF;
+
+            int pixelMiddleLeftIntensityValue =
+                    middleGrayscaleRowByteArray[pixelXPositionMinusOne] & 0xFF;
+            int pixelMiddleRightIntensityValue =
+                    middleGrayscaleRowByteArray[pixelXPositionPlusOne] & 0xFF;
+
+            int pixelBottomLeftIntensityValue =
+                    bottomGrayscaleRowByteArray[pixelXPositionMinusOne] & 0xFF;
+            int pixelBottomCenterIntensityValue =
+                    bottomGrayscaleRowByteArray[pixelXPosition] & 0xFF;
+            int pixelBottomRightIntensityValue =
+                    bottomGrayscaleRowByteArray[pixelXPositionPlusOne] & 0xFF;
+
+            // Sobel Gx
+            int gradientXValue =
+                    pixelTopRightIntensityValue - pixelTopLeftIntensityValue
+                            + 2 * (pixelMiddleRightIntensityValue - pixelMiddleLeftIntensityValue)
+                            + pixelBottomRightIntensityValue - pixelBottomLeftIntensityValue;
+
+            // Sobel Gy
+            int gradientYValue =
+                    pixelTopLeftIntensityValue - pixelBottomLeftIntensityValue
+                            + 2 * (pixelTopCenterIntensityValue - pixelBottomCenterIntensityValue)
+                            + pixelTopRightIntensityValue - pixelBottomRightIntensityValue;
+
+            int gradientMagnitudeValue =
+                    Math.abs(gradientXValue) + Math.abs(gradientYValue);
+
+            gradientMagnitudeIntegerArray[middleRowStartIndex + pixelXPosition] = gradientMagnitudeValue;
+
+            if (gradientMagnitudeValue > rowMaximumGradientMagnitudeValue) {
+                rowMaximumGradientMagnitudeValue = gradientMagnitudeValue;
+            }
+
+            if (gradientMagnitudeValue >= gradientMagnitudeThresholdValue) {
+                edgeBinaryRowByteArray[pixelXPosition] = (byte) 255;
+                rowEdgePixelCount++;
+            } else {
+                edgeBinaryRowByteArray[pixelXPosition] = 0;
+            }
+        }
+
+        frameEdgePixelCount += rowEdgePixelCount;
+        frameMaximumGradientMagnitudeValue = rowMaximumGradientMagnitudeValue;
+    }
+
+    private void validateFrameSize(int inputFrameWidth, int inputFrameHeight) {
+        if (inputFrameWidth != frameWidth
+                || inputFrameHeight != frameHeight) {
+            throw new IllegalArgumentException(
+                    "Input frame size does not match fused front end configuration. " +
+                            "Expected " + frameWidth + "x" + frameHeight +
+                            " but received " + inputFrameWidth +
+                            "x" + inputFrameHeight
+            );
+        }
+    }
+
+    public DirectFrameBuffer getGrayscaleFrameBuffer() {
+        return grayscaleFrameBuffer;
+    }
+
+    public DirectFrameBuffer getEdgeBinaryFrameBuffer() {
+        return edgeBinaryFrameBuffer;
+    }
+
+    public int[] getGradientMagnitudeIntegerArray() {
+        return gradientMagnitudeIntegerArray;
+    }
+
+    /**
+     * Grayscale statistics of the last processed frame, or null before the first frame.
+     * Creates a new object on every call.
+     */
+    public GrayscaleFrameStatistics getGrayscaleFrameStatistics() {
+        if (!frameProcessed) {
+            return null;
+        }
+
+        return new GrayscaleFrameStatistics(
+                frameMinimumIntensityValue,
+                frameMaximumIntensityValue,
+                (double) frameIntensitySum / (double) (frameWidth * frameHeight)
+        );
+    }
+
+    /**
+     * Edge statistics of the last processed frame, or null before the first frame.
+     * Creates a new object on every call.
+     */
+    public EdgeFrameStatistics getEdgeFrameStatistics() {
+        if (!frameProcessed) {
+            return null;
+        }
+
+        return new EdgeFrameStatistics(
+                frameEdgePixelCount,
+                frameMaximumGradientMagnitudeValue
+        );
+    }
+
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+}
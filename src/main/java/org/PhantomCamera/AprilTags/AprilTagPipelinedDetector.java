@@ -0,0 +1,554 @@
+package org.PhantomCamera.AprilTags;
+
+import org.PhantomCamera.Stadistics.FlightRecorder.AprilTagDetectionEvent;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics.PipelineStage;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.opencv.core.Mat;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the detection stages of consecutive frames at the same time on different threads,
+ * so frame N + 1 is already being converted and edge-filtered while frame N is labelled
+ * and decoded.
+ * <p>
+ * Three stages:
+ * <ol>
+ *     <li>caller thread, in {@link #submitFrame(DirectFrameBuffer)}: grayscale conversion
+ *     (and decimation) into a free frame slot, so the caller's frame buffer is free again
+ *     when the call returns and no color copy is needed;</li>
+ *     <li>edge thread: Sobel edges or adaptive boundaries of the slot;</li>
+ *     <li>decode thread: labelling, hull, quad fit, refinement and decode, then the
+ *     {@link DetectionResultListener} is called on that thread.</li>
+ * </ol>
+ * Stages hand slots over through single-entry mailboxes. When a stage publishes a slot
+ * while the previous one is still waiting, the older frame is dropped and its slot returned
+ * to the free pool, so a slow stage never builds a queue and latency stays one frame per
+ * stage at most, like {@link org.PhantomCamera.Camera.LatestFrameRingBuffer} does for capture.
+ * <p>
+ * Each slot owns its preprocessing and edge stage buffers; labelling and decode run only on
+ * the decode thread and keep one set. Five slots cover the worst case (one per stage and one
+ * per mailbox), so nothing is allocated per frame. The frame size is fixed at construction.
+ * <p>
+ * A RuntimeException while processing a frame, or thrown by the listener, does not stop the
+ * stage threads: the frame's slot is returned, {@link #getFailedFrameCount()} goes up, the
+ * listener's {@link DetectionResultListener#onDetectionFailure} is told, and the next frame
+ * is processed. After {@link #release()} the detector cannot be started again.
+ */
+public class AprilTagPipelinedDetector {
+
+    /**
+     * Receives the tags of every frame that was not dropped, in submission order, on the decode thread.
+     */
+    public interface DetectionResultListener {
+        void onDetectionResult(
+                long frameSequenceNumber,
+                long frameSubmitTimestampNanoseconds,
+                List<DetectedApriltag> detectedApriltagList
+        );
+
+        /**
+         * Called on the thread of the failing stage when a frame could not be processed or
+         * {@link #onDetectionResult} threw. Exceptions thrown from here are ignored.
+         */
+        default void onDetectionFailure(long frameSequenceNumber, RuntimeException stageFailure) {
+        }
+    }
+
+    /**
+     * One slot in the caller, one in each mailbox, one in each stage thread.
+     */
+    private static final int pipelineFrameSlotCount = 5;
+
+    private static final long stageIdleParkNanoseconds = 50_000_000L;
+
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int decimationFactor;
+    private final AprilTagDetector.EdgeSegmentationMode edgeSegmentationMode;
+
+    private final DetectionResultListener detectionResultListener;
+
+    private final ArrayBlockingQueue<PipelineFrameSlot> freeFrameSlotQueue;
+
+    /**
+     * Mailboxes between the stages: null when empty, otherwise the newest slot.
+     */
+    private final AtomicReference<PipelineFrameSlot> grayscaleMailboxSlot = new AtomicReference<>();
+    private final AtomicReference<PipelineFrameSlot> edgeMailboxSlot = new AtomicReference<>();
+
+    /**
+     * Decode stage state, only touched by the decode thread.
+     */
+    private final AprilTagEdgeComponentExtractor aprilTagEdgeComponentExtractor;
+    private final AprilTagCandidateDecodeStage aprilTagCandidateDecodeStage;
+
+    /**
+     * Color input copy, only used when frames arrive as a foreign Mat. Created on first use.
+     */
+    private DirectFrameBuffer inputColorFrameBuffer;
+
+    private Thread edgeStageThread;
+    private Thread decodeStageThread;
+    private volatile boolean pipelineThreadsAreRunning = false;
+    private volatile boolean pipelineReleased = false;
+
+    /**
+     * Read by every stage thread once per frame, so it can be swapped while running.
+     */
+    private volatile PipelineStageLatencyMetrics pipelineStageLatencyMetrics;
+
+    private long lastFrameSequenceNumber = 0L;
+
+    private final AtomicLong submittedFrameCount = new AtomicLong();
+    private final AtomicLong droppedFrameCount = new AtomicLong();
+    private final AtomicLong completedFrameCount = new AtomicLong();
+    private final AtomicLong failedFrameCount = new AtomicLong();
+
+    /**
+     * @param frameWidth                      width of every submitted frame
+     * @param frameHeight                     height of every submitted frame
+     * @param edgeSegmentationMode            edge stage, as in {@link AprilTagDetector}
+     * @param gradientMagnitudeThresholdValue Sobel threshold, unused in adaptive mode
+     * @param decimationFactor                1 (off) to {@link AprilTagFramePreProcessing#MAXIMUM_DECIMATION_FACTOR}
+     * @param detectionResultListener         called on the decode thread for every decoded frame
+     */
+    public AprilTagPipelinedDetector(
+            int frameWidth,
+            int frameHeight,
+            AprilTag36h11Dictionary aprilTag36h11Dictionary,
+            AprilTagDetector.EdgeSegmentationMode edgeSegmentationMode,
+            int gradientMagnitudeThresholdValue,
+            int decimationFactor,
+            DetectionResultListener detectionResultListener
+    ) {
+        if (detectionResultListener == null) {
+            throw new IllegalArgumentException("Detection result listener must not be null");
+        }
+
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.decimationFactor = decimationFactor;
+        this.edgeSegmentationMode = edgeSegmentationMode;
+        this.detectionResultListener = detectionResultListener;
+
+        this.freeFrameSlotQueue = new ArrayBlockingQueue<>(pipelineFrameSlotCount);
+
+        for (int frameSlotIndex = 0; frameSlotIndex < pipelineFrameSlotCount; frameSlotIndex++) {
+            freeFrameSlotQueue.add(new PipelineFrameSlot(
+                    frameWidth,
+                    frameHeight,
+                    decimationFactor,
+                    edgeSegmentationMode,
+                    gradientMagnitudeThresholdValue
+            ));
+        }
+
+        DirectFrameBuffer detectionGrayscaleFrameBuffer =
+                freeFrameSlotQueue.peek().aprilTagFramePreProcessing.getDetectionGrayscaleFrameBuffer();
+
+        this.aprilTagEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                detectionGrayscaleFrameBuffer.getFrameWidth(),
+                detectionGrayscaleFrameBuffer.getFrameHeight()
+        );
+        aprilTagEdgeComponentExtractor.setRowExtremalPixelRetentionEnabled(true);
+        aprilTagEdgeComponentExtractor.setEdgeComponentRejectionCriteria(
+                AprilTagDetector.DEFAULT_EDGE_COMPONENT_REJECTION_CRITERIA
+        );
+
+        this.aprilTagCandidateDecodeStage = new AprilTagCandidateDecodeStage(
+                frameWidth,
+                frameHeight,
+                aprilTag36h11Dictionary,
+                decimationFactor,
+                null,
+                1
+        );
+    }
+
+    /**
+     * Starts the edge and decode threads. Called automatically by the first submitted frame.
+     *
+     * @throws IllegalStateException after {@link #release()}
+     */
+    public synchronized void start() {
+        if (pipelineReleased) {
+            throw new IllegalStateException("Pipelined detector was released");
+        }
+
+        if (edgeStageThread != null) {
+            return;
+        }
+
+        pipelineThreadsAreRunning = true;
+
+        edgeStageThread = new Thread(this::runEdgeStageLoop, "PhantomCamera-apriltag-edges");
+        edgeStageThread.setDaemon(true);
+
+        decodeStageThread = new Thread(this::runDecodeStageLoop, "PhantomCamera-apriltag-decode");
+        decodeStageThread.setDaemon(true);
+
+        edgeStageThread.start();
+        decodeStageThread.start();
+    }
+
+    /**
+     * Same as {@link #submitFrame(DirectFrameBuffer)} for a BGR Mat (CV_8UC3), after one native copy.
+     */
+    public boolean submitFrame(Mat inputColorFrameMatrix) {
+        if (inputColorFrameMatrix.empty()) {
+            return false;
+        }
+
+        if (inputColorFrameBuffer == null) {
+            inputColorFrameBuffer = new DirectFrameBuffer(frameWidth, frameHeight, 3);
+        }
+
+        inputColorFrameBuffer.copyFromFrameMatrix(inputColorFrameMatrix);
+
+        return submitFrame(inputColorFrameBuffer);
+    }
+
+    /**
+     * Converts a BGR frame into a free slot and hands it to the edge thread. Must always be
+     * called from the same thread. The frame buffer can be reused as soon as this returns.
+     *
+     * @return false when no slot was free and the frame was dropped
+     * @throws IllegalStateException after {@link #release()}
+     */
+    public boolean submitFrame(DirectFrameBuffer inputColorFrameBuffer) {
+        if (pipelineReleased) {
+            throw new IllegalStateException("Pipelined detector was released");
+        }
+
+        if (edgeStageThread == null) {
+            start();
+        }
+
+        PipelineFrameSlot pipelineFrameSlot = freeFrameSlotQueue.poll();
+
+        if (pipelineFrameSlot == null) {
+            droppedFrameCount.incrementAndGet();
+            return false;
+        }
+
+        pipelineFrameSlot.frameSubmitTimestampNanoseconds = System.nanoTime();
+        pipelineFrameSlot.frameSequenceNumber = ++lastFrameSequenceNumber;
+
+        try {
+            pipelineFrameSlot.aprilTagFramePreProcessing.convertColorBgrFrameBufferToGrayscale(inputColorFrameBuffer);
+        } catch (RuntimeException conversionException) {
+            freeFrameSlotQueue.offer(pipelineFrameSlot);
+            throw conversionException;
+        }
+
+        PipelineStageLatencyMetrics currentStageLatencyMetrics = pipelineStageLatencyMetrics;
+        if (currentStageLatencyMetrics != null) {
+            currentStageLatencyMetrics.recordStageLatency(
+                    PipelineStage.GRAYSCALE,
+                    System.nanoTime() - pipelineFrameSlot.frameSubmitTimestampNanoseconds
+            );
+        }
+
+        submittedFrameCount.incrementAndGet();
+
+        publishToMailbox(grayscaleMailboxSlot, pipelineFrameSlot, edgeStageThread);
+
+        return true;
+    }
+
+    private void runEdgeStageLoop() {
+        while (pipelineThreadsAreRunning) {
+            PipelineFrameSlot pipelineFrameSlot = takeFromMailbox(grayscaleMailboxSlot);
+
+            if (pipelineFrameSlot == null) {
+                continue;
+            }
+
+            PipelineStageLatencyMetrics currentStageLatencyMetrics = pipelineStageLatencyMetrics;
+            long edgeStartNanoseconds = currentStageLatencyMetrics == null ? 0L : System.nanoTime();
+
+            try {
+                pipelineFrameSlot.calculateEdgeBinaryFrame();
+            } catch (RuntimeException edgeStageException) {
+                freeFrameSlotQueue.offer(pipelineFrameSlot);
+                reportStageFailure(pipelineFrameSlot.frameSequenceNumber, edgeStageException);
+                continue;
+            }
+
+            if (currentStageLatencyMetrics != null) {
+                currentStageLatencyMetrics.recordStageLatency(PipelineStage.EDGE, System.nanoTime() - edgeStartNanoseconds);
+            }
+
+            publishToMailbox(edgeMailboxSlot, pipelineFrameSlot, decodeStageThread);
+        }
+    }
+
+    private void runDecodeStageLoop() {
+        while (pipelineThreadsAreRunning) {
+            PipelineFrameSlot pipelineFrameSlot = takeFromMailbox(edgeMailboxSlot);
+
+            if (pipelineFrameSlot == null) {
+                continue;
+            }
+
+            long frameSequenceNumber = pipelineFrameSlot.frameSequenceNumber;
+            long frameSubmitTimestampNanoseconds = pipelineFrameSlot.frameSubmitTimestampNanoseconds;
+
+            AprilTagDetectionEvent detectionEvent = new AprilTagDetectionEvent();
+            detectionEvent.begin();
+
+            PipelineStageLatencyMetrics currentStageLatencyMetrics = pipelineStageLatencyMetrics;
+            aprilTagCandidateDecodeStage.setPipelineStageLatencyMetrics(currentStageLatencyMetrics);
+
+            List<DetectedApriltag> detectedApriltagList;
+
+            try {
+                detectedApriltagList = decodeFrameSlot(pipelineFrameSlot, currentStageLatencyMetrics);
+            } catch (RuntimeException decodeStageException) {
+                reportStageFailure(frameSequenceNumber, decodeStageException);
+                continue;
+            } finally {
+                // Los tags no apuntan al slot: se puede reciclar antes de avisar al listener
+                freeFrameSlotQueue.offer(pipelineFrameSlot);
+            }
+
+            completedFrameCount.incrementAndGet();
+
+            detectionEvent.end();
+            if (detectionEvent.shouldCommit()) {
+                detectionEvent.frameWidth = frameWidth;
+                detectionEvent.frameHeight = frameHeight;
+                detectionEvent.decimationFactor = decimationFactor;
+                detectionEvent.edgeSegmentationMode = edgeSegmentationMode.name();
+                detectionEvent.pipelined = true;
+                detectionEvent.frameSequenceNumber = frameSequenceNumber;
+                detectionEvent.submitToResultLatency = System.nanoTime() - frameSubmitTimestampNanoseconds;
+                detectionEvent.detectedTagCount = detectedApriltagList.size();
+                detectionEvent.commit();
+            }
+
+            try {
+                detectionResultListener.onDetectionResult(
+                        frameSequenceNumber,
+                        frameSubmitTimestampNanoseconds,
+                        detectedApriltagList
+                );
+            } catch (RuntimeException listenerException) {
+                reportStageFailure(frameSequenceNumber, listenerException);
+            }
+        }
+    }
+
+    private List<DetectedApriltag> decodeFrameSlot(
+            PipelineFrameSlot pipelineFrameSlot,
+            PipelineStageLatencyMetrics currentStageLatencyMetrics
+    ) {
+        long labellingStartNanoseconds = currentStageLatencyMetrics == null ? 0L : System.nanoTime();
+
+        List<EdgeConnectedComponent> candidateComponentList =
+                aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(pipelineFrameSlot.edgeBinaryFrameBuffer);
+
+        if (currentStageLatencyMetrics != null) {
+            currentStageLatencyMetrics.recordStageLatency(
+                    PipelineStage.LABELLING,
+                    System.nanoTime() - labellingStartNanoseconds
+            );
+        }
+
+        return aprilTagCandidateDecodeStage.decodeCandidateComponentList(
+                candidateComponentList,
+                pipelineFrameSlot.getGradientMagnitudeIntegerArray(),
+                pipelineFrameSlot.aprilTagFramePreProcessing.getGrayscaleFrameBuffer()
+        );
+    }
+
+    /**
+     * Counts a failed frame and tells the listener; the stage loop then goes on with the next frame.
+     */
+    private void reportStageFailure(long frameSequenceNumber, RuntimeException stageFailure) {
+        failedFrameCount.incrementAndGet();
+
+        try {
+            detectionResultListener.onDetectionFailure(frameSequenceNumber, stageFailure);
+        } catch (RuntimeException listenerException) {
+            // Ya contado: un listener que falla al reportar no debe parar el stage
+        }
+    }
+
+    /**
+     * Puts a slot in a mailbox; a slot still waiting there is the older frame, so it is dropped.
+     */
+    private void publishToMailbox(
+            AtomicReference<PipelineFrameSlot> mailboxSlot,
+            PipelineFrameSlot pipelineFrameSlot,
+            Thread consumerThread
+    ) {
+        PipelineFrameSlot replacedFrameSlot = mailboxSlot.getAndSet(pipelineFrameSlot);
+
+        if (replacedFrameSlot != null) {
+            droppedFrameCount.incrementAndGet();
+            freeFrameSlotQueue.offer(replacedFrameSlot);
+        }
+
+        LockSupport.unpark(consumerThread);
+    }
+
+    /**
+     * Takes the slot of a mailbox, parking briefly when it is empty.
+     *
+     * @return the slot, or null when the mailbox stayed empty
+     */
+    private PipelineFrameSlot takeFromMailbox(AtomicReference<PipelineFrameSlot> mailboxSlot) {
+        PipelineFrameSlot pipelineFrameSlot = mailboxSlot.getAndSet(null);
+
+        if (pipelineFrameSlot == null) {
+            LockSupport.parkNanos(this, stageIdleParkNanoseconds);
+            pipelineFrameSlot = mailboxSlot.getAndSet(null);
+        }
+
+        return pipelineFrameSlot;
+    }
+
+    /**
+     * @return frames accepted by {@link #submitFrame(DirectFrameBuffer)} so far
+     */
+    public long getSubmittedFrameCount() {
+        return submittedFrameCount.get();
+    }
+
+    /**
+     * @return frames replaced by a newer frame before a stage took them, or refused for lack of a slot
+     */
+    public long getDroppedFrameCount() {
+        return droppedFrameCount.get();
+    }
+
+    /**
+     * @return frames whose result was delivered to the listener
+     */
+    public long getCompletedFrameCount() {
+        return completedFrameCount.get();
+    }
+
+    /**
+     * @return frames whose edge or decode stage threw, plus results whose listener threw
+     */
+    public long getFailedFrameCount() {
+        return failedFrameCount.get();
+    }
+
+    /**
+     * @return slots not held by any stage or mailbox; all of them once the pipeline is idle
+     */
+    public int getFreeFrameSlotCount() {
+        return freeFrameSlotQueue.size();
+    }
+
+    /**
+     * Records grayscale (caller thread), edge, labelling, hull, quad fit and decode time of
+     * every frame, or stops measuring when null. Can be changed while frames are in flight.
+     */
+    public void setPipelineStageLatencyMetrics(PipelineStageLatencyMetrics pipelineStageLatencyMetrics) {
+        this.pipelineStageLatencyMetrics = pipelineStageLatencyMetrics;
+    }
+
+    public int getDecimationFactor() {
+        return decimationFactor;
+    }
+
+    /**
+     * Stops both stage threads. Frames still in the pipeline are discarded and later calls to
+     * {@link #submitFrame(DirectFrameBuffer)} or {@link #start()} throw.
+     */
+    public synchronized void release() {
+        pipelineReleased = true;
+        pipelineThreadsAreRunning = false;
+
+        for (Thread stageThread : new Thread[]{edgeStageThread, decodeStageThread}) {
+            if (stageThread == null) {
+                continue;
+            }
+
+            LockSupport.unpark(stageThread);
+
+            try {
+                stageThread.join(1000);
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Buffers of one frame in flight: its grayscale (and decimated) frame and its edge stage.
+     */
+    private static final class PipelineFrameSlot {
+
+        private final AprilTagFramePreProcessing aprilTagFramePreProcessing;
+
+        /**
+         * Only the stage of the selected segmentation mode is created.
+         */
+        private final AprilTagEdgeDetector aprilTagEdgeDetector;
+        private final AprilTagAdaptiveThresholdSegmenter aprilTagAdaptiveThresholdSegmenter;
+
+        private final boolean gradientRefinementAvailable;
+
+        private DirectFrameBuffer edgeBinaryFrameBuffer;
+
+        private long frameSequenceNumber;
+        private long frameSubmitTimestampNanoseconds;
+
+        private PipelineFrameSlot(
+                int frameWidth,
+                int frameHeight,
+                int decimationFactor,
+                AprilTagDetector.EdgeSegmentationMode edgeSegmentationMode,
+                int gradientMagnitudeThresholdValue
+        ) {
+            this.aprilTagFramePreProcessing = new AprilTagFramePreProcessing(frameWidth, frameHeight, decimationFactor);
+
+            DirectFrameBuffer detectionGrayscaleFrameBuffer = aprilTagFramePreProcessing.getDetectionGrayscaleFrameBuffer();
+
+            if (edgeSegmentationMode == AprilTagDetector.EdgeSegmentationMode.SOBEL_GRADIENT_THRESHOLD) {
+                this.aprilTagEdgeDetector = new AprilTagEdgeDetector(
+                        detectionGrayscaleFrameBuffer.getFrameWidth(),
+                        detectionGrayscaleFrameBuffer.getFrameHeight(),
+                        gradientMagnitudeThresholdValue
+                );
+                this.aprilTagAdaptiveThresholdSegmenter = null;
+            } else {
+                this.aprilTagEdgeDetector = null;
+                this.aprilTagAdaptiveThresholdSegmenter = new AprilTagAdaptiveThresholdSegmenter(
+                        detectionGrayscaleFrameBuffer.getFrameWidth(),
+                        detectionGrayscaleFrameBuffer.getFrameHeight()
+                );
+            }
+
+            // Con decimacion el gradiente es de la imagen reducida y no sirve para refinar
+            this.gradientRefinementAvailable = aprilTagEdgeDetector != null && decimationFactor == 1;
+        }
+
+        private void calculateEdgeBinaryFrame() {
+            DirectFrameBuffer detectionGrayscaleFrameBuffer = aprilTagFramePreProcessing.getDetectionGrayscaleFrameBuffer();
+
+            if (aprilTagEdgeDetector != null) {
+                edgeBinaryFrameBuffer =
+                        aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(detectionGrayscaleFrameBuffer);
+            } else {
+                edgeBinaryFrameBuffer = aprilTagAdaptiveThresholdSegmenter
+                        .calculateBoundaryBinaryFrameBufferFromGrayscaleFrameBuffer(detectionGrayscaleFrameBuffer);
+            }
+        }
+
+        private int[] getGradientMagnitudeIntegerArray() {
+            return gradientRefinementAvailable ? aprilTagEdgeDetector.getGradientMagnitudeIntegerArray() : null;
+        }
+    }
+}
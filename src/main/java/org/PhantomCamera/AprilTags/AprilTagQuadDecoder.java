@@ -0,0 +1,446 @@
+package org.PhantomCamera.AprilTags;
+
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Reads the tag36h11 payload inside fitted quadrilaterals and looks it up in the dictionary.
+ * <p>
+ * The quad corners (clockwise from the top-left one, as returned by
+ * {@link AprilTagQuadrilateralFitter#refineQuadrilateralCornerArrayWithGradientMagnitude}) are the
+ * outer corners of the black border. The tag is 8x8 cells inside them: a one cell black border
+ * around the 6x6 data grid, and the printed tag has one more ring of white cells outside.
+ * A homography maps the cell centers of a fixed sampling pattern into the image, where the
+ * grayscale frame is sampled with bilinear interpolation.
+ * <p>
+ * Black and white levels are estimated locally: a plane I = a * u + b * v + c is fitted to the
+ * black border samples and another to the white ring samples, and each data cell is compared
+ * against the midpoint of both planes at its position, so gradual lighting changes across the
+ * tag do not flip bits. Cheap rejections (contrast, border cells) run before the data cells are
+ * sampled, because most candidates of a frame are not tags.
+ * <p>
+ * Nothing is allocated per quad except the {@link DetectedApriltag} of a successful decode.
+ * The sampling scratch is reused, so an instance must not be shared between threads.
+ */
+public class AprilTagQuadDecoder {
+
+    /**
+     * Cells across the black border square (6 data cells + 2 border cells).
+     */
+    private static final int TAG_BORDER_GRID_SIZE_IN_CELLS = AprilTag36h11Dictionary.TAG36H11_GRID_SIZE_IN_CELLS + 2;
+
+    private static final int BLACK_BORDER_CELL_COUNT = 4 * (TAG_BORDER_GRID_SIZE_IN_CELLS - 1);
+    private static final int WHITE_RING_CELL_COUNT = 4 * (TAG_BORDER_GRID_SIZE_IN_CELLS + 1);
+    private static final int DATA_CELL_COUNT = AprilTag36h11Dictionary.TAG36H11_BIT_COUNT;
+
+    /**
+     * Minimum difference between the white and black levels at the tag center.
+     */
+    private static final double MINIMUM_BLACK_WHITE_CONTRAST = 20.0;
+
+    /**
+     * Border cells that may read as white before the candidate is rejected.
+     */
+    private static final int MAXIMUM_WRONG_BORDER_CELL_COUNT = 4;
+
+    /**
+     * Sampling pattern in tag coordinates, (0, 0) = top-left corner and (1, 1) = bottom-right
+     * corner of the black border: white ring first, then black border, then the data cells in
+     * dictionary bit order (row-major from the top-left data cell).
+     */
+    private static final double[] SAMPLE_U_COORDINATE_ARRAY = new double[WHITE_RING_CELL_COUNT + BLACK_BORDER_CELL_COUNT + DATA_CELL_COUNT];
+    private static final double[] SAMPLE_V_COORDINATE_ARRAY = new double[SAMPLE_U_COORDINATE_ARRAY.length];
+
+    private static final int BLACK_BORDER_SAMPLE_START_INDEX = WHITE_RING_CELL_COUNT;
+    private static final int DATA_SAMPLE_START_INDEX = WHITE_RING_CELL_COUNT + BLACK_BORDER_CELL_COUNT;
+
+    static {
+        int whiteRingSampleIndex = 0;
+        int blackBorderSampleIndex = BLACK_BORDER_SAMPLE_START_INDEX;
+        int dataSampleIndex = DATA_SAMPLE_START_INDEX;
+
+        // Celdas -1..8: el anillo blanco es la fila/columna -1 y 8, el borde negro la 0 y 7
+        for (int cellRowIndex = -1; cellRowIndex <= TAG_BORDER_GRID_SIZE_IN_CELLS; cellRowIndex++) {
+            for (int cellColumnIndex = -1; cellColumnIndex <= TAG_BORDER_GRID_SIZE_IN_CELLS; cellColumnIndex++) {
+
+                double cellCenterUCoordinate = (cellColumnIndex + 0.5) / TAG_BORDER_GRID_SIZE_IN_CELLS;
+                double cellCenterVCoordinate = (cellRowIndex + 0.5) / TAG_BORDER_GRID_SIZE_IN_CELLS;
+
+                int cellRingIndex = Math.min(
+                        Math.min(cellRowIndex, cellColumnIndex),
+                        Math.min(TAG_BORDER_GRID_SIZE_IN_CELLS - 1 - cellRowIndex, TAG_BORDER_GRID_SIZE_IN_CELLS - 1 - cellColumnIndex)
+                );
+
+                int sampleIndex;
+
+                if (cellRingIndex < 0) {
+                    sampleIndex = whiteRingSampleIndex++;
+                } else if (cellRingIndex == 0) {
+                    sampleIndex = blackBorderSampleIndex++;
+                } else {
+                    sampleIndex = dataSampleIndex++;
+                }
+
+                SAMPLE_U_COORDINATE_ARRAY[sampleIndex] = cellCenterUCoordinate;
+                SAMPLE_V_COORDINATE_ARRAY[sampleIndex] = cellCenterVCoordinate;
+            }
+        }
+    }
+
+    private final int frameWidth;
+    private final int frameHeight;
+
+    private final AprilTag36h11Dictionary aprilTag36h11Dictionary;
+
+    /**
+     * Intensity sampled at each pattern cell for the current quad.
+     */
+    private final double[] sampledIntensityArray = new double[SAMPLE_U_COORDINATE_ARRAY.length];
+
+    /**
+     * Homography of the current quad: x = (a u + b v + c) / (g u + h v + 1), y = (d u + e v + f) / (...).
+     */
+    private double homographyA;
+    private double homographyB;
+    private double homographyC;
+    private double homographyD;
+    private double homographyE;
+    private double homographyF;
+    private double homographyG;
+    private double homographyH;
+
+    /**
+     * Intensity planes of the current quad (coefficients of u, v and the constant).
+     */
+    private final double[] blackLevelPlaneCoefficientArray = new double[3];
+    private final double[] whiteLevelPlaneCoefficientArray = new double[3];
+
+    public AprilTagQuadDecoder(
+            int frameWidth,
+            int frameHeight,
+            AprilTag36h11Dictionary aprilTag36h11Dictionary
+    ) {
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.aprilTag36h11Dictionary = aprilTag36h11Dictionary;
+    }
+
+    /**
+     * Decodes a batch of quads stored back to back, 8 coordinates each ({x0, y0, ..., x3, y3}).
+     * Detected tags are appended to detectedApriltagList.
+     *
+     * @return number of tags appended
+     */
+    public int decodeQuadrilateralBatch(
+            double[] quadrilateralCornerCoordinateArray,
+            int quadrilateralCount,
+            DirectFrameBuffer grayscaleFrameBuffer,
+            List<DetectedApriltag> detectedApriltagList
+    ) {
+        validateGrayscaleFrameBuffer(grayscaleFrameBuffer);
+
+        int detectedApriltagCount = 0;
+
+        for (int quadrilateralIndex = 0; quadrilateralIndex < quadrilateralCount; quadrilateralIndex++) {
+            DetectedApriltag detectedApriltag = decodeValidatedQuadrilateral(
+                    quadrilateralCornerCoordinateArray,
+                    8 * quadrilateralIndex,
+                    grayscaleFrameBuffer
+            );
+
+            if (detectedApriltag != null) {
+                detectedApriltagList.add(detectedApriltag);
+                detectedApriltagCount++;
+            }
+        }
+
+        return detectedApriltagCount;
+    }
+
+    /**
+     * Decodes one quad whose corners are at cornerCoordinateOffset of cornerCoordinateArray.
+     *
+     * @return the detected tag, or null when the quad is not a dictionary tag
+     */
+    public DetectedApriltag decodeQuadrilateral(
+            double[] cornerCoordinateArray,
+            int cornerCoordinateOffset,
+            DirectFrameBuffer grayscaleFrameBuffer
+    ) {
+        validateGrayscaleFrameBuffer(grayscaleFrameBuffer);
+
+        return decodeValidatedQuadrilateral(cornerCoordinateArray, cornerCoordinateOffset, grayscaleFrameBuffer);
+    }
+
+    private DetectedApriltag decodeValidatedQuadrilateral(
+            double[] cornerCoordinateArray,
+            int cornerCoordinateOffset,
+            DirectFrameBuffer grayscaleFrameBuffer
+    ) {
+        if (!calculateSquareToQuadrilateralHomography(cornerCoordinateArray, cornerCoordinateOffset)) {
+            return null;
+        }
+
+        ByteBuffer grayscalePixelByteBuffer = grayscaleFrameBuffer.getPixelByteBuffer();
+
+        // 1) Anillo blanco y borde negro; si alguna muestra cae fuera del frame no es decodificable
+        if (!sampleIntensityRange(grayscalePixelByteBuffer, 0, DATA_SAMPLE_START_INDEX)) {
+            return null;
+        }
+
+        fitIntensityPlane(0, BLACK_BORDER_SAMPLE_START_INDEX, whiteLevelPlaneCoefficientArray);
+        fitIntensityPlane(BLACK_BORDER_SAMPLE_START_INDEX, DATA_SAMPLE_START_INDEX, blackLevelPlaneCoefficientArray);
+
+        // 2) Rechazos baratos: poco contraste o demasiadas celdas del borde claras
+        double centerContrast = evaluateIntensityPlane(whiteLevelPlaneCoefficientArray, 0.5, 0.5)
+                - evaluateIntensityPlane(blackLevelPlaneCoefficientArray, 0.5, 0.5);
+
+        if (centerContrast < MINIMUM_BLACK_WHITE_CONTRAST) {
+            return null;
+        }
+
+        int wrongBorderCellCount = 0;
+
+        for (int sampleIndex = BLACK_BORDER_SAMPLE_START_INDEX; sampleIndex < DATA_SAMPLE_START_INDEX; sampleIndex++) {
+            if (sampledIntensityArray[sampleIndex] > calculateLocalThreshold(sampleIndex)) {
+                wrongBorderCellCount++;
+            }
+        }
+
+        if (wrongBorderCellCount > MAXIMUM_WRONG_BORDER_CELL_COUNT) {
+            return null;
+        }
+
+        // 3) Celdas de datos: blanco = 1, en el orden de bits del diccionario
+        if (!sampleIntensityRange(grayscalePixelByteBuffer, DATA_SAMPLE_START_INDEX, sampledIntensityArray.length)) {
+            return null;
+        }
+
+        long observedCodeBits = 0L;
+
+        for (int sampleIndex = DATA_SAMPLE_START_INDEX; sampleIndex < sampledIntensityArray.length; sampleIndex++) {
+            observedCodeBits <<= 1;
+
+            if (sampledIntensityArray[sampleIndex] > calculateLocalThreshold(sampleIndex)) {
+                observedCodeBits |= 1L;
+            }
+        }
+
+        AprilTag36h11Dictionary.ApriltagCodeMatch apriltagCodeMatch =
+                aprilTag36h11Dictionary.findMatchingCode(observedCodeBits);
+
+        if (apriltagCodeMatch == null) {
+            return null;
+        }
+
+        double[] cornerPixelPositionArray = new double[8];
+        System.arraycopy(cornerCoordinateArray, cornerCoordinateOffset, cornerPixelPositionArray, 0, 8);
+
+        return new DetectedApriltag(
+                apriltagCodeMatch.tagId,
+                cornerPixelPositionArray,
+                apriltagCodeMatch.rotationIndex,
+                apriltagCodeMatch.hammingDistance
+        );
+    }
+
+    /**
+     * Projective map of the unit square onto the quad, (0,0) -> corner 0, (1,0) -> corner 1,
+     * (1,1) -> corner 2, (0,1) -> corner 3 (Heckbert's closed form, no linear system).
+     *
+     * @return false for a degenerate quad
+     */
+    private boolean calculateSquareToQuadrilateralHomography(
+            double[] cornerCoordinateArray,
+            int cornerCoordinateOffset
+    ) {
+        double firstCornerX = cornerCoordinateArray[cornerCoordinateOffset];
+        double firstCornerY = cornerCoordinateArray[cornerCoordinateOffset + 1];
+        double secondCornerX = cornerCoordinateArray[cornerCoordinateOffset + 2];
+        double secondCornerY = cornerCoordinateArray[cornerCoordinateOffset + 3];
+        double thirdCornerX = cornerCoordinateArray[cornerCoordinateOffset + 4];
+        double thirdCornerY = cornerCoordinateArray[cornerCoordinateOffset + 5];
+        double fourthCornerX = cornerCoordinateArray[cornerCoordinateOffset + 6];
+        double fourthCornerY = cornerCoordinateArray[cornerCoordinateOffset + 7];
+
+        double sumX = firstCornerX - secondCornerX + thirdCornerX - fourthCornerX;
+        double sumY = firstCornerY - secondCornerY + thirdCornerY - fourthCornerY;
+
+        double deltaX1 = secondCornerX - thirdCornerX;
+        double deltaX2 = fourthCornerX - thirdCornerX;
+        double deltaY1 = secondCornerY - thirdCornerY;
+        double deltaY2 = fourthCornerY - thirdCornerY;
+
+        double denominatorValue = deltaX1 * deltaY2 - deltaX2 * deltaY1;
+
+        if (Math.abs(denominatorValue) < 1e-9) {
+            return false;
+        }
+
+        homographyG = (sumX * deltaY2 - deltaX2 * sumY) / denominatorValue;
+        homographyH = (deltaX1 * sumY - sumX * deltaY1) / denominatorValue;
+
+        homographyA = secondCornerX - firstCornerX + homographyG * secondCornerX;
+        homographyB = fourthCornerX - firstCornerX + homographyH * fourthCornerX;
+        homographyC = firstCornerX;
+
+        homographyD = secondCornerY - firstCornerY + homographyG * secondCornerY;
+        homographyE = fourthCornerY - firstCornerY + homographyH * fourthCornerY;
+        homographyF = firstCornerY;
+
+        return true;
+    }
+
+    /**
+     * Samples pattern cells [firstSampleIndex, endSampleIndex) with bilinear interpolation.
+     *
+     * @return false when a cell center falls outside the frame
+     */
+    private boolean sampleIntensityRange(
+            ByteBuffer grayscalePixelByteBuffer,
+            int firstSampleIndex,
+            int endSampleIndex
+    ) {
+        for (int sampleIndex = firstSampleIndex; sampleIndex < endSampleIndex; sampleIndex++) {
+            double sampleUCoordinate = SAMPLE_U_COORDINATE_ARRAY[sampleIndex];
+            double sampleVCoordinate = SAMPLE_V_COORDINATE_ARRAY[sampleIndex];
+
+            double projectiveDenominator = homographyG * sampleUCoordinate + homographyH * sampleVCoordinate + 1.0;
+
+            if (projectiveDenominator <= 0.0) {
+                return false;
+            }
+
+            double sampleXCoordinate =
+                    (homographyA * sampleUCoordinate + homographyB * sampleVCoordinate + homographyC) / projectiveDenominator;
+            double sampleYCoordinate =
+                    (homographyD * sampleUCoordinate + homographyE * sampleVCoordinate + homographyF) / projectiveDenominator;
+
+            if (!(sampleXCoordinate >= 0.0 && sampleXCoordinate < frameWidth - 1
+                    && sampleYCoordinate >= 0.0 && sampleYCoordinate < frameHeight - 1)) {
+                return false;
+            }
+
+            int pixelXPosition = (int) sampleXCoordinate;
+            int pixelYPosition = (int) sampleYCoordinate;
+
+            double fractionX = sampleXCoordinate - pixelXPosition;
+            double fractionY = sampleYCoordinate - pixelYPosition;
+
+            int topLeftPixelIndex = pixelYPosition * frameWidth + pixelXPosition;
+
+            int topLeftIntensityValue = grayscalePixelByteBuffer.get(topLeftPixelIndex) & 0xFF;
+            int topRightIntensityValue = grayscalePixelByteBuffer.get(topLeftPixelIndex + 1) & 0xFF;
+            int bottomLeftIntensityValue = grayscalePixelByteBuffer.get(topLeftPixelIndex + frameWidth) & 0xFF;
+            int bottomRightIntensityValue = grayscalePixelByteBuffer.get(topLeftPixelIndex + frameWidth + 1) & 0xFF;
+
+            double topIntensityValue = topLeftIntensityValue + fractionX * (topRightIntensityValue - topLeftIntensityValue);
+            double bottomIntensityValue = bottomLeftIntensityValue + fractionX * (bottomRightIntensityValue - bottomLeftIntensityValue);
+
+            sampledIntensityArray[sampleIndex] = topIntensityValue + fractionY * (bottomIntensityValue - topIntensityValue);
+        }
+
+        return true;
+    }
+
+    /**
+     * Least squares plane I = a u + b v + c through samples [firstSampleIndex, endSampleIndex).
+     * Falls back to the mean intensity if the normal equations are singular.
+     */
+    private void fitIntensityPlane(
+            int firstSampleIndex,
+            int endSampleIndex,
+            double[] planeCoefficientArray
+    ) {
+        double sumUU = 0.0;
+        double sumUV = 0.0;
+        double sumVV = 0.0;
+        double sumU = 0.0;
+        double sumV = 0.0;
+        double sumIU = 0.0;
+        double sumIV = 0.0;
+        double sumI = 0.0;
+
+        for (int sampleIndex = firstSampleIndex; sampleIndex < endSampleIndex; sampleIndex++) {
+            double sampleUCoordinate = SAMPLE_U_COORDINATE_ARRAY[sampleIndex];
+            double sampleVCoordinate = SAMPLE_V_COORDINATE_ARRAY[sampleIndex];
+            double sampleIntensityValue = sampledIntensityArray[sampleIndex];
+
+            sumUU += sampleUCoordinate * sampleUCoordinate;
+            sumUV += sampleUCoordinate * sampleVCoordinate;
+            sumVV += sampleVCoordinate * sampleVCoordinate;
+            sumU += sampleUCoordinate;
+            sumV += sampleVCoordinate;
+            sumIU += sampleIntensityValue * sampleUCoordinate;
+            sumIV += sampleIntensityValue * sampleVCoordinate;
+            sumI += sampleIntensityValue;
+        }
+
+        double sampleCount = endSampleIndex - firstSampleIndex;
+
+        // Regla de Cramer sobre las ecuaciones normales 3x3
+        double determinantValue = sumUU * (sumVV * sampleCount - sumV * sumV)
+                - sumUV * (sumUV * sampleCount - sumV * sumU)
+                + sumU * (sumUV * sumV - sumVV * sumU);
+
+        if (Math.abs(determinantValue) < 1e-12) {
+            planeCoefficientArray[0] = 0.0;
+            planeCoefficientArray[1] = 0.0;
+            planeCoefficientArray[2] = sumI / sampleCount;
+            return;
+        }
+
+        planeCoefficientArray[0] = (sumIU * (sumVV * sampleCount - sumV * sumV)
+                - sumUV * (sumIV * sampleCount - sumV * sumI)
+                + sumU * (sumIV * sumV - sumVV * sumI)) / determinantValue;
+
+        planeCoefficientArray[1] = (sumUU * (sumIV * sampleCount - sumI * sumV)
+                - sumIU * (sumUV * sampleCount - sumV * sumU)
+                + sumU * (sumUV * sumI - sumIV * sumU)) / determinantValue;
+
+        planeCoefficientArray[2] = (sumUU * (sumVV * sumI - sumIV * sumV)
+                - sumUV * (sumUV * sumI - sumIV * sumU)
+                + sumIU * (sumUV * sumV - sumVV * sumU)) / determinantValue;
+    }
+
+    private static double evaluateIntensityPlane(
+            double[] planeCoefficientArray,
+            double sampleUCoordinate,
+            double sampleVCoordinate
+    ) {
+        return planeCoefficientArray[0] * sampleUCoordinate
+                + planeCoefficientArray[1] * sampleVCoordinate
+                + planeCoefficientArray[2];
+    }
+
+    /**
+     * Midpoint between the black and white planes at the pattern cell.
+     */
+    private double calculateLocalThreshold(int sampleIndex) {
+        double sampleUCoordinate = SAMPLE_U_COORDINATE_ARRAY[sampleIndex];
+        double sampleVCoordinate = SAMPLE_V_COORDINATE_ARRAY[sampleIndex];
+
+        return 0.5 * (evaluateIntensityPlane(blackLevelPlaneCoefficientArray, sampleUCoordinate, sampleVCoordinate)
+                + evaluateIntensityPlane(whiteLevelPlaneCoefficientArray, sampleUCoordinate, sampleVCoordinate));
+    }
+
+    private void validateGrayscaleFrameBuffer(DirectFrameBuffer grayscaleFrameBuffer) {
+        if (grayscaleFrameBuffer.getFrameWidth() != frameWidth
+                || grayscaleFrameBuffer.getFrameHeight() != frameHeight
+                || grayscaleFrameBuffer.getChannelCount() != 1) {
+            throw new IllegalArgumentException(
+                    "Grayscale frame does not match decoder configuration. " +
+                            "Expected " + frameWidth + "x" + frameHeight + "x1" +
+                            " but received " + grayscaleFrameBuffer.getFrameWidth() +
+                            "x" + grayscaleFrameBuffer.getFrameHeight() +
+                            "x" + grayscaleFrameBuffer.getChannelCount()
+            );
+        }
+    }
+
+    public AprilTag36h11Dictionary getAprilTag36h11Dictionary() {
+        return aprilTag36h11Dictionary;
+    }
+}
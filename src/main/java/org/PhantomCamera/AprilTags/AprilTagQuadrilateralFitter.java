@@ -1,164 +1,831 @@
 package org.PhantomCamera.AprilTags;
 
-import org.opencv.core.MatOfPoint2f;
-import org.opencv.core.Point;
-import org.opencv.imgproc.Imgproc;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
 
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Fits a quadrilateral to a convex hull: closed Douglas-Peucker simplification with
+ * epsilon = 2% of the hull perimeter, accepted only when exactly four vertices remain.
+ * <p>
+ * Pure Java on primitive arrays (same steps as OpenCV's arcLength + approxPolyDP, without
+ * the Mat allocations and JNI calls per candidate). The scratch arrays are reused between
+ * calls, so an instance must not be shared between threads.
+ */
 public class AprilTagQuadrilateralFitter {
 
+    /**
+     * Douglas-Peucker tolerance as a fraction of the hull perimeter.
+     */
+    private static final double APPROXIMATION_EPSILON_PERIMETER_FRACTION = 0.02;
+
+    /**
+     * Times the start vertex jumps to the farthest vertex before splitting the closed curve.
+     */
+    private static final int FARTHEST_VERTEX_SEARCH_ITERATION_COUNT = 3;
+
+    private static final int QUADRILATERAL_CORNER_COUNT = 4;
+
+    /**
+     * Corner refinement: how far from the fitted edge gradient pixels are collected, which
+     * fraction of each edge end is skipped and the smallest usable sine between two edges.
+     */
+    private static final int EDGE_NORMAL_SEARCH_RADIUS_IN_PIXELS = 3;
+    private static final double EDGE_END_MARGIN_FRACTION = 0.15;
+    private static final double MINIMUM_EDGE_INTERSECTION_SINE = 0.1;
+
+    /**
+     * Reusable scratch, grown on demand: hull copy for list callers, kept-vertex flags,
+     * the segment stack of the simplification and the simplified polygon.
+     */
+    private int[] hullXCoordinateScratchArray = new int[0];
+    private int[] hullYCoordinateScratchArray = new int[0];
+    private boolean[] keptHullVertexFlagArray = new boolean[0];
+    private int[] segmentStackIndexArray = new int[0];
+    private int[] simplifiedPolygonVertexIndexArray = new int[0];
+
+    /**
+     * Corner refinement scratch: line of each edge as normal (nx, ny) and distance c,
+     * nx * x + ny * y = c, and whether the line could be fitted.
+     */
+    private final double[] edgeLineCoefficientArray = new double[3 * QUADRILATERAL_CORNER_COUNT];
+    private final boolean[] edgeLineFittedFlagArray = new boolean[QUADRILATERAL_CORNER_COUNT];
+    private final double[] initialCornerCoordinateArray = new double[2 * QUADRILATERAL_CORNER_COUNT];
+
+    /**
+     * Corner ordering scratch (hull index and angle of each corner) and the corners of the
+     * {@link PixelCoordinate} methods converted to coordinates.
+     */
+    private final int[] orderedCornerHullIndexArray = new int[QUADRILATERAL_CORNER_COUNT];
+    private final double[] cornerAngleArray = new double[QUADRILATERAL_CORNER_COUNT];
+    private final double[] cornerCoordinateScratchArray = new double[2 * QUADRILATERAL_CORNER_COUNT];
+
     public PixelCoordinate[] calculateQuadrilateralCornerArrayFromConvexHullPixelCoordinateList(
             List<PixelCoordinate> convexHullPixelCoordinateList
     ) {
         if (convexHullPixelCoordinateList == null
-                || convexHullPixelCoordinateList.size() < 4) {
+                || convexHullPixelCoordinateList.size() < QUADRILATERAL_CORNER_COUNT) {
             return null;
         }
 
-        // 1) Convertir la lista de PixelCoordinate a un MatOfPoint2f de OpenCV
-        MatOfPoint2f convexHullPoint2fMat = convertPixelCoordinateListToMatOfPoint2f(
-                convexHullPixelCoordinateList
+        int hullPointCount = convexHullPixelCoordinateList.size();
+
+        if (hullXCoordinateScratchArray.length < hullPointCount) {
+            hullXCoordinateScratchArray = new int[hullPointCount];
+            hullYCoordinateScratchArray = new int[hullPointCount];
+        }
+
+        for (int hullIndex = 0; hullIndex < hullPointCount; hullIndex++) {
+            PixelCoordinate pixelCoordinate = convexHullPixelCoordinateList.get(hullIndex);
+            hullXCoordinateScratchArray[hullIndex] = pixelCoordinate.xPixeldCoordinate;
+            hullYCoordinateScratchArray[hullIndex] = pixelCoordinate.yPixeldCoordinate;
+        }
+
+        return calculateQuadrilateralCornerArrayFromConvexHull(
+                hullXCoordinateScratchArray,
+                hullYCoordinateScratchArray,
+                hullPointCount
         );
+    }
+
+    /**
+     * Same as the list version for a hull stored in primitive arrays, for example the output of
+     * {@link AprilTagConvexHullCalculator#calculateConvexHull(EdgeConnectedComponent, int[], int[])}.
+     * Allocates the returned corners; per-candidate code should use
+     * {@link #calculateQuadrilateralCornerCoordinatesFromConvexHull}.
+     *
+     * @return the four corners clockwise from the top-left one, or null when the hull does not
+     * simplify to a quadrilateral. {@link #refineQuadrilateralCornerArrayWithGradientMagnitude}
+     * turns them into sub-pixel corners.
+     */
+    public PixelCoordinate[] calculateQuadrilateralCornerArrayFromConvexHull(
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray,
+            int hullPointCount
+    ) {
+        if (!calculateQuadrilateralCornerCoordinatesFromConvexHull(
+                hullXCoordinateArray,
+                hullYCoordinateArray,
+                hullPointCount,
+                cornerCoordinateScratchArray,
+                0
+        )) {
+            return null;
+        }
+
+        PixelCoordinate[] orderedQuadrilateralCornerArray = new PixelCoordinate[QUADRILATERAL_CORNER_COUNT];
+
+        for (int cornerIndex = 0; cornerIndex < QUADRILATERAL_CORNER_COUNT; cornerIndex++) {
+            orderedQuadrilateralCornerArray[cornerIndex] = new PixelCoordinate(
+                    (int) cornerCoordinateScratchArray[2 * cornerIndex],
+                    (int) cornerCoordinateScratchArray[2 * cornerIndex + 1]
+            );
+        }
+
+        return orderedQuadrilateralCornerArray;
+    }
+
+    /**
+     * Allocation-free version: writes the four corners, clockwise from the top-left one, as
+     * {x0, y0, x1, y1, x2, y2, x3, y3} into cornerCoordinateArray at cornerCoordinateOffset.
+     * The coordinates are the integer hull vertices; the refine methods taking a coordinate
+     * array turn them into sub-pixel corners, in place if given the same array and offset.
+     *
+     * @return false when the hull does not simplify to a quadrilateral (the array is untouched)
+     */
+    public boolean calculateQuadrilateralCornerCoordinatesFromConvexHull(
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray,
+            int hullPointCount,
+            double[] cornerCoordinateArray,
+            int cornerCoordinateOffset
+    ) {
+        if (hullPointCount < QUADRILATERAL_CORNER_COUNT) {
+            return false;
+        }
 
-        double convexHullPerimeterLength =
-                Imgproc.arcLength(convexHullPoint2fMat, true);
+        ensureScratchCapacity(hullPointCount);
+
+        // 1) Perimetro del hull cerrado
+        double convexHullPerimeterLength = 0.0;
+
+        for (int hullIndex = 0; hullIndex < hullPointCount; hullIndex++) {
+            int nextHullIndex = hullIndex + 1 == hullPointCount ? 0 : hullIndex + 1;
+
+            convexHullPerimeterLength += Math.hypot(
+                    hullXCoordinateArray[nextHullIndex] - hullXCoordinateArray[hullIndex],
+                    hullYCoordinateArray[nextHullIndex] - hullYCoordinateArray[hullIndex]
+            );
+        }
 
-        // 2) Aproximar el hull a un polígono con menos vértices
-        //    El factor 0.02 es un punto de partida; después podemos ajustarlo.
         double approximationEpsilonDistance =
-                0.02 * convexHullPerimeterLength;
+                APPROXIMATION_EPSILON_PERIMETER_FRACTION * convexHullPerimeterLength;
+
+        // 2) Simplificar el poligono (Douglas-Peucker cerrado)
+        int simplifiedVertexCount = simplifyClosedPolygon(
+                hullXCoordinateArray,
+                hullYCoordinateArray,
+                hullPointCount,
+                approximationEpsilonDistance
+        );
 
-        MatOfPoint2f approximatedPolygonPoint2fMat = new MatOfPoint2f();
+        if (simplifiedVertexCount != QUADRILATERAL_CORNER_COUNT) {
+            // Todavía no tenemos algo cuadrilátero, regresamos false.
+            return false;
+        }
 
-        Imgproc.approxPolyDP(
-                convexHullPoint2fMat,
-                approximatedPolygonPoint2fMat,
-                approximationEpsilonDistance,
-                true
+        // 3) Ordenar esquinas (top-left, top-right, bottom-right, bottom-left)
+        orderQuadrilateralCornersClockwise(
+                hullXCoordinateArray,
+                hullYCoordinateArray,
+                cornerCoordinateArray,
+                cornerCoordinateOffset
         );
 
-        Point[] approximatedPolygonPointArray =
-                approximatedPolygonPoint2fMat.toArray();
+        return true;
+    }
 
-        if (approximatedPolygonPointArray.length != 4) {
-            // Todavía no tenemos algo cuadrilátero, regresamos null.
-            return null;
+    /**
+     * Closed Douglas-Peucker. The curve is split at two far apart vertices, each half is split
+     * at its vertex farthest from the chord while that distance exceeds epsilon, and finally
+     * vertices lying almost on the chord of their neighbours are dropped.
+     * Kept hull indices end up in simplifiedPolygonVertexIndexArray, in hull order.
+     *
+     * @return number of vertices of the simplified polygon
+     */
+    private int simplifyClosedPolygon(
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray,
+            int hullPointCount,
+            double approximationEpsilonDistance
+    ) {
+        double squaredEpsilonDistance = approximationEpsilonDistance * approximationEpsilonDistance;
+
+        // Punto de partida: saltar al vertice mas lejano unas cuantas veces
+        int segmentStartIndex = 0;
+        int segmentEndIndex = 0;
+        long farthestSquaredDistance = 0L;
+
+        for (int iterationIndex = 0; iterationIndex < FARTHEST_VERTEX_SEARCH_ITERATION_COUNT; iterationIndex++) {
+            if (iterationIndex > 0) {
+                segmentStartIndex = segmentEndIndex;
+            }
+
+            farthestSquaredDistance = 0L;
+
+            for (int hullIndex = 0; hullIndex < hullPointCount; hullIndex++) {
+                long deltaX = hullXCoordinateArray[hullIndex] - hullXCoordinateArray[segmentStartIndex];
+                long deltaY = hullYCoordinateArray[hullIndex] - hullYCoordinateArray[segmentStartIndex];
+                long squaredDistance = deltaX * deltaX + deltaY * deltaY;
+
+                if (squaredDistance > farthestSquaredDistance) {
+                    farthestSquaredDistance = squaredDistance;
+                    segmentEndIndex = hullIndex;
+                }
+            }
         }
 
-        PixelCoordinate[] unorderedQuadrilateralCornerArray =
-                convertPointArrayToPixelCoordinateArray(
-                        approximatedPolygonPointArray
-                );
+        if (farthestSquaredDistance <= squaredEpsilonDistance) {
+            return 0;
+        }
 
-        // 3) Ordenar esquinas (top-left, top-right, bottom-right, bottom-left)
-        PixelCoordinate[] orderedQuadrilateralCornerArray =
-                orderQuadrilateralCornersClockwise(
-                        unorderedQuadrilateralCornerArray
+        Arrays.fill(keptHullVertexFlagArray, 0, hullPointCount, false);
+        keptHullVertexFlagArray[segmentStartIndex] = true;
+        keptHullVertexFlagArray[segmentEndIndex] = true;
+
+        // Pila de segmentos (inicio, fin) recorridos en orden ciclico
+        int segmentStackSize = 0;
+        segmentStackIndexArray[segmentStackSize++] = segmentStartIndex;
+        segmentStackIndexArray[segmentStackSize++] = segmentEndIndex;
+        segmentStackIndexArray[segmentStackSize++] = segmentEndIndex;
+        segmentStackIndexArray[segmentStackSize++] = segmentStartIndex;
+
+        while (segmentStackSize > 0) {
+            int currentSegmentEndIndex = segmentStackIndexArray[--segmentStackSize];
+            int currentSegmentStartIndex = segmentStackIndexArray[--segmentStackSize];
+
+            long chordDeltaX = hullXCoordinateArray[currentSegmentEndIndex] - hullXCoordinateArray[currentSegmentStartIndex];
+            long chordDeltaY = hullYCoordinateArray[currentSegmentEndIndex] - hullYCoordinateArray[currentSegmentStartIndex];
+
+            int farthestVertexIndex = -1;
+            long farthestCrossProductMagnitude = 0L;
+
+            for (int hullIndex = nextCyclicIndex(currentSegmentStartIndex, hullPointCount);
+                 hullIndex != currentSegmentEndIndex;
+                 hullIndex = nextCyclicIndex(hullIndex, hullPointCount)) {
+
+                // |cross| = distancia a la cuerda * longitud de la cuerda
+                long crossProductMagnitude = Math.abs(
+                        (hullXCoordinateArray[hullIndex] - hullXCoordinateArray[currentSegmentStartIndex]) * chordDeltaY
+                                - (hullYCoordinateArray[hullIndex] - hullYCoordinateArray[currentSegmentStartIndex]) * chordDeltaX
                 );
 
-        return orderedQuadrilateralCornerArray;
+                if (crossProductMagnitude > farthestCrossProductMagnitude) {
+                    farthestCrossProductMagnitude = crossProductMagnitude;
+                    farthestVertexIndex = hullIndex;
+                }
+            }
+
+            double squaredChordLength = (double) (chordDeltaX * chordDeltaX + chordDeltaY * chordDeltaY);
+
+            if (farthestVertexIndex >= 0
+                    && (double) farthestCrossProductMagnitude * farthestCrossProductMagnitude
+                    > squaredEpsilonDistance * squaredChordLength) {
+
+                keptHullVertexFlagArray[farthestVertexIndex] = true;
+
+                segmentStackIndexArray[segmentStackSize++] = currentSegmentStartIndex;
+                segmentStackIndexArray[segmentStackSize++] = farthestVertexIndex;
+                segmentStackIndexArray[segmentStackSize++] = farthestVertexIndex;
+                segmentStackIndexArray[segmentStackSize++] = currentSegmentEndIndex;
+            }
+        }
+
+        int simplifiedVertexCount = 0;
+
+        for (int hullIndex = 0; hullIndex < hullPointCount; hullIndex++) {
+            if (keptHullVertexFlagArray[hullIndex]) {
+                simplifiedPolygonVertexIndexArray[simplifiedVertexCount++] = hullIndex;
+            }
+        }
+
+        return removeNearlyCollinearVertices(
+                hullXCoordinateArray,
+                hullYCoordinateArray,
+                simplifiedVertexCount,
+                0.5 * squaredEpsilonDistance
+        );
     }
 
-    private MatOfPoint2f convertPixelCoordinateListToMatOfPoint2f(
-            List<PixelCoordinate> pixelCoordinateList
+    /**
+     * Drops simplified vertices that lie between their neighbours and within
+     * sqrt(squaredToleranceDistance) of the chord joining them. Compacts the index array in place.
+     */
+    private int removeNearlyCollinearVertices(
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray,
+            int simplifiedVertexCount,
+            double squaredToleranceDistance
     ) {
-        Point[] pointArray = new Point[pixelCoordinateList.size()];
+        int keptVertexCount = 0;
+
+        for (int vertexIndex = 0; vertexIndex < simplifiedVertexCount; vertexIndex++) {
+            if (simplifiedVertexCount - (vertexIndex - keptVertexCount) <= 3) {
+                simplifiedPolygonVertexIndexArray[keptVertexCount++] = simplifiedPolygonVertexIndexArray[vertexIndex];
+                continue;
+            }
+
+            int previousHullIndex = keptVertexCount > 0
+                    ? simplifiedPolygonVertexIndexArray[keptVertexCount - 1]
+                    : simplifiedPolygonVertexIndexArray[simplifiedVertexCount - 1];
+            int currentHullIndex = simplifiedPolygonVertexIndexArray[vertexIndex];
+            int nextHullIndex = simplifiedPolygonVertexIndexArray[(vertexIndex + 1) % simplifiedVertexCount];
+
+            long chordDeltaX = hullXCoordinateArray[nextHullIndex] - hullXCoordinateArray[previousHullIndex];
+            long chordDeltaY = hullYCoordinateArray[nextHullIndex] - hullYCoordinateArray[previousHullIndex];
 
-        for (int currentIndex = 0;
-             currentIndex < pixelCoordinateList.size();
-             currentIndex++) {
+            long offsetX = hullXCoordinateArray[currentHullIndex] - hullXCoordinateArray[previousHullIndex];
+            long offsetY = hullYCoordinateArray[currentHullIndex] - hullYCoordinateArray[previousHullIndex];
 
-            PixelCoordinate pixelCoordinate = pixelCoordinateList.get(currentIndex);
+            double crossProductMagnitude = Math.abs(offsetX * chordDeltaY - offsetY * chordDeltaX);
 
-            pointArray[currentIndex] = new Point(
-                    pixelCoordinate.xPixeldCoordinate,
-                    pixelCoordinate.yPixeldCoordinate
+            long successiveInnerProduct =
+                    offsetX * (hullXCoordinateArray[nextHullIndex] - hullXCoordinateArray[currentHullIndex])
+                            + offsetY * (hullYCoordinateArray[nextHullIndex] - hullYCoordinateArray[currentHullIndex]);
+
+            boolean nearlyCollinearVertex = crossProductMagnitude * crossProductMagnitude
+                    <= squaredToleranceDistance * (double) (chordDeltaX * chordDeltaX + chordDeltaY * chordDeltaY)
+                    && successiveInnerProduct >= 0;
+
+            if (!nearlyCollinearVertex) {
+                simplifiedPolygonVertexIndexArray[keptVertexCount++] = currentHullIndex;
+            }
+        }
+
+        return keptVertexCount;
+    }
+
+    private static int nextCyclicIndex(int hullIndex, int hullPointCount) {
+        return hullIndex + 1 == hullPointCount ? 0 : hullIndex + 1;
+    }
+
+    private void ensureScratchCapacity(int hullPointCount) {
+        if (keptHullVertexFlagArray.length < hullPointCount) {
+            keptHullVertexFlagArray = new boolean[hullPointCount];
+            simplifiedPolygonVertexIndexArray = new int[hullPointCount];
+            // Cada vertice conservado apila como mucho dos segmentos (cuatro indices)
+            segmentStackIndexArray = new int[4 * hullPointCount + 4];
+        }
+    }
+
+    /**
+     * Sub-pixel refinement of ordered quadrilateral corners. Along each edge, pixels within
+     * {@link #EDGE_NORMAL_SEARCH_RADIUS_IN_PIXELS} of the edge (measured on its normal) are
+     * weighted by their gradient magnitude and a line is fitted to them by weighted total least
+     * squares; the corners are the intersections of consecutive lines. The ends of each edge
+     * are skipped because near the corners the ridge of the other edge would pull the fit.
+     * <p>
+     * A corner keeps its integer position when one of its lines has no gradient support, when
+     * the two lines are almost parallel or when the refined corner moves implausibly far
+     * (more than 2 * radius + 1 pixels).
+     *
+     * @param orderedQuadrilateralCornerArray corners as returned by the fitter
+     * @param gradientMagnitudeIntegerArray   gradient magnitude per pixel, for example
+     *                                        {@link AprilTagEdgeDetector#getGradientMagnitudeIntegerArray()}
+     * @return {x0, y0, x1, y1, x2, y2, x3, y3} in the same corner order
+     */
+    public double[] refineQuadrilateralCornerArrayWithGradientMagnitude(
+            PixelCoordinate[] orderedQuadrilateralCornerArray,
+            int[] gradientMagnitudeIntegerArray,
+            int frameWidth,
+            int frameHeight
+    ) {
+        double[] refinedCornerCoordinateArray = new double[2 * QUADRILATERAL_CORNER_COUNT];
+
+        refineQuadrilateralCornerArrayWithGradientMagnitude(
+                orderedQuadrilateralCornerArray,
+                gradientMagnitudeIntegerArray,
+                frameWidth,
+                frameHeight,
+                refinedCornerCoordinateArray,
+                0
+        );
+
+        return refinedCornerCoordinateArray;
+    }
+
+    /**
+     * Same refinement writing the 8 coordinates into refinedCornerCoordinateArray at
+     * refinedCornerCoordinateOffset.
+     */
+    public void refineQuadrilateralCornerArrayWithGradientMagnitude(
+            PixelCoordinate[] orderedQuadrilateralCornerArray,
+            int[] gradientMagnitudeIntegerArray,
+            int frameWidth,
+            int frameHeight,
+            double[] refinedCornerCoordinateArray,
+            int refinedCornerCoordinateOffset
+    ) {
+        copyCornerArrayToCoordinateScratch(orderedQuadrilateralCornerArray);
+
+        refineQuadrilateralCornerCoordinatesWithGradientMagnitude(
+                cornerCoordinateScratchArray,
+                0,
+                gradientMagnitudeIntegerArray,
+                frameWidth,
+                frameHeight,
+                refinedCornerCoordinateArray,
+                refinedCornerCoordinateOffset
+        );
+    }
+
+    /**
+     * Same refinement for corners given as {x0, y0, ..., x3, y3} at cornerCoordinateOffset, as
+     * written by {@link #calculateQuadrilateralCornerCoordinatesFromConvexHull}. Does not allocate;
+     * the output may overwrite the input.
+     */
+    public void refineQuadrilateralCornerCoordinatesWithGradientMagnitude(
+            double[] cornerCoordinateArray,
+            int cornerCoordinateOffset,
+            int[] gradientMagnitudeIntegerArray,
+            int frameWidth,
+            int frameHeight,
+            double[] refinedCornerCoordinateArray,
+            int refinedCornerCoordinateOffset
+    ) {
+        if (gradientMagnitudeIntegerArray.length < frameWidth * frameHeight) {
+            throw new IllegalArgumentException(
+                    "Gradient magnitude array does not match frame size. Expected at least " +
+                            frameWidth + "x" + frameHeight + " values but received " + gradientMagnitudeIntegerArray.length
             );
         }
 
-        MatOfPoint2f matOfPoint2f = new MatOfPoint2f();
-        matOfPoint2f.fromArray(pointArray);
-        return matOfPoint2f;
+        System.arraycopy(
+                cornerCoordinateArray, cornerCoordinateOffset,
+                initialCornerCoordinateArray, 0,
+                2 * QUADRILATERAL_CORNER_COUNT
+        );
+
+        refineInitialCornerCoordinates(
+                gradientMagnitudeIntegerArray,
+                null,
+                frameWidth,
+                frameHeight,
+                EDGE_NORMAL_SEARCH_RADIUS_IN_PIXELS,
+                refinedCornerCoordinateArray,
+                refinedCornerCoordinateOffset
+        );
     }
 
-    private PixelCoordinate[] convertPointArrayToPixelCoordinateArray(
-            Point[] pointArray
+    /**
+     * Refinement for corners fitted on a decimated frame (see
+     * {@link AprilTagFramePreProcessing#AprilTagFramePreProcessing(int, int, int)}): the corners are
+     * scaled back to full resolution, where decimated pixel i covers full pixels
+     * i * factor .. i * factor + factor - 1, and the lines are fitted on the full resolution
+     * grayscale frame. There is no full resolution gradient frame in that mode, so the Sobel
+     * magnitude is computed only at the pixels the fit visits. The search radius grows with the
+     * decimation factor to cover the position error of the decimated corners.
+     */
+    public void refineDecimatedQuadrilateralCornerArrayWithGrayscaleFrame(
+            PixelCoordinate[] decimatedQuadrilateralCornerArray,
+            int decimationFactor,
+            DirectFrameBuffer fullResolutionGrayscaleFrameBuffer,
+            double[] refinedCornerCoordinateArray,
+            int refinedCornerCoordinateOffset
     ) {
-        PixelCoordinate[] pixelCoordinateArray =
-                new PixelCoordinate[pointArray.length];
+        copyCornerArrayToCoordinateScratch(decimatedQuadrilateralCornerArray);
+
+        refineDecimatedQuadrilateralCornerCoordinatesWithGrayscaleFrame(
+                cornerCoordinateScratchArray,
+                0,
+                decimationFactor,
+                fullResolutionGrayscaleFrameBuffer,
+                refinedCornerCoordinateArray,
+                refinedCornerCoordinateOffset
+        );
+    }
 
-        for (int currentIndex = 0;
-             currentIndex < pointArray.length;
-             currentIndex++) {
+    /**
+     * Same refinement for decimated corners given as {x0, y0, ..., x3, y3} at
+     * decimatedCornerCoordinateOffset. Does not allocate; the output may overwrite the input.
+     */
+    public void refineDecimatedQuadrilateralCornerCoordinatesWithGrayscaleFrame(
+            double[] decimatedCornerCoordinateArray,
+            int decimatedCornerCoordinateOffset,
+            int decimationFactor,
+            DirectFrameBuffer fullResolutionGrayscaleFrameBuffer,
+            double[] refinedCornerCoordinateArray,
+            int refinedCornerCoordinateOffset
+    ) {
+        if (fullResolutionGrayscaleFrameBuffer.getChannelCount() != 1) {
+            throw new IllegalArgumentException(
+                    "Grayscale frame buffer must have 1 channel but has " + fullResolutionGrayscaleFrameBuffer.getChannelCount()
+            );
+        }
+
+        double decimatedPixelCenterOffset = 0.5 * (decimationFactor - 1);
+
+        for (int coordinateIndex = 0; coordinateIndex < 2 * QUADRILATERAL_CORNER_COUNT; coordinateIndex++) {
+            initialCornerCoordinateArray[coordinateIndex] =
+                    decimatedCornerCoordinateArray[decimatedCornerCoordinateOffset + coordinateIndex] * decimationFactor
+                            + decimatedPixelCenterOffset;
+        }
+
+        refineInitialCornerCoordinates(
+                null,
+                fullResolutionGrayscaleFrameBuffer.getPixelByteBuffer(),
+                fullResolutionGrayscaleFrameBuffer.getFrameWidth(),
+                fullResolutionGrayscaleFrameBuffer.getFrameHeight(),
+                EDGE_NORMAL_SEARCH_RADIUS_IN_PIXELS + decimationFactor - 1,
+                refinedCornerCoordinateArray,
+                refinedCornerCoordinateOffset
+        );
+    }
 
-            Point currentPoint = pointArray[currentIndex];
+    private void copyCornerArrayToCoordinateScratch(PixelCoordinate[] quadrilateralCornerArray) {
+        if (quadrilateralCornerArray == null
+                || quadrilateralCornerArray.length != QUADRILATERAL_CORNER_COUNT) {
+            throw new IllegalArgumentException(
+                    "Expected " + QUADRILATERAL_CORNER_COUNT + " corners but received " +
+                            (quadrilateralCornerArray == null ? "null" : quadrilateralCornerArray.length)
+            );
+        }
 
-            int xPixelCoordinate = (int) Math.round(currentPoint.x);
-            int yPixelCoordinate = (int) Math.round(currentPoint.y);
+        for (int cornerIndex = 0; cornerIndex < QUADRILATERAL_CORNER_COUNT; cornerIndex++) {
+            cornerCoordinateScratchArray[2 * cornerIndex] = quadrilateralCornerArray[cornerIndex].xPixeldCoordinate;
+            cornerCoordinateScratchArray[2 * cornerIndex + 1] = quadrilateralCornerArray[cornerIndex].yPixeldCoordinate;
+        }
+    }
 
-            pixelCoordinateArray[currentIndex] =
-                    new PixelCoordinate(
-                            xPixelCoordinate,
-                            yPixelCoordinate
-                    );
+    /**
+     * Fits the four edge lines around initialCornerCoordinateArray and intersects them.
+     * Gradient weights come from gradientMagnitudeIntegerArray, or are computed from
+     * grayscalePixelByteBuffer when the array is null.
+     */
+    private void refineInitialCornerCoordinates(
+            int[] gradientMagnitudeIntegerArray,
+            ByteBuffer grayscalePixelByteBuffer,
+            int frameWidth,
+            int frameHeight,
+            int edgeNormalSearchRadiusInPixels,
+            double[] refinedCornerCoordinateArray,
+            int refinedCornerCoordinateOffset
+    ) {
+        for (int edgeIndex = 0; edgeIndex < QUADRILATERAL_CORNER_COUNT; edgeIndex++) {
+            int endCornerIndex = (edgeIndex + 1) % QUADRILATERAL_CORNER_COUNT;
+
+            edgeLineFittedFlagArray[edgeIndex] = fitEdgeLineToGradientMagnitude(
+                    initialCornerCoordinateArray[2 * edgeIndex],
+                    initialCornerCoordinateArray[2 * edgeIndex + 1],
+                    initialCornerCoordinateArray[2 * endCornerIndex],
+                    initialCornerCoordinateArray[2 * endCornerIndex + 1],
+                    gradientMagnitudeIntegerArray,
+                    grayscalePixelByteBuffer,
+                    frameWidth,
+                    frameHeight,
+                    edgeNormalSearchRadiusInPixels,
+                    edgeLineCoefficientArray,
+                    3 * edgeIndex
+            );
         }
 
-        return pixelCoordinateArray;
+        double maximumCornerDisplacementInPixels = 2.0 * edgeNormalSearchRadiusInPixels + 1.0;
+
+        for (int cornerIndex = 0; cornerIndex < QUADRILATERAL_CORNER_COUNT; cornerIndex++) {
+            double initialCornerXCoordinate = initialCornerCoordinateArray[2 * cornerIndex];
+            double initialCornerYCoordinate = initialCornerCoordinateArray[2 * cornerIndex + 1];
+
+            int cornerCoordinateIndex = refinedCornerCoordinateOffset + 2 * cornerIndex;
+
+            refinedCornerCoordinateArray[cornerCoordinateIndex] = initialCornerXCoordinate;
+            refinedCornerCoordinateArray[cornerCoordinateIndex + 1] = initialCornerYCoordinate;
+
+            // La esquina i une el borde (i - 1) -> i con el borde i -> (i + 1)
+            int incomingEdgeIndex = (cornerIndex + QUADRILATERAL_CORNER_COUNT - 1) % QUADRILATERAL_CORNER_COUNT;
+
+            if (!edgeLineFittedFlagArray[incomingEdgeIndex] || !edgeLineFittedFlagArray[cornerIndex]) {
+                continue;
+            }
+
+            double firstNormalX = edgeLineCoefficientArray[3 * incomingEdgeIndex];
+            double firstNormalY = edgeLineCoefficientArray[3 * incomingEdgeIndex + 1];
+            double firstDistance = edgeLineCoefficientArray[3 * incomingEdgeIndex + 2];
+
+            double secondNormalX = edgeLineCoefficientArray[3 * cornerIndex];
+            double secondNormalY = edgeLineCoefficientArray[3 * cornerIndex + 1];
+            double secondDistance = edgeLineCoefficientArray[3 * cornerIndex + 2];
+
+            double determinantValue = firstNormalX * secondNormalY - firstNormalY * secondNormalX;
+
+            // Seno del angulo entre bordes: casi paralelos no dan una interseccion estable
+            if (Math.abs(determinantValue) < MINIMUM_EDGE_INTERSECTION_SINE) {
+                continue;
+            }
+
+            double intersectionXCoordinate =
+                    (firstDistance * secondNormalY - firstNormalY * secondDistance) / determinantValue;
+            double intersectionYCoordinate =
+                    (firstNormalX * secondDistance - firstDistance * secondNormalX) / determinantValue;
+
+            double cornerDisplacement = Math.hypot(
+                    intersectionXCoordinate - initialCornerXCoordinate,
+                    intersectionYCoordinate - initialCornerYCoordinate
+            );
+
+            if (cornerDisplacement <= maximumCornerDisplacementInPixels) {
+                refinedCornerCoordinateArray[cornerCoordinateIndex] = intersectionXCoordinate;
+                refinedCornerCoordinateArray[cornerCoordinateIndex + 1] = intersectionYCoordinate;
+            }
+        }
     }
 
-    private PixelCoordinate[] orderQuadrilateralCornersClockwise(
-            PixelCoordinate[] unorderedCornerArray
+    /**
+     * Weighted total least squares line through the gradient ridge near the edge from the start
+     * corner to the end corner. Writes (nx, ny, c) at lineCoefficientOffset.
+     *
+     * @return false when there is not enough gradient support to fit a line
+     */
+    private static boolean fitEdgeLineToGradientMagnitude(
+            double startCornerXCoordinate,
+            double startCornerYCoordinate,
+            double endCornerXCoordinate,
+            double endCornerYCoordinate,
+            int[] gradientMagnitudeIntegerArray,
+            ByteBuffer grayscalePixelByteBuffer,
+            int frameWidth,
+            int frameHeight,
+            int edgeNormalSearchRadiusInPixels,
+            double[] edgeLineCoefficientArray,
+            int lineCoefficientOffset
     ) {
-        if (unorderedCornerArray == null
-                || unorderedCornerArray.length != 4) {
-            return unorderedCornerArray;
+        double edgeDeltaX = endCornerXCoordinate - startCornerXCoordinate;
+        double edgeDeltaY = endCornerYCoordinate - startCornerYCoordinate;
+        double edgeLength = Math.hypot(edgeDeltaX, edgeDeltaY);
+
+        if (edgeLength < 2.0) {
+            return false;
         }
 
+        double edgeNormalX = -edgeDeltaY / edgeLength;
+        double edgeNormalY = edgeDeltaX / edgeLength;
+
+        int edgeSampleCount = (int) Math.ceil(edgeLength);
+
+        double sumWeight = 0.0;
+        double sumWeightedX = 0.0;
+        double sumWeightedY = 0.0;
+        double sumWeightedXX = 0.0;
+        double sumWeightedXY = 0.0;
+        double sumWeightedYY = 0.0;
+
+        for (int sampleIndex = 0; sampleIndex <= edgeSampleCount; sampleIndex++) {
+            double edgeFraction = EDGE_END_MARGIN_FRACTION
+                    + (1.0 - 2.0 * EDGE_END_MARGIN_FRACTION) * sampleIndex / edgeSampleCount;
+
+            double sampleXCoordinate = startCornerXCoordinate + edgeFraction * edgeDeltaX;
+            double sampleYCoordinate = startCornerYCoordinate + edgeFraction * edgeDeltaY;
+
+            for (int normalOffset = -edgeNormalSearchRadiusInPixels;
+                 normalOffset <= edgeNormalSearchRadiusInPixels;
+                 normalOffset++) {
+
+                int pixelXPosition = (int) Math.round(sampleXCoordinate + normalOffset * edgeNormalX);
+                int pixelYPosition = (int) Math.round(sampleYCoordinate + normalOffset * edgeNormalY);
+
+                // El borde del frame no tiene gradiente
+                if (pixelXPosition < 1 || pixelXPosition >= frameWidth - 1
+                        || pixelYPosition < 1 || pixelYPosition >= frameHeight - 1) {
+                    continue;
+                }
+
+                double pixelWeight = gradientMagnitudeIntegerArray != null
+                        ? gradientMagnitudeIntegerArray[pixelYPosition * frameWidth + pixelXPosition]
+                        : calculateSobelGradientMagnitude(grayscalePixelByteBuffer, frameWidth, pixelXPosition, pixelYPosition);
+
+                sumWeight += pixelWeight;
+                sumWeightedX += pixelWeight * pixelXPosition;
+                sumWeightedY += pixelWeight * pixelYPosition;
+                sumWeightedXX += pixelWeight * pixelXPosition * pixelXPosition;
+                sumWeightedXY += pixelWeight * pixelXPosition * pixelYPosition;
+                sumWeightedYY += pixelWeight * pixelYPosition * pixelYPosition;
+            }
+        }
+
+        if (sumWeight <= 0.0) {
+            return false;
+        }
+
+        double meanXCoordinate = sumWeightedX / sumWeight;
+        double meanYCoordinate = sumWeightedY / sumWeight;
+
+        double covarianceXX = sumWeightedXX / sumWeight - meanXCoordinate * meanXCoordinate;
+        double covarianceXY = sumWeightedXY / sumWeight - meanXCoordinate * meanYCoordinate;
+        double covarianceYY = sumWeightedYY / sumWeight - meanYCoordinate * meanYCoordinate;
+
+        // Direccion principal de la nube de puntos = direccion de la linea
+        double lineDirectionAngle = 0.5 * Math.atan2(2.0 * covarianceXY, covarianceXX - covarianceYY);
+
+        double lineNormalX = -Math.sin(lineDirectionAngle);
+        double lineNormalY = Math.cos(lineDirectionAngle);
+
+        edgeLineCoefficientArray[lineCoefficientOffset] = lineNormalX;
+        edgeLineCoefficientArray[lineCoefficientOffset + 1] = lineNormalY;
+        edgeLineCoefficientArray[lineCoefficientOffset + 2] =
+                lineNormalX * meanXCoordinate + lineNormalY * meanYCoordinate;
+
+        return true;
+    }
+
+    /**
+     * |Gx| + |Gy| of the 3x3 Sobel at an interior pixel, same value as
+     * {@link AprilTagEdgeDetector} stores in its gradient magnitude array.
+     */
+    private static int calculateSobelGradientMagnitude(
+            ByteBuffer grayscalePixelByteBuffer,
+            int frameWidth,
+            int pixelXPosition,
+            int pixelYPosition
+    ) {
+        int middlePixelIndex = pixelYPosition * frameWidth + pixelXPosition;
+        int topPixelIndex = middlePixelIndex - frameWidth;
+        int bottomPixelIndex = middlePixelIndex + frameWidth;
+
+        int pixelTopLeftIntensityValue = grayscalePixelByteBuffer.get(topPixelIndex - 1) & 0xFF;
+        int pixelTopCenterIntensityValue = grayscalePixelByteBuffer.get(topPixelIndex) & 0xFF;
+        int pixelTopRightIntensityValue = grayscalePixelByteBuffer.get(topPixelIndex + 1) & 0xFF;
+
+        int pixelMiddleLeftIntensityValue = grayscalePixelByteBuffer.get(middlePixelIndex - 1) & 0xFF;
+        int pixelMiddleRightIntensityValue = grayscalePixelByteBuffer.get(middlePixelIndex + 1) & 0xFF;
+
+        int pixelBottomLeftIntensityValue = grayscalePixelByteBuffer.get(bottomPixelIndex - 1) & 0xFF;
+        int pixelBottomCenterIntensityValue = grayscalePixelByteBuffer.get(bottomPixelIndex) & 0xFF;
+        int pixelBottomRightIntensityValue = grayscalePixelByteBuffer.get(bottomPixelIndex + 1) & 0xFF;
+
+        int gradientXValue =
+                pixelTopRightIntensityValue - pixelTopLeftIntensityValue
+                        + 2 * (pixelMiddleRightIntensityValue - pixelMiddleLeftIntensityValue)
+                        + pixelBottomRightIntensityValue - pixelBottomLeftIntensityValue;
+
+        int gradientYValue =
+                pixelTopLeftIntensityValue - pixelBottomLeftIntensityValue
+                        + 2 * (pixelTopCenterIntensityValue - pixelBottomCenterIntensityValue)
+                        + pixelTopRightIntensityValue - pixelBottomRightIntensityValue;
+
+        return Math.abs(gradientXValue) + Math.abs(gradientYValue);
+    }
+
+    /**
+     * Orders the corners clockwise on screen (y grows downwards) by their angle around the
+     * centroid, starting at the corner with the smallest x + y (top-left). Unlike a quadrant
+     * test it never leaves two corners in the same slot when the tag is rotated.
+     * Reads the corners from simplifiedPolygonVertexIndexArray and writes their coordinates.
+     */
+    private void orderQuadrilateralCornersClockwise(
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray,
+            double[] cornerCoordinateArray,
+            int cornerCoordinateOffset
+    ) {
         // 1) Centroide del cuadrilátero
         double sumXPixelCoordinate = 0.0;
         double sumYPixelCoordinate = 0.0;
 
-        for (PixelCoordinate pixelCoordinate : unorderedCornerArray) {
-            sumXPixelCoordinate += pixelCoordinate.xPixeldCoordinate;
-            sumYPixelCoordinate += pixelCoordinate.yPixeldCoordinate;
+        for (int cornerIndex = 0; cornerIndex < QUADRILATERAL_CORNER_COUNT; cornerIndex++) {
+            int hullIndex = simplifiedPolygonVertexIndexArray[cornerIndex];
+            sumXPixelCoordinate += hullXCoordinateArray[hullIndex];
+            sumYPixelCoordinate += hullYCoordinateArray[hullIndex];
         }
 
-        double centerXPixelCoordinate = sumXPixelCoordinate / 4.0;
-        double centerYPixelCoordinate = sumYPixelCoordinate / 4.0;
+        double centerXPixelCoordinate = sumXPixelCoordinate / QUADRILATERAL_CORNER_COUNT;
+        double centerYPixelCoordinate = sumYPixelCoordinate / QUADRILATERAL_CORNER_COUNT;
 
-        PixelCoordinate topLeftCorner = null;
-        PixelCoordinate topRightCorner = null;
-        PixelCoordinate bottomRightCorner = null;
-        PixelCoordinate bottomLeftCorner = null;
+        // 2) Ordenar por angulo alrededor del centro (insercion, solo son 4)
+        for (int cornerIndex = 0; cornerIndex < QUADRILATERAL_CORNER_COUNT; cornerIndex++) {
+            int hullIndex = simplifiedPolygonVertexIndexArray[cornerIndex];
 
-        // 2) Clasificar corners con respecto al centro
-        for (PixelCoordinate pixelCoordinate : unorderedCornerArray) {
+            orderedCornerHullIndexArray[cornerIndex] = hullIndex;
+            cornerAngleArray[cornerIndex] = Math.atan2(
+                    hullYCoordinateArray[hullIndex] - centerYPixelCoordinate,
+                    hullXCoordinateArray[hullIndex] - centerXPixelCoordinate
+            );
+        }
+
+        for (int cornerIndex = 1; cornerIndex < QUADRILATERAL_CORNER_COUNT; cornerIndex++) {
+            int insertedHullIndex = orderedCornerHullIndexArray[cornerIndex];
+            double insertedCornerAngle = cornerAngleArray[cornerIndex];
+
+            int insertIndex = cornerIndex - 1;
+
+            while (insertIndex >= 0 && cornerAngleArray[insertIndex] > insertedCornerAngle) {
+                orderedCornerHullIndexArray[insertIndex + 1] = orderedCornerHullIndexArray[insertIndex];
+                cornerAngleArray[insertIndex + 1] = cornerAngleArray[insertIndex];
+                insertIndex--;
+            }
+
+            orderedCornerHullIndexArray[insertIndex + 1] = insertedHullIndex;
+            cornerAngleArray[insertIndex + 1] = insertedCornerAngle;
+        }
 
-            boolean isLeft =
-                    pixelCoordinate.xPixeldCoordinate < centerXPixelCoordinate;
-            boolean isTop =
-                    pixelCoordinate.yPixeldCoordinate < centerYPixelCoordinate;
+        // 3) Empezar en la esquina superior izquierda (menor x + y)
+        int topLeftCornerIndex = 0;
 
-            if (isLeft && isTop) {
-                topLeftCorner = pixelCoordinate;
-            } else if (!isLeft && isTop) {
-                topRightCorner = pixelCoordinate;
-            } else if (!isLeft && !isTop) {
-                bottomRightCorner = pixelCoordinate;
-            } else {
-                bottomLeftCorner = pixelCoordinate;
+        for (int cornerIndex = 1; cornerIndex < QUADRILATERAL_CORNER_COUNT; cornerIndex++) {
+            int candidateHullIndex = orderedCornerHullIndexArray[cornerIndex];
+            int currentTopLeftHullIndex = orderedCornerHullIndexArray[topLeftCornerIndex];
+
+            if (hullXCoordinateArray[candidateHullIndex] + hullYCoordinateArray[candidateHullIndex]
+                    < hullXCoordinateArray[currentTopLeftHullIndex] + hullYCoordinateArray[currentTopLeftHullIndex]) {
+                topLeftCornerIndex = cornerIndex;
             }
         }
 
-        // 3) Construir array final en orden horario
-        PixelCoordinate[] orderedCornerArray = new PixelCoordinate[4];
-        orderedCornerArray[0] = topLeftCorner;
-        orderedCornerArray[1] = topRightCorner;
-        orderedCornerArray[2] = bottomRightCorner;
-        orderedCornerArray[3] = bottomLeftCorner;
+        for (int cornerIndex = 0; cornerIndex < QUADRILATERAL_CORNER_COUNT; cornerIndex++) {
+            int hullIndex = orderedCornerHullIndexArray[(topLeftCornerIndex + cornerIndex) % QUADRILATERAL_CORNER_COUNT];
 
-        return orderedCornerArray;
+            cornerCoordinateArray[cornerCoordinateOffset + 2 * cornerIndex] = hullXCoordinateArray[hullIndex];
+            cornerCoordinateArray[cornerCoordinateOffset + 2 * cornerIndex + 1] = hullYCoordinateArray[hullIndex];
+        }
     }
 }
@@ -0,0 +1,132 @@
+package org.PhantomCamera.AprilTags;
+
+/**
+ * Limits used by {@link AprilTagEdgeComponentExtractor} to discard components that cannot
+ * be a tag before any of their pixel coordinates are stored.
+ * <p>
+ * Pixel count and bounding box only grow while a component is being built, so the upper
+ * limits can be checked incrementally ({@link #exceedsGrowingLimits}); the lower limits and
+ * the shape ratios are checked once the component is complete ({@link #isAccepted}).
+ */
+public final class EdgeComponentRejectionCriteria {
+
+    /**
+     * Criteria that accept every component.
+     */
+    public static final EdgeComponentRejectionCriteria ACCEPT_ALL_COMPONENTS =
+            new EdgeComponentRejectionCriteria(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, Double.MAX_VALUE, 0.0, 1.0);
+
+    private final int minimumComponentPixelCount;
+    private final int maximumComponentPixelCount;
+
+    /**
+     * Limits on the longer side of the bounding box.
+     */
+    private final int minimumBoundingBoxSideInPixels;
+    private final int maximumBoundingBoxSideInPixels;
+
+    /**
+     * Longer side divided by shorter side, always >= 1. A tag seen at a steep angle
+     * still has a moderate ratio, long thin edges do not.
+     */
+    private final double maximumBoundingBoxAspectRatio;
+
+    /**
+     * Pixel count divided by bounding box area.
+     */
+    private final double minimumFillRatio;
+    private final double maximumFillRatio;
+
+    public EdgeComponentRejectionCriteria(
+            int minimumComponentPixelCount,
+            int maximumComponentPixelCount,
+            int minimumBoundingBoxSideInPixels,
+            int maximumBoundingBoxSideInPixels,
+            double maximumBoundingBoxAspectRatio,
+            double minimumFillRatio,
+            double maximumFillRatio
+    ) {
+        if (minimumComponentPixelCount > maximumComponentPixelCount
+                || minimumBoundingBoxSideInPixels > maximumBoundingBoxSideInPixels
+                || minimumFillRatio > maximumFillRatio
+                || maximumBoundingBoxAspectRatio < 1.0) {
+            throw new IllegalArgumentException(
+                    "Invalid edge component rejection criteria. Expected minimum <= maximum and aspect ratio >= 1 " +
+                            "but received pixel count " + minimumComponentPixelCount + ".." + maximumComponentPixelCount +
+                            ", bounding box side " + minimumBoundingBoxSideInPixels + ".." + maximumBoundingBoxSideInPixels +
+                            ", fill ratio " + minimumFillRatio + ".." + maximumFillRatio +
+                            ", aspect ratio " + maximumBoundingBoxAspectRatio
+            );
+        }
+
+        this.minimumComponentPixelCount = minimumComponentPixelCount;
+        this.maximumComponentPixelCount = maximumComponentPixelCount;
+        this.minimumBoundingBoxSideInPixels = minimumBoundingBoxSideInPixels;
+        this.maximumBoundingBoxSideInPixels = maximumBoundingBoxSideInPixels;
+        this.maximumBoundingBoxAspectRatio = maximumBoundingBoxAspectRatio;
+        this.minimumFillRatio = minimumFillRatio;
+        this.maximumFillRatio = maximumFillRatio;
+    }
+
+    /**
+     * Only pixel count and size limits, no shape limits.
+     */
+    public EdgeComponentRejectionCriteria(
+            int minimumComponentPixelCount,
+            int maximumComponentPixelCount
+    ) {
+        this(minimumComponentPixelCount, maximumComponentPixelCount, 0, Integer.MAX_VALUE, Double.MAX_VALUE, 0.0, 1.0);
+    }
+
+    /**
+     * True when a partially built component already broke a limit that can only get worse
+     * as pixels are added (maximum pixel count or maximum bounding box side).
+     */
+    public boolean exceedsGrowingLimits(
+            int componentPixelCount,
+            int boundingBoxWidthInPixels,
+            int boundingBoxHeightInPixels
+    ) {
+        return componentPixelCount > maximumComponentPixelCount
+                || boundingBoxWidthInPixels > maximumBoundingBoxSideInPixels
+                || boundingBoxHeightInPixels > maximumBoundingBoxSideInPixels;
+    }
+
+    /**
+     * Final decision for a complete component.
+     */
+    public boolean isAccepted(
+            int componentPixelCount,
+            int boundingBoxWidthInPixels,
+            int boundingBoxHeightInPixels
+    ) {
+        if (componentPixelCount < minimumComponentPixelCount
+                || exceedsGrowingLimits(componentPixelCount, boundingBoxWidthInPixels, boundingBoxHeightInPixels)) {
+            return false;
+        }
+
+        int longerSideInPixels = Math.max(boundingBoxWidthInPixels, boundingBoxHeightInPixels);
+        int shorterSideInPixels = Math.min(boundingBoxWidthInPixels, boundingBoxHeightInPixels);
+
+        if (longerSideInPixels < minimumBoundingBoxSideInPixels || shorterSideInPixels <= 0) {
+            return false;
+        }
+
+        if ((double) longerSideInPixels > maximumBoundingBoxAspectRatio * shorterSideInPixels) {
+            return false;
+        }
+
+        double fillRatio = (double) componentPixelCount
+                / ((double) boundingBoxWidthInPixels * (double) boundingBoxHeightInPixels);
+
+        return fillRatio >= minimumFillRatio && fillRatio <= maximumFillRatio;
+    }
+
+    public int getMinimumComponentPixelCount() {
+        return minimumComponentPixelCount;
+    }
+
+    public int getMaximumComponentPixelCount() {
+        return maximumComponentPixelCount;
+    }
+}
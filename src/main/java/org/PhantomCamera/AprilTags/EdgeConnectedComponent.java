@@ -1,40 +1,156 @@
 package org.PhantomCamera.AprilTags;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Connected group of edge pixels with its bounding box.
+ * <p>
+ * Pixel coordinates are stored as primitive x and y arrays (struct of arrays). Components
+ * produced by {@link AprilTagEdgeComponentExtractor} are views over slabs shared by every
+ * component of the frame: this component's pixels are entries
+ * [{@link #getPixelCoordinateOffset()}, offset + {@link #getStoredPixelCoordinateCount()}) of
+ * {@link #getPixelXCoordinateArray()} and {@link #getPixelYCoordinateArray()}.
+ * When the extractor keeps only per-row extremal pixels, fewer coordinates than
+ * {@link #componentPixelCount} are stored; {@link #getStoredPixelCoordinateCount()} gives how many.
+ * The slabs are reused by the extractor, so those views are only valid until its next call.
+ * Components created with {@link #EdgeConnectedComponent(int)} own their arrays instead.
+ */
 public class EdgeConnectedComponent {
 
+    private static final int INITIAL_OWNED_PIXEL_CAPACITY = 16;
+
     public final int componentLabelValue;
 
     public int componentPixelCount;
 
+    /**
+     * Number of coordinates written to the arrays (equal to componentPixelCount unless
+     * only some pixels are retained).
+     */
+    private int storedPixelCoordinateCount;
+
+    /**
+     * True while every stored pixel came after the previous one in raster order
+     * (y ascending, then x ascending). Lets the convex hull skip sorting.
+     */
+    private boolean pixelCoordinatesInRasterOrder;
+
     public int minimumXCoordinate;
     public int maximumXCoordinate;
     public int minimumYCoordinate;
     public int maximumYCoordinate;
 
     /**
-     * List of all pixel coordinates that belong to this connected component.
+     * Pixel coordinates of this component, starting at pixelCoordinateOffset.
      * It is needed for operations such as convex hull computation.
      */
-    public final List<PixelCoordinate> pixelCoordinateList;
+    private int[] pixelXCoordinateArray;
+    private int[] pixelYCoordinateArray;
+    private final int pixelCoordinateOffset;
+
+    /**
+     * True when the arrays belong to this component and can grow, false for slab views.
+     */
+    private final boolean ownsPixelCoordinateArrays;
 
+    /**
+     * Standalone component that owns (and grows) its coordinate arrays.
+     */
     public EdgeConnectedComponent(int componentLabelValue) {
+        this(
+                componentLabelValue,
+                new int[INITIAL_OWNED_PIXEL_CAPACITY],
+                new int[INITIAL_OWNED_PIXEL_CAPACITY],
+                0,
+                true
+        );
+    }
+
+    /**
+     * Component that writes its pixels into shared slabs starting at pixelCoordinateOffset.
+     * The caller reserves enough room for every pixel that will be added.
+     */
+    public EdgeConnectedComponent(
+            int componentLabelValue,
+            int[] pixelXCoordinateSlabArray,
+            int[] pixelYCoordinateSlabArray,
+            int pixelCoordinateOffset
+    ) {
+        this(
+                componentLabelValue,
+                pixelXCoordinateSlabArray,
+                pixelYCoordinateSlabArray,
+                pixelCoordinateOffset,
+                false
+        );
+    }
+
+    private EdgeConnectedComponent(
+            int componentLabelValue,
+            int[] pixelXCoordinateArray,
+            int[] pixelYCoordinateArray,
+            int pixelCoordinateOffset,
+            boolean ownsPixelCoordinateArrays
+    ) {
         this.componentLabelValue = componentLabelValue;
         this.componentPixelCount = 0;
+        this.storedPixelCoordinateCount = 0;
+        this.pixelCoordinatesInRasterOrder = true;
 
         this.minimumXCoordinate = Integer.MAX_VALUE;
         this.maximumXCoordinate = Integer.MIN_VALUE;
         this.minimumYCoordinate = Integer.MAX_VALUE;
         this.maximumYCoordinate = Integer.MIN_VALUE;
 
-        this.pixelCoordinateList = new ArrayList<>();
+        this.pixelXCoordinateArray = pixelXCoordinateArray;
+        this.pixelYCoordinateArray = pixelYCoordinateArray;
+        this.pixelCoordinateOffset = pixelCoordinateOffset;
+        this.ownsPixelCoordinateArrays = ownsPixelCoordinateArrays;
     }
 
     public void updateWithPixel(
             int pixelXCoordinate,
             int pixelYCoordinate
+    ) {
+        storePixelCoordinate(pixelXCoordinate, pixelYCoordinate);
+        updateBoundingBoxWithPixel(pixelXCoordinate, pixelYCoordinate);
+    }
+
+    /**
+     * Adds a pixel that arrives in raster order but keeps only the leftmost and rightmost
+     * pixel of every row: the first pixel of a row is appended, later pixels of the same
+     * row replace the stored rightmost one. Enough for the convex hull of the component.
+     */
+    public void updateWithRowExtremalPixel(
+            int pixelXCoordinate,
+            int pixelYCoordinate
+    ) {
+        int lastStoredIndex = pixelCoordinateOffset + storedPixelCoordinateCount - 1;
+
+        boolean rowAlreadyStarted = storedPixelCoordinateCount > 0
+                && pixelYCoordinateArray[lastStoredIndex] == pixelYCoordinate;
+
+        boolean rowAlreadyHasTwoPixels = rowAlreadyStarted
+                && storedPixelCoordinateCount > 1
+                && pixelYCoordinateArray[lastStoredIndex - 1] == pixelYCoordinate;
+
+        if (rowAlreadyHasTwoPixels) {
+            pixelXCoordinateArray[lastStoredIndex] = pixelXCoordinate;
+        } else {
+            storePixelCoordinate(pixelXCoordinate, pixelYCoordinate);
+        }
+
+        updateBoundingBoxWithPixel(pixelXCoordinate, pixelYCoordinate);
+    }
+
+    /**
+     * Counts the pixel and grows the bounding box without storing its coordinates.
+     */
+    public void updateBoundingBoxWithPixel(
+            int pixelXCoordinate,
+            int pixelYCoordinate
     ) {
         componentPixelCount++;
 
@@ -50,13 +166,117 @@ public class EdgeConnectedComponent {
         if (pixelYCoordinate > maximumYCoordinate) {
             maximumYCoordinate = pixelYCoordinate;
         }
+    }
 
-        pixelCoordinateList.add(
-                new PixelCoordinate(
-                        pixelXCoordinate,
-                        pixelYCoordinate
-                )
-        );
+    /**
+     * Takes over the totals of a slab view whose coordinates the tiled extractor writes straight
+     * into the slabs, in raster order, from several threads.
+     */
+    void setRasterOrderedSlabPixels(
+            int componentPixelCount,
+            int storedPixelCoordinateCount,
+            int minimumXCoordinate,
+            int maximumXCoordinate,
+            int minimumYCoordinate,
+            int maximumYCoordinate
+    ) {
+        this.componentPixelCount = componentPixelCount;
+        this.storedPixelCoordinateCount = storedPixelCoordinateCount;
+        this.pixelCoordinatesInRasterOrder = true;
+
+        this.minimumXCoordinate = minimumXCoordinate;
+        this.maximumXCoordinate = maximumXCoordinate;
+        this.minimumYCoordinate = minimumYCoordinate;
+        this.maximumYCoordinate = maximumYCoordinate;
+    }
+
+    private void storePixelCoordinate(
+            int pixelXCoordinate,
+            int pixelYCoordinate
+    ) {
+        int pixelCoordinateIndex = pixelCoordinateOffset + storedPixelCoordinateCount;
+
+        if (storedPixelCoordinateCount > 0 && pixelCoordinatesInRasterOrder) {
+            int previousPixelYCoordinate = pixelYCoordinateArray[pixelCoordinateIndex - 1];
+
+            pixelCoordinatesInRasterOrder = pixelYCoordinate > previousPixelYCoordinate
+                    || (pixelYCoordinate == previousPixelYCoordinate
+                    && pixelXCoordinate >= pixelXCoordinateArray[pixelCoordinateIndex - 1]);
+        }
+
+        if (ownsPixelCoordinateArrays && pixelCoordinateIndex == pixelXCoordinateArray.length) {
+            pixelXCoordinateArray = Arrays.copyOf(pixelXCoordinateArray, pixelXCoordinateArray.length * 2);
+            pixelYCoordinateArray = Arrays.copyOf(pixelYCoordinateArray, pixelYCoordinateArray.length * 2);
+        }
+
+        pixelXCoordinateArray[pixelCoordinateIndex] = pixelXCoordinate;
+        pixelYCoordinateArray[pixelCoordinateIndex] = pixelYCoordinate;
+
+        storedPixelCoordinateCount++;
+    }
+
+    /**
+     * X coordinate of the stored pixel at position pixelListIndex (0 .. storedPixelCoordinateCount - 1).
+     */
+    public int getPixelXCoordinate(int pixelListIndex) {
+        return pixelXCoordinateArray[pixelCoordinateOffset + pixelListIndex];
+    }
+
+    /**
+     * Y coordinate of the stored pixel at position pixelListIndex (0 .. storedPixelCoordinateCount - 1).
+     */
+    public int getPixelYCoordinate(int pixelListIndex) {
+        return pixelYCoordinateArray[pixelCoordinateOffset + pixelListIndex];
+    }
+
+    /**
+     * Backing x array, shared with other components for slab views. Read from
+     * {@link #getPixelCoordinateOffset()} for {@link #getStoredPixelCoordinateCount()} entries.
+     */
+    public int[] getPixelXCoordinateArray() {
+        return pixelXCoordinateArray;
+    }
+
+    /**
+     * Backing y array, laid out like {@link #getPixelXCoordinateArray()}.
+     */
+    public int[] getPixelYCoordinateArray() {
+        return pixelYCoordinateArray;
+    }
+
+    public int getPixelCoordinateOffset() {
+        return pixelCoordinateOffset;
+    }
+
+    public int getStoredPixelCoordinateCount() {
+        return storedPixelCoordinateCount;
+    }
+
+    /**
+     * True when the stored pixels are in raster order, as they are for every component built by
+     * the union-find labelling. Breadth first search components usually are not.
+     */
+    public boolean arePixelCoordinatesInRasterOrder() {
+        return pixelCoordinatesInRasterOrder;
+    }
+
+    /**
+     * Copies the stored pixels into a new list of {@link PixelCoordinate}. Allocates one object per
+     * pixel, so it is meant for code that still works on lists, not for the per-frame path.
+     */
+    public List<PixelCoordinate> createPixelCoordinateList() {
+        List<PixelCoordinate> pixelCoordinateList = new ArrayList<>(storedPixelCoordinateCount);
+
+        for (int pixelListIndex = 0; pixelListIndex < storedPixelCoordinateCount; pixelListIndex++) {
+            pixelCoordinateList.add(
+                    new PixelCoordinate(
+                            getPixelXCoordinate(pixelListIndex),
+                            getPixelYCoordinate(pixelListIndex)
+                    )
+            );
+        }
+
+        return pixelCoordinateList;
     }
 
     public int getComponentWidthInPixels() {
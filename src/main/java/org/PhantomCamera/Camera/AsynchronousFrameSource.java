@@ -0,0 +1,298 @@
+package org.PhantomCamera.Camera;
+
+import org.PhantomCamera.Stadistics.FlightRecorder.FrameCaptureEvent;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics.PipelineStage;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.opencv.core.Mat;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Wraps another frame source with a dedicated capture thread, so capture
+ * overlaps with processing instead of adding to it.
+ * <p>
+ * The capture thread writes into a {@link LatestFrameRingBuffer} and
+ * {@link #readFrame()} always returns the newest captured frame, skipping any
+ * frame the processing thread was too slow to take. The returned Mat belongs
+ * to the ring and is only valid until the next call to {@link #readFrame()}.
+ * {@link #readFrameBuffer()} returns the same frame as a direct buffer, so the
+ * Java stages can read the captured pixels without any copy.
+ * <p>
+ * Wrapping an unpaced source (synthetic, image directory) makes the capture
+ * thread run flat out and drop most frames; that is expected.
+ */
+public class AsynchronousFrameSource implements FrameSource {
+
+    private final FrameSource capturingFrameSource;
+    private final LatestFrameRingBuffer latestFrameRingBuffer;
+
+    private Thread captureThread;
+    private volatile boolean captureThreadIsRunning = false;
+    private volatile boolean endOfStreamReached = false;
+
+    /**
+     * Thread currently parked in readFrame waiting for a frame, if any.
+     */
+    private volatile Thread waitingConsumerThread;
+
+    private volatile PipelineStageLatencyMetrics pipelineStageLatencyMetrics;
+
+    /**
+     * Set by {@link #release()}; guarded by this. When the capture thread is still inside a
+     * read after the join times out, it releases the wrapped source and the ring itself on exit.
+     */
+    private boolean releaseRequested = false;
+    private boolean captureLoopExited = false;
+    private boolean captureResourcesReleased = false;
+
+    public AsynchronousFrameSource(FrameSource capturingFrameSource) {
+        this.capturingFrameSource = capturingFrameSource;
+        this.latestFrameRingBuffer = new LatestFrameRingBuffer();
+    }
+
+    /**
+     * Starts the capture thread. Called automatically by the first read.
+     */
+    public synchronized void start() {
+        if (captureThread != null || releaseRequested || !capturingFrameSource.isOpened()) {
+            return;
+        }
+
+        captureThreadIsRunning = true;
+
+        captureThread = new Thread(this::runCaptureLoop, "PhantomCamera-capture");
+        captureThread.setDaemon(true);
+        captureThread.start();
+    }
+
+    private void runCaptureLoop() {
+        try {
+            captureFramesUntilStopped();
+        } finally {
+            synchronized (this) {
+                captureLoopExited = true;
+
+                // release() ya volvio sin poder liberar: el source y el ring se liberan aqui
+                if (releaseRequested) {
+                    releaseCaptureResources();
+                }
+            }
+        }
+    }
+
+    private void captureFramesUntilStopped() {
+        // The first frame tells the layout of the ring slots
+        Mat firstFrameMatrix = new Mat();
+
+        if (capturingFrameSource.readFrameIntoMatrix(firstFrameMatrix)) {
+            int frameWidth = firstFrameMatrix.cols();
+            int frameHeight = firstFrameMatrix.rows();
+            int channelCount = firstFrameMatrix.channels();
+
+            latestFrameRingBuffer
+                    .prepareProducerFrameBuffer(frameWidth, frameHeight, channelCount)
+                    .copyFromFrameMatrix(firstFrameMatrix);
+            firstFrameMatrix.release();
+            publishAndWakeConsumer();
+
+            while (captureThreadIsRunning) {
+                DirectFrameBuffer producerFrameBuffer =
+                        latestFrameRingBuffer.prepareProducerFrameBuffer(frameWidth, frameHeight, channelCount);
+                Mat producerFrameMatrix = producerFrameBuffer.getFrameMatrix();
+
+                PipelineStageLatencyMetrics currentStageLatencyMetrics = pipelineStageLatencyMetrics;
+                long captureStartNanoseconds = currentStageLatencyMetrics == null ? 0L : System.nanoTime();
+
+                FrameCaptureEvent frameCaptureEvent = new FrameCaptureEvent();
+                frameCaptureEvent.begin();
+
+                if (!capturingFrameSource.readFrameIntoMatrix(producerFrameMatrix)) {
+                    System.out.println("Capture thread: no more frames from source.");
+                    break;
+                }
+
+                frameCaptureEvent.end();
+                if (frameCaptureEvent.shouldCommit()) {
+                    frameCaptureEvent.frameWidth = producerFrameMatrix.cols();
+                    frameCaptureEvent.frameHeight = producerFrameMatrix.rows();
+                    frameCaptureEvent.capturedFrameCount = latestFrameRingBuffer.getPublishedFrameCount() + 1;
+                    frameCaptureEvent.commit();
+                }
+
+                // Incluye la espera del driver por el siguiente frame, no solo la copia
+                if (currentStageLatencyMetrics != null) {
+                    currentStageLatencyMetrics.recordStageLatency(
+                            PipelineStage.CAPTURE,
+                            System.nanoTime() - captureStartNanoseconds
+                    );
+                }
+
+                if (producerFrameBuffer.hasFrameMatrixBeenReallocated()) {
+                    // The source changed resolution: move the frame into a buffer of the new size
+                    frameWidth = producerFrameMatrix.cols();
+                    frameHeight = producerFrameMatrix.rows();
+                    channelCount = producerFrameMatrix.channels();
+
+                    DirectFrameBuffer resizedFrameBuffer =
+                            new DirectFrameBuffer(frameWidth, frameHeight, channelCount);
+                    resizedFrameBuffer.copyFromFrameMatrix(producerFrameMatrix);
+                    latestFrameRingBuffer.replaceProducerFrameBuffer(resizedFrameBuffer);
+                }
+
+                publishAndWakeConsumer();
+            }
+        } else {
+            System.out.println("Capture thread: could not read the first frame from source.");
+        }
+
+        endOfStreamReached = true;
+
+        Thread consumerThread = waitingConsumerThread;
+        if (consumerThread != null) {
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    private void publishAndWakeConsumer() {
+        latestFrameRingBuffer.publishProducerFrame();
+
+        Thread consumerThread = waitingConsumerThread;
+        if (consumerThread != null) {
+            LockSupport.unpark(consumerThread);
+        }
+    }
+
+    @Override
+    public boolean isOpened() {
+        return capturingFrameSource.isOpened() && !endOfStreamReached;
+    }
+
+    /**
+     * Blocks until a frame newer than the previously returned one is available.
+     *
+     * @return the newest frame (owned by the ring), or null when the source ended
+     */
+    @Override
+    public Mat readFrame() {
+        DirectFrameBuffer latestFrameBuffer = readFrameBuffer();
+        return latestFrameBuffer == null ? null : latestFrameBuffer.getFrameMatrix();
+    }
+
+    /**
+     * Same as {@link #readFrame()} but returns the ring slot itself, so the pixels
+     * can be handed to the Java stages in place.
+     *
+     * @return the newest frame (owned by the ring), or null when the source ended
+     */
+    public DirectFrameBuffer readFrameBuffer() {
+        if (captureThread == null) {
+            start();
+        }
+
+        while (true) {
+            DirectFrameBuffer latestFrameBuffer = latestFrameRingBuffer.acquireLatestFrameBuffer();
+            if (latestFrameBuffer != null) {
+                return latestFrameBuffer;
+            }
+
+            if (endOfStreamReached || !captureThreadIsRunning) {
+                return null;
+            }
+
+            waitingConsumerThread = Thread.currentThread();
+            if (!latestFrameRingBuffer.hasFreshFrame() && !endOfStreamReached) {
+                LockSupport.parkNanos(this, 50_000_000L);
+            }
+            waitingConsumerThread = null;
+
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public boolean readFrameIntoMatrix(Mat destinationFrameMatrix) {
+        Mat latestFrameMatrix = readFrame();
+        if (latestFrameMatrix == null) {
+            return false;
+        }
+        latestFrameMatrix.copyTo(destinationFrameMatrix);
+        return true;
+    }
+
+    /**
+     * Records the time of every read from the wrapped source, or stops measuring when null.
+     */
+    public void setPipelineStageLatencyMetrics(PipelineStageLatencyMetrics pipelineStageLatencyMetrics) {
+        this.pipelineStageLatencyMetrics = pipelineStageLatencyMetrics;
+    }
+
+    /**
+     * @return frames written by the capture thread so far
+     */
+    public long getCapturedFrameCount() {
+        return latestFrameRingBuffer.getPublishedFrameCount();
+    }
+
+    /**
+     * @return frames overwritten by a newer frame before the processing thread read them
+     */
+    public long getDroppedFrameCount() {
+        return latestFrameRingBuffer.getDroppedFrameCount();
+    }
+
+    /**
+     * @return frames handed to the processing thread so far
+     */
+    public long getDeliveredFrameCount() {
+        return latestFrameRingBuffer.getAcquiredFrameCount();
+    }
+
+    /**
+     * Stops the capture thread and releases the wrapped source and the ring. If the capture
+     * thread is still blocked in a read after waiting for it, the release is left to the capture
+     * thread, so the VideoCapture and the ring Mats are never freed while it uses them.
+     */
+    @Override
+    public void release() {
+        captureThreadIsRunning = false;
+
+        Thread stoppingCaptureThread;
+        synchronized (this) {
+            stoppingCaptureThread = captureThread;
+        }
+
+        if (stoppingCaptureThread != null) {
+            try {
+                stoppingCaptureThread.join(1000);
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this) {
+            releaseRequested = true;
+
+            if (captureThread == null || captureLoopExited) {
+                releaseCaptureResources();
+            } else {
+                System.out.println("Capture thread still reading after 1 s: it will release the source on exit.");
+            }
+        }
+    }
+
+    /**
+     * Called with the lock held, either by release() or by the capture thread on exit.
+     */
+    private void releaseCaptureResources() {
+        if (captureResourcesReleased) {
+            return;
+        }
+
+        captureResourcesReleased = true;
+        capturingFrameSource.release();
+        latestFrameRingBuffer.release();
+    }
+}
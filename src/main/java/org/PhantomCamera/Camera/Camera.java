@@ -3,11 +3,15 @@ package org.PhantomCamera.Camera;
 import org.opencv.core.Mat;
 import org.opencv.videoio.VideoCapture;
 
-public class Camera {
+public class Camera implements FrameSource {
 
     private VideoCapture camera;
 
     public Camera() {
+        this(0);
+    }
+
+    public Camera(int cameraDeviceIndex) {
         try {
             OpenCVLoader.load();  // carga única
         } catch (UnsatisfiedLinkError e) {
@@ -16,17 +20,19 @@ public class Camera {
             return;
         }
 
-        camera = new VideoCapture(0);
+        camera = new VideoCapture(cameraDeviceIndex);
         if (!camera.isOpened()) {
             System.out.println("No se pudo abrir la cámara");
             camera = null;
         }
     }
 
+    @Override
     public boolean isOpened() {
         return camera != null && camera.isOpened();
     }
 
+    @Override
     public Mat readFrame() {
         if (!isOpened()) return null;
         Mat frame = new Mat();
@@ -34,6 +40,13 @@ public class Camera {
         return frame;
     }
 
+    @Override
+    public boolean readFrameIntoMatrix(Mat destinationFrameMatrix) {
+        if (!isOpened()) return false;
+        return camera.read(destinationFrameMatrix) && !destinationFrameMatrix.empty();
+    }
+
+    @Override
     public void release() {
         if (camera != null) camera.release();
     }
@@ -1,6 +1,9 @@
 package org.PhantomCamera.Camera;
 
 import org.PhantomCamera.Camera.Filters.FilterMode;
+import org.PhantomCamera.Stadistics.FlightRecorder.FrameRenderEvent;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics.PipelineStage;
 import org.opencv.core.Mat;
 import org.opencv.core.Point;
 import org.opencv.core.Scalar;
@@ -18,7 +21,7 @@ import java.awt.image.DataBufferByte;
 
 public class CameraView {
 
-    private final Camera cameraInstance;
+    private final FrameSource cameraInstance;
     private JFrame windowFrame;
     private JLabel imageDisplayLabel;
     private boolean cameraViewIsRunning = false;
@@ -29,8 +32,22 @@ public class CameraView {
     private int renderedFrameCountSinceLastFpsUpdate = 0;
     private double currentFramesPerSecondValue = 0.0;
 
-    public CameraView(Camera cameraInstance) {
+    /**
+     * Optional: render time is recorded here and the report is printed from the view loop.
+     */
+    private final PipelineStageLatencyMetrics pipelineStageLatencyMetrics;
+
+    public CameraView(FrameSource cameraInstance) {
+        this(cameraInstance, null);
+    }
+
+    /**
+     * @param pipelineStageLatencyMetrics receives the render time of every frame and is asked to
+     *                                    print its report once per frame; null disables both
+     */
+    public CameraView(FrameSource cameraInstance, PipelineStageLatencyMetrics pipelineStageLatencyMetrics) {
         this.cameraInstance = cameraInstance;
+        this.pipelineStageLatencyMetrics = pipelineStageLatencyMetrics;
         createApplicationWindowFrame();
     }
 
@@ -91,6 +108,11 @@ public class CameraView {
 
                 updateFramesPerSecondMeasurement();
 
+                long renderStartNanoseconds = System.nanoTime();
+
+                FrameRenderEvent frameRenderEvent = new FrameRenderEvent();
+                frameRenderEvent.begin();
+
                 Mat displayFrame = Filters.applyFilterByMode(cameraFrame, currentFilterMode);
 
                 drawFramesPerSecondInformation(displayFrame);
@@ -102,6 +124,22 @@ public class CameraView {
                     imageDisplayLabel.repaint();
                 }
 
+                frameRenderEvent.end();
+                if (frameRenderEvent.shouldCommit()) {
+                    frameRenderEvent.filterMode = currentFilterMode.name();
+                    frameRenderEvent.frameWidth = displayFrame.cols();
+                    frameRenderEvent.frameHeight = displayFrame.rows();
+                    frameRenderEvent.commit();
+                }
+
+                if (pipelineStageLatencyMetrics != null) {
+                    pipelineStageLatencyMetrics.recordStageLatency(
+                            PipelineStage.RENDER,
+                            System.nanoTime() - renderStartNanoseconds
+                    );
+                    pipelineStageLatencyMetrics.printPercentileReportIfDue(System.out);
+                }
+
                 try {
                     Thread.sleep(10);
                 } catch (InterruptedException interruptedException) {
@@ -138,6 +176,13 @@ public class CameraView {
                         currentFramesPerSecondValue,
                         currentFilterMode.name());
 
+        if (cameraInstance instanceof AsynchronousFrameSource) {
+            AsynchronousFrameSource asynchronousFrameSource = (AsynchronousFrameSource) cameraInstance;
+            framesPerSecondInformationText += String.format("  |  Dropped: %d/%d",
+                    asynchronousFrameSource.getDroppedFrameCount(),
+                    asynchronousFrameSource.getCapturedFrameCount());
+        }
+
         Point textOriginPosition = new Point(10, 30);
 
         Scalar textColorScalar = new Scalar(0, 255, 0);
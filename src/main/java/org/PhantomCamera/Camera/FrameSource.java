@@ -0,0 +1,48 @@
+package org.PhantomCamera.Camera;
+
+import org.opencv.core.Mat;
+
+/**
+ * Source of BGR color frames (CV_8UC3) for the processing pipelines.
+ * Implementations can be backed by a physical camera, a video file,
+ * a directory of still images or procedurally generated frames, so the
+ * AprilTag pipeline can run without a webcam attached.
+ */
+public interface FrameSource {
+
+    /**
+     * @return true if the source is ready to deliver frames
+     */
+    boolean isOpened();
+
+    /**
+     * Reads the next frame from the source. The returned Mat may be reused by
+     * the source on the next call, so callers that need to keep a frame must
+     * clone it.
+     *
+     * @return the next BGR frame, or null if no more frames are available
+     */
+    Mat readFrame();
+
+    /**
+     * Reads the next frame into a caller-owned Mat, reusing its memory when the
+     * size and type already match. Sources that can decode straight into the
+     * destination override this to avoid the intermediate copy.
+     *
+     * @param destinationFrameMatrix Mat that receives the frame
+     * @return true if a frame was read, false if no more frames are available
+     */
+    default boolean readFrameIntoMatrix(Mat destinationFrameMatrix) {
+        Mat frameMatrix = readFrame();
+        if (frameMatrix == null || frameMatrix.empty()) {
+            return false;
+        }
+        frameMatrix.copyTo(destinationFrameMatrix);
+        return true;
+    }
+
+    /**
+     * Releases any native resource held by the source.
+     */
+    void release();
+}
@@ -0,0 +1,72 @@
+package org.PhantomCamera.Camera;
+
+/**
+ * Creates frame sources from short text descriptions, so pipelines and test
+ * programs can be pointed at a camera, a video, an image directory or the
+ * synthetic generator from the command line:
+ * <ul>
+ *     <li>{@code camera:0} - camera device index</li>
+ *     <li>{@code video:/path/to/file.mp4} - video file, looped</li>
+ *     <li>{@code images:/path/to/directory} - image directory, looped</li>
+ *     <li>{@code synthetic:1280x720} - procedurally generated frames</li>
+ * </ul>
+ */
+public final class FrameSourceFactory {
+
+    public static final String defaultFrameSourceDescription = "camera:0";
+
+    private FrameSourceFactory() {}
+
+    /**
+     * Creates a frame source from the first command line argument, or from the
+     * default camera when no argument is given.
+     */
+    public static FrameSource createFrameSourceFromArguments(String[] commandLineArguments) {
+        if (commandLineArguments == null || commandLineArguments.length == 0) {
+            return createFrameSource(defaultFrameSourceDescription);
+        }
+        return createFrameSource(commandLineArguments[0]);
+    }
+
+    public static FrameSource createFrameSource(String frameSourceDescription) {
+        int separatorIndex = frameSourceDescription.indexOf(':');
+        if (separatorIndex < 0) {
+            throw new IllegalArgumentException(
+                    "Frame source description must be <type>:<value> but found " + frameSourceDescription
+            );
+        }
+
+        String frameSourceType = frameSourceDescription.substring(0, separatorIndex);
+        String frameSourceValue = frameSourceDescription.substring(separatorIndex + 1);
+
+        switch (frameSourceType) {
+            case "camera":
+                return new Camera(Integer.parseInt(frameSourceValue));
+            case "video":
+                return new VideoFileFrameSource(frameSourceValue, true);
+            case "images":
+                return new ImageDirectoryFrameSource(frameSourceValue, true);
+            case "synthetic":
+                return createSyntheticFrameSource(frameSourceValue);
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown frame source type: " + frameSourceType
+                                + " (expected camera, video, images or synthetic)"
+                );
+        }
+    }
+
+    private static FrameSource createSyntheticFrameSource(String frameSizeDescription) {
+        int sizeSeparatorIndex = frameSizeDescription.indexOf('x');
+        if (sizeSeparatorIndex < 0) {
+            throw new IllegalArgumentException(
+                    "Synthetic frame size must be <width>x<height> but found " + frameSizeDescription
+            );
+        }
+
+        int frameWidth = Integer.parseInt(frameSizeDescription.substring(0, sizeSeparatorIndex));
+        int frameHeight = Integer.parseInt(frameSizeDescription.substring(sizeSeparatorIndex + 1));
+
+        return new SyntheticFrameSource(frameWidth, frameHeight);
+    }
+}
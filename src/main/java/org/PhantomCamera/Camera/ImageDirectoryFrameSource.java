@@ -0,0 +1,123 @@
+package org.PhantomCamera.Camera;
+
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Frame source that replays the images of a directory in file name order.
+ * All images are decoded once when the source is opened, so reading a frame
+ * only costs a memory copy and the pipeline is not limited by image decoding.
+ */
+public class ImageDirectoryFrameSource implements FrameSource {
+
+    private static final String[] supportedImageFileExtensionArray = {
+            ".png", ".jpg", ".jpeg", ".bmp", ".tif", ".tiff"
+    };
+
+    private final boolean loopPlaybackEnabled;
+
+    /**
+     * Decoded BGR frames, in file name order.
+     */
+    private final List<Mat> decodedFrameMatrixList;
+
+    /**
+     * Reusable output frame so callers cannot modify the decoded frames.
+     */
+    private final Mat currentFrameMatrix;
+
+    private int nextFrameIndex = 0;
+
+    public ImageDirectoryFrameSource(String imageDirectoryPath, boolean loopPlaybackEnabled) {
+        OpenCVLoader.load();
+
+        this.loopPlaybackEnabled = loopPlaybackEnabled;
+        this.decodedFrameMatrixList = new ArrayList<>();
+        this.currentFrameMatrix = new Mat();
+
+        File imageDirectory = new File(imageDirectoryPath);
+        File[] imageFileArray = imageDirectory.listFiles(
+                (directory, fileName) -> hasSupportedImageFileExtension(fileName)
+        );
+
+        if (imageFileArray == null) {
+            System.out.println("Could not list image directory: " + imageDirectoryPath);
+            return;
+        }
+
+        Arrays.sort(imageFileArray);
+
+        for (File imageFile : imageFileArray) {
+            Mat decodedFrameMatrix = Imgcodecs.imread(imageFile.getAbsolutePath(), Imgcodecs.IMREAD_COLOR);
+
+            if (decodedFrameMatrix.empty()) {
+                System.out.println("Could not decode image, skipping: " + imageFile.getName());
+                continue;
+            }
+
+            decodedFrameMatrixList.add(decodedFrameMatrix);
+        }
+
+        if (decodedFrameMatrixList.isEmpty()) {
+            System.out.println("No images found in directory: " + imageDirectoryPath);
+        }
+    }
+
+    private static boolean hasSupportedImageFileExtension(String fileName) {
+        String lowerCaseFileName = fileName.toLowerCase(Locale.ROOT);
+        for (String supportedImageFileExtension : supportedImageFileExtensionArray) {
+            if (lowerCaseFileName.endsWith(supportedImageFileExtension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isOpened() {
+        return !decodedFrameMatrixList.isEmpty();
+    }
+
+    @Override
+    public Mat readFrame() {
+        return readFrameIntoMatrix(currentFrameMatrix) ? currentFrameMatrix : null;
+    }
+
+    @Override
+    public boolean readFrameIntoMatrix(Mat destinationFrameMatrix) {
+        if (!isOpened()) {
+            return false;
+        }
+
+        if (nextFrameIndex >= decodedFrameMatrixList.size()) {
+            if (!loopPlaybackEnabled) {
+                return false;
+            }
+            nextFrameIndex = 0;
+        }
+
+        decodedFrameMatrixList.get(nextFrameIndex).copyTo(destinationFrameMatrix);
+        nextFrameIndex++;
+
+        return true;
+    }
+
+    public int getFrameCount() {
+        return decodedFrameMatrixList.size();
+    }
+
+    @Override
+    public void release() {
+        for (Mat decodedFrameMatrix : decodedFrameMatrixList) {
+            decodedFrameMatrix.release();
+        }
+        decodedFrameMatrixList.clear();
+        currentFrameMatrix.release();
+    }
+}
@@ -0,0 +1,150 @@
+package org.PhantomCamera.Camera;
+
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer / single-consumer ring of three preallocated
+ * frame buffers with "latest wins" semantics (triple buffering).
+ * <p>
+ * At any time one slot is owned by the producer (being written), one by the
+ * consumer (being processed) and one holds the most recently published frame.
+ * Publishing swaps the producer slot with the published slot, and acquiring
+ * swaps the consumer slot with it, so neither side ever waits for the other
+ * and the consumer always gets the newest frame. A published frame that is
+ * replaced before the consumer acquires it is counted as dropped.
+ * <p>
+ * Slots are {@link DirectFrameBuffer}s, so the capture writes straight into
+ * memory the Java stages can read in place.
+ */
+public class LatestFrameRingBuffer {
+
+    private static final int slotCount = 3;
+
+    /**
+     * Bit set in the published state when the published slot holds a frame
+     * the consumer has not acquired yet.
+     */
+    private static final int freshFrameFlag = 1 << 8;
+    private static final int slotIndexMask = 0xFF;
+
+    private final DirectFrameBuffer[] slotFrameBufferArray;
+
+    /**
+     * Index of the published slot, plus freshFrameFlag when it was not consumed yet.
+     */
+    private final AtomicInteger publishedSlotState;
+
+    /**
+     * Slot owned by the producer thread. Only touched by the producer.
+     */
+    private int producerSlotIndex;
+
+    /**
+     * Slot owned by the consumer thread. Only touched by the consumer.
+     */
+    private int consumerSlotIndex;
+
+    private final AtomicLong publishedFrameCount = new AtomicLong();
+    private final AtomicLong droppedFrameCount = new AtomicLong();
+    private final AtomicLong acquiredFrameCount = new AtomicLong();
+
+    public LatestFrameRingBuffer() {
+        slotFrameBufferArray = new DirectFrameBuffer[slotCount];
+
+        producerSlotIndex = 0;
+        publishedSlotState = new AtomicInteger(1);
+        consumerSlotIndex = 2;
+    }
+
+    /**
+     * Producer side: frame buffer to write the next frame into. It is allocated on
+     * first use and reused across frames as long as the frame layout does not change.
+     */
+    public DirectFrameBuffer prepareProducerFrameBuffer(int frameWidth, int frameHeight, int channelCount) {
+        DirectFrameBuffer producerFrameBuffer = slotFrameBufferArray[producerSlotIndex];
+
+        if (producerFrameBuffer == null
+                || !producerFrameBuffer.hasSameLayout(frameWidth, frameHeight, channelCount)) {
+            replaceProducerFrameBuffer(new DirectFrameBuffer(frameWidth, frameHeight, channelCount));
+        }
+
+        return slotFrameBufferArray[producerSlotIndex];
+    }
+
+    /**
+     * Producer side: installs a new buffer in the producer slot, for example after
+     * the frame size changed, and releases the previous one.
+     */
+    public void replaceProducerFrameBuffer(DirectFrameBuffer replacementFrameBuffer) {
+        DirectFrameBuffer previousFrameBuffer = slotFrameBufferArray[producerSlotIndex];
+        slotFrameBufferArray[producerSlotIndex] = replacementFrameBuffer;
+
+        if (previousFrameBuffer != null) {
+            previousFrameBuffer.release();
+        }
+    }
+
+    /**
+     * Producer side: publishes the frame written into the producer Mat and takes
+     * ownership of the previously published slot for the next frame.
+     */
+    public void publishProducerFrame() {
+        int previousPublishedSlotState =
+                publishedSlotState.getAndSet(producerSlotIndex | freshFrameFlag);
+
+        if ((previousPublishedSlotState & freshFrameFlag) != 0) {
+            droppedFrameCount.incrementAndGet();
+        }
+
+        producerSlotIndex = previousPublishedSlotState & slotIndexMask;
+        publishedFrameCount.incrementAndGet();
+    }
+
+    /**
+     * @return true if a frame was published since the last acquisition
+     */
+    public boolean hasFreshFrame() {
+        return (publishedSlotState.get() & freshFrameFlag) != 0;
+    }
+
+    /**
+     * Consumer side: takes the newest published frame. The returned buffer stays
+     * valid until the next call, after which the producer may overwrite it.
+     *
+     * @return the newest frame, or null if no frame was published since the last call
+     */
+    public DirectFrameBuffer acquireLatestFrameBuffer() {
+        if (!hasFreshFrame()) {
+            return null;
+        }
+
+        int previousPublishedSlotState = publishedSlotState.getAndSet(consumerSlotIndex);
+        consumerSlotIndex = previousPublishedSlotState & slotIndexMask;
+        acquiredFrameCount.incrementAndGet();
+
+        return slotFrameBufferArray[consumerSlotIndex];
+    }
+
+    public long getPublishedFrameCount() {
+        return publishedFrameCount.get();
+    }
+
+    public long getDroppedFrameCount() {
+        return droppedFrameCount.get();
+    }
+
+    public long getAcquiredFrameCount() {
+        return acquiredFrameCount.get();
+    }
+
+    public void release() {
+        for (DirectFrameBuffer slotFrameBuffer : slotFrameBufferArray) {
+            if (slotFrameBuffer != null) {
+                slotFrameBuffer.release();
+            }
+        }
+    }
+}
@@ -2,6 +2,8 @@ package org.PhantomCamera.Camera.StadisticsCamera;
 
 import org.PhantomCamera.AprilTags.AprilTagFramePreProcessing;
 import org.PhantomCamera.Camera.Camera;
+import org.PhantomCamera.Camera.FrameSource;
+import org.PhantomCamera.Camera.FrameSourceFactory;
 import org.PhantomCamera.Stadistics.GrayScaleStatistics;
 import org.PhantomCamera.Stadistics.GrayScaleStatistics.GrayscaleFrameStatistics;
 import org.opencv.core.Mat;
@@ -15,7 +17,7 @@ import java.awt.image.DataBufferByte;
 
 public class CameraGrayscaleStatisticsWindow {
 
-    private final Camera cameraInstance;
+    private final FrameSource cameraInstance;
     private final AprilTagFramePreProcessing aprilTagFramePreProcessing;
 
     private final JFrame windowFrame;
@@ -24,7 +26,11 @@ public class CameraGrayscaleStatisticsWindow {
     private volatile boolean cameraViewIsRunning = false;
 
     public CameraGrayscaleStatisticsWindow() {
-        cameraInstance = new Camera();
+        this(new Camera());
+    }
+
+    public CameraGrayscaleStatisticsWindow(FrameSource frameSource) {
+        cameraInstance = frameSource;
         if (!cameraInstance.isOpened()) {
             System.out.println("Camera could not be opened.");
             throw new IllegalStateException("Camera could not be opened.");
@@ -75,16 +81,12 @@ public class CameraGrayscaleStatisticsWindow {
 
                 int frameWidthInPixels = grayscaleFrameMatrix.cols();
                 int frameHeightInPixels = grayscaleFrameMatrix.rows();
-                int totalPixelCount = frameWidthInPixels * frameHeightInPixels;
-
-                byte[] grayscaleFrameByteArray = new byte[totalPixelCount];
-                grayscaleFrameMatrix.get(0, 0, grayscaleFrameByteArray);
 
                 GrayscaleFrameStatistics grayscaleFrameStatistics =
                         GrayScaleStatistics.calculateGrayscaleFrameStatistics(
                                 frameWidthInPixels,
                                 frameHeightInPixels,
-                                grayscaleFrameByteArray
+                                aprilTagFramePreProcessing.getGrayscaleFrameBuffer().getPixelByteBuffer()
                         );
 
                 System.out.printf(
@@ -148,7 +150,7 @@ public class CameraGrayscaleStatisticsWindow {
     public static void main(String[] args) {
         try {
             CameraGrayscaleStatisticsWindow cameraGrayscaleStatisticsWindow =
-                    new CameraGrayscaleStatisticsWindow();
+                    new CameraGrayscaleStatisticsWindow(FrameSourceFactory.createFrameSourceFromArguments(args));
             cameraGrayscaleStatisticsWindow.start();
         } catch (Throwable throwable) {
             System.out.println("Unexpected error in CameraGrayscaleStatisticsWindow:");
@@ -0,0 +1,251 @@
+package org.PhantomCamera.Camera;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.util.Random;
+
+/**
+ * Frame source that procedurally generates BGR frames containing moving and
+ * rotating tag-like squares (white quiet zone, black border and a random 6x6
+ * bit grid) over a gradient background with optional pixel noise.
+ * Frames are generated on demand and never paced, so the pipeline runs at
+ * full speed on machines without a camera.
+ */
+public class SyntheticFrameSource implements FrameSource {
+
+    /**
+     * Number of cells along one side of a synthetic tag
+     * (1 white + 1 black + 6 data + 1 black + 1 white).
+     */
+    private static final int tagCellCountPerSide = 10;
+
+    private static final class SyntheticTag {
+        final boolean[] dataCellIsWhiteArray = new boolean[36];
+        int sideLengthInPixels;
+        double horizontalAngularSpeed;
+        double verticalAngularSpeed;
+        double rotationAngularSpeed;
+        double phaseOffset;
+    }
+
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int backgroundNoiseAmplitude;
+
+    private final SyntheticTag[] syntheticTagArray;
+
+    /**
+     * Reusable BGR byte array and output Mat, overwritten on every read.
+     */
+    private final byte[] frameBgrByteArray;
+    private Mat currentFrameMatrix;
+
+    private int nextFrameIndex = 0;
+
+    public SyntheticFrameSource(int frameWidth, int frameHeight) {
+        this(frameWidth, frameHeight, 4, 0, 1234L);
+    }
+
+    /**
+     * @param frameWidth               frame width in pixels
+     * @param frameHeight              frame height in pixels
+     * @param syntheticTagCount        number of tag-like squares drawn per frame
+     * @param backgroundNoiseAmplitude per-pixel noise amplitude (0 disables noise); higher values produce denser edge maps
+     * @param randomSeed               seed used to generate the tag patterns and trajectories
+     */
+    public SyntheticFrameSource(
+            int frameWidth,
+            int frameHeight,
+            int syntheticTagCount,
+            int backgroundNoiseAmplitude,
+            long randomSeed
+    ) {
+        if (frameWidth < 1 || frameHeight < 1) {
+            throw new IllegalArgumentException(
+                    "Synthetic frame size must be positive but found " + frameWidth + "x" + frameHeight
+            );
+        }
+
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.backgroundNoiseAmplitude = backgroundNoiseAmplitude;
+        this.frameBgrByteArray = new byte[frameWidth * frameHeight * 3];
+
+        Random random = new Random(randomSeed);
+        int minimumFrameSideLength = Math.min(frameWidth, frameHeight);
+
+        this.syntheticTagArray = new SyntheticTag[syntheticTagCount];
+        for (int tagIndex = 0; tagIndex < syntheticTagCount; tagIndex++) {
+            SyntheticTag syntheticTag = new SyntheticTag();
+
+            for (int cellIndex = 0; cellIndex < syntheticTag.dataCellIsWhiteArray.length; cellIndex++) {
+                syntheticTag.dataCellIsWhiteArray[cellIndex] = random.nextBoolean();
+            }
+
+            syntheticTag.sideLengthInPixels =
+                    Math.max(tagCellCountPerSide, (int) (minimumFrameSideLength * (0.15 + 0.15 * random.nextDouble())));
+            syntheticTag.horizontalAngularSpeed = 0.010 + 0.020 * random.nextDouble();
+            syntheticTag.verticalAngularSpeed = 0.010 + 0.020 * random.nextDouble();
+            syntheticTag.rotationAngularSpeed = 0.005 + 0.020 * random.nextDouble();
+            syntheticTag.phaseOffset = 2.0 * Math.PI * random.nextDouble();
+
+            syntheticTagArray[tagIndex] = syntheticTag;
+        }
+    }
+
+    @Override
+    public boolean isOpened() {
+        return true;
+    }
+
+    @Override
+    public Mat readFrame() {
+        if (currentFrameMatrix == null) {
+            OpenCVLoader.load();
+            currentFrameMatrix = new Mat(frameHeight, frameWidth, CvType.CV_8UC3);
+        }
+
+        readFrameIntoMatrix(currentFrameMatrix);
+        return currentFrameMatrix;
+    }
+
+    @Override
+    public boolean readFrameIntoMatrix(Mat destinationFrameMatrix) {
+        destinationFrameMatrix.create(frameHeight, frameWidth, CvType.CV_8UC3);
+
+        renderFrameIntoBgrByteArray(nextFrameIndex, frameBgrByteArray);
+        nextFrameIndex++;
+
+        destinationFrameMatrix.put(0, 0, frameBgrByteArray);
+        return true;
+    }
+
+    /**
+     * Renders the given frame of the synthetic sequence into a BGR byte array.
+     * Does not touch OpenCV, so it can be used to feed the byte array stages directly.
+     *
+     * @param frameIndex        index of the frame in the sequence (drives the tag motion)
+     * @param outputBgrByteArray destination array of at least width * height * 3 bytes
+     */
+    public void renderFrameIntoBgrByteArray(int frameIndex, byte[] outputBgrByteArray) {
+        int totalColorByteCount = frameWidth * frameHeight * 3;
+
+        if (outputBgrByteArray.length < totalColorByteCount) {
+            throw new IllegalArgumentException(
+                    "Output BGR buffer is too small. Expect at least " + totalColorByteCount
+                            + " bytes but found " + outputBgrByteArray.length
+            );
+        }
+
+        renderBackground(frameIndex, outputBgrByteArray);
+
+        for (SyntheticTag syntheticTag : syntheticTagArray) {
+            renderSyntheticTag(syntheticTag, frameIndex, outputBgrByteArray);
+        }
+    }
+
+    private void renderBackground(int frameIndex, byte[] outputBgrByteArray) {
+        for (int pixelYPosition = 0; pixelYPosition < frameHeight; pixelYPosition++) {
+            int rowStartIndex = pixelYPosition * frameWidth;
+
+            for (int pixelXPosition = 0; pixelXPosition < frameWidth; pixelXPosition++) {
+                int pixelIndex = rowStartIndex + pixelXPosition;
+
+                int intensityValue = 80 + (96 * pixelXPosition) / frameWidth + (48 * pixelYPosition) / frameHeight;
+
+                if (backgroundNoiseAmplitude > 0) {
+                    int hashValue = (pixelIndex + frameIndex * 0x9E3779B1) * 0x85EBCA6B;
+                    hashValue ^= hashValue >>> 13;
+                    intensityValue += ((hashValue & 0xFF) * backgroundNoiseAmplitude >> 8) - (backgroundNoiseAmplitude >> 1);
+                }
+
+                intensityValue = Math.max(0, Math.min(255, intensityValue));
+
+                int colorChannelBaseIndex = pixelIndex * 3;
+                outputBgrByteArray[colorChannelBaseIndex] = (byte) intensityValue;
+                outputBgrByteArray[colorChannelBaseIndex + 1] = (byte) intensityValue;
+                outputBgrByteArray[colorChannelBaseIndex + 2] = (byte) intensityValue;
+            }
+        }
+    }
+
+    private void renderSyntheticTag(SyntheticTag syntheticTag, int frameIndex, byte[] outputBgrByteArray) {
+        double halfSideLength = syntheticTag.sideLengthInPixels / 2.0;
+        double boundingRadius = halfSideLength * Math.sqrt(2.0);
+
+        double horizontalTravel = Math.max(0.0, frameWidth / 2.0 - boundingRadius);
+        double verticalTravel = Math.max(0.0, frameHeight / 2.0 - boundingRadius);
+
+        double centerXPosition = frameWidth / 2.0
+                + horizontalTravel * Math.sin(syntheticTag.horizontalAngularSpeed * frameIndex + syntheticTag.phaseOffset);
+        double centerYPosition = frameHeight / 2.0
+                + verticalTravel * Math.cos(syntheticTag.verticalAngularSpeed * frameIndex + syntheticTag.phaseOffset);
+        double rotationAngle = syntheticTag.rotationAngularSpeed * frameIndex + syntheticTag.phaseOffset;
+
+        double cosineValue = Math.cos(rotationAngle);
+        double sineValue = Math.sin(rotationAngle);
+        double cellsPerPixel = tagCellCountPerSide / (double) syntheticTag.sideLengthInPixels;
+
+        int minimumXPosition = Math.max(0, (int) Math.floor(centerXPosition - boundingRadius));
+        int maximumXPosition = Math.min(frameWidth - 1, (int) Math.ceil(centerXPosition + boundingRadius));
+        int minimumYPosition = Math.max(0, (int) Math.floor(centerYPosition - boundingRadius));
+        int maximumYPosition = Math.min(frameHeight - 1, (int) Math.ceil(centerYPosition + boundingRadius));
+
+        for (int pixelYPosition = minimumYPosition; pixelYPosition <= maximumYPosition; pixelYPosition++) {
+            double relativeYPosition = pixelYPosition + 0.5 - centerYPosition;
+
+            for (int pixelXPosition = minimumXPosition; pixelXPosition <= maximumXPosition; pixelXPosition++) {
+                double relativeXPosition = pixelXPosition + 0.5 - centerXPosition;
+
+                // Rotate into tag-local coordinates and convert to cell units
+                double localXPosition = cosineValue * relativeXPosition + sineValue * relativeYPosition;
+                double localYPosition = -sineValue * relativeXPosition + cosineValue * relativeYPosition;
+
+                double cellXPosition = (localXPosition + halfSideLength) * cellsPerPixel;
+                double cellYPosition = (localYPosition + halfSideLength) * cellsPerPixel;
+
+                if (cellXPosition < 0.0 || cellYPosition < 0.0
+                        || cellXPosition >= tagCellCountPerSide || cellYPosition >= tagCellCountPerSide) {
+                    continue;
+                }
+
+                int cellXIndex = (int) cellXPosition;
+                int cellYIndex = (int) cellYPosition;
+
+                boolean cellIsWhite;
+                if (cellXIndex == 0 || cellYIndex == 0
+                        || cellXIndex == tagCellCountPerSide - 1 || cellYIndex == tagCellCountPerSide - 1) {
+                    cellIsWhite = true;
+                } else if (cellXIndex == 1 || cellYIndex == 1
+                        || cellXIndex == tagCellCountPerSide - 2 || cellYIndex == tagCellCountPerSide - 2) {
+                    cellIsWhite = false;
+                } else {
+                    cellIsWhite = syntheticTag.dataCellIsWhiteArray[(cellYIndex - 2) * 6 + (cellXIndex - 2)];
+                }
+
+                byte intensityValue = cellIsWhite ? (byte) 235 : (byte) 20;
+
+                int colorChannelBaseIndex = (pixelYPosition * frameWidth + pixelXPosition) * 3;
+                outputBgrByteArray[colorChannelBaseIndex] = intensityValue;
+                outputBgrByteArray[colorChannelBaseIndex + 1] = intensityValue;
+                outputBgrByteArray[colorChannelBaseIndex + 2] = intensityValue;
+            }
+        }
+    }
+
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    @Override
+    public void release() {
+        if (currentFrameMatrix != null) {
+            currentFrameMatrix.release();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.PhantomCamera.Camera;
+
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+
+/**
+ * Frame source that decodes frames from a video file as fast as the decoder
+ * allows, optionally restarting from the first frame when the end is reached.
+ */
+public class VideoFileFrameSource implements FrameSource {
+
+    private final String videoFilePath;
+    private final boolean loopPlaybackEnabled;
+
+    private VideoCapture videoCapture;
+
+    /**
+     * Reusable output frame, overwritten on every read.
+     */
+    private final Mat currentFrameMatrix;
+
+    public VideoFileFrameSource(String videoFilePath, boolean loopPlaybackEnabled) {
+        OpenCVLoader.load();
+
+        this.videoFilePath = videoFilePath;
+        this.loopPlaybackEnabled = loopPlaybackEnabled;
+        this.currentFrameMatrix = new Mat();
+
+        videoCapture = new VideoCapture(videoFilePath);
+        if (!videoCapture.isOpened()) {
+            System.out.println("Could not open video file: " + videoFilePath);
+            videoCapture = null;
+        }
+    }
+
+    @Override
+    public boolean isOpened() {
+        return videoCapture != null && videoCapture.isOpened();
+    }
+
+    @Override
+    public Mat readFrame() {
+        return readFrameIntoMatrix(currentFrameMatrix) ? currentFrameMatrix : null;
+    }
+
+    @Override
+    public boolean readFrameIntoMatrix(Mat destinationFrameMatrix) {
+        if (!isOpened()) {
+            return false;
+        }
+
+        if (videoCapture.read(destinationFrameMatrix) && !destinationFrameMatrix.empty()) {
+            return true;
+        }
+
+        if (!loopPlaybackEnabled) {
+            return false;
+        }
+
+        // End of file reached: rewind to the first frame and try once more
+        videoCapture.set(Videoio.CAP_PROP_POS_FRAMES, 0);
+
+        if (videoCapture.read(destinationFrameMatrix) && !destinationFrameMatrix.empty()) {
+            return true;
+        }
+
+        System.out.println("Could not rewind video file: " + videoFilePath);
+        return false;
+    }
+
+    @Override
+    public void release() {
+        if (videoCapture != null) {
+            videoCapture.release();
+        }
+        currentFrameMatrix.release();
+    }
+}
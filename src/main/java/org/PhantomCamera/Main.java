@@ -1,22 +1,29 @@
 package org.PhantomCamera;
 
+import org.PhantomCamera.Camera.AsynchronousFrameSource;
 import org.PhantomCamera.Camera.Camera;
 import org.PhantomCamera.Camera.CameraView;
 import org.PhantomCamera.Camera.OpenCVLoader;
+import org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics;
 
 public class Main {
     public static void main(String[] args) {
 
         OpenCVLoader.load();   // carga única de OpenCV
 
-        Camera cam = new Camera();
+        // Captura en un hilo dedicado: el procesamiento siempre toma el frame más reciente
+        AsynchronousFrameSource cam = new AsynchronousFrameSource(new Camera());
+
+        // Percentiles por etapa impresos cada 5 s
+        PipelineStageLatencyMetrics pipelineStageLatencyMetrics = new PipelineStageLatencyMetrics(5000);
+        cam.setPipelineStageLatencyMetrics(pipelineStageLatencyMetrics);
 
         if (!cam.isOpened()) {
             System.out.println("No se pudo iniciar la cámara.");
             return;
         }
 
-        CameraView view = new CameraView(cam);
+        CameraView view = new CameraView(cam, pipelineStageLatencyMetrics);
         view.start();
     }
 }
@@ -1,5 +1,7 @@
 package org.PhantomCamera.Stadistics;
 
+import java.nio.ByteBuffer;
+
 public final class EdgeStadistics {
 
     public static  final  class EdgeFrameStatistics {
@@ -48,5 +50,37 @@ public final class EdgeStadistics {
         );
     }
 
+    /**
+     * Same as the byte array version but reads the edge pixels in place, for
+     * example from the edge detector's direct frame buffer.
+     */
+    public EdgeFrameStatistics calculateEdgeFrameStatistics(
+            int frameWidthInPixels,
+            int frameHeightInPixels,
+            ByteBuffer edgeBinaryByteBuffer,
+            int[] gradientMagnitudeIntegerArray
+    ) {
+        int totalPixelCount = frameWidthInPixels * frameHeightInPixels;
+
+        int edgePixelCount = 0;
+        int maximumGradientMagnitudeValue = 0;
+
+        for (int pixelIndex = 0; pixelIndex < totalPixelCount; pixelIndex++) {
+            if ((edgeBinaryByteBuffer.get(pixelIndex) & 0xFF) != 0) {
+                edgePixelCount++;
+            }
+
+            int gradientMagnitudeValue = gradientMagnitudeIntegerArray[pixelIndex];
+            if (gradientMagnitudeValue > maximumGradientMagnitudeValue) {
+                maximumGradientMagnitudeValue = gradientMagnitudeValue;
+            }
+        }
+
+        return new EdgeFrameStatistics(
+                edgePixelCount,
+                maximumGradientMagnitudeValue
+        );
+    }
+
 
 }
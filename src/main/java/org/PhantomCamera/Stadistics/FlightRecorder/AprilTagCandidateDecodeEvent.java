@@ -0,0 +1,50 @@
+package org.PhantomCamera.Stadistics.FlightRecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Hull, quad fit and decode share one event per frame: every worker alternates the three steps
+ * per candidate, so no step is one contiguous span that could be its own event, and an event
+ * per candidate and step would cost about as much as the few microseconds it measures. The
+ * per-step times are fields instead, measured like the HULL / QUAD_FIT / DECODE rows of
+ * {@link org.PhantomCamera.Stadistics.PipelineStageLatencyMetrics}.
+ */
+@Name("PhantomCamera.AprilTagCandidateDecode")
+@Label("AprilTag Candidate Decode")
+@Category({"PhantomCamera", "AprilTag"})
+@Description("Hull, quad fit, corner refinement and decode of every candidate of one frame")
+public final class AprilTagCandidateDecodeEvent extends Event {
+
+    @Label("Candidates")
+    public int candidateComponentCount;
+
+    @Label("Quads")
+    @Description("Candidates whose hull fitted a quadrilateral")
+    public int fittedQuadrilateralCount;
+
+    @Label("Decoded Tags")
+    public int decodedTagCount;
+
+    @Label("Workers")
+    public int workerCount;
+
+    @Label("Hull")
+    @Description("Longest time one worker spent computing convex hulls")
+    @Timespan(Timespan.NANOSECONDS)
+    public long hullDuration;
+
+    @Label("Quad Fit")
+    @Description("Longest time one worker spent fitting and refining quads")
+    @Timespan(Timespan.NANOSECONDS)
+    public long quadFitDuration;
+
+    @Label("Decode")
+    @Description("Longest time one worker spent sampling and looking up codes")
+    @Timespan(Timespan.NANOSECONDS)
+    public long decodeDuration;
+}
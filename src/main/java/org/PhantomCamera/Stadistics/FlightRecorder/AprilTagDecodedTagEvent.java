@@ -0,0 +1,26 @@
+package org.PhantomCamera.Stadistics.FlightRecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("PhantomCamera.AprilTagDecodedTag")
+@Label("AprilTag Decoded Tag")
+@Category({"PhantomCamera", "AprilTag"})
+@Description("One tag decoded from a frame")
+public final class AprilTagDecodedTagEvent extends Event {
+
+    @Label("Tag Id")
+    public int tagIdIdentifier;
+
+    @Label("Hamming Distance")
+    public int hammingDistance;
+
+    @Label("Center X")
+    public double centerXPixelPosition;
+
+    @Label("Center Y")
+    public double centerYPixelPosition;
+}
@@ -0,0 +1,46 @@
+package org.PhantomCamera.Stadistics.FlightRecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("PhantomCamera.AprilTagDetection")
+@Label("AprilTag Detection")
+@Category({"PhantomCamera", "AprilTag"})
+@Description("One frame through the detector, from the BGR frame to the decoded tags. In the pipelined "
+        + "detector the event spans only the decode thread's part; Submit To Result covers the whole frame")
+public final class AprilTagDetectionEvent extends Event {
+
+    @Label("Frame Width")
+    public int frameWidth;
+
+    @Label("Frame Height")
+    public int frameHeight;
+
+    @Label("Decimation Factor")
+    public int decimationFactor;
+
+    @Label("Segmentation Mode")
+    public String edgeSegmentationMode;
+
+    @Label("Fused Front End")
+    public boolean fusedFrontEnd;
+
+    @Label("Pipelined")
+    public boolean pipelined;
+
+    @Label("Frame Sequence Number")
+    @Description("Sequence number given by the pipelined detector, 0 for the synchronous detector")
+    public long frameSequenceNumber;
+
+    @Label("Submit To Result")
+    @Description("Time from submitFrame to the result, pipelined detector only")
+    @Timespan(Timespan.NANOSECONDS)
+    public long submitToResultLatency;
+
+    @Label("Detected Tags")
+    public int detectedTagCount;
+}
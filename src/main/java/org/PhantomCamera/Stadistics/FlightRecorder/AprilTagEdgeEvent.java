@@ -0,0 +1,30 @@
+package org.PhantomCamera.Stadistics.FlightRecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("PhantomCamera.AprilTagEdge")
+@Label("AprilTag Edge Segmentation")
+@Category({"PhantomCamera", "AprilTag"})
+@Description("Edge or boundary frame of one frame, at detection resolution; "
+        + "with the fused front end it also covers the grayscale conversion")
+public final class AprilTagEdgeEvent extends Event {
+
+    @Label("Segmentation Mode")
+    public String edgeSegmentationMode;
+
+    @Label("Frame Width")
+    public int frameWidth;
+
+    @Label("Frame Height")
+    public int frameHeight;
+
+    /**
+     * True when the grayscale conversion ran in the same pass, so no grayscale event is emitted.
+     */
+    @Label("Fused With Grayscale")
+    public boolean fusedWithGrayscale;
+}
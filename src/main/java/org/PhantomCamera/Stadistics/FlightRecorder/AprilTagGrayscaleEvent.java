@@ -0,0 +1,23 @@
+package org.PhantomCamera.Stadistics.FlightRecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("PhantomCamera.AprilTagGrayscale")
+@Label("AprilTag Grayscale")
+@Category({"PhantomCamera", "AprilTag"})
+@Description("BGR to grayscale conversion of one frame, decimation included")
+public final class AprilTagGrayscaleEvent extends Event {
+
+    @Label("Frame Width")
+    public int frameWidth;
+
+    @Label("Frame Height")
+    public int frameHeight;
+
+    @Label("Decimation Factor")
+    public int decimationFactor;
+}
@@ -0,0 +1,25 @@
+package org.PhantomCamera.Stadistics.FlightRecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("PhantomCamera.AprilTagLabelling")
+@Label("AprilTag Component Labelling")
+@Category({"PhantomCamera", "AprilTag"})
+@Description("Connected component labelling of one edge frame")
+public final class AprilTagLabellingEvent extends Event {
+
+    @Label("Labelling Mode")
+    public String labellingMode;
+
+    @Label("Components")
+    @Description("Connected components found, rejected ones included")
+    public int labelledComponentCount;
+
+    @Label("Candidates")
+    @Description("Components that passed the rejection criteria")
+    public int candidateComponentCount;
+}
@@ -0,0 +1,24 @@
+package org.PhantomCamera.Stadistics.FlightRecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("PhantomCamera.FrameCapture")
+@Label("Frame Capture")
+@Category({"PhantomCamera", "Camera"})
+@Description("One read from the wrapped frame source on the capture thread, including the wait for the driver")
+public final class FrameCaptureEvent extends Event {
+
+    @Label("Frame Width")
+    public int frameWidth;
+
+    @Label("Frame Height")
+    public int frameHeight;
+
+    @Label("Captured Frames")
+    @Description("Frames captured so far, this one included")
+    public long capturedFrameCount;
+}
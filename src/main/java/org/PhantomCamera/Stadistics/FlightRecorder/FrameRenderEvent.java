@@ -0,0 +1,23 @@
+package org.PhantomCamera.Stadistics.FlightRecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("PhantomCamera.FrameRender")
+@Label("Frame Render")
+@Category({"PhantomCamera", "Camera"})
+@Description("Filter, overlay and display of one frame in the camera view")
+public final class FrameRenderEvent extends Event {
+
+    @Label("Filter Mode")
+    public String filterMode;
+
+    @Label("Frame Width")
+    public int frameWidth;
+
+    @Label("Frame Height")
+    public int frameHeight;
+}
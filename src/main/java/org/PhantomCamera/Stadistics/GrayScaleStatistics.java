@@ -1,5 +1,7 @@
 package org.PhantomCamera.Stadistics;
 
+import java.nio.ByteBuffer;
+
 public class GrayScaleStatistics {
 
     public static final class GrayscaleFrameStatistics {
@@ -51,4 +53,41 @@ public class GrayScaleStatistics {
                 averageIntensityValue
         );
     }
+
+    /**
+     * Same as the byte array version but reads the pixels in place from a
+     * (typically direct) buffer, avoiding a full-frame copy out of the Mat.
+     */
+    public static GrayscaleFrameStatistics calculateGrayscaleFrameStatistics(
+            int frameWidth,
+            int frameHeight,
+            ByteBuffer grayscaleByteBuffer
+    ) {
+        int totalPixelCount = frameWidth * frameHeight;
+
+        int minimumIntensityValue = 255;
+        int maximumIntensityValue = 0;
+        long sumIntensityValue = 0L;
+
+        for (int pixelIndex = 0; pixelIndex < totalPixelCount; pixelIndex++) {
+            int intensityValue = grayscaleByteBuffer.get(pixelIndex) & 0xFF;
+
+            if (intensityValue < minimumIntensityValue) {
+                minimumIntensityValue = intensityValue;
+            }
+            if (intensityValue > maximumIntensityValue) {
+                maximumIntensityValue = intensityValue;
+            }
+            sumIntensityValue += intensityValue;
+        }
+
+        double averageIntensityValue =
+                (double) sumIntensityValue / (double) totalPixelCount;
+
+        return new GrayscaleFrameStatistics(
+                minimumIntensityValue,
+                maximumIntensityValue,
+                averageIntensityValue
+        );
+    }
 }
@@ -0,0 +1,144 @@
+package org.PhantomCamera.Stadistics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket histogram of nanosecond latencies, allocation-free after construction.
+ * <p>
+ * Buckets are log-linear: values below 32 ns get one bucket each, and every power of two
+ * above that is split into 16 equal buckets, so a reported percentile is at most 1/16
+ * (6.25 %) above the true value. Values up to about 2^41 ns (36 minutes) are covered;
+ * larger ones go to the last bucket. Recording is a few atomic increments, so several
+ * threads can record into the same histogram and another thread can read it at any time;
+ * a report taken while recording goes on may be off by the values recorded during the read.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BIT_COUNT = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BIT_COUNT;
+
+    /**
+     * Values below this get exact buckets (2 * SUB_BUCKET_COUNT = 32).
+     */
+    private static final int LINEAR_BUCKET_COUNT = 2 * SUB_BUCKET_COUNT;
+
+    private static final int FIRST_LOGARITHMIC_EXPONENT = SUB_BUCKET_BIT_COUNT + 1;
+    private static final int LAST_LOGARITHMIC_EXPONENT = 40;
+
+    private static final int BUCKET_COUNT =
+            LINEAR_BUCKET_COUNT + (LAST_LOGARITHMIC_EXPONENT - FIRST_LOGARITHMIC_EXPONENT + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray bucketCountArray = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalValueNanoseconds = new AtomicLong();
+    private final AtomicLong maximumValueNanoseconds = new AtomicLong();
+
+    public void recordValue(long valueNanoseconds) {
+        long clampedValueNanoseconds = Math.max(0L, valueNanoseconds);
+
+        bucketCountArray.incrementAndGet(calculateBucketIndex(clampedValueNanoseconds));
+        totalCount.incrementAndGet();
+        totalValueNanoseconds.addAndGet(clampedValueNanoseconds);
+
+        long currentMaximumValue = maximumValueNanoseconds.get();
+        while (clampedValueNanoseconds > currentMaximumValue
+                && !maximumValueNanoseconds.compareAndSet(currentMaximumValue, clampedValueNanoseconds)) {
+            currentMaximumValue = maximumValueNanoseconds.get();
+        }
+    }
+
+    private static int calculateBucketIndex(long valueNanoseconds) {
+        if (valueNanoseconds < LINEAR_BUCKET_COUNT) {
+            return (int) valueNanoseconds;
+        }
+
+        int valueExponent = 63 - Long.numberOfLeadingZeros(valueNanoseconds);
+
+        if (valueExponent > LAST_LOGARITHMIC_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+
+        // Los 4 bits debajo del bit mas alto eligen el sub-bucket dentro de la potencia de dos
+        int subBucketIndex = (int) (valueNanoseconds >>> (valueExponent - SUB_BUCKET_BIT_COUNT)) & (SUB_BUCKET_COUNT - 1);
+
+        return LINEAR_BUCKET_COUNT + (valueExponent - FIRST_LOGARITHMIC_EXPONENT) * SUB_BUCKET_COUNT + subBucketIndex;
+    }
+
+    /**
+     * Largest value that falls into the bucket, so percentiles never under-report.
+     */
+    private static long calculateBucketUpperBoundNanoseconds(int bucketIndex) {
+        if (bucketIndex < LINEAR_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+
+        // El ultimo bucket tambien recibe los valores fuera de rango: su limite es el maximo
+        if (bucketIndex == BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+
+        int logarithmicBucketIndex = bucketIndex - LINEAR_BUCKET_COUNT;
+        int valueExponent = FIRST_LOGARITHMIC_EXPONENT + logarithmicBucketIndex / SUB_BUCKET_COUNT;
+        int subBucketIndex = logarithmicBucketIndex % SUB_BUCKET_COUNT;
+
+        long bucketWidthNanoseconds = 1L << (valueExponent - SUB_BUCKET_BIT_COUNT);
+
+        return (long) (SUB_BUCKET_COUNT + subBucketIndex) * bucketWidthNanoseconds + bucketWidthNanoseconds - 1;
+    }
+
+    /**
+     * @param percentile 0 to 100
+     * @return upper bound of the bucket holding that percentile, capped at the maximum; 0 when empty
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100 but received " + percentile);
+        }
+
+        long recordedCount = totalCount.get();
+
+        if (recordedCount == 0) {
+            return 0L;
+        }
+
+        long targetCount = Math.max(1L, (long) Math.ceil(percentile / 100.0 * recordedCount));
+        long cumulativeCount = 0L;
+
+        for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++) {
+            cumulativeCount += bucketCountArray.get(bucketIndex);
+
+            if (cumulativeCount >= targetCount) {
+                return Math.min(calculateBucketUpperBoundNanoseconds(bucketIndex), maximumValueNanoseconds.get());
+            }
+        }
+
+        return maximumValueNanoseconds.get();
+    }
+
+    public long getMaximumValueNanoseconds() {
+        return maximumValueNanoseconds.get();
+    }
+
+    public double getMeanValueNanoseconds() {
+        long recordedCount = totalCount.get();
+        return recordedCount == 0 ? 0.0 : (double) totalValueNanoseconds.get() / recordedCount;
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Clears every bucket, for example at the start of each reporting interval.
+     */
+    public void reset() {
+        for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++) {
+            bucketCountArray.set(bucketIndex, 0L);
+        }
+        totalCount.set(0L);
+        totalValueNanoseconds.set(0L);
+        maximumValueNanoseconds.set(0L);
+    }
+}
@@ -0,0 +1,130 @@
+package org.PhantomCamera.Stadistics;
+
+import java.io.PrintStream;
+
+/**
+ * One {@link LatencyHistogram} per pipeline stage, plus a p50 / p95 / p99 / max report.
+ * <p>
+ * Stages record their own timings when a metrics object is set on them (capture in
+ * {@link org.PhantomCamera.Camera.AsynchronousFrameSource}, grayscale / edge / labelling in
+ * the AprilTag detectors, hull / quad fit / decode in the candidate decode stage, render in
+ * {@link org.PhantomCamera.Camera.CameraView}). Every stage records one value per frame. Hull,
+ * quad fit and decode run interleaved per candidate, possibly on several workers; each is
+ * recorded as the time of the worker that spent longest in it, an estimate of its share of
+ * the frame's wall time rather than its CPU time.
+ * <p>
+ * The rows measure different threads and the pipelined detector overlaps stages of different
+ * frames, so they show where time goes but do not add up to the frame latency.
+ */
+public final class PipelineStageLatencyMetrics {
+
+    public enum PipelineStage {
+        CAPTURE,
+        GRAYSCALE,
+        EDGE,
+        LABELLING,
+        HULL,
+        QUAD_FIT,
+        DECODE,
+        RENDER
+    }
+
+    private static final PipelineStage[] PIPELINE_STAGE_ARRAY = PipelineStage.values();
+
+    private final LatencyHistogram[] stageLatencyHistogramArray;
+
+    /**
+     * Reporting interval of {@link #printPercentileReportIfDue}, 0 when periodic reporting is off.
+     */
+    private final long reportIntervalNanoseconds;
+    private long nextReportTimestampNanoseconds;
+
+    public PipelineStageLatencyMetrics() {
+        this(0L);
+    }
+
+    /**
+     * @param reportIntervalMilliseconds interval used by {@link #printPercentileReportIfDue}
+     */
+    public PipelineStageLatencyMetrics(long reportIntervalMilliseconds) {
+        this.stageLatencyHistogramArray = new LatencyHistogram[PIPELINE_STAGE_ARRAY.length];
+
+        for (int stageIndex = 0; stageIndex < PIPELINE_STAGE_ARRAY.length; stageIndex++) {
+            stageLatencyHistogramArray[stageIndex] = new LatencyHistogram();
+        }
+
+        this.reportIntervalNanoseconds = reportIntervalMilliseconds * 1_000_000L;
+        this.nextReportTimestampNanoseconds = System.nanoTime() + reportIntervalNanoseconds;
+    }
+
+    public void recordStageLatency(PipelineStage pipelineStage, long latencyNanoseconds) {
+        stageLatencyHistogramArray[pipelineStage.ordinal()].recordValue(latencyNanoseconds);
+    }
+
+    public LatencyHistogram getStageLatencyHistogram(PipelineStage pipelineStage) {
+        return stageLatencyHistogramArray[pipelineStage.ordinal()];
+    }
+
+    /**
+     * Table with one row per stage that recorded anything: count, mean, p50, p95, p99 and max in milliseconds.
+     */
+    public String formatPercentileReport() {
+        StringBuilder percentileReportBuilder = new StringBuilder();
+
+        percentileReportBuilder.append(String.format(
+                "%-10s %8s %9s %9s %9s %9s %9s%n",
+                "stage", "count", "mean ms", "p50 ms", "p95 ms", "p99 ms", "max ms"
+        ));
+
+        for (PipelineStage pipelineStage : PIPELINE_STAGE_ARRAY) {
+            LatencyHistogram stageLatencyHistogram = stageLatencyHistogramArray[pipelineStage.ordinal()];
+
+            if (stageLatencyHistogram.getTotalCount() == 0) {
+                continue;
+            }
+
+            percentileReportBuilder.append(String.format(
+                    "%-10s %8d %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+                    pipelineStage.name(),
+                    stageLatencyHistogram.getTotalCount(),
+                    stageLatencyHistogram.getMeanValueNanoseconds() / 1e6,
+                    stageLatencyHistogram.getValueAtPercentile(50.0) / 1e6,
+                    stageLatencyHistogram.getValueAtPercentile(95.0) / 1e6,
+                    stageLatencyHistogram.getValueAtPercentile(99.0) / 1e6,
+                    stageLatencyHistogram.getMaximumValueNanoseconds() / 1e6
+            ));
+        }
+
+        return percentileReportBuilder.toString();
+    }
+
+    /**
+     * Meant to be called once per frame from the processing loop: when the reporting interval
+     * has elapsed, prints the report and starts a new interval with empty histograms.
+     *
+     * @return true when a report was printed
+     */
+    public boolean printPercentileReportIfDue(PrintStream reportPrintStream) {
+        if (reportIntervalNanoseconds <= 0L) {
+            return false;
+        }
+
+        long currentTimestampNanoseconds = System.nanoTime();
+
+        if (currentTimestampNanoseconds - nextReportTimestampNanoseconds < 0L) {
+            return false;
+        }
+
+        reportPrintStream.print(formatPercentileReport());
+        reset();
+
+        nextReportTimestampNanoseconds = currentTimestampNanoseconds + reportIntervalNanoseconds;
+        return true;
+    }
+
+    public void reset() {
+        for (LatencyHistogram stageLatencyHistogram : stageLatencyHistogramArray) {
+            stageLatencyHistogram.reset();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.PhantomCamera.Utils;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 8-bit frame stored in a direct (off-heap) ByteBuffer with an OpenCV Mat
+ * constructed over the same memory.
+ * <p>
+ * Java stages read and write pixels through the ByteBuffer while OpenCV sees
+ * the very same bytes through the Mat, so handing a frame from one side to
+ * the other needs no Mat.get / Mat.put copy. The Mat is created on first use,
+ * which keeps the pure Java stages usable without the OpenCV native library.
+ */
+public final class DirectFrameBuffer {
+
+    private final int frameWidth;
+    private final int frameHeight;
+    private final int channelCount;
+    private final int rowByteCount;
+
+    private final ByteBuffer pixelByteBuffer;
+
+    private Mat frameMatrix;
+    private long frameMatrixDataAddress;
+
+    public DirectFrameBuffer(int frameWidth, int frameHeight, int channelCount) {
+        if (frameWidth < 1 || frameHeight < 1 || channelCount < 1 || channelCount > 4) {
+            throw new IllegalArgumentException(
+                    "Invalid frame buffer layout " + frameWidth + "x" + frameHeight + "x" + channelCount
+            );
+        }
+
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+        this.channelCount = channelCount;
+        this.rowByteCount = frameWidth * channelCount;
+
+        this.pixelByteBuffer = ByteBuffer
+                .allocateDirect(rowByteCount * frameHeight)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    public int getChannelCount() {
+        return channelCount;
+    }
+
+    public int getRowByteCount() {
+        return rowByteCount;
+    }
+
+    /**
+     * Direct buffer holding the pixels row by row with no padding.
+     * Only absolute get/put methods should be used on it, so that several
+     * threads can work on different rows at the same time.
+     */
+    public ByteBuffer getPixelByteBuffer() {
+        return pixelByteBuffer;
+    }
+
+    /**
+     * Mat sharing memory with the pixel buffer (CV_8UC1 or CV_8UC3, ...).
+     * Writing into it through OpenCV is only safe while its size and type are kept,
+     * otherwise OpenCV reallocates and the Mat stops sharing memory with the buffer.
+     */
+    public Mat getFrameMatrix() {
+        if (frameMatrix == null) {
+            frameMatrix = new Mat(
+                    frameHeight,
+                    frameWidth,
+                    CvType.makeType(CvType.CV_8U, channelCount),
+                    pixelByteBuffer
+            );
+            frameMatrixDataAddress = frameMatrix.dataAddr();
+        }
+        return frameMatrix;
+    }
+
+    public boolean hasSameLayout(int otherFrameWidth, int otherFrameHeight, int otherChannelCount) {
+        return frameWidth == otherFrameWidth
+                && frameHeight == otherFrameHeight
+                && channelCount == otherChannelCount;
+    }
+
+    /**
+     * @return true if the given Mat reads and writes this buffer's memory
+     */
+    public boolean isBackingFrameMatrix(Mat otherFrameMatrix) {
+        return frameMatrix != null
+                && otherFrameMatrix.dataAddr() == frameMatrixDataAddress;
+    }
+
+    /**
+     * @return true if OpenCV reallocated the Mat returned by {@link #getFrameMatrix()},
+     * which then no longer shares memory with the pixel buffer
+     */
+    public boolean hasFrameMatrixBeenReallocated() {
+        return frameMatrix != null
+                && frameMatrix.dataAddr() != frameMatrixDataAddress;
+    }
+
+    /**
+     * Copies a foreign Mat into this buffer with a single native copy.
+     * Does nothing when the Mat already shares memory with this buffer.
+     */
+    public void copyFromFrameMatrix(Mat sourceFrameMatrix) {
+        if (isBackingFrameMatrix(sourceFrameMatrix)) {
+            return;
+        }
+
+        if (sourceFrameMatrix.cols() != frameWidth
+                || sourceFrameMatrix.rows() != frameHeight
+                || sourceFrameMatrix.type() != CvType.makeType(CvType.CV_8U, channelCount)) {
+            throw new IllegalArgumentException(
+                    "Source frame does not match frame buffer layout. Expected "
+                            + frameWidth + "x" + frameHeight + "x" + channelCount
+                            + " but received " + sourceFrameMatrix.cols() + "x" + sourceFrameMatrix.rows()
+                            + "x" + sourceFrameMatrix.channels()
+            );
+        }
+
+        sourceFrameMatrix.copyTo(getFrameMatrix());
+    }
+
+    /**
+     * Copies one row into a caller-owned array (row-sized, so it stays in cache).
+     */
+    public void readRow(int rowIndex, byte[] destinationRowByteArray) {
+        pixelByteBuffer.get(rowIndex * rowByteCount, destinationRowByteArray, 0, rowByteCount);
+    }
+
+    /**
+     * Copies one row from a caller-owned array into the buffer.
+     */
+    public void writeRow(int rowIndex, byte[] sourceRowByteArray) {
+        pixelByteBuffer.put(rowIndex * rowByteCount, sourceRowByteArray, 0, rowByteCount);
+    }
+
+    /**
+     * Copies the whole frame into a heap array, for callers that still work on byte arrays.
+     */
+    public void copyToByteArray(byte[] destinationByteArray) {
+        pixelByteBuffer.get(0, destinationByteArray, 0, rowByteCount * frameHeight);
+    }
+
+    /**
+     * Copies the whole frame from a heap array.
+     */
+    public void copyFromByteArray(byte[] sourceByteArray) {
+        pixelByteBuffer.put(0, sourceByteArray, 0, rowByteCount * frameHeight);
+    }
+
+    /**
+     * Releases the Mat header. The pixel memory is freed with the buffer by the garbage collector.
+     */
+    public void release() {
+        if (frameMatrix != null) {
+            frameMatrix.release();
+            frameMatrix = null;
+        }
+    }
+}
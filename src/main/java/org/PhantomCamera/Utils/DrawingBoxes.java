@@ -142,8 +142,7 @@ public class DrawingBoxes {
                 continue;
             }
 
-            if (currentEdgeConnectedComponent.pixelCoordinateList == null
-                    || currentEdgeConnectedComponent.pixelCoordinateList.isEmpty()) {
+            if (currentEdgeConnectedComponent.componentPixelCount == 0) {
                 continue;
             }
 
@@ -166,7 +165,7 @@ public class DrawingBoxes {
 
         List<PixelCoordinate> convexHullPixelPositionList =
                 aprilTagConvexHullCalculator.calculateConvexHullPixelPositionList(
-                        largestEdgeConnectedComponent.pixelCoordinateList
+                        largestEdgeConnectedComponent
                 );
 
         if (convexHullPixelPositionList == null
@@ -1,9 +1,35 @@
 package org.PhantomCamera.Utils;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+
 public class GrayScaleConvertionUtils {
 
+    /**
+     * System property that selects the implementation: "true" uses the vectorized version (when
+     * built with -PvectorApi=true and the module is available); without the property, or with any
+     * other value, the scalar loop is used.
+     */
+    public static final String VECTORIZED_CONVERSION_PROPERTY_NAME = "phantomcamera.grayscale.vectorized";
+
+    /**
+     * VectorizedGrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArray, or null when it is not available.
+     */
+    private static final MethodHandle VECTORIZED_CONVERSION_HANDLE = VectorSupport.findVectorizedKernel(
+            "org.PhantomCamera.Utils.VectorizedGrayScaleConvertionUtils",
+            "convertBgrByteArrayToGrayscaleByteArray",
+            MethodType.methodType(void.class, byte[].class, int.class, int.class, byte[].class)
+    );
+
+    private static final boolean VECTORIZED_CONVERSION_ENABLED =
+            VECTORIZED_CONVERSION_HANDLE != null && VectorSupport.isVectorizedPathEnabled(VECTORIZED_CONVERSION_PROPERTY_NAME);
+
     private GrayScaleConvertionUtils() {}
 
+    /**
+     * Uses the vectorized version when {@link #VECTORIZED_CONVERSION_PROPERTY_NAME} is "true" and it
+     * is available, and the scalar loop otherwise. Both versions produce exactly the same bytes.
+     */
     public static void convertBgrByteArrayToGrayscaleByteArray(
             byte[] inputColorDataBlueGreenRed,
             int frameWith,
@@ -11,6 +37,61 @@ public class GrayScaleConvertionUtils {
             byte[] outputGrayScaleData
     ){
 
+        if (VECTORIZED_CONVERSION_ENABLED) {
+            convertBgrByteArrayToGrayscaleByteArrayVectorized(
+                    inputColorDataBlueGreenRed, frameWith, frameHieght, outputGrayScaleData
+            );
+            return;
+        }
+
+        convertBgrByteArrayToGrayscaleByteArrayScalar(
+                inputColorDataBlueGreenRed, frameWith, frameHieght, outputGrayScaleData
+        );
+    }
+
+    public static boolean isVectorizedConversionEnabled() {
+        return VECTORIZED_CONVERSION_ENABLED;
+    }
+
+    /**
+     * True when the vectorized version was compiled and the module is present, even if it is not enabled.
+     */
+    public static boolean isVectorizedConversionAvailable() {
+        return VECTORIZED_CONVERSION_HANDLE != null;
+    }
+
+    /**
+     * Always calls the vectorized version, ignoring the property. Meant for comparing it with the scalar one.
+     */
+    public static void convertBgrByteArrayToGrayscaleByteArrayVectorized(
+            byte[] inputColorDataBlueGreenRed,
+            int frameWith,
+            int frameHieght,
+            byte[] outputGrayScaleData
+    ){
+
+        if (VECTORIZED_CONVERSION_HANDLE == null) {
+            throw new IllegalStateException(
+                    "Vectorized grayscale conversion is not available. Build with -PvectorApi=true and run with --add-modules jdk.incubator.vector"
+            );
+        }
+
+        try {
+            VECTORIZED_CONVERSION_HANDLE.invokeExact(inputColorDataBlueGreenRed, frameWith, frameHieght, outputGrayScaleData);
+        } catch (RuntimeException | Error uncheckedException) {
+            throw uncheckedException;
+        } catch (Throwable throwable) {
+            throw new IllegalStateException("Vectorized grayscale conversion failed", throwable);
+        }
+    }
+
+    public static void convertBgrByteArrayToGrayscaleByteArrayScalar(
+            byte[] inputColorDataBlueGreenRed,
+            int frameWith,
+            int frameHieght,
+            byte[] outputGrayScaleData
+    ){
+
         int numbereOffPixels = frameWith * frameHieght;
 
         if (outputGrayScaleData.length < numbereOffPixels) {
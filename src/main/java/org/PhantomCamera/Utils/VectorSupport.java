@@ -0,0 +1,58 @@
+package org.PhantomCamera.Utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Decides whether the jdk.incubator.vector versions can be used.
+ * <p>
+ * The Vectorized* classes are only compiled with -PvectorApi=true and only loaded after this
+ * check, so the program keeps working without --add-modules jdk.incubator.vector. The rest of
+ * the code calls them through a MethodHandle, never directly.
+ * <p>
+ * The vectorized versions are opt-in: on JDK 17 / 21 the current kernels still allocate Vector
+ * objects on the heap (several MB per frame at 720p), so the scalar version stays the default
+ * and the vectorized one is only used when its property is set to "true".
+ */
+public final class VectorSupport {
+
+    private static final boolean VECTOR_MODULE_PRESENT =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private VectorSupport() {}
+
+    public static boolean isVectorModulePresent() {
+        return VECTOR_MODULE_PRESENT;
+    }
+
+    /**
+     * @param selectionPropertyName system property that enables the vectorized version when set to "true"
+     * @return true when the property asks for it and the module is present
+     */
+    public static boolean isVectorizedPathEnabled(String selectionPropertyName) {
+        return Boolean.getBoolean(selectionPropertyName) && VECTOR_MODULE_PRESENT;
+    }
+
+    /**
+     * Static method of a Vectorized* class, or null when the module is not in the boot layer or
+     * the class was not compiled (build without -PvectorApi=true).
+     */
+    public static MethodHandle findVectorizedKernel(String kernelClassName, String kernelMethodName, MethodType kernelMethodType) {
+        if (!VECTOR_MODULE_PRESENT) {
+            return null;
+        }
+
+        try {
+            Class<?> kernelClass = Class.forName(kernelClassName, true, VectorSupport.class.getClassLoader());
+            return MethodHandles.publicLookup().findStatic(kernelClass, kernelMethodName, kernelMethodType);
+        } catch (ClassNotFoundException | NoClassDefFoundError classNotFoundException) {
+            return null;
+        } catch (ReflectiveOperationException reflectiveOperationException) {
+            throw new IllegalStateException(
+                    "Vectorized kernel " + kernelClassName + "." + kernelMethodName + " has an unexpected signature",
+                    reflectiveOperationException
+            );
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.PhantomCamera.Utils;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * BGR to grayscale conversion with jdk.incubator.vector.
+ * <p>
+ * Produces exactly the same bytes as the scalar loop of {@link GrayScaleConvertionUtils}:
+ * gray = (77 * c1 + 150 * c2 + 29 * c0) >> 8.
+ * <p>
+ * Each iteration loads three vectors of interleaved bytes (3 * N bytes = N pixels), splits them
+ * into the three channels with precomputed shuffles, and computes the weighted sum in 16-bit
+ * lanes by reading each pair of bytes as a short (even pixel in the low byte, odd pixel in the
+ * high byte). That way the lanes never need to be widened or narrowed.
+ * <p>
+ * Only fromArray / intoArray are used, so it compiles the same on JDK 17 and JDK 25.
+ * This class must only be loaded when the jdk.incubator.vector module is present;
+ * {@link GrayScaleConvertionUtils} looks it up with {@link VectorSupport#findVectorizedKernel}, which checks that.
+ */
+public final class VectorizedGrayScaleConvertionUtils {
+
+    private static final VectorSpecies<Byte> BYTE_VECTOR_SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private static final int BYTE_VECTOR_LANE_COUNT = BYTE_VECTOR_SPECIES.length();
+
+    private static final int CHANNEL_ONE_LUMINANCE_WEIGHT = 77;
+
+    private static final int CHANNEL_TWO_LUMINANCE_WEIGHT = 150;
+
+    private static final int CHANNEL_ZERO_LUMINANCE_WEIGHT = 29;
+
+    // Shuffles para sacar el canal c de los dos primeros vectores (firstTwo)
+    // y del tercero (third), y la mascara que indica que lanes vienen del tercero.
+    private static final VectorShuffle<Byte> CHANNEL_ZERO_FIRST_TWO_SHUFFLE = createChannelShuffle(0, false);
+    private static final VectorShuffle<Byte> CHANNEL_ZERO_THIRD_SHUFFLE = createChannelShuffle(0, true);
+    private static final VectorMask<Byte> CHANNEL_ZERO_THIRD_MASK = createChannelThirdVectorMask(0);
+
+    private static final VectorShuffle<Byte> CHANNEL_ONE_FIRST_TWO_SHUFFLE = createChannelShuffle(1, false);
+    private static final VectorShuffle<Byte> CHANNEL_ONE_THIRD_SHUFFLE = createChannelShuffle(1, true);
+    private static final VectorMask<Byte> CHANNEL_ONE_THIRD_MASK = createChannelThirdVectorMask(1);
+
+    private static final VectorShuffle<Byte> CHANNEL_TWO_FIRST_TWO_SHUFFLE = createChannelShuffle(2, false);
+    private static final VectorShuffle<Byte> CHANNEL_TWO_THIRD_SHUFFLE = createChannelShuffle(2, true);
+    private static final VectorMask<Byte> CHANNEL_TWO_THIRD_MASK = createChannelThirdVectorMask(2);
+
+    private VectorizedGrayScaleConvertionUtils() {}
+
+    /**
+     * Bit size of the preferred vector on this machine (128 on NEON, 256 on AVX2, 512 on AVX-512).
+     */
+    public static int getPreferredVectorBitSize() {
+        return BYTE_VECTOR_SPECIES.vectorBitSize();
+    }
+
+    /**
+     * Same signature and same validation as the scalar version.
+     */
+    public static void convertBgrByteArrayToGrayscaleByteArray(
+            byte[] inputColorDataBlueGreenRed,
+            int frameWidth,
+            int frameHeight,
+            byte[] outputGrayScaleData
+    ) {
+
+        int numberOfPixels = frameWidth * frameHeight;
+
+        if (outputGrayScaleData.length < numberOfPixels) {
+            throw new IllegalArgumentException(
+                    "Output Gray Scale buffer is too small. Expect at least " + numberOfPixels + " bytes but found " + outputGrayScaleData.length
+            );
+        }
+
+        if (inputColorDataBlueGreenRed.length < numberOfPixels * 3) {
+            throw new IllegalArgumentException(
+                    "Input BGR is too small. Expect at least " + numberOfPixels * 3 + " bytes but found " + inputColorDataBlueGreenRed.length
+            );
+        }
+
+        int pixelIndex = 0;
+
+        int lastVectorPixelIndex = numberOfPixels - BYTE_VECTOR_LANE_COUNT;
+
+        for (; pixelIndex <= lastVectorPixelIndex; pixelIndex += BYTE_VECTOR_LANE_COUNT) {
+
+            int colorChannelBaseIndex = pixelIndex * 3;
+
+            ByteVector firstInterleavedVector = ByteVector.fromArray(
+                    BYTE_VECTOR_SPECIES, inputColorDataBlueGreenRed, colorChannelBaseIndex
+            );
+            ByteVector secondInterleavedVector = ByteVector.fromArray(
+                    BYTE_VECTOR_SPECIES, inputColorDataBlueGreenRed, colorChannelBaseIndex + BYTE_VECTOR_LANE_COUNT
+            );
+            ByteVector thirdInterleavedVector = ByteVector.fromArray(
+                    BYTE_VECTOR_SPECIES, inputColorDataBlueGreenRed, colorChannelBaseIndex + 2 * BYTE_VECTOR_LANE_COUNT
+            );
+
+            ShortVector channelZeroPairs = firstInterleavedVector
+                    .rearrange(CHANNEL_ZERO_FIRST_TWO_SHUFFLE, secondInterleavedVector)
+                    .blend(thirdInterleavedVector.rearrange(CHANNEL_ZERO_THIRD_SHUFFLE), CHANNEL_ZERO_THIRD_MASK)
+                    .reinterpretAsShorts();
+
+            ShortVector channelOnePairs = firstInterleavedVector
+                    .rearrange(CHANNEL_ONE_FIRST_TWO_SHUFFLE, secondInterleavedVector)
+                    .blend(thirdInterleavedVector.rearrange(CHANNEL_ONE_THIRD_SHUFFLE), CHANNEL_ONE_THIRD_MASK)
+                    .reinterpretAsShorts();
+
+            ShortVector channelTwoPairs = firstInterleavedVector
+                    .rearrange(CHANNEL_TWO_FIRST_TWO_SHUFFLE, secondInterleavedVector)
+                    .blend(thirdInterleavedVector.rearrange(CHANNEL_TWO_THIRD_SHUFFLE), CHANNEL_TWO_THIRD_MASK)
+                    .reinterpretAsShorts();
+
+            // Pixeles pares: byte bajo de cada short. El resultado (<= 255) queda en el byte bajo.
+            ShortVector evenPixelGrayValues = calculateWeightedLuminance(
+                    channelZeroPairs.and((short) 0xFF),
+                    channelOnePairs.and((short) 0xFF),
+                    channelTwoPairs.and((short) 0xFF)
+            ).lanewise(VectorOperators.LSHR, 8);
+
+            // Pixeles impares: byte alto. Sin el >> 8 el resultado ya queda en el byte alto.
+            ShortVector oddPixelGrayValues = calculateWeightedLuminance(
+                    channelZeroPairs.lanewise(VectorOperators.LSHR, 8),
+                    channelOnePairs.lanewise(VectorOperators.LSHR, 8),
+                    channelTwoPairs.lanewise(VectorOperators.LSHR, 8)
+            ).and((short) 0xFF00);
+
+            evenPixelGrayValues.or(oddPixelGrayValues)
+                    .reinterpretAsBytes()
+                    .intoArray(outputGrayScaleData, pixelIndex);
+        }
+
+        // Cola escalar para los pixeles que no llenan un vector completo.
+        for (; pixelIndex < numberOfPixels; pixelIndex++) {
+
+            int colorChannelBaseIndex = pixelIndex * 3;
+
+            int colorChannelBlueValue = inputColorDataBlueGreenRed[colorChannelBaseIndex] & 0xFF;
+
+            int colorChannelRedValue = inputColorDataBlueGreenRed[colorChannelBaseIndex + 1] & 0xFF;
+
+            int colorChannelGreenValue = inputColorDataBlueGreenRed[colorChannelBaseIndex + 2] & 0xFF;
+
+            outputGrayScaleData[pixelIndex] = (byte) (
+                    ( 77 * colorChannelRedValue + 150 * colorChannelGreenValue + 29 * colorChannelBlueValue ) >> 8
+            );
+        }
+    }
+
+    /**
+     * 77 * c1 + 150 * c2 + 29 * c0 fits in 16 unsigned bits (at most 65280), so wrapping to a
+     * negative short does not matter: only logical shifts and masks are applied afterwards.
+     */
+    private static ShortVector calculateWeightedLuminance(
+            ShortVector channelZeroValues,
+            ShortVector channelOneValues,
+            ShortVector channelTwoValues
+    ) {
+        return channelOneValues.mul((short) CHANNEL_ONE_LUMINANCE_WEIGHT)
+                .add(channelTwoValues.mul((short) CHANNEL_TWO_LUMINANCE_WEIGHT))
+                .add(channelZeroValues.mul((short) CHANNEL_ZERO_LUMINANCE_WEIGHT));
+    }
+
+    /**
+     * The channel c byte of the pixel in lane i sits at position 3 * i + c of the 3 * N byte block.
+     * Positions below 2 * N come from the first two vectors (two-vector rearrange); the rest come
+     * from the third one.
+     */
+    private static VectorShuffle<Byte> createChannelShuffle(int colorChannelIndex, boolean fromThirdVector) {
+
+        int[] shuffleIndexArray = new int[BYTE_VECTOR_LANE_COUNT];
+
+        for (int laneIndex = 0; laneIndex < BYTE_VECTOR_LANE_COUNT; laneIndex++) {
+
+            int interleavedBytePosition = 3 * laneIndex + colorChannelIndex;
+
+            if (fromThirdVector) {
+                shuffleIndexArray[laneIndex] = interleavedBytePosition >= 2 * BYTE_VECTOR_LANE_COUNT
+                        ? interleavedBytePosition - 2 * BYTE_VECTOR_LANE_COUNT
+                        : 0;
+            } else {
+                shuffleIndexArray[laneIndex] = interleavedBytePosition < 2 * BYTE_VECTOR_LANE_COUNT
+                        ? interleavedBytePosition
+                        : 0;
+            }
+        }
+
+        return VectorShuffle.fromArray(BYTE_VECTOR_SPECIES, shuffleIndexArray, 0);
+    }
+
+    private static VectorMask<Byte> createChannelThirdVectorMask(int colorChannelIndex) {
+
+        boolean[] laneFromThirdVectorArray = new boolean[BYTE_VECTOR_LANE_COUNT];
+
+        for (int laneIndex = 0; laneIndex < BYTE_VECTOR_LANE_COUNT; laneIndex++) {
+            laneFromThirdVectorArray[laneIndex] = 3 * laneIndex + colorChannelIndex >= 2 * BYTE_VECTOR_LANE_COUNT;
+        }
+
+        return VectorMask.fromArray(BYTE_VECTOR_SPECIES, laneFromThirdVectorArray, 0);
+    }
+}
@@ -0,0 +1,204 @@
+package org.PhantomCamera.Utils;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Row-by-row 3x3 Sobel with jdk.incubator.vector.
+ * <p>
+ * The kernel is separable, so each byte of the three rows is loaded only once:
+ * <pre>
+ *   columnSmooth[x]     = top[x] + 2 * middle[x] + bottom[x]
+ *   columnDifference[x] = top[x] - bottom[x]
+ *   Gx[x] = columnSmooth[x + 1] - columnSmooth[x - 1]
+ *   Gy[x] = columnDifference[x - 1] + 2 * columnDifference[x] + columnDifference[x + 1]
+ * </pre>
+ * The two column rows are computed first for the whole width, then Gx, Gy, |Gx| + |Gy| and the
+ * threshold mask come from shifted loads of those rows. Everything fits in 16 bits
+ * (|Gx|, |Gy| <= 1020); only the magnitude is widened to int for the output array.
+ * <p>
+ * Results are identical to the scalar loop of {@code AprilTagEdgeDetector}.
+ * Only loaded through {@link VectorSupport#findVectorizedKernel}, which checks the module first.
+ */
+public final class VectorizedSobelEdgeUtils {
+
+    private static final VectorSpecies<Short> SHORT_VECTOR_SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    private static final int SHORT_VECTOR_LANE_COUNT = SHORT_VECTOR_SPECIES.length();
+
+    /**
+     * Bytes with the same lane count as the shorts (half the bit width).
+     */
+    private static final VectorSpecies<Byte> BYTE_VECTOR_SPECIES = VectorSpecies.of(
+            byte.class, VectorShape.forBitSize(SHORT_VECTOR_SPECIES.vectorBitSize() / 2)
+    );
+
+    /**
+     * Ints with the same bit width as the shorts: each short vector gives two int vectors.
+     */
+    private static final VectorSpecies<Integer> INT_VECTOR_SPECIES = VectorSpecies.of(
+            int.class, SHORT_VECTOR_SPECIES.vectorShape()
+    );
+
+    private static final int INT_VECTOR_LANE_COUNT = INT_VECTOR_SPECIES.length();
+
+    private VectorizedSobelEdgeUtils() {}
+
+    /**
+     * Computes one full interior row. Positions 0 and frameWidth - 1 are not written.
+     *
+     * @param columnSmoothShortArray     scratch of at least frameWidth shorts
+     * @param columnDifferenceShortArray scratch of at least frameWidth shorts
+     * @param gradientMagnitudeIntegerArray |Gx| + |Gy| output (full frame)
+     * @param middleRowStartIndex        index of pixel (0, y) of the middle row in the frame arrays
+     * @param edgeBinaryRowByteArray     output row, 255 where magnitude >= threshold and 0 elsewhere
+     */
+    public static void calculateSobelEdgeRow(
+            byte[] topGrayscaleRowByteArray,
+            byte[] middleGrayscaleRowByteArray,
+            byte[] bottomGrayscaleRowByteArray,
+            int frameWidth,
+            short[] columnSmoothShortArray,
+            short[] columnDifferenceShortArray,
+            int[] gradientMagnitudeIntegerArray,
+            int middleRowStartIndex,
+            int gradientMagnitudeThresholdValue,
+            byte[] edgeBinaryRowByteArray
+    ) {
+        calculateColumnSums(
+                topGrayscaleRowByteArray,
+                middleGrayscaleRowByteArray,
+                bottomGrayscaleRowByteArray,
+                frameWidth,
+                columnSmoothShortArray,
+                columnDifferenceShortArray
+        );
+
+        // |Gx| + |Gy| <= 2040, asi un umbral fuera del rango short se puede recortar sin cambiar el resultado
+        short gradientMagnitudeThresholdShortValue = (short) Math.max(
+                Short.MIN_VALUE, Math.min(Short.MAX_VALUE, gradientMagnitudeThresholdValue)
+        );
+
+        int pixelXPosition = 1;
+
+        int lastVectorPixelXPosition = frameWidth - 1 - SHORT_VECTOR_LANE_COUNT;
+
+        for (; pixelXPosition <= lastVectorPixelXPosition; pixelXPosition += SHORT_VECTOR_LANE_COUNT) {
+
+            ShortVector leftColumnSmoothVector =
+                    ShortVector.fromArray(SHORT_VECTOR_SPECIES, columnSmoothShortArray, pixelXPosition - 1);
+            ShortVector rightColumnSmoothVector =
+                    ShortVector.fromArray(SHORT_VECTOR_SPECIES, columnSmoothShortArray, pixelXPosition + 1);
+
+            ShortVector leftColumnDifferenceVector =
+                    ShortVector.fromArray(SHORT_VECTOR_SPECIES, columnDifferenceShortArray, pixelXPosition - 1);
+            ShortVector centerColumnDifferenceVector =
+                    ShortVector.fromArray(SHORT_VECTOR_SPECIES, columnDifferenceShortArray, pixelXPosition);
+            ShortVector rightColumnDifferenceVector =
+                    ShortVector.fromArray(SHORT_VECTOR_SPECIES, columnDifferenceShortArray, pixelXPosition + 1);
+
+            ShortVector gradientXVector = rightColumnSmoothVector.sub(leftColumnSmoothVector);
+
+            ShortVector gradientYVector = leftColumnDifferenceVector
+                    .add(centerColumnDifferenceVector.lanewise(VectorOperators.LSHL, 1))
+                    .add(rightColumnDifferenceVector);
+
+            int pixelIndex = middleRowStartIndex + pixelXPosition;
+
+            ShortVector gradientMagnitudeVector = gradientXVector.abs().add(gradientYVector.abs());
+
+            gradientMagnitudeVector
+                    .convertShape(VectorOperators.S2I, INT_VECTOR_SPECIES, 0)
+                    .reinterpretAsInts()
+                    .intoArray(gradientMagnitudeIntegerArray, pixelIndex);
+            gradientMagnitudeVector
+                    .convertShape(VectorOperators.S2I, INT_VECTOR_SPECIES, 1)
+                    .reinterpretAsInts()
+                    .intoArray(gradientMagnitudeIntegerArray, pixelIndex + INT_VECTOR_LANE_COUNT);
+
+            VectorMask<Short> edgePixelMask =
+                    gradientMagnitudeVector.compare(VectorOperators.GE, gradientMagnitudeThresholdShortValue);
+
+            ByteVector.zero(BYTE_VECTOR_SPECIES)
+                    .blend((byte) 255, edgePixelMask.cast(BYTE_VECTOR_SPECIES))
+                    .intoArray(edgeBinaryRowByteArray, pixelXPosition);
+        }
+
+        // Cola escalar con las mismas formulas separables
+        for (; pixelXPosition < frameWidth - 1; pixelXPosition++) {
+
+            int gradientXValue =
+                    columnSmoothShortArray[pixelXPosition + 1] - columnSmoothShortArray[pixelXPosition - 1];
+
+            int gradientYValue =
+                    columnDifferenceShortArray[pixelXPosition - 1]
+                            + 2 * columnDifferenceShortArray[pixelXPosition]
+                            + columnDifferenceShortArray[pixelXPosition + 1];
+
+            int pixelIndex = middleRowStartIndex + pixelXPosition;
+
+            int gradientMagnitudeValue = Math.abs(gradientXValue) + Math.abs(gradientYValue);
+
+            gradientMagnitudeIntegerArray[pixelIndex] = gradientMagnitudeValue;
+
+            edgeBinaryRowByteArray[pixelXPosition] =
+                    gradientMagnitudeValue >= gradientMagnitudeThresholdValue ? (byte) 255 : 0;
+        }
+    }
+
+    /**
+     * Loads unsigned byte lanes as shorts. B2S sign-extends, hence the and with 0xFF;
+     * ZERO_EXTEND_B2S would be more direct but fails on JDK 17.
+     */
+    private static ShortVector loadUnsignedIntensityVector(byte[] grayscaleRowByteArray, int pixelXPosition) {
+        return ((ShortVector) ByteVector
+                .fromArray(BYTE_VECTOR_SPECIES, grayscaleRowByteArray, pixelXPosition)
+                .convertShape(VectorOperators.B2S, SHORT_VECTOR_SPECIES, 0))
+                .and((short) 0xFF);
+    }
+
+    private static void calculateColumnSums(
+            byte[] topGrayscaleRowByteArray,
+            byte[] middleGrayscaleRowByteArray,
+            byte[] bottomGrayscaleRowByteArray,
+            int frameWidth,
+            short[] columnSmoothShortArray,
+            short[] columnDifferenceShortArray
+    ) {
+        int pixelXPosition = 0;
+
+        int lastVectorPixelXPosition = frameWidth - SHORT_VECTOR_LANE_COUNT;
+
+        for (; pixelXPosition <= lastVectorPixelXPosition; pixelXPosition += SHORT_VECTOR_LANE_COUNT) {
+
+            ShortVector topIntensityVector = loadUnsignedIntensityVector(topGrayscaleRowByteArray, pixelXPosition);
+            ShortVector middleIntensityVector = loadUnsignedIntensityVector(middleGrayscaleRowByteArray, pixelXPosition);
+            ShortVector bottomIntensityVector = loadUnsignedIntensityVector(bottomGrayscaleRowByteArray, pixelXPosition);
+
+            topIntensityVector
+                    .add(middleIntensityVector.lanewise(VectorOperators.LSHL, 1))
+                    .add(bottomIntensityVector)
+                    .intoArray(columnSmoothShortArray, pixelXPosition);
+
+            topIntensityVector
+                    .sub(bottomIntensityVector)
+                    .intoArray(columnDifferenceShortArray, pixelXPosition);
+        }
+
+        for (; pixelXPosition < frameWidth; pixelXPosition++) {
+
+            int topIntensityValue = topGrayscaleRowByteArray[pixelXPosition] & 0xFF;
+            int middleIntensityValue = middleGrayscaleRowByteArray[pixelXPosition] & 0xFF;
+            int bottomIntensityValue = bottomGrayscaleRowByteArray[pixelXPosition] & 0xFF;
+
+            columnSmoothShortArray[pixelXPosition] =
+                    (short) (topIntensityValue + 2 * middleIntensityValue + bottomIntensityValue);
+            columnDifferenceShortArray[pixelXPosition] =
+                    (short) (topIntensityValue - bottomIntensityValue);
+        }
+    }
+}
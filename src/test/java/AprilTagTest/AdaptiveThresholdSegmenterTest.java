@@ -0,0 +1,365 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTagAdaptiveThresholdSegmenter;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Clasificacion negro / blanco / desconocido y frame de borde de
+ * {@link AprilTagAdaptiveThresholdSegmenter} contra una implementacion directa pixel a pixel.
+ * <p>
+ * Cubre frames aleatorios de tamanos que no son multiplo del tile (tiles parciales a la derecha
+ * y abajo), tiles de contraste justo por debajo y justo en el minimo, un escalon con el borde
+ * pegado a las filas 0 y H-1 y a las columnas 0 y W-1 (que deben quedar en 0), frames de menos
+ * de 3 pixeles de ancho o alto, y que el frame umbralizado solo se escribe con la retencion activa.
+ * No necesita camara ni OpenCV nativo.
+ */
+public class AdaptiveThresholdSegmenterTest {
+
+    private static final int RANDOM_FRAME_COUNT = 40;
+
+    public static void main(String[] args) {
+        try {
+            runAdaptiveThresholdSegmenterTest();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in AdaptiveThresholdSegmenterTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void runAdaptiveThresholdSegmenterTest() {
+        Random randomGenerator = new Random(20_4_4L);
+
+        int comparedFrameCount = 0;
+
+        for (int frameIndex = 0; frameIndex < RANDOM_FRAME_COUNT; frameIndex++) {
+            int frameWidthInPixels = 1 + randomGenerator.nextInt(70);
+            int frameHeightInPixels = 1 + randomGenerator.nextInt(50);
+            int tileSizeInPixels = 1 + randomGenerator.nextInt(9);
+            int minimumTileContrastValue = randomGenerator.nextInt(80);
+
+            byte[] grayscaleByteArray = createBlockyNoiseFrame(frameWidthInPixels, frameHeightInPixels, randomGenerator);
+
+            compareAgainstReference(
+                    frameWidthInPixels, frameHeightInPixels, tileSizeInPixels, minimumTileContrastValue,
+                    grayscaleByteArray, "random frame " + frameIndex
+            );
+            comparedFrameCount++;
+        }
+
+        System.out.println("Correctness: " + comparedFrameCount + " random frames with partial tiles match the reference");
+
+        verifyLowContrastTilesAreUnknown();
+        verifyStepEdgeBoundaryAndFrameBorders();
+        verifyThresholdedFrameRetention();
+    }
+
+    /**
+     * Rango 29 con contraste minimo 30 es desconocido; rango 30 se clasifica.
+     */
+    private static void verifyLowContrastTilesAreUnknown() {
+        int frameWidthInPixels = 24;
+        int frameHeightInPixels = 16;
+
+        for (int intensityRange = 29; intensityRange <= 30; intensityRange++) {
+            byte[] grayscaleByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+
+            for (int pixelIndex = 0; pixelIndex < grayscaleByteArray.length; pixelIndex++) {
+                int pixelXPosition = pixelIndex % frameWidthInPixels;
+                int pixelYPosition = pixelIndex / frameWidthInPixels;
+                grayscaleByteArray[pixelIndex] = (byte) (100 + ((pixelXPosition + pixelYPosition) % 2) * intensityRange);
+            }
+
+            byte[] thresholdedByteArray = compareAgainstReference(
+                    frameWidthInPixels, frameHeightInPixels, 4, 30, grayscaleByteArray, "contrast " + intensityRange
+            );
+
+            for (int pixelIndex = 0; pixelIndex < thresholdedByteArray.length; pixelIndex++) {
+                boolean unknownPixel = thresholdedByteArray[pixelIndex] == AprilTagAdaptiveThresholdSegmenter.UNKNOWN_PIXEL_VALUE;
+
+                if (unknownPixel != (intensityRange < 30)) {
+                    throw new IllegalStateException(
+                            "Contrast " + intensityRange + ": pixel " + pixelIndex + " classified as " + thresholdedByteArray[pixelIndex]
+                    );
+                }
+            }
+        }
+
+        System.out.println("Correctness: tiles below the minimum contrast are unknown, tiles at it are classified");
+    }
+
+    /**
+     * Escalon vertical negro / blanco que cruza todo el frame: el borde esta en la columna negra
+     * junto a la blanca, en todas las filas salvo la 0 y la H-1. Un segundo escalon pegado a la
+     * columna W-1 no debe marcar esa columna.
+     */
+    private static void verifyStepEdgeBoundaryAndFrameBorders() {
+        int frameWidthInPixels = 23;
+        int frameHeightInPixels = 11;
+        int firstWhiteColumn = 9;
+
+        byte[] grayscaleByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+
+        for (int pixelIndex = 0; pixelIndex < grayscaleByteArray.length; pixelIndex++) {
+            int pixelXPosition = pixelIndex % frameWidthInPixels;
+            boolean whitePixel = pixelXPosition >= firstWhiteColumn && pixelXPosition < frameWidthInPixels - 1;
+            grayscaleByteArray[pixelIndex] = whitePixel ? (byte) 210 : (byte) 30;
+        }
+
+        AprilTagAdaptiveThresholdSegmenter aprilTagAdaptiveThresholdSegmenter =
+                new AprilTagAdaptiveThresholdSegmenter(frameWidthInPixels, frameHeightInPixels, 4, 30);
+
+        byte[] boundaryByteArray = segmentFrame(
+                aprilTagAdaptiveThresholdSegmenter, frameWidthInPixels, frameHeightInPixels, grayscaleByteArray
+        );
+
+        for (int pixelYPosition = 0; pixelYPosition < frameHeightInPixels; pixelYPosition++) {
+            for (int pixelXPosition = 0; pixelXPosition < frameWidthInPixels; pixelXPosition++) {
+                boolean insideFrameBorder = pixelYPosition > 0 && pixelYPosition < frameHeightInPixels - 1
+                        && pixelXPosition > 0 && pixelXPosition < frameWidthInPixels - 1;
+                boolean expectedBoundaryPixel = insideFrameBorder && pixelXPosition == firstWhiteColumn - 1;
+
+                boolean boundaryPixel = boundaryByteArray[pixelYPosition * frameWidthInPixels + pixelXPosition] != 0;
+
+                if (boundaryPixel != expectedBoundaryPixel) {
+                    throw new IllegalStateException(
+                            "Step edge: boundary at (" + pixelXPosition + ", " + pixelYPosition + ") is " + boundaryPixel
+                    );
+                }
+            }
+        }
+
+        // Menos de 3 filas o columnas: no hay fila o columna del medio y todo queda en 0
+        int[][] narrowFrameSizeArray = {{2, 9}, {9, 2}, {1, 1}};
+
+        for (int[] narrowFrameSize : narrowFrameSizeArray) {
+            byte[] narrowGrayscaleByteArray = new byte[narrowFrameSize[0] * narrowFrameSize[1]];
+
+            for (int pixelIndex = 0; pixelIndex < narrowGrayscaleByteArray.length; pixelIndex++) {
+                narrowGrayscaleByteArray[pixelIndex] = (pixelIndex % 2 == 0) ? (byte) 20 : (byte) 220;
+            }
+
+            byte[] narrowBoundaryByteArray = segmentFrame(
+                    new AprilTagAdaptiveThresholdSegmenter(narrowFrameSize[0], narrowFrameSize[1], 4, 30),
+                    narrowFrameSize[0], narrowFrameSize[1], narrowGrayscaleByteArray
+            );
+
+            for (byte boundaryValue : narrowBoundaryByteArray) {
+                if (boundaryValue != 0) {
+                    throw new IllegalStateException(
+                            "Frame " + narrowFrameSize[0] + "x" + narrowFrameSize[1] + " has boundary pixels"
+                    );
+                }
+            }
+        }
+
+        System.out.println("Correctness: step edge marked on its dark side, rows 0 / H-1 and columns 0 / W-1 stay 0");
+    }
+
+    private static void verifyThresholdedFrameRetention() {
+        int frameWidthInPixels = 37;
+        int frameHeightInPixels = 21;
+
+        Random randomGenerator = new Random(20L);
+
+        AprilTagAdaptiveThresholdSegmenter aprilTagAdaptiveThresholdSegmenter =
+                new AprilTagAdaptiveThresholdSegmenter(frameWidthInPixels, frameHeightInPixels);
+
+        byte[] firstGrayscaleByteArray = createBlockyNoiseFrame(frameWidthInPixels, frameHeightInPixels, randomGenerator);
+        segmentFrame(aprilTagAdaptiveThresholdSegmenter, frameWidthInPixels, frameHeightInPixels, firstGrayscaleByteArray);
+
+        if (aprilTagAdaptiveThresholdSegmenter.isThresholdedFrameRetentionEnabled()
+                || aprilTagAdaptiveThresholdSegmenter.getThresholdedFrameBuffer() != null) {
+            throw new IllegalStateException("Thresholded frame retained without enabling it");
+        }
+
+        aprilTagAdaptiveThresholdSegmenter.setThresholdedFrameRetentionEnabled(true);
+        segmentFrame(aprilTagAdaptiveThresholdSegmenter, frameWidthInPixels, frameHeightInPixels, firstGrayscaleByteArray);
+
+        byte[] retainedByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+        aprilTagAdaptiveThresholdSegmenter.getThresholdedFrameBuffer().copyToByteArray(retainedByteArray);
+
+        byte[] expectedThresholdedByteArray = new byte[retainedByteArray.length];
+        calculateReferenceSegmentation(
+                frameWidthInPixels, frameHeightInPixels,
+                AprilTagAdaptiveThresholdSegmenter.DEFAULT_TILE_SIZE_IN_PIXELS,
+                AprilTagAdaptiveThresholdSegmenter.DEFAULT_MINIMUM_TILE_CONTRAST_VALUE,
+                firstGrayscaleByteArray, expectedThresholdedByteArray, new byte[retainedByteArray.length]
+        );
+
+        if (!Arrays.equals(retainedByteArray, expectedThresholdedByteArray)) {
+            throw new IllegalStateException("Retained thresholded frame differs from the reference");
+        }
+
+        // Con la retencion apagada otra vez, el frame guardado no cambia
+        aprilTagAdaptiveThresholdSegmenter.setThresholdedFrameRetentionEnabled(false);
+        segmentFrame(
+                aprilTagAdaptiveThresholdSegmenter, frameWidthInPixels, frameHeightInPixels,
+                createBlockyNoiseFrame(frameWidthInPixels, frameHeightInPixels, randomGenerator)
+        );
+
+        byte[] afterDisableByteArray = new byte[retainedByteArray.length];
+        aprilTagAdaptiveThresholdSegmenter.getThresholdedFrameBuffer().copyToByteArray(afterDisableByteArray);
+
+        if (!Arrays.equals(retainedByteArray, afterDisableByteArray)) {
+            throw new IllegalStateException("Thresholded frame written with retention disabled");
+        }
+
+        System.out.println("Correctness: thresholded frame written only while retention is enabled");
+    }
+
+    /**
+     * Segmenta con la retencion activa y compara el frame umbralizado y el de borde con la referencia.
+     *
+     * @return frame umbralizado
+     */
+    private static byte[] compareAgainstReference(
+            int frameWidthInPixels,
+            int frameHeightInPixels,
+            int tileSizeInPixels,
+            int minimumTileContrastValue,
+            byte[] grayscaleByteArray,
+            String caseDescription
+    ) {
+        AprilTagAdaptiveThresholdSegmenter aprilTagAdaptiveThresholdSegmenter = new AprilTagAdaptiveThresholdSegmenter(
+                frameWidthInPixels, frameHeightInPixels, tileSizeInPixels, minimumTileContrastValue
+        );
+        aprilTagAdaptiveThresholdSegmenter.setThresholdedFrameRetentionEnabled(true);
+
+        byte[] boundaryByteArray = segmentFrame(
+                aprilTagAdaptiveThresholdSegmenter, frameWidthInPixels, frameHeightInPixels, grayscaleByteArray
+        );
+
+        byte[] thresholdedByteArray = new byte[grayscaleByteArray.length];
+        aprilTagAdaptiveThresholdSegmenter.getThresholdedFrameBuffer().copyToByteArray(thresholdedByteArray);
+
+        byte[] expectedThresholdedByteArray = new byte[grayscaleByteArray.length];
+        byte[] expectedBoundaryByteArray = new byte[grayscaleByteArray.length];
+        calculateReferenceSegmentation(
+                frameWidthInPixels, frameHeightInPixels, tileSizeInPixels, minimumTileContrastValue,
+                grayscaleByteArray, expectedThresholdedByteArray, expectedBoundaryByteArray
+        );
+
+        for (int pixelIndex = 0; pixelIndex < grayscaleByteArray.length; pixelIndex++) {
+            if (thresholdedByteArray[pixelIndex] != expectedThresholdedByteArray[pixelIndex]
+                    || boundaryByteArray[pixelIndex] != expectedBoundaryByteArray[pixelIndex]) {
+                throw new IllegalStateException(
+                        caseDescription + " (" + frameWidthInPixels + "x" + frameHeightInPixels + ", tile " + tileSizeInPixels
+                                + ", contrast " + minimumTileContrastValue + "): pixel ("
+                                + (pixelIndex % frameWidthInPixels) + ", " + (pixelIndex / frameWidthInPixels)
+                                + ") thresholded " + thresholdedByteArray[pixelIndex] + " / " + expectedThresholdedByteArray[pixelIndex]
+                                + ", boundary " + boundaryByteArray[pixelIndex] + " / " + expectedBoundaryByteArray[pixelIndex]
+                );
+            }
+        }
+
+        return thresholdedByteArray;
+    }
+
+    private static byte[] segmentFrame(
+            AprilTagAdaptiveThresholdSegmenter aprilTagAdaptiveThresholdSegmenter,
+            int frameWidthInPixels,
+            int frameHeightInPixels,
+            byte[] grayscaleByteArray
+    ) {
+        DirectFrameBuffer grayscaleFrameBuffer = new DirectFrameBuffer(frameWidthInPixels, frameHeightInPixels, 1);
+        grayscaleFrameBuffer.copyFromByteArray(grayscaleByteArray);
+
+        byte[] boundaryByteArray = new byte[grayscaleByteArray.length];
+        aprilTagAdaptiveThresholdSegmenter.calculateBoundaryBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer)
+                .copyToByteArray(boundaryByteArray);
+
+        return boundaryByteArray;
+    }
+
+    /**
+     * Bloques de 1 a 6 pixeles de gris aleatorio con algo de ruido: mezcla tiles planos y con contraste.
+     */
+    private static byte[] createBlockyNoiseFrame(int frameWidthInPixels, int frameHeightInPixels, Random randomGenerator) {
+        int blockSizeInPixels = 1 + randomGenerator.nextInt(6);
+        int blockColumnCount = (frameWidthInPixels + blockSizeInPixels - 1) / blockSizeInPixels;
+        int blockRowCount = (frameHeightInPixels + blockSizeInPixels - 1) / blockSizeInPixels;
+
+        int[] blockIntensityArray = new int[blockColumnCount * blockRowCount];
+        for (int blockIndex = 0; blockIndex < blockIntensityArray.length; blockIndex++) {
+            blockIntensityArray[blockIndex] = 20 + randomGenerator.nextInt(216);
+        }
+
+        byte[] grayscaleByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+
+        for (int pixelYPosition = 0; pixelYPosition < frameHeightInPixels; pixelYPosition++) {
+            for (int pixelXPosition = 0; pixelXPosition < frameWidthInPixels; pixelXPosition++) {
+                int blockIndex = (pixelYPosition / blockSizeInPixels) * blockColumnCount + pixelXPosition / blockSizeInPixels;
+                grayscaleByteArray[pixelYPosition * frameWidthInPixels + pixelXPosition] =
+                        (byte) (blockIntensityArray[blockIndex] + randomGenerator.nextInt(21) - 10);
+            }
+        }
+
+        return grayscaleByteArray;
+    }
+
+    /**
+     * Referencia directa: rango de los tiles vecinos por pixel, umbral en el punto medio y
+     * borde en los pixeles negros interiores con un vecino 4 blanco.
+     */
+    private static void calculateReferenceSegmentation(
+            int frameWidthInPixels,
+            int frameHeightInPixels,
+            int tileSizeInPixels,
+            int minimumTileContrastValue,
+            byte[] grayscaleByteArray,
+            byte[] thresholdedByteArray,
+            byte[] boundaryByteArray
+    ) {
+        for (int pixelYPosition = 0; pixelYPosition < frameHeightInPixels; pixelYPosition++) {
+            for (int pixelXPosition = 0; pixelXPosition < frameWidthInPixels; pixelXPosition++) {
+                int tileColumnIndex = pixelXPosition / tileSizeInPixels;
+                int tileRowIndex = pixelYPosition / tileSizeInPixels;
+
+                // Todos los pixeles de los tiles vecinos que existen, tiles parciales incluidos
+                int firstNeighbourXPosition = Math.max(0, (tileColumnIndex - 1) * tileSizeInPixels);
+                int endNeighbourXPosition = Math.min(frameWidthInPixels, (tileColumnIndex + 2) * tileSizeInPixels);
+                int firstNeighbourYPosition = Math.max(0, (tileRowIndex - 1) * tileSizeInPixels);
+                int endNeighbourYPosition = Math.min(frameHeightInPixels, (tileRowIndex + 2) * tileSizeInPixels);
+
+                int minimumIntensityValue = 255;
+                int maximumIntensityValue = 0;
+
+                for (int neighbourYPosition = firstNeighbourYPosition; neighbourYPosition < endNeighbourYPosition; neighbourYPosition++) {
+                    for (int neighbourXPosition = firstNeighbourXPosition; neighbourXPosition < endNeighbourXPosition; neighbourXPosition++) {
+                        int intensityValue = grayscaleByteArray[neighbourYPosition * frameWidthInPixels + neighbourXPosition] & 0xFF;
+                        minimumIntensityValue = Math.min(minimumIntensityValue, intensityValue);
+                        maximumIntensityValue = Math.max(maximumIntensityValue, intensityValue);
+                    }
+                }
+
+                int pixelIndex = pixelYPosition * frameWidthInPixels + pixelXPosition;
+
+                if (maximumIntensityValue - minimumIntensityValue < minimumTileContrastValue) {
+                    thresholdedByteArray[pixelIndex] = AprilTagAdaptiveThresholdSegmenter.UNKNOWN_PIXEL_VALUE;
+                } else {
+                    int thresholdValue = (minimumIntensityValue + maximumIntensityValue) / 2;
+                    thresholdedByteArray[pixelIndex] = (grayscaleByteArray[pixelIndex] & 0xFF) > thresholdValue
+                            ? AprilTagAdaptiveThresholdSegmenter.WHITE_PIXEL_VALUE
+                            : AprilTagAdaptiveThresholdSegmenter.BLACK_PIXEL_VALUE;
+                }
+            }
+        }
+
+        for (int pixelYPosition = 1; pixelYPosition < frameHeightInPixels - 1; pixelYPosition++) {
+            for (int pixelXPosition = 1; pixelXPosition < frameWidthInPixels - 1; pixelXPosition++) {
+                int pixelIndex = pixelYPosition * frameWidthInPixels + pixelXPosition;
+
+                boolean boundaryPixel = thresholdedByteArray[pixelIndex] == AprilTagAdaptiveThresholdSegmenter.BLACK_PIXEL_VALUE
+                        && (thresholdedByteArray[pixelIndex - 1] == AprilTagAdaptiveThresholdSegmenter.WHITE_PIXEL_VALUE
+                        || thresholdedByteArray[pixelIndex + 1] == AprilTagAdaptiveThresholdSegmenter.WHITE_PIXEL_VALUE
+                        || thresholdedByteArray[pixelIndex - frameWidthInPixels] == AprilTagAdaptiveThresholdSegmenter.WHITE_PIXEL_VALUE
+                        || thresholdedByteArray[pixelIndex + frameWidthInPixels] == AprilTagAdaptiveThresholdSegmenter.WHITE_PIXEL_VALUE);
+
+                boundaryByteArray[pixelIndex] = boundaryPixel ? (byte) 255 : 0;
+            }
+        }
+    }
+}
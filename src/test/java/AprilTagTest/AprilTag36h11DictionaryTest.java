@@ -0,0 +1,118 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary.ApriltagCode;
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary.ApriltagCodeMatch;
+
+import java.util.Random;
+
+/**
+ * Checks the embedded tag36h11 table and the hash-indexed lookup.
+ * <p>
+ * Verifies the family size (587), the first code of the classic row-major table, the minimum
+ * Hamming distance over all rotations (11), and that every code decodes to its own id in
+ * every rotation with 0, 1 and 2 flipped bits. No camera or native OpenCV needed.
+ */
+public class AprilTag36h11DictionaryTest {
+
+    private static final long FIRST_ROW_MAJOR_TAG36H11_CODE = 0xd5d628584L;
+
+    private static final int MINIMUM_TAG36H11_HAMMING_DISTANCE = 11;
+
+    public static void main(String[] args) {
+        try {
+            runAprilTag36h11DictionaryTest();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in AprilTag36h11DictionaryTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void runAprilTag36h11DictionaryTest() {
+
+        long[] tagCodeArray = AprilTag36h11Dictionary.getTag36h11CodeArray();
+
+        if (tagCodeArray.length != AprilTag36h11Dictionary.TAG36H11_FAMILY_CODE_COUNT) {
+            throw new IllegalStateException(
+                    "Expected " + AprilTag36h11Dictionary.TAG36H11_FAMILY_CODE_COUNT + " codes but found " + tagCodeArray.length
+            );
+        }
+
+        if (tagCodeArray[0] != FIRST_ROW_MAJOR_TAG36H11_CODE) {
+            throw new IllegalStateException(
+                    "Code of tag 0 is 0x" + Long.toHexString(tagCodeArray[0]) + ", not the row-major table"
+            );
+        }
+
+        int minimumHammingDistance = AprilTag36h11Dictionary.calculateMinimumHammingDistance(tagCodeArray);
+
+        if (minimumHammingDistance < MINIMUM_TAG36H11_HAMMING_DISTANCE) {
+            throw new IllegalStateException(
+                    "Minimum Hamming distance is " + minimumHammingDistance + ", expected at least " + MINIMUM_TAG36H11_HAMMING_DISTANCE
+            );
+        }
+
+        System.out.println("Table: " + tagCodeArray.length + " codes, minimum distance " + minimumHammingDistance);
+
+        long indexStartNanoseconds = System.nanoTime();
+        AprilTag36h11Dictionary aprilTag36h11Dictionary = AprilTag36h11Dictionary.createTag36h11Dictionary();
+        System.out.printf("Index built in %.1f ms%n", (System.nanoTime() - indexStartNanoseconds) / 1e6);
+
+        verifyEveryCodeDecodes(aprilTag36h11Dictionary);
+
+        System.out.println("Correctness: every code decodes in every rotation with up to "
+                + AprilTag36h11Dictionary.MAXIMUM_CORRECTED_BIT_ERROR_COUNT + " bit errors");
+    }
+
+    private static void verifyEveryCodeDecodes(AprilTag36h11Dictionary aprilTag36h11Dictionary) {
+
+        Random randomGenerator = new Random(36_11L);
+
+        for (ApriltagCode apriltagCode : aprilTag36h11Dictionary.getCodeList()) {
+            for (int rotationIndex = 0; rotationIndex < 4; rotationIndex++) {
+
+                // Bits vistos con la etiqueta girada: hay que girarlos (4 - rotationIndex) veces para volver al codigo
+                long observedCodeBits = apriltagCode.rotatedCodeBitArray[rotationIndex];
+                int expectedRotationIndex = (4 - rotationIndex) % 4;
+
+                for (int flippedBitCount = 0;
+                     flippedBitCount <= AprilTag36h11Dictionary.MAXIMUM_CORRECTED_BIT_ERROR_COUNT;
+                     flippedBitCount++) {
+
+                    long corruptedCodeBits = observedCodeBits;
+                    int firstFlippedBitIndex = randomGenerator.nextInt(AprilTag36h11Dictionary.TAG36H11_BIT_COUNT);
+
+                    if (flippedBitCount >= 1) {
+                        corruptedCodeBits ^= 1L << firstFlippedBitIndex;
+                    }
+                    if (flippedBitCount == 2) {
+                        int secondFlippedBitIndex = (firstFlippedBitIndex + 1
+                                + randomGenerator.nextInt(AprilTag36h11Dictionary.TAG36H11_BIT_COUNT - 1))
+                                % AprilTag36h11Dictionary.TAG36H11_BIT_COUNT;
+                        corruptedCodeBits ^= 1L << secondFlippedBitIndex;
+                    }
+
+                    ApriltagCodeMatch apriltagCodeMatch = aprilTag36h11Dictionary.findMatchingCode(corruptedCodeBits);
+
+                    if (apriltagCodeMatch == null
+                            || apriltagCodeMatch.tagId != apriltagCode.tagId
+                            || apriltagCodeMatch.rotationIndex != expectedRotationIndex
+                            || apriltagCodeMatch.hammingDistance != flippedBitCount) {
+                        throw new IllegalStateException(
+                                "Tag " + apriltagCode.tagId + " rotation " + rotationIndex + " with " + flippedBitCount
+                                        + " flipped bits decoded as " + describeMatch(apriltagCodeMatch)
+                        );
+                    }
+                }
+            }
+        }
+    }
+
+    private static String describeMatch(ApriltagCodeMatch apriltagCodeMatch) {
+        if (apriltagCodeMatch == null) {
+            return "no match";
+        }
+        return "tag " + apriltagCodeMatch.tagId + " rotation " + apriltagCodeMatch.rotationIndex
+                + " distance " + apriltagCodeMatch.hammingDistance;
+    }
+}
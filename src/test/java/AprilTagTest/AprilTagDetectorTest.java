@@ -0,0 +1,84 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.DetectedApriltag;
+import org.PhantomCamera.Camera.FrameSource;
+import org.PhantomCamera.Camera.FrameSourceFactory;
+import org.opencv.core.Mat;
+
+import java.util.List;
+
+/**
+ * Runs {@link AprilTagDetector} on a frame source and prints the tags of every frame.
+ * <p>
+ * Arguments: frame source (see {@link FrameSourceFactory}) and optionally the decimation
+ * factor. Uses the embedded tag36h11 table.
+ */
+public class AprilTagDetectorTest {
+
+    private static final int maximumNumberOfFramesToProcess = 300;
+
+    public static void main(String[] args) {
+        try {
+            runAprilTagDetectorTest(args);
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in AprilTagDetectorTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void runAprilTagDetectorTest(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: AprilTagDetectorTest <frame source> [decimation factor]");
+            return;
+        }
+
+        FrameSource cameraInstance = FrameSourceFactory.createFrameSource(args[0]);
+        if (!cameraInstance.isOpened()) {
+            System.out.println("Camera could not be opened.");
+            return;
+        }
+
+        AprilTagDetector aprilTagDetector =
+                new AprilTagDetector(AprilTag36h11Dictionary.createTag36h11Dictionary());
+
+        if (args.length > 1) {
+            aprilTagDetector.setDecimationFactor(Integer.parseInt(args[1]));
+        }
+
+        for (int currentFrameIndex = 0;
+             currentFrameIndex < maximumNumberOfFramesToProcess;
+             currentFrameIndex++) {
+
+            Mat currentColorFrameMatrix = cameraInstance.readFrame();
+
+            if (currentColorFrameMatrix == null || currentColorFrameMatrix.empty()) {
+                System.out.println("Frame read failed, skipping.");
+                continue;
+            }
+
+            long detectionStartNanoseconds = System.nanoTime();
+            List<DetectedApriltag> detectedApriltagList = aprilTagDetector.detect(currentColorFrameMatrix);
+            long detectionEndNanoseconds = System.nanoTime();
+
+            StringBuilder frameSummaryBuilder = new StringBuilder();
+            frameSummaryBuilder
+                    .append("Frame ").append(currentFrameIndex)
+                    .append(String.format(" | %.2f ms", (detectionEndNanoseconds - detectionStartNanoseconds) / 1e6))
+                    .append(" | tags:");
+
+            for (DetectedApriltag detectedApriltag : detectedApriltagList) {
+                double[] cornerPixelPositionArray = detectedApriltag.getCornerPixelPositionArray();
+                frameSummaryBuilder
+                        .append(' ').append(detectedApriltag.getTagIdIdentifier())
+                        .append(String.format("@(%.1f, %.1f)", cornerPixelPositionArray[0], cornerPixelPositionArray[1]))
+                        .append(" h=").append(detectedApriltag.getHammingDistance());
+            }
+
+            System.out.println(frameSummaryBuilder);
+        }
+
+        cameraInstance.release();
+    }
+}
@@ -0,0 +1,227 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTagQuadDecoder;
+import org.PhantomCamera.AprilTags.DetectedApriltag;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.Random;
+
+/**
+ * Decodifica etiquetas tag36h11 renderizadas con la tabla embebida.
+ * <p>
+ * Cada etiqueta se dibuja con {@link RenderedTagFrame} como la imprime AprilTag (orden row-major,
+ * bit 35 arriba a la izquierda, 1 = blanco), con rotacion en el plano, perspectiva, 0..3 cuartos
+ * de vuelta, un gradiente de iluminacion y bordes suavizados.
+ * Verifica id, rotacion y distancia de Hamming (tambien con 1 y 2 celdas invertidas), y que
+ * regiones que no son etiquetas se rechazan. Como el render usa el orden de bits documentado en
+ * {@link AprilTag36h11Dictionary}, tambien fija ese orden: una tabla en otro orden no decodifica.
+ * No necesita camara ni OpenCV nativo.
+ */
+public class AprilTagQuadDecoderTest {
+
+    private static final int FRAME_WIDTH_IN_PIXELS = 640;
+    private static final int FRAME_HEIGHT_IN_PIXELS = 480;
+
+    private static final int RENDERED_TAG_COUNT = 300;
+
+    /**
+     * Error maximo de las esquinas que se le pasan al decoder, en pixeles.
+     */
+    private static final double CORNER_JITTER_IN_PIXELS = 0.4;
+
+    private static final byte[] grayscaleByteArray = new byte[FRAME_WIDTH_IN_PIXELS * FRAME_HEIGHT_IN_PIXELS];
+
+    public static void main(String[] args) {
+        try {
+            runAprilTagQuadDecoderTest();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in AprilTagQuadDecoderTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void runAprilTagQuadDecoderTest() {
+
+        AprilTag36h11Dictionary aprilTag36h11Dictionary = AprilTag36h11Dictionary.createTag36h11Dictionary();
+        long[] tagCodeArray = AprilTag36h11Dictionary.getTag36h11CodeArray();
+
+        AprilTagQuadDecoder aprilTagQuadDecoder =
+                new AprilTagQuadDecoder(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, aprilTag36h11Dictionary);
+
+        DirectFrameBuffer grayscaleFrameBuffer = new DirectFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 1);
+
+        Random randomGenerator = new Random(36_11_17L);
+
+        double[] imageCornerCoordinateArray = new double[8];
+        double[] decoderCornerCoordinateArray = new double[8];
+
+        int decodedTagCount = 0;
+        long decodeNanoseconds = 0L;
+
+        for (int renderedTagIndex = 0; renderedTagIndex < RENDERED_TAG_COUNT; renderedTagIndex++) {
+
+            int tagId = (renderedTagIndex * 97) % tagCodeArray.length;
+            int imageRotationIndex = renderedTagIndex % 4;
+            int flippedCellCount = renderedTagIndex % 3;
+
+            long renderedCodeBits = tagCodeArray[tagId];
+
+            // Celdas invertidas distintas: el decoder debe corregirlas y reportarlas como distancia
+            int firstFlippedBitIndex = randomGenerator.nextInt(AprilTag36h11Dictionary.TAG36H11_BIT_COUNT);
+            if (flippedCellCount >= 1) {
+                renderedCodeBits ^= 1L << firstFlippedBitIndex;
+            }
+            if (flippedCellCount == 2) {
+                renderedCodeBits ^= 1L << ((firstFlippedBitIndex + 1
+                        + randomGenerator.nextInt(AprilTag36h11Dictionary.TAG36H11_BIT_COUNT - 1))
+                        % AprilTag36h11Dictionary.TAG36H11_BIT_COUNT);
+            }
+
+            createRandomPerspectiveQuad(randomGenerator, imageCornerCoordinateArray);
+
+            renderTagFrame(renderedCodeBits, imageRotationIndex, imageCornerCoordinateArray, randomGenerator);
+            grayscaleFrameBuffer.copyFromByteArray(grayscaleByteArray);
+
+            for (int coordinateIndex = 0; coordinateIndex < 8; coordinateIndex++) {
+                decoderCornerCoordinateArray[coordinateIndex] = imageCornerCoordinateArray[coordinateIndex]
+                        + (2.0 * randomGenerator.nextDouble() - 1.0) * CORNER_JITTER_IN_PIXELS;
+            }
+
+            long decodeStartNanoseconds = System.nanoTime();
+            DetectedApriltag detectedApriltag =
+                    aprilTagQuadDecoder.decodeQuadrilateral(decoderCornerCoordinateArray, 0, grayscaleFrameBuffer);
+            decodeNanoseconds += System.nanoTime() - decodeStartNanoseconds;
+
+            // Girar los bits vistos (4 - r) cuartos de vuelta en sentido horario devuelve el codigo
+            int expectedRotationIndex = (4 - imageRotationIndex) % 4;
+
+            if (detectedApriltag == null
+                    || detectedApriltag.getTagIdIdentifier() != tagId
+                    || detectedApriltag.getRotationIndex() != expectedRotationIndex
+                    || detectedApriltag.getHammingDistance() != flippedCellCount) {
+                throw new IllegalStateException(
+                        "Tag " + tagId + " rendered with " + imageRotationIndex + " quarter turn(s) and "
+                                + flippedCellCount + " flipped cell(s) decoded as " + describeDetection(detectedApriltag)
+                );
+            }
+
+            decodedTagCount++;
+        }
+
+        System.out.printf(
+                "Correctness: %d of %d rendered tags decoded with the right id, rotation and distance (%.1f us per quad)%n",
+                decodedTagCount, RENDERED_TAG_COUNT, decodeNanoseconds / 1e3 / RENDERED_TAG_COUNT
+        );
+
+        verifyNonTagRegionsAreRejected(aprilTagQuadDecoder, aprilTag36h11Dictionary, grayscaleFrameBuffer, randomGenerator);
+    }
+
+    /**
+     * Cuadrilatero en perspectiva de 60 a 150 pixeles de lado, lejos de los bordes del frame.
+     */
+    private static void createRandomPerspectiveQuad(Random randomGenerator, double[] imageCornerCoordinateArray) {
+        RenderedTagFrame.createRandomPerspectiveQuad(
+                randomGenerator,
+                120.0 + (FRAME_WIDTH_IN_PIXELS - 240.0) * randomGenerator.nextDouble(),
+                120.0 + (FRAME_HEIGHT_IN_PIXELS - 240.0) * randomGenerator.nextDouble(),
+                30.0 + 45.0 * randomGenerator.nextDouble(),
+                imageCornerCoordinateArray
+        );
+    }
+
+    private static void renderTagFrame(
+            long codeBits,
+            int imageRotationIndex,
+            double[] imageCornerCoordinateArray,
+            Random randomGenerator
+    ) {
+        RenderedTagFrame.renderTagFrame(
+                FRAME_WIDTH_IN_PIXELS,
+                FRAME_HEIGHT_IN_PIXELS,
+                1,
+                new long[]{codeBits},
+                new int[]{imageRotationIndex},
+                new double[][]{imageCornerCoordinateArray},
+                grayscaleByteArray,
+                randomGenerator
+        );
+    }
+
+    private static void verifyNonTagRegionsAreRejected(
+            AprilTagQuadDecoder aprilTagQuadDecoder,
+            AprilTag36h11Dictionary aprilTag36h11Dictionary,
+            DirectFrameBuffer grayscaleFrameBuffer,
+            Random randomGenerator
+    ) {
+        double[] imageCornerCoordinateArray = new double[8];
+        int rejectedRegionCount = 0;
+
+        for (int regionIndex = 0; regionIndex < 40; regionIndex++) {
+
+            createRandomPerspectiveQuad(randomGenerator, imageCornerCoordinateArray);
+
+            int regionKind = regionIndex % 4;
+
+            if (regionKind == 0) {
+                // Ruido aleatorio
+                randomGenerator.nextBytes(grayscaleByteArray);
+            } else if (regionKind == 1) {
+                // Gris uniforme con un gradiente suave: sin contraste
+                for (int pixelIndex = 0; pixelIndex < grayscaleByteArray.length; pixelIndex++) {
+                    grayscaleByteArray[pixelIndex] = (byte) (100 + (pixelIndex % FRAME_WIDTH_IN_PIXELS) / 16);
+                }
+            } else if (regionKind == 2) {
+                // Tablero de celdas grandes: borde negro incompleto
+                for (int pixelIndex = 0; pixelIndex < grayscaleByteArray.length; pixelIndex++) {
+                    int pixelXPosition = pixelIndex % FRAME_WIDTH_IN_PIXELS;
+                    int pixelYPosition = pixelIndex / FRAME_WIDTH_IN_PIXELS;
+                    grayscaleByteArray[pixelIndex] = ((pixelXPosition / 11 + pixelYPosition / 11) % 2 == 0) ? (byte) 230 : (byte) 25;
+                }
+            } else {
+                // Marco correcto con datos que no estan a 2 bits o menos de ningun codigo
+                long nonTagCodeBits;
+                do {
+                    nonTagCodeBits = randomGenerator.nextLong() & ((1L << AprilTag36h11Dictionary.TAG36H11_BIT_COUNT) - 1L);
+                } while (aprilTag36h11Dictionary.findMatchingCode(nonTagCodeBits) != null);
+
+                renderTagFrame(nonTagCodeBits, 0, imageCornerCoordinateArray, randomGenerator);
+            }
+
+            grayscaleFrameBuffer.copyFromByteArray(grayscaleByteArray);
+
+            DetectedApriltag detectedApriltag =
+                    aprilTagQuadDecoder.decodeQuadrilateral(imageCornerCoordinateArray, 0, grayscaleFrameBuffer);
+
+            if (detectedApriltag != null) {
+                throw new IllegalStateException(
+                        "Non-tag region of kind " + regionKind + " decoded as " + describeDetection(detectedApriltag)
+                );
+            }
+
+            rejectedRegionCount++;
+        }
+
+        // Cuadrilatero que sale del frame: no se puede muestrear
+        double[] outsideCornerCoordinateArray = {-20.0, -20.0, 60.0, -20.0, 60.0, 60.0, -20.0, 60.0};
+        if (aprilTagQuadDecoder.decodeQuadrilateral(outsideCornerCoordinateArray, 0, grayscaleFrameBuffer) != null) {
+            throw new IllegalStateException("Quad outside the frame was decoded");
+        }
+
+        // Cuadrilatero degenerado (tres esquinas alineadas)
+        double[] degenerateCornerCoordinateArray = {100.0, 100.0, 200.0, 100.0, 300.0, 100.0, 200.0, 100.0};
+        if (aprilTagQuadDecoder.decodeQuadrilateral(degenerateCornerCoordinateArray, 0, grayscaleFrameBuffer) != null) {
+            throw new IllegalStateException("Degenerate quad was decoded");
+        }
+
+        System.out.println("Correctness: " + (rejectedRegionCount + 2) + " non-tag regions rejected");
+    }
+
+    private static String describeDetection(DetectedApriltag detectedApriltag) {
+        if (detectedApriltag == null) {
+            return "nothing";
+        }
+        return "tag " + detectedApriltag.getTagIdIdentifier() + " rotation " + detectedApriltag.getRotationIndex()
+                + " distance " + detectedApriltag.getHammingDistance();
+    }
+}
@@ -6,7 +6,8 @@ import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
 import org.PhantomCamera.AprilTags.AprilTagFramePreProcessing;
 import org.PhantomCamera.AprilTags.EdgeConnectedComponent;
 import org.PhantomCamera.AprilTags.PixelCoordinate;
-import org.PhantomCamera.Camera.Camera;
+import org.PhantomCamera.Camera.FrameSource;
+import org.PhantomCamera.Camera.FrameSourceFactory;
 import org.PhantomCamera.Stadistics.GrayScaleStatistics;
 import org.PhantomCamera.Stadistics.GrayScaleStatistics.GrayscaleFrameStatistics;
 import org.PhantomCamera.Stadistics.EdgeStadistics;
@@ -30,16 +31,16 @@ public class CameraGrayscaleAndEdgeTwoWindowsTest {
 
     public static void main(String[] args) {
         try {
-            runCameraGrayscaleAndEdgeTest();
+            runCameraGrayscaleAndEdgeTest(args);
         } catch (Throwable throwable) {
             System.out.println("Unexpected error in CameraGrayscaleAndEdgeTwoWindowsTest:");
             throwable.printStackTrace();
         }
     }
 
-    private static void runCameraGrayscaleAndEdgeTest() {
+    private static void runCameraGrayscaleAndEdgeTest(String[] args) {
 
-        Camera cameraInstance = new Camera();
+        FrameSource cameraInstance = FrameSourceFactory.createFrameSourceFromArguments(args);
         if (!cameraInstance.isOpened()) {
             System.out.println("Camera could not be opened.");
             return;
@@ -117,30 +118,33 @@ public class CameraGrayscaleAndEdgeTwoWindowsTest {
                     aprilTagFramePreProcessing.convertColorBgrFrameToGrayscale(currentColorFrameMatrix);
 
             int totalPixelCount = frameWidthInPixels * frameHeightInPixels;
-            byte[] grayscaleFrameByteArray = new byte[totalPixelCount];
-            grayscaleFrameMatrix.get(0, 0, grayscaleFrameByteArray);
-
             GrayscaleFrameStatistics grayscaleFrameStatistics =
                     GrayScaleStatistics.calculateGrayscaleFrameStatistics(
                             frameWidthInPixels,
                             frameHeightInPixels,
-                            grayscaleFrameByteArray
+                            aprilTagFramePreProcessing.getGrayscaleFrameBuffer().getPixelByteBuffer()
                     );
 
             Mat edgeBinaryFrameMatrix =
-                    aprilTagEdgeDetector.calculateEdgeBinaryFrameFromGrayscaleFrame(grayscaleFrameMatrix);
+                    aprilTagEdgeDetector
+                            .calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(
+                                    aprilTagFramePreProcessing.getGrayscaleFrameBuffer()
+                            )
+                            .getFrameMatrix();
 
             EdgeFrameStatistics edgeFrameStatistics =
                     edgeStadistics.calculateEdgeFrameStatistics(
                             frameWidthInPixels,
                             frameHeightInPixels,
-                            aprilTagEdgeDetector.getEdgeBinaryByteArray(),
+                            aprilTagEdgeDetector.getEdgeBinaryFrameBuffer().getPixelByteBuffer(),
                             aprilTagEdgeDetector.getGradientMagnitudeIntegerArray()
                     );
 
             // Obtener componentes conectados de bordes
             List<EdgeConnectedComponent> edgeConnectedComponentList =
-                    aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameMatrix);
+                    aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(
+                            aprilTagEdgeDetector.getEdgeBinaryFrameBuffer()
+                    );
 
             System.out.printf(
                     "Frame %d - grayscale: min=%d, max=%d, average=%.2f | " +
@@ -407,8 +411,7 @@ public class CameraGrayscaleAndEdgeTwoWindowsTest {
                 continue;
             }
 
-            if (currentEdgeConnectedComponent.pixelCoordinateList == null
-                    || currentEdgeConnectedComponent.pixelCoordinateList.isEmpty()) {
+            if (currentEdgeConnectedComponent.componentPixelCount == 0) {
                 continue;
             }
 
@@ -431,7 +434,7 @@ public class CameraGrayscaleAndEdgeTwoWindowsTest {
 
         List<PixelCoordinate> convexHullPixelPositionList =
                 aprilTagConvexHullCalculator.calculateConvexHullPixelPositionList(
-                        largestEdgeConnectedComponent.pixelCoordinateList
+                        largestEdgeConnectedComponent
                 );
 
         if (convexHullPixelPositionList == null
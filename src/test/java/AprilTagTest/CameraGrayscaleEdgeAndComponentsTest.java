@@ -1,7 +1,8 @@
 package AprilTagTest;
 
 import org.PhantomCamera.AprilTags.*;
-import org.PhantomCamera.Camera.Camera;
+import org.PhantomCamera.Camera.FrameSource;
+import org.PhantomCamera.Camera.FrameSourceFactory;
 import org.PhantomCamera.Stadistics.GrayScaleStatistics;
 import org.PhantomCamera.Stadistics.GrayScaleStatistics.GrayscaleFrameStatistics;
 import org.PhantomCamera.Stadistics.EdgeStadistics;
@@ -37,13 +38,14 @@ public class CameraGrayscaleEdgeAndComponentsTest {
     // Global maximum observed component pixel count across all frames
     private static int maximumComponentPixelCount = 0;
 
-    private static Camera cameraInstance = new Camera();
+    private static FrameSource cameraInstance;
 
     private static AprilTagQuadrilateralFitter aprilTagQuadrilateralFitter =
             new AprilTagQuadrilateralFitter();
 
     public static void main(String[] args) {
         try {
+            cameraInstance = FrameSourceFactory.createFrameSourceFromArguments(args);
             runCameraGrayscaleEdgeAndComponentsTest();
         } catch (Throwable throwable) {
             System.out.println("Unexpected error in CameraGrayscaleEdgeAndComponentsTest:");
@@ -122,30 +124,32 @@ public class CameraGrayscaleEdgeAndComponentsTest {
             Mat grayscaleFrameMatrix =
                     aprilTagFramePreProcessing.convertColorBgrFrameToGrayscale(currentColorFrameMatrix);
 
-            int totalPixelCount = frameWidthInPixels * frameHeightInPixels;
-            byte[] grayscaleFrameByteArray = new byte[totalPixelCount];
-            grayscaleFrameMatrix.get(0, 0, grayscaleFrameByteArray);
-
             GrayscaleFrameStatistics grayscaleFrameStatistics =
                     GrayScaleStatistics.calculateGrayscaleFrameStatistics(
                             frameWidthInPixels,
                             frameHeightInPixels,
-                            grayscaleFrameByteArray
+                            aprilTagFramePreProcessing.getGrayscaleFrameBuffer().getPixelByteBuffer()
                     );
 
             Mat edgeBinaryFrameMatrix =
-                    aprilTagEdgeDetector.calculateEdgeBinaryFrameFromGrayscaleFrame(grayscaleFrameMatrix);
+                    aprilTagEdgeDetector
+                            .calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(
+                                    aprilTagFramePreProcessing.getGrayscaleFrameBuffer()
+                            )
+                            .getFrameMatrix();
 
             EdgeFrameStatistics edgeFrameStatistics =
                     edgeStadistics.calculateEdgeFrameStatistics(
                             frameWidthInPixels,
                             frameHeightInPixels,
-                            aprilTagEdgeDetector.getEdgeBinaryByteArray(),
+                            aprilTagEdgeDetector.getEdgeBinaryFrameBuffer().getPixelByteBuffer(),
                             aprilTagEdgeDetector.getGradientMagnitudeIntegerArray()
                     );
 
             List<EdgeConnectedComponent> edgeConnectedComponentList =
-                    aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameMatrix);
+                    aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(
+                            aprilTagEdgeDetector.getEdgeBinaryFrameBuffer()
+                    );
 
             int totalComponentCount = edgeConnectedComponentList.size();
 
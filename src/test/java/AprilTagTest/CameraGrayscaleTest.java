@@ -2,7 +2,8 @@ package AprilTagTest;
 
 import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
 import org.PhantomCamera.AprilTags.AprilTagFramePreProcessing;
-import org.PhantomCamera.Camera.Camera;
+import org.PhantomCamera.Camera.FrameSource;
+import org.PhantomCamera.Camera.FrameSourceFactory;
 import org.PhantomCamera.Stadistics.GrayScaleStatistics;
 import org.PhantomCamera.Stadistics.GrayScaleStatistics.GrayscaleFrameStatistics;
 import org.PhantomCamera.Stadistics.EdgeStadistics;
@@ -20,16 +21,16 @@ public class CameraGrayscaleTest {
 
     public static void main(String[] args) {
         try {
-            runCameraGrayscaleTest();
+            runCameraGrayscaleTest(args);
         } catch (Throwable throwable) {
             System.out.println("Unexpected error in CameraGrayscaleTest:");
             throwable.printStackTrace();
         }
     }
 
-    private static void runCameraGrayscaleTest() {
+    private static void runCameraGrayscaleTest(String[] args) {
 
-        Camera cameraInstance = new Camera();
+        FrameSource cameraInstance = FrameSourceFactory.createFrameSourceFromArguments(args);
         if (!cameraInstance.isOpened()) {
             System.out.println("Camera could not be opened.");
             return;
@@ -85,25 +86,25 @@ public class CameraGrayscaleTest {
             Mat grayscaleFrameMatrix =
                     aprilTagFramePreProcessing.convertColorBgrFrameToGrayscale(currentColorFrameMatrix);
 
-            int totalPixelCount = frameWidthInPixels * frameHeightInPixels;
-            byte[] grayscaleFrameByteArray = new byte[totalPixelCount];
-            grayscaleFrameMatrix.get(0, 0, grayscaleFrameByteArray);
-
             GrayscaleFrameStatistics grayscaleFrameStatistics =
                     GrayScaleStatistics.calculateGrayscaleFrameStatistics(
                             frameWidthInPixels,
                             frameHeightInPixels,
-                            grayscaleFrameByteArray
+                            aprilTagFramePreProcessing.getGrayscaleFrameBuffer().getPixelByteBuffer()
                     );
 
             Mat edgeBinaryFrameMatrix =
-                    aprilTagEdgeDetector.calculateEdgeBinaryFrameFromGrayscaleFrame(grayscaleFrameMatrix);
+                    aprilTagEdgeDetector
+                            .calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(
+                                    aprilTagFramePreProcessing.getGrayscaleFrameBuffer()
+                            )
+                            .getFrameMatrix();
 
             EdgeFrameStatistics edgeFrameStatistics =
                     edgeStadistics.calculateEdgeFrameStatistics(
                             frameWidthInPixels,
                             frameHeightInPixels,
-                            aprilTagEdgeDetector.getEdgeBinaryByteArray(),
+                            aprilTagEdgeDetector.getEdgeBinaryFrameBuffer().getPixelByteBuffer(),
                             aprilTagEdgeDetector.getGradientMagnitudeIntegerArray()
                     );
 
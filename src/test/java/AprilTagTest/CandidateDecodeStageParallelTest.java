@@ -0,0 +1,351 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTagCandidateDecodeStage;
+import org.PhantomCamera.AprilTags.AprilTagConvexHullCalculator;
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor;
+import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
+import org.PhantomCamera.AprilTags.AprilTagQuadDecoder;
+import org.PhantomCamera.AprilTags.AprilTagQuadrilateralFitter;
+import org.PhantomCamera.AprilTags.DetectedApriltag;
+import org.PhantomCamera.AprilTags.EdgeConnectedComponent;
+import org.PhantomCamera.AprilTags.PixelCoordinate;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compara {@link AprilTagCandidateDecodeStage} en serie contra el mismo stage sobre un
+ * ForkJoinPool propio de 4 hilos.
+ * <p>
+ * Los frames tienen etiquetas tag36h11 reales ({@link RenderedTagFrame}), asi que hay
+ * detecciones que comparar. Para cada frame, con el gradiente y sin el (refinamiento sobre el
+ * frame gris), los stages con 2, 4, 7 y "paralelismo del pool" workers deben devolver la misma
+ * lista que el serial: mismos ids, rotaciones, distancias y esquinas bit a bit, en el mismo
+ * orden. El serial tambien se compara contra el camino de referencia con {@link PixelCoordinate}
+ * del fitter, y debe encontrar todas las etiquetas dibujadas.
+ */
+public class CandidateDecodeStageParallelTest {
+
+    private static final int FRAME_WIDTH_IN_PIXELS = 1280;
+    private static final int FRAME_HEIGHT_IN_PIXELS = 720;
+
+    private static final int TAG_GRID_COLUMN_COUNT = 5;
+    private static final int TAG_GRID_ROW_COUNT = 3;
+
+    private static final int TESTED_FRAME_COUNT = 6;
+
+    private static final int[] PARALLEL_WORKER_COUNT_ARRAY = {2, 4, 7, 0};
+
+    private static final int MEASURED_ITERATION_COUNT = 50;
+
+    public static void main(String[] args) {
+        ForkJoinPool candidateForkJoinPool = new ForkJoinPool(4);
+
+        try {
+            runCandidateDecodeStageParallelTest(candidateForkJoinPool);
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in CandidateDecodeStageParallelTest:");
+            throwable.printStackTrace();
+        } finally {
+            candidateForkJoinPool.shutdown();
+        }
+    }
+
+    private static void runCandidateDecodeStageParallelTest(ForkJoinPool candidateForkJoinPool) {
+
+        AprilTag36h11Dictionary aprilTag36h11Dictionary = AprilTag36h11Dictionary.createTag36h11Dictionary();
+        long[] tagCodeArray = AprilTag36h11Dictionary.getTag36h11CodeArray();
+
+        AprilTagEdgeDetector aprilTagEdgeDetector = new AprilTagEdgeDetector(
+                FRAME_WIDTH_IN_PIXELS,
+                FRAME_HEIGHT_IN_PIXELS,
+                AprilTagDetector.DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE
+        );
+
+        AprilTagEdgeComponentExtractor aprilTagEdgeComponentExtractor =
+                new AprilTagEdgeComponentExtractor(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS);
+        aprilTagEdgeComponentExtractor.setRowExtremalPixelRetentionEnabled(true);
+        aprilTagEdgeComponentExtractor.setEdgeComponentRejectionCriteria(
+                AprilTagDetector.DEFAULT_EDGE_COMPONENT_REJECTION_CRITERIA
+        );
+
+        AprilTagCandidateDecodeStage serialCandidateDecodeStage =
+                new AprilTagCandidateDecodeStage(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, aprilTag36h11Dictionary);
+
+        AprilTagCandidateDecodeStage[] parallelCandidateDecodeStageArray =
+                new AprilTagCandidateDecodeStage[PARALLEL_WORKER_COUNT_ARRAY.length];
+
+        for (int stageIndex = 0; stageIndex < PARALLEL_WORKER_COUNT_ARRAY.length; stageIndex++) {
+            parallelCandidateDecodeStageArray[stageIndex] = new AprilTagCandidateDecodeStage(
+                    FRAME_WIDTH_IN_PIXELS,
+                    FRAME_HEIGHT_IN_PIXELS,
+                    aprilTag36h11Dictionary,
+                    candidateForkJoinPool,
+                    PARALLEL_WORKER_COUNT_ARRAY[stageIndex]
+            );
+        }
+
+        byte[] grayscaleByteArray = new byte[FRAME_WIDTH_IN_PIXELS * FRAME_HEIGHT_IN_PIXELS];
+        DirectFrameBuffer grayscaleFrameBuffer = new DirectFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 1);
+
+        Random randomGenerator = new Random(4_18L);
+
+        int comparedDetectionCount = 0;
+        List<EdgeConnectedComponent> candidateComponentList = null;
+        int[] gradientMagnitudeIntegerArray = null;
+
+        for (int frameIndex = 0; frameIndex < TESTED_FRAME_COUNT; frameIndex++) {
+
+            int[] renderedTagIdArray = renderTagGridFrame(tagCodeArray, grayscaleByteArray, randomGenerator);
+            grayscaleFrameBuffer.copyFromByteArray(grayscaleByteArray);
+
+            DirectFrameBuffer edgeBinaryFrameBuffer =
+                    aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+            gradientMagnitudeIntegerArray = aprilTagEdgeDetector.getGradientMagnitudeIntegerArray();
+
+            candidateComponentList = aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+            for (int refinementIndex = 0; refinementIndex < 2; refinementIndex++) {
+
+                // 0: refinamiento con el gradiente, 1: sobre el frame gris (como con el segmentador)
+                int[] refinementGradientMagnitudeIntegerArray = refinementIndex == 0 ? gradientMagnitudeIntegerArray : null;
+
+                List<DetectedApriltag> serialDetectedApriltagList = serialCandidateDecodeStage.decodeCandidateComponentList(
+                        candidateComponentList, refinementGradientMagnitudeIntegerArray, grayscaleFrameBuffer
+                );
+
+                String frameDescription = "frame " + frameIndex + (refinementIndex == 0 ? " (gradient)" : " (grayscale)");
+
+                verifyAllRenderedTagsDetected(renderedTagIdArray, serialDetectedApriltagList, frameDescription);
+
+                compareDetectedApriltagLists(
+                        decodeWithPixelCoordinateFitter(
+                                candidateComponentList, refinementGradientMagnitudeIntegerArray,
+                                grayscaleFrameBuffer, aprilTag36h11Dictionary
+                        ),
+                        serialDetectedApriltagList,
+                        frameDescription + " reference vs serial"
+                );
+
+                for (int stageIndex = 0; stageIndex < parallelCandidateDecodeStageArray.length; stageIndex++) {
+
+                    AprilTagCandidateDecodeStage parallelCandidateDecodeStage = parallelCandidateDecodeStageArray[stageIndex];
+
+                    // Dos pasadas: la segunda reutiliza el scratch de cada worker
+                    for (int passIndex = 0; passIndex < 2; passIndex++) {
+                        compareDetectedApriltagLists(
+                                serialDetectedApriltagList,
+                                parallelCandidateDecodeStage.decodeCandidateComponentList(
+                                        candidateComponentList, refinementGradientMagnitudeIntegerArray, grayscaleFrameBuffer
+                                ),
+                                frameDescription + " serial vs " + parallelCandidateDecodeStage.getWorkerCount() + " workers"
+                        );
+                    }
+                }
+
+                comparedDetectionCount += serialDetectedApriltagList.size();
+            }
+        }
+
+        System.out.println("Correctness: parallel stages match serial on " + comparedDetectionCount + " detections");
+
+        double serialMicrosecondsPerFrame = measureMicrosecondsPerFrame(
+                serialCandidateDecodeStage, candidateComponentList, gradientMagnitudeIntegerArray, grayscaleFrameBuffer
+        );
+        double parallelMicrosecondsPerFrame = measureMicrosecondsPerFrame(
+                parallelCandidateDecodeStageArray[1], candidateComponentList, gradientMagnitudeIntegerArray, grayscaleFrameBuffer
+        );
+
+        System.out.printf(
+                "%d candidates  serial: %.1f us  4 workers: %.1f us  speedup: %.2fx%n",
+                candidateComponentList.size(),
+                serialMicrosecondsPerFrame,
+                parallelMicrosecondsPerFrame,
+                serialMicrosecondsPerFrame / parallelMicrosecondsPerFrame
+        );
+    }
+
+    /**
+     * Una etiqueta por celda de una grilla de 5x3, con id, giro y perspectiva aleatorios.
+     *
+     * @return ids dibujados
+     */
+    private static int[] renderTagGridFrame(long[] tagCodeArray, byte[] grayscaleByteArray, Random randomGenerator) {
+
+        int tagCount = TAG_GRID_COLUMN_COUNT * TAG_GRID_ROW_COUNT;
+
+        int[] renderedTagIdArray = new int[tagCount];
+        long[] codeBitsArray = new long[tagCount];
+        int[] imageRotationIndexArray = new int[tagCount];
+        double[][] imageCornerCoordinateArrays = new double[tagCount][8];
+
+        double gridCellWidth = (double) FRAME_WIDTH_IN_PIXELS / TAG_GRID_COLUMN_COUNT;
+        double gridCellHeight = (double) FRAME_HEIGHT_IN_PIXELS / TAG_GRID_ROW_COUNT;
+
+        for (int tagIndex = 0; tagIndex < tagCount; tagIndex++) {
+            renderedTagIdArray[tagIndex] = randomGenerator.nextInt(tagCodeArray.length);
+            codeBitsArray[tagIndex] = tagCodeArray[renderedTagIdArray[tagIndex]];
+            imageRotationIndexArray[tagIndex] = randomGenerator.nextInt(4);
+
+            RenderedTagFrame.createRandomPerspectiveQuad(
+                    randomGenerator,
+                    (tagIndex % TAG_GRID_COLUMN_COUNT + 0.5) * gridCellWidth,
+                    (tagIndex / TAG_GRID_COLUMN_COUNT + 0.5) * gridCellHeight,
+                    35.0 + 30.0 * randomGenerator.nextDouble(),
+                    imageCornerCoordinateArrays[tagIndex]
+            );
+        }
+
+        RenderedTagFrame.renderTagFrame(
+                FRAME_WIDTH_IN_PIXELS,
+                FRAME_HEIGHT_IN_PIXELS,
+                tagCount,
+                codeBitsArray,
+                imageRotationIndexArray,
+                imageCornerCoordinateArrays,
+                grayscaleByteArray,
+                randomGenerator
+        );
+
+        return renderedTagIdArray;
+    }
+
+    /**
+     * Camino anterior del fitter, con {@link PixelCoordinate}: hull, esquinas enteras, refinamiento y decode.
+     */
+    private static List<DetectedApriltag> decodeWithPixelCoordinateFitter(
+            List<EdgeConnectedComponent> candidateComponentList,
+            int[] gradientMagnitudeIntegerArray,
+            DirectFrameBuffer grayscaleFrameBuffer,
+            AprilTag36h11Dictionary aprilTag36h11Dictionary
+    ) {
+        AprilTagConvexHullCalculator aprilTagConvexHullCalculator = new AprilTagConvexHullCalculator();
+        AprilTagQuadrilateralFitter aprilTagQuadrilateralFitter = new AprilTagQuadrilateralFitter();
+        AprilTagQuadDecoder aprilTagQuadDecoder =
+                new AprilTagQuadDecoder(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, aprilTag36h11Dictionary);
+
+        double[] refinedCornerCoordinateArray = new double[8];
+        List<DetectedApriltag> detectedApriltagList = new ArrayList<>();
+
+        for (EdgeConnectedComponent candidateComponent : candidateComponentList) {
+
+            int requiredHullBufferLength = AprilTagConvexHullCalculator.getRequiredHullBufferLength(
+                    candidateComponent.getStoredPixelCoordinateCount()
+            );
+            int[] hullXCoordinateArray = new int[requiredHullBufferLength];
+            int[] hullYCoordinateArray = new int[requiredHullBufferLength];
+
+            int hullPointCount = aprilTagConvexHullCalculator.calculateConvexHull(
+                    candidateComponent, hullXCoordinateArray, hullYCoordinateArray
+            );
+
+            PixelCoordinate[] orderedQuadrilateralCornerArray =
+                    aprilTagQuadrilateralFitter.calculateQuadrilateralCornerArrayFromConvexHull(
+                            hullXCoordinateArray, hullYCoordinateArray, hullPointCount
+                    );
+
+            if (orderedQuadrilateralCornerArray == null) {
+                continue;
+            }
+
+            if (gradientMagnitudeIntegerArray == null) {
+                aprilTagQuadrilateralFitter.refineDecimatedQuadrilateralCornerArrayWithGrayscaleFrame(
+                        orderedQuadrilateralCornerArray, 1, grayscaleFrameBuffer, refinedCornerCoordinateArray, 0
+                );
+            } else {
+                aprilTagQuadrilateralFitter.refineQuadrilateralCornerArrayWithGradientMagnitude(
+                        orderedQuadrilateralCornerArray, gradientMagnitudeIntegerArray,
+                        FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, refinedCornerCoordinateArray, 0
+                );
+            }
+
+            DetectedApriltag detectedApriltag =
+                    aprilTagQuadDecoder.decodeQuadrilateral(refinedCornerCoordinateArray, 0, grayscaleFrameBuffer);
+
+            if (detectedApriltag != null) {
+                detectedApriltagList.add(detectedApriltag);
+            }
+        }
+
+        return detectedApriltagList;
+    }
+
+    private static void verifyAllRenderedTagsDetected(
+            int[] renderedTagIdArray,
+            List<DetectedApriltag> detectedApriltagList,
+            String frameDescription
+    ) {
+        for (int renderedTagId : renderedTagIdArray) {
+            boolean renderedTagDetected = false;
+
+            for (DetectedApriltag detectedApriltag : detectedApriltagList) {
+                if (detectedApriltag.getTagIdIdentifier() == renderedTagId) {
+                    renderedTagDetected = true;
+                    break;
+                }
+            }
+
+            if (!renderedTagDetected) {
+                throw new IllegalStateException("Tag " + renderedTagId + " was not detected in " + frameDescription);
+            }
+        }
+    }
+
+    private static void compareDetectedApriltagLists(
+            List<DetectedApriltag> expectedApriltagList,
+            List<DetectedApriltag> receivedApriltagList,
+            String comparisonDescription
+    ) {
+        if (expectedApriltagList.size() != receivedApriltagList.size()) {
+            throw new IllegalStateException(
+                    comparisonDescription + ": expected " + expectedApriltagList.size()
+                            + " tags but received " + receivedApriltagList.size()
+            );
+        }
+
+        for (int tagIndex = 0; tagIndex < expectedApriltagList.size(); tagIndex++) {
+            DetectedApriltag expectedApriltag = expectedApriltagList.get(tagIndex);
+            DetectedApriltag receivedApriltag = receivedApriltagList.get(tagIndex);
+
+            if (expectedApriltag.getTagIdIdentifier() != receivedApriltag.getTagIdIdentifier()
+                    || expectedApriltag.getRotationIndex() != receivedApriltag.getRotationIndex()
+                    || expectedApriltag.getHammingDistance() != receivedApriltag.getHammingDistance()
+                    || !Arrays.equals(expectedApriltag.getCornerPixelPositionArray(), receivedApriltag.getCornerPixelPositionArray())) {
+                throw new IllegalStateException(
+                        comparisonDescription + ": tag " + tagIndex + " differs, expected id " + expectedApriltag.getTagIdIdentifier()
+                                + " " + Arrays.toString(expectedApriltag.getCornerPixelPositionArray())
+                                + " but received id " + receivedApriltag.getTagIdIdentifier()
+                                + " " + Arrays.toString(receivedApriltag.getCornerPixelPositionArray())
+                );
+            }
+        }
+    }
+
+    private static double measureMicrosecondsPerFrame(
+            AprilTagCandidateDecodeStage aprilTagCandidateDecodeStage,
+            List<EdgeConnectedComponent> candidateComponentList,
+            int[] gradientMagnitudeIntegerArray,
+            DirectFrameBuffer grayscaleFrameBuffer
+    ) {
+        for (int iterationIndex = 0; iterationIndex < MEASURED_ITERATION_COUNT; iterationIndex++) {
+            aprilTagCandidateDecodeStage.decodeCandidateComponentList(
+                    candidateComponentList, gradientMagnitudeIntegerArray, grayscaleFrameBuffer
+            );
+        }
+
+        long startNanoseconds = System.nanoTime();
+        for (int iterationIndex = 0; iterationIndex < MEASURED_ITERATION_COUNT; iterationIndex++) {
+            aprilTagCandidateDecodeStage.decodeCandidateComponentList(
+                    candidateComponentList, gradientMagnitudeIntegerArray, grayscaleFrameBuffer
+            );
+        }
+
+        return (System.nanoTime() - startNanoseconds) / 1e3 / MEASURED_ITERATION_COUNT;
+    }
+}
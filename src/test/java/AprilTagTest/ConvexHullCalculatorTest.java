@@ -0,0 +1,572 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTagConvexHullCalculator;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor.EdgeComponentLabellingMode;
+import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
+import org.PhantomCamera.AprilTags.EdgeConnectedComponent;
+import org.PhantomCamera.AprilTags.PixelCoordinate;
+import org.PhantomCamera.Camera.SyntheticFrameSource;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.PhantomCamera.Utils.GrayScaleConvertionUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Hull primitivo de {@link AprilTagConvexHullCalculator} contra la version sobre listas.
+ * <p>
+ * Para conjuntos aleatorios (con duplicados, tramos colineales, una sola fila, una sola columna,
+ * n = 1 y n = 2) la version con radix sort sobre arrays debe devolver exactamente los mismos
+ * puntos, en el mismo orden, que {@link AprilTagConvexHullCalculator#calculateConvexHullPixelPositionList(List)}.
+ * Los pixeles se leen desde un offset dentro de arrays mas grandes, como las vistas sobre slabs, y
+ * un buffer de salida mas chico que el requerido se rechaza.
+ * <p>
+ * El hull sin ordenar sobre pixeles en orden raster debe dar los mismos puntos que la lista,
+ * rotados para empezar en el pixel de arriba, y rechazar pixeles fuera de orden. Sobre
+ * componentes reales (BFS, union-find y union-find con retencion de extremos por fila) el hull
+ * de cada componente debe salir por el camino que corresponde a su orden y coincidir con el de
+ * todos sus pixeles. No necesita camara ni OpenCV nativo.
+ */
+public class ConvexHullCalculatorTest {
+
+    private static final int RANDOM_POINT_SET_COUNT = 20_000;
+
+    /**
+     * Formas de conjunto aleatorio que se alternan: caja chica, caja grande, fila, columna,
+     * diagonal y borde de rectangulo.
+     */
+    private static final int POINT_SET_SHAPE_COUNT = 6;
+
+    private static final int FRAME_WIDTH_IN_PIXELS = 640;
+    private static final int FRAME_HEIGHT_IN_PIXELS = 480;
+
+    public static void main(String[] args) {
+        try {
+            runConvexHullCalculatorTest();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in ConvexHullCalculatorTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void runConvexHullCalculatorTest() {
+        AprilTagConvexHullCalculator aprilTagConvexHullCalculator = new AprilTagConvexHullCalculator();
+        Random randomGenerator = new Random(12L);
+
+        int comparedHullPointCount = 0;
+
+        for (int pointSetIndex = 0; pointSetIndex < RANDOM_POINT_SET_COUNT; pointSetIndex++) {
+            int[][] pointCoordinateArrays = createRandomPointSet(pointSetIndex, randomGenerator);
+
+            comparedHullPointCount += compareAgainstListHull(
+                    aprilTagConvexHullCalculator,
+                    pointCoordinateArrays[0],
+                    pointCoordinateArrays[1],
+                    randomGenerator.nextInt(5),
+                    "point set " + pointSetIndex + " (shape " + (pointSetIndex % POINT_SET_SHAPE_COUNT) + ")"
+            );
+        }
+
+        System.out.println(
+                "Correctness: " + RANDOM_POINT_SET_COUNT + " random point sets, " + comparedHullPointCount
+                        + " hull points identical to the list version"
+        );
+
+        verifySmallPointSets(aprilTagConvexHullCalculator);
+        verifyUndersizedHullBufferIsRejected(aprilTagConvexHullCalculator);
+
+        verifyRasterOrderedHull(aprilTagConvexHullCalculator, randomGenerator);
+        verifyComponentHulls(aprilTagConvexHullCalculator);
+    }
+
+    /**
+     * Mismos conjuntos aleatorios ordenados en orden raster: el hull sin ordenar es el de la lista
+     * empezando en otro punto.
+     */
+    private static void verifyRasterOrderedHull(
+            AprilTagConvexHullCalculator aprilTagConvexHullCalculator,
+            Random randomGenerator
+    ) {
+        for (int pointSetIndex = 0; pointSetIndex < RANDOM_POINT_SET_COUNT; pointSetIndex++) {
+            int[][] pointCoordinateArrays = createRandomPointSet(pointSetIndex, randomGenerator);
+            int pointCount = pointCoordinateArrays[0].length;
+
+            // Orden raster: y y despues x (duplicados incluidos)
+            long[] rasterKeyArray = new long[pointCount];
+            for (int pointIndex = 0; pointIndex < pointCount; pointIndex++) {
+                rasterKeyArray[pointIndex] =
+                        ((long) pointCoordinateArrays[1][pointIndex] << 32) | pointCoordinateArrays[0][pointIndex];
+            }
+            Arrays.sort(rasterKeyArray);
+
+            int[] rasterXCoordinateArray = new int[pointCount];
+            int[] rasterYCoordinateArray = new int[pointCount];
+            List<PixelCoordinate> pointList = new ArrayList<>(pointCount);
+
+            for (int pointIndex = 0; pointIndex < pointCount; pointIndex++) {
+                rasterXCoordinateArray[pointIndex] = (int) rasterKeyArray[pointIndex];
+                rasterYCoordinateArray[pointIndex] = (int) (rasterKeyArray[pointIndex] >>> 32);
+                pointList.add(new PixelCoordinate(rasterXCoordinateArray[pointIndex], rasterYCoordinateArray[pointIndex]));
+            }
+
+            int requiredHullBufferLength = AprilTagConvexHullCalculator.getRequiredHullBufferLength(pointCount);
+            int[] hullXCoordinateArray = new int[requiredHullBufferLength];
+            int[] hullYCoordinateArray = new int[requiredHullBufferLength];
+
+            int hullPointCount = aprilTagConvexHullCalculator.calculateConvexHullFromRasterOrderedPixels(
+                    rasterXCoordinateArray, rasterYCoordinateArray, 0, pointCount,
+                    hullXCoordinateArray, hullYCoordinateArray
+            );
+
+            verifySameHullPointsFromAnyStart(
+                    aprilTagConvexHullCalculator.calculateConvexHullPixelPositionList(pointList),
+                    hullXCoordinateArray, hullYCoordinateArray, hullPointCount,
+                    "raster ordered point set " + pointSetIndex
+            );
+
+            // Empieza en el pixel de arriba (el de menor x entre los de arriba)
+            if (hullPointCount > 0
+                    && (hullYCoordinateArray[0] != rasterYCoordinateArray[0]
+                    || hullXCoordinateArray[0] != rasterXCoordinateArray[0])) {
+                throw new IllegalStateException("Raster ordered point set " + pointSetIndex + ": hull does not start at the top pixel");
+            }
+        }
+
+        // Fuera de orden raster: fila que retrocede y x que retrocede dentro de una fila
+        int[][][] unorderedPointSetArray = {
+                {{4, 2, 9}, {1, 0, 3}},
+                {{1, 5, 3}, {2, 2, 2}}
+        };
+
+        for (int[][] unorderedPointSet : unorderedPointSetArray) {
+            try {
+                aprilTagConvexHullCalculator.calculateConvexHullFromRasterOrderedPixels(
+                        unorderedPointSet[0], unorderedPointSet[1], 0, 3,
+                        new int[AprilTagConvexHullCalculator.getRequiredHullBufferLength(3)],
+                        new int[AprilTagConvexHullCalculator.getRequiredHullBufferLength(3)]
+                );
+                throw new IllegalStateException(
+                        "Pixels " + Arrays.toString(unorderedPointSet[0]) + " / " + Arrays.toString(unorderedPointSet[1])
+                                + " accepted as raster ordered"
+                );
+            } catch (IllegalArgumentException expectedException) {
+                // Rechazado en vez de devolver un hull equivocado
+            }
+        }
+
+        System.out.println(
+                "Correctness: " + RANDOM_POINT_SET_COUNT + " raster ordered point sets match the list version "
+                        + "starting at the top pixel, out of order input is rejected"
+        );
+    }
+
+    /**
+     * Hull de componentes reales por los tres caminos de extraccion.
+     */
+    private static void verifyComponentHulls(AprilTagConvexHullCalculator aprilTagConvexHullCalculator) {
+        int[] dispatchedComponentCountArray = new int[2];
+        int comparedComponentCount = 0;
+
+        for (int edgeMapIndex = 0; edgeMapIndex < 2; edgeMapIndex++) {
+            DirectFrameBuffer edgeBinaryFrameBuffer = createEdgeBinaryFrameBuffer(edgeMapIndex);
+
+            AprilTagEdgeComponentExtractor unionFindEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                    FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, EdgeComponentLabellingMode.UNION_FIND
+            );
+            AprilTagEdgeComponentExtractor breadthFirstSearchEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                    FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, EdgeComponentLabellingMode.BREADTH_FIRST_SEARCH
+            );
+            AprilTagEdgeComponentExtractor retainingEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                    FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, EdgeComponentLabellingMode.UNION_FIND
+            );
+            retainingEdgeComponentExtractor.setRowExtremalPixelRetentionEnabled(true);
+
+            List<EdgeConnectedComponent> unionFindComponentList =
+                    unionFindEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+            List<EdgeConnectedComponent> breadthFirstSearchComponentList =
+                    breadthFirstSearchEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+            List<EdgeConnectedComponent> retainedComponentList =
+                    retainingEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+            // Las tres extracciones dan las mismas etiquetas en el mismo orden
+            for (int componentIndex = 0; componentIndex < unionFindComponentList.size(); componentIndex++) {
+                EdgeConnectedComponent unionFindComponent = unionFindComponentList.get(componentIndex);
+
+                if (!unionFindComponent.arePixelCoordinatesInRasterOrder()
+                        || !retainedComponentList.get(componentIndex).arePixelCoordinatesInRasterOrder()) {
+                    throw new IllegalStateException("Union-find component " + (componentIndex + 1) + " is not in raster order");
+                }
+
+                List<PixelCoordinate> expectedHullPointList =
+                        aprilTagConvexHullCalculator.calculateConvexHullPixelPositionList(
+                                unionFindComponent.createPixelCoordinateList()
+                        );
+
+                EdgeConnectedComponent[] edgeConnectedComponentArray = {
+                        unionFindComponent,
+                        breadthFirstSearchComponentList.get(componentIndex),
+                        retainedComponentList.get(componentIndex)
+                };
+
+                for (EdgeConnectedComponent edgeConnectedComponent : edgeConnectedComponentArray) {
+                    String componentDescription = "edge map " + edgeMapIndex + " component "
+                            + edgeConnectedComponent.componentLabelValue + " ("
+                            + edgeConnectedComponent.getStoredPixelCoordinateCount() + " stored pixels)";
+
+                    verifyComponentHullDispatch(
+                            aprilTagConvexHullCalculator, edgeConnectedComponent, expectedHullPointList, componentDescription
+                    );
+
+                    dispatchedComponentCountArray[edgeConnectedComponent.arePixelCoordinatesInRasterOrder() ? 0 : 1]++;
+                }
+
+                comparedComponentCount++;
+            }
+        }
+
+        // Sin componentes BFS fuera de orden el camino con radix sort no se habria probado
+        if (dispatchedComponentCountArray[1] == 0) {
+            throw new IllegalStateException("No BFS component was out of raster order");
+        }
+
+        System.out.println(
+                "Correctness: hulls of " + comparedComponentCount + " components match in BFS, union-find and "
+                        + "row extremal modes (" + dispatchedComponentCountArray[0] + " raster path, "
+                        + dispatchedComponentCountArray[1] + " radix path)"
+        );
+    }
+
+    /**
+     * El hull del componente sale exactamente del camino que corresponde a su orden y coincide
+     * con el hull de todos sus pixeles.
+     */
+    private static void verifyComponentHullDispatch(
+            AprilTagConvexHullCalculator aprilTagConvexHullCalculator,
+            EdgeConnectedComponent edgeConnectedComponent,
+            List<PixelCoordinate> expectedHullPointList,
+            String componentDescription
+    ) {
+        int storedPixelCoordinateCount = edgeConnectedComponent.getStoredPixelCoordinateCount();
+        int requiredHullBufferLength = AprilTagConvexHullCalculator.getRequiredHullBufferLength(storedPixelCoordinateCount);
+
+        int[] hullXCoordinateArray = new int[requiredHullBufferLength];
+        int[] hullYCoordinateArray = new int[requiredHullBufferLength];
+        int[] pathHullXCoordinateArray = new int[requiredHullBufferLength];
+        int[] pathHullYCoordinateArray = new int[requiredHullBufferLength];
+
+        int hullPointCount = aprilTagConvexHullCalculator.calculateConvexHull(
+                edgeConnectedComponent, hullXCoordinateArray, hullYCoordinateArray
+        );
+
+        int pathHullPointCount = edgeConnectedComponent.arePixelCoordinatesInRasterOrder()
+                ? aprilTagConvexHullCalculator.calculateConvexHullFromRasterOrderedPixels(
+                        edgeConnectedComponent.getPixelXCoordinateArray(),
+                        edgeConnectedComponent.getPixelYCoordinateArray(),
+                        edgeConnectedComponent.getPixelCoordinateOffset(),
+                        storedPixelCoordinateCount,
+                        pathHullXCoordinateArray,
+                        pathHullYCoordinateArray)
+                : aprilTagConvexHullCalculator.calculateConvexHull(
+                        edgeConnectedComponent.getPixelXCoordinateArray(),
+                        edgeConnectedComponent.getPixelYCoordinateArray(),
+                        edgeConnectedComponent.getPixelCoordinateOffset(),
+                        storedPixelCoordinateCount,
+                        pathHullXCoordinateArray,
+                        pathHullYCoordinateArray);
+
+        if (hullPointCount != pathHullPointCount
+                || !Arrays.equals(hullXCoordinateArray, 0, hullPointCount, pathHullXCoordinateArray, 0, hullPointCount)
+                || !Arrays.equals(hullYCoordinateArray, 0, hullPointCount, pathHullYCoordinateArray, 0, hullPointCount)) {
+            throw new IllegalStateException(componentDescription + ": hull did not come from the expected path");
+        }
+
+        verifySameHullPointsFromAnyStart(
+                expectedHullPointList, hullXCoordinateArray, hullYCoordinateArray, hullPointCount, componentDescription
+        );
+    }
+
+    private static DirectFrameBuffer createEdgeBinaryFrameBuffer(int edgeMapIndex) {
+        int totalPixelCount = FRAME_WIDTH_IN_PIXELS * FRAME_HEIGHT_IN_PIXELS;
+
+        if (edgeMapIndex == 0) {
+            SyntheticFrameSource syntheticFrameSource =
+                    new SyntheticFrameSource(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 8, 40, 13L);
+
+            byte[] colorByteArray = new byte[totalPixelCount * 3];
+            byte[] grayscaleByteArray = new byte[totalPixelCount];
+
+            syntheticFrameSource.renderFrameIntoBgrByteArray(5, colorByteArray);
+            GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArray(
+                    colorByteArray, FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, grayscaleByteArray
+            );
+
+            DirectFrameBuffer grayscaleFrameBuffer = new DirectFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 1);
+            grayscaleFrameBuffer.copyFromByteArray(grayscaleByteArray);
+
+            return new AprilTagEdgeDetector(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 100)
+                    .calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+        }
+
+        // Ruido con 20% de bordes: muchos componentes chicos de formas irregulares
+        byte[] edgeBinaryByteArray = new byte[totalPixelCount];
+        Random randomGenerator = new Random(13L);
+
+        for (int pixelIndex = 0; pixelIndex < totalPixelCount; pixelIndex++) {
+            edgeBinaryByteArray[pixelIndex] = randomGenerator.nextInt(100) < 20 ? (byte) 255 : 0;
+        }
+
+        DirectFrameBuffer edgeBinaryFrameBuffer = new DirectFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 1);
+        edgeBinaryFrameBuffer.copyFromByteArray(edgeBinaryByteArray);
+
+        return edgeBinaryFrameBuffer;
+    }
+
+    /**
+     * Como {@link #verifySameHullPoints} pero el hull puede empezar en cualquier punto.
+     */
+    private static void verifySameHullPointsFromAnyStart(
+            List<PixelCoordinate> expectedHullPointList,
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray,
+            int hullPointCount,
+            String pointSetDescription
+    ) {
+        int actualStartIndex = 0;
+
+        if (!expectedHullPointList.isEmpty()) {
+            PixelCoordinate firstExpectedHullPoint = expectedHullPointList.get(0);
+
+            while (actualStartIndex < hullPointCount
+                    && (hullXCoordinateArray[actualStartIndex] != firstExpectedHullPoint.xPixeldCoordinate
+                    || hullYCoordinateArray[actualStartIndex] != firstExpectedHullPoint.yPixeldCoordinate)) {
+                actualStartIndex++;
+            }
+
+            if (actualStartIndex == hullPointCount) {
+                actualStartIndex = 0;
+            }
+        }
+
+        verifySameHullPoints(
+                expectedHullPointList, hullXCoordinateArray, hullYCoordinateArray, hullPointCount,
+                actualStartIndex, pointSetDescription
+        );
+    }
+
+    /**
+     * @return {x array, y array}
+     */
+    private static int[][] createRandomPointSet(int pointSetIndex, Random randomGenerator) {
+        int pointCount = 1 + randomGenerator.nextInt(60);
+        int[] pointXCoordinateArray = new int[pointCount];
+        int[] pointYCoordinateArray = new int[pointCount];
+
+        int originXCoordinate = randomGenerator.nextInt(1900);
+        int originYCoordinate = randomGenerator.nextInt(1060);
+
+        for (int pointIndex = 0; pointIndex < pointCount; pointIndex++) {
+            switch (pointSetIndex % POINT_SET_SHAPE_COUNT) {
+                case 0 -> {
+                    // Caja de 6x6: muchos duplicados y colineales
+                    pointXCoordinateArray[pointIndex] = originXCoordinate + randomGenerator.nextInt(6);
+                    pointYCoordinateArray[pointIndex] = originYCoordinate + randomGenerator.nextInt(6);
+                }
+                case 1 -> {
+                    pointXCoordinateArray[pointIndex] = originXCoordinate + randomGenerator.nextInt(200);
+                    pointYCoordinateArray[pointIndex] = originYCoordinate + randomGenerator.nextInt(200);
+                }
+                case 2 -> {
+                    // Una sola fila
+                    pointXCoordinateArray[pointIndex] = originXCoordinate + randomGenerator.nextInt(20);
+                    pointYCoordinateArray[pointIndex] = originYCoordinate;
+                }
+                case 3 -> {
+                    // Una sola columna
+                    pointXCoordinateArray[pointIndex] = originXCoordinate;
+                    pointYCoordinateArray[pointIndex] = originYCoordinate + randomGenerator.nextInt(20);
+                }
+                case 4 -> {
+                    // Diagonal con pendiente 2: todos colineales
+                    int stepIndex = randomGenerator.nextInt(10);
+                    pointXCoordinateArray[pointIndex] = originXCoordinate + stepIndex;
+                    pointYCoordinateArray[pointIndex] = originYCoordinate + 2 * stepIndex;
+                }
+                default -> {
+                    // Borde de un rectangulo: lados largos colineales
+                    int perimeterPosition = randomGenerator.nextInt(4 * 15);
+                    int sideIndex = perimeterPosition / 15;
+                    int sidePosition = perimeterPosition % 15;
+                    pointXCoordinateArray[pointIndex] = originXCoordinate
+                            + (sideIndex == 0 ? sidePosition : sideIndex == 1 ? 15 : sideIndex == 2 ? 15 - sidePosition : 0);
+                    pointYCoordinateArray[pointIndex] = originYCoordinate
+                            + (sideIndex == 0 ? 0 : sideIndex == 1 ? sidePosition : sideIndex == 2 ? 15 : 15 - sidePosition);
+                }
+            }
+        }
+
+        return new int[][]{pointXCoordinateArray, pointYCoordinateArray};
+    }
+
+    /**
+     * n = 0, n = 1, n = 2 distintos y repetidos, y tres puntos colineales o repetidos.
+     */
+    private static void verifySmallPointSets(AprilTagConvexHullCalculator aprilTagConvexHullCalculator) {
+        int[][][] smallPointSetArray = {
+                {{}, {}},
+                {{7}, {9}},
+                {{3, 8}, {5, 1}},
+                {{4, 4}, {6, 6}},
+                {{1, 2, 3}, {1, 2, 3}},
+                {{5, 5, 5}, {2, 2, 2}},
+                {{0, 0, 3}, {0, 0, 0}},
+                {{2, 0, 1}, {0, 0, 1}}
+        };
+
+        for (int pointSetIndex = 0; pointSetIndex < smallPointSetArray.length; pointSetIndex++) {
+            compareAgainstListHull(
+                    aprilTagConvexHullCalculator,
+                    smallPointSetArray[pointSetIndex][0],
+                    smallPointSetArray[pointSetIndex][1],
+                    3,
+                    "small point set " + pointSetIndex
+            );
+        }
+
+        // Un solo pixel: el hull es el pixel
+        int[] hullXCoordinateArray = new int[AprilTagConvexHullCalculator.getRequiredHullBufferLength(1)];
+        int[] hullYCoordinateArray = new int[AprilTagConvexHullCalculator.getRequiredHullBufferLength(1)];
+
+        int hullPointCount = aprilTagConvexHullCalculator.calculateConvexHull(
+                new int[]{7}, new int[]{9}, 0, 1, hullXCoordinateArray, hullYCoordinateArray
+        );
+
+        if (hullPointCount != 1 || hullXCoordinateArray[0] != 7 || hullYCoordinateArray[0] != 9) {
+            throw new IllegalStateException("Hull of one pixel is not the pixel itself");
+        }
+
+        System.out.println("Correctness: hulls of 0, 1, 2 and 3 points match the list version");
+    }
+
+    private static void verifyUndersizedHullBufferIsRejected(AprilTagConvexHullCalculator aprilTagConvexHullCalculator) {
+        int[] pointXCoordinateArray = {0, 10, 10, 0, 5};
+        int[] pointYCoordinateArray = {0, 0, 10, 10, 5};
+        int requiredHullBufferLength = AprilTagConvexHullCalculator.getRequiredHullBufferLength(pointXCoordinateArray.length);
+
+        int[][] hullBufferLengthArray = {
+                {requiredHullBufferLength - 1, requiredHullBufferLength},
+                {requiredHullBufferLength, requiredHullBufferLength - 1},
+                {0, 0}
+        };
+
+        for (int[] hullBufferLength : hullBufferLengthArray) {
+            try {
+                aprilTagConvexHullCalculator.calculateConvexHull(
+                        pointXCoordinateArray, pointYCoordinateArray, 0, pointXCoordinateArray.length,
+                        new int[hullBufferLength[0]], new int[hullBufferLength[1]]
+                );
+                throw new IllegalStateException(
+                        "Hull buffers of " + hullBufferLength[0] + " and " + hullBufferLength[1] + " entries accepted"
+                );
+            } catch (IllegalArgumentException expectedException) {
+                // Rechazado antes de escribir fuera del buffer
+            }
+        }
+
+        // Con exactamente el largo requerido no se rechaza
+        int hullPointCount = aprilTagConvexHullCalculator.calculateConvexHull(
+                pointXCoordinateArray, pointYCoordinateArray, 0, pointXCoordinateArray.length,
+                new int[requiredHullBufferLength], new int[requiredHullBufferLength]
+        );
+
+        if (hullPointCount != 4) {
+            throw new IllegalStateException("Square with a center point has a hull of " + hullPointCount + " points");
+        }
+
+        System.out.println("Correctness: undersized hull buffers are rejected, the required length is enough");
+    }
+
+    /**
+     * Copia los puntos a arrays mas grandes a partir de pixelCoordinateOffset, calcula el hull
+     * primitivo y lo compara punto a punto con el de la lista.
+     *
+     * @return puntos del hull comparados
+     */
+    private static int compareAgainstListHull(
+            AprilTagConvexHullCalculator aprilTagConvexHullCalculator,
+            int[] pointXCoordinateArray,
+            int[] pointYCoordinateArray,
+            int pixelCoordinateOffset,
+            String pointSetDescription
+    ) {
+        int pointCount = pointXCoordinateArray.length;
+
+        // Basura alrededor de la vista para detectar lecturas fuera de [offset, offset + n)
+        int[] slabXCoordinateArray = new int[pixelCoordinateOffset + pointCount + 3];
+        int[] slabYCoordinateArray = new int[pixelCoordinateOffset + pointCount + 3];
+        Arrays.fill(slabXCoordinateArray, 65_000);
+        Arrays.fill(slabYCoordinateArray, 65_000);
+        System.arraycopy(pointXCoordinateArray, 0, slabXCoordinateArray, pixelCoordinateOffset, pointCount);
+        System.arraycopy(pointYCoordinateArray, 0, slabYCoordinateArray, pixelCoordinateOffset, pointCount);
+
+        List<PixelCoordinate> pointList = new ArrayList<>(pointCount);
+        for (int pointIndex = 0; pointIndex < pointCount; pointIndex++) {
+            pointList.add(new PixelCoordinate(pointXCoordinateArray[pointIndex], pointYCoordinateArray[pointIndex]));
+        }
+
+        List<PixelCoordinate> expectedHullPointList =
+                aprilTagConvexHullCalculator.calculateConvexHullPixelPositionList(pointList);
+
+        int requiredHullBufferLength = AprilTagConvexHullCalculator.getRequiredHullBufferLength(pointCount);
+        int[] hullXCoordinateArray = new int[requiredHullBufferLength];
+        int[] hullYCoordinateArray = new int[requiredHullBufferLength];
+
+        int hullPointCount = aprilTagConvexHullCalculator.calculateConvexHull(
+                slabXCoordinateArray,
+                slabYCoordinateArray,
+                pixelCoordinateOffset,
+                pointCount,
+                hullXCoordinateArray,
+                hullYCoordinateArray
+        );
+
+        verifySameHullPoints(expectedHullPointList, hullXCoordinateArray, hullYCoordinateArray, hullPointCount, 0, pointSetDescription);
+
+        return hullPointCount;
+    }
+
+    /**
+     * Compara el hull primitivo, empezando en actualStartIndex y dando la vuelta, con el esperado.
+     */
+    private static void verifySameHullPoints(
+            List<PixelCoordinate> expectedHullPointList,
+            int[] hullXCoordinateArray,
+            int[] hullYCoordinateArray,
+            int hullPointCount,
+            int actualStartIndex,
+            String pointSetDescription
+    ) {
+        if (hullPointCount != expectedHullPointList.size()) {
+            throw new IllegalStateException(
+                    pointSetDescription + ": hull has " + hullPointCount + " points but the list version has "
+                            + expectedHullPointList.size()
+            );
+        }
+
+        for (int hullIndex = 0; hullIndex < hullPointCount; hullIndex++) {
+            PixelCoordinate expectedHullPoint = expectedHullPointList.get(hullIndex);
+            int actualHullIndex = (actualStartIndex + hullIndex) % hullPointCount;
+
+            if (hullXCoordinateArray[actualHullIndex] != expectedHullPoint.xPixeldCoordinate
+                    || hullYCoordinateArray[actualHullIndex] != expectedHullPoint.yPixeldCoordinate) {
+                throw new IllegalStateException(
+                        pointSetDescription + ": hull point " + hullIndex + " is (" + hullXCoordinateArray[actualHullIndex]
+                                + ", " + hullYCoordinateArray[actualHullIndex] + ") but the list version has ("
+                                + expectedHullPoint.xPixeldCoordinate + ", " + expectedHullPoint.yPixeldCoordinate + ")"
+                );
+            }
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTagConvexHullCalculator;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor;
+import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
+import org.PhantomCamera.AprilTags.AprilTagQuadrilateralFitter;
+import org.PhantomCamera.AprilTags.EdgeConnectedComponent;
+import org.PhantomCamera.AprilTags.PixelCoordinate;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Orden de esquinas por angulo y refinamiento sub-pixel de {@link AprilTagQuadrilateralFitter}.
+ * <p>
+ * Renderiza con {@link RenderedTagFrame} una etiqueta girada de 0 a 345 grados en pasos de 15,
+ * en dos tamanos, y ajusta el cuadrilatero sobre el componente del borde negro exterior. Las
+ * cuatro esquinas deben existir, ser distintas y seguir el sentido horario desde la de menor
+ * x + y (con el test de cuadrantes anterior dos esquinas caian en el mismo hueco y quedaban
+ * nulls), y el refinamiento con el gradiente debe dejarlas a menos de
+ * {@link #MAXIMUM_REFINED_CORNER_DISTANCE_IN_PIXELS} de las renderizadas.
+ * <p>
+ * Despues, sobre mapas de gradiente armados a mano, verifica cada caso en que una esquina
+ * conserva su posicion entera: borde sin soporte de gradiente, bordes casi paralelos y una
+ * interseccion a mas de 2 * radio + 1 = 7 pixeles. No necesita camara ni OpenCV nativo.
+ */
+public class CornerRefinementTest {
+
+    private static final int FRAME_WIDTH_IN_PIXELS = 640;
+    private static final int FRAME_HEIGHT_IN_PIXELS = 480;
+
+    private static final int ROTATION_STEP_IN_DEGREES = 15;
+    private static final double[] HALF_SIDE_IN_PIXELS_ARRAY = {45.0, 110.0};
+
+    private static final double MAXIMUM_INTEGER_CORNER_DISTANCE_IN_PIXELS = 3.0;
+    private static final double MAXIMUM_REFINED_CORNER_DISTANCE_IN_PIXELS = 0.35;
+
+    private static final int GRADIENT_MAGNITUDE_THRESHOLD_VALUE = 200;
+
+    /**
+     * Peso de los pixeles de las crestas de gradiente armadas a mano.
+     */
+    private static final int RIDGE_GRADIENT_MAGNITUDE_VALUE = 1000;
+
+    public static void main(String[] args) {
+        try {
+            runRotatedTagCornerTest();
+            verifyCornerRefinementFallbacks();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in CornerRefinementTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void runRotatedTagCornerTest() {
+        AprilTagQuadrilateralFitter aprilTagQuadrilateralFitter = new AprilTagQuadrilateralFitter();
+        AprilTagConvexHullCalculator aprilTagConvexHullCalculator = new AprilTagConvexHullCalculator();
+        AprilTagEdgeDetector aprilTagEdgeDetector =
+                new AprilTagEdgeDetector(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, GRADIENT_MAGNITUDE_THRESHOLD_VALUE);
+        AprilTagEdgeComponentExtractor aprilTagEdgeComponentExtractor =
+                new AprilTagEdgeComponentExtractor(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS);
+
+        long[] tagCodeArray = AprilTag36h11Dictionary.getTag36h11CodeArray();
+        Random randomGenerator = new Random(15L);
+
+        byte[] grayscaleByteArray = new byte[FRAME_WIDTH_IN_PIXELS * FRAME_HEIGHT_IN_PIXELS];
+        DirectFrameBuffer grayscaleFrameBuffer = new DirectFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 1);
+
+        double[][] quadCornerCoordinateArrays = new double[1][8];
+        double[] quadCornerPixelIndexCoordinateArray = new double[8];
+        double[] fittedCornerCoordinateArray = new double[8];
+        double[] refinedCornerCoordinateArray = new double[8];
+
+        double maximumIntegerCornerDistance = 0.0;
+        double maximumRefinedCornerDistance = 0.0;
+        double sumIntegerCornerDistance = 0.0;
+        double sumRefinedCornerDistance = 0.0;
+        int fittedQuadCount = 0;
+
+        for (double halfSideInPixels : HALF_SIDE_IN_PIXELS_ARRAY) {
+            for (int rotationAngleDegrees = 0; rotationAngleDegrees < 360; rotationAngleDegrees += ROTATION_STEP_IN_DEGREES) {
+
+                String quadDescription = "half side " + halfSideInPixels + " at " + rotationAngleDegrees + " degrees";
+
+                QuadrilateralFitterTest.createRotatedPerspectiveQuad(
+                        randomGenerator,
+                        FRAME_WIDTH_IN_PIXELS / 2.0 + randomGenerator.nextDouble(),
+                        FRAME_HEIGHT_IN_PIXELS / 2.0 + randomGenerator.nextDouble(),
+                        halfSideInPixels,
+                        rotationAngleDegrees,
+                        quadCornerCoordinateArrays[0]
+                );
+
+                RenderedTagFrame.renderTagFrame(
+                        FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 1,
+                        new long[]{tagCodeArray[rotationAngleDegrees]}, new int[]{0}, quadCornerCoordinateArrays,
+                        grayscaleByteArray, randomGenerator
+                );
+                grayscaleFrameBuffer.copyFromByteArray(grayscaleByteArray);
+
+                // El render cubre el pixel x con [x, x + 1); el detector pone el centro del pixel en x
+                for (int coordinateIndex = 0; coordinateIndex < 8; coordinateIndex++) {
+                    quadCornerPixelIndexCoordinateArray[coordinateIndex] = quadCornerCoordinateArrays[0][coordinateIndex] - 0.5;
+                }
+
+                DirectFrameBuffer edgeBinaryFrameBuffer =
+                        aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+                int[] gradientMagnitudeIntegerArray = aprilTagEdgeDetector.getGradientMagnitudeIntegerArray();
+
+                EdgeConnectedComponent outerBorderComponent = findOuterBorderComponent(
+                        aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer),
+                        quadCornerCoordinateArrays[0]
+                );
+
+                int requiredHullBufferLength =
+                        AprilTagConvexHullCalculator.getRequiredHullBufferLength(outerBorderComponent.getStoredPixelCoordinateCount());
+                int[] hullXCoordinateArray = new int[requiredHullBufferLength];
+                int[] hullYCoordinateArray = new int[requiredHullBufferLength];
+
+                int hullPointCount = aprilTagConvexHullCalculator.calculateConvexHull(
+                        outerBorderComponent, hullXCoordinateArray, hullYCoordinateArray
+                );
+
+                PixelCoordinate[] quadrilateralCornerArray = aprilTagQuadrilateralFitter.calculateQuadrilateralCornerArrayFromConvexHull(
+                        hullXCoordinateArray, hullYCoordinateArray, hullPointCount
+                );
+
+                verifyDistinctCorners(quadrilateralCornerArray, quadDescription);
+
+                if (!aprilTagQuadrilateralFitter.calculateQuadrilateralCornerCoordinatesFromConvexHull(
+                        hullXCoordinateArray, hullYCoordinateArray, hullPointCount, fittedCornerCoordinateArray, 0)) {
+                    throw new IllegalStateException(quadDescription + ": coordinate version did not fit a quadrilateral");
+                }
+
+                for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+                    if (fittedCornerCoordinateArray[2 * cornerIndex] != quadrilateralCornerArray[cornerIndex].xPixeldCoordinate
+                            || fittedCornerCoordinateArray[2 * cornerIndex + 1] != quadrilateralCornerArray[cornerIndex].yPixeldCoordinate) {
+                        throw new IllegalStateException(quadDescription + ": coordinate and PixelCoordinate versions differ");
+                    }
+                }
+
+                double[] integerCornerDistanceArray = QuadrilateralFitterTest.matchCornersClockwise(
+                        fittedCornerCoordinateArray, quadCornerPixelIndexCoordinateArray, quadDescription
+                );
+
+                // Refinamiento por las dos entradas: deben coincidir
+                double[] refinedFromPixelCoordinateArray = aprilTagQuadrilateralFitter.refineQuadrilateralCornerArrayWithGradientMagnitude(
+                        quadrilateralCornerArray, gradientMagnitudeIntegerArray, FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS
+                );
+
+                aprilTagQuadrilateralFitter.refineQuadrilateralCornerCoordinatesWithGradientMagnitude(
+                        fittedCornerCoordinateArray, 0, gradientMagnitudeIntegerArray,
+                        FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, refinedCornerCoordinateArray, 0
+                );
+
+                if (!Arrays.equals(refinedFromPixelCoordinateArray, refinedCornerCoordinateArray)) {
+                    throw new IllegalStateException(quadDescription + ": refinement differs between the two entry points");
+                }
+
+                double[] refinedCornerDistanceArray = calculateRefinedCornerDistanceArray(
+                        refinedCornerCoordinateArray, fittedCornerCoordinateArray, quadCornerPixelIndexCoordinateArray
+                );
+
+                for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+                    maximumIntegerCornerDistance = Math.max(maximumIntegerCornerDistance, integerCornerDistanceArray[cornerIndex]);
+                    maximumRefinedCornerDistance = Math.max(maximumRefinedCornerDistance, refinedCornerDistanceArray[cornerIndex]);
+                    sumIntegerCornerDistance += integerCornerDistanceArray[cornerIndex];
+                    sumRefinedCornerDistance += refinedCornerDistanceArray[cornerIndex];
+                }
+
+                if (maximumIntegerCornerDistance > MAXIMUM_INTEGER_CORNER_DISTANCE_IN_PIXELS
+                        || maximumRefinedCornerDistance > MAXIMUM_REFINED_CORNER_DISTANCE_IN_PIXELS) {
+                    throw new IllegalStateException(
+                            quadDescription + ": corners " + Arrays.toString(integerCornerDistanceArray) + " px before and "
+                                    + Arrays.toString(refinedCornerDistanceArray) + " px after refinement"
+                    );
+                }
+
+                fittedQuadCount++;
+            }
+        }
+
+        System.out.printf(
+                "Correctness: %d rendered tags at 0-345 degrees, 4 distinct clockwise corners each; corner error "
+                        + "mean %.2f / worst %.2f px integer, mean %.3f / worst %.3f px refined%n",
+                fittedQuadCount,
+                sumIntegerCornerDistance / (4 * fittedQuadCount), maximumIntegerCornerDistance,
+                sumRefinedCornerDistance / (4 * fittedQuadCount), maximumRefinedCornerDistance
+        );
+    }
+
+    /**
+     * El anillo blanco tambien deja un borde contra el fondo, un celda mas afuera; el borde exterior
+     * del cuadrado negro es el componente cuya bounding box coincide con la del cuadrilatero renderizado.
+     */
+    private static EdgeConnectedComponent findOuterBorderComponent(
+            List<EdgeConnectedComponent> edgeConnectedComponentList,
+            double[] quadCornerCoordinateArray
+    ) {
+        double minimumQuadXCoordinate = Double.MAX_VALUE, maximumQuadXCoordinate = -Double.MAX_VALUE;
+        double minimumQuadYCoordinate = Double.MAX_VALUE, maximumQuadYCoordinate = -Double.MAX_VALUE;
+
+        for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+            minimumQuadXCoordinate = Math.min(minimumQuadXCoordinate, quadCornerCoordinateArray[2 * cornerIndex]);
+            maximumQuadXCoordinate = Math.max(maximumQuadXCoordinate, quadCornerCoordinateArray[2 * cornerIndex]);
+            minimumQuadYCoordinate = Math.min(minimumQuadYCoordinate, quadCornerCoordinateArray[2 * cornerIndex + 1]);
+            maximumQuadYCoordinate = Math.max(maximumQuadYCoordinate, quadCornerCoordinateArray[2 * cornerIndex + 1]);
+        }
+
+        EdgeConnectedComponent outerBorderComponent = null;
+        double smallestBoundingBoxMismatch = Double.MAX_VALUE;
+
+        for (EdgeConnectedComponent edgeConnectedComponent : edgeConnectedComponentList) {
+            double boundingBoxMismatch = Math.abs(edgeConnectedComponent.minimumXCoordinate - minimumQuadXCoordinate)
+                    + Math.abs(edgeConnectedComponent.maximumXCoordinate - maximumQuadXCoordinate)
+                    + Math.abs(edgeConnectedComponent.minimumYCoordinate - minimumQuadYCoordinate)
+                    + Math.abs(edgeConnectedComponent.maximumYCoordinate - maximumQuadYCoordinate);
+
+            if (boundingBoxMismatch < smallestBoundingBoxMismatch) {
+                smallestBoundingBoxMismatch = boundingBoxMismatch;
+                outerBorderComponent = edgeConnectedComponent;
+            }
+        }
+
+        if (outerBorderComponent == null) {
+            throw new IllegalStateException("No edge component found");
+        }
+
+        return outerBorderComponent;
+    }
+
+    /**
+     * El refinamiento conserva el orden de las esquinas enteras (a 45 grados dos esquinas empatan en
+     * x + y y el refinado puede desempatar al reves), asi que cada esquina refinada se mide contra
+     * la esquina real de su esquina entera.
+     *
+     * @return distancia de cada esquina refinada a su esquina real
+     */
+    private static double[] calculateRefinedCornerDistanceArray(
+            double[] refinedCornerCoordinateArray,
+            double[] fittedCornerCoordinateArray,
+            double[] quadCornerCoordinateArray
+    ) {
+        double[] cornerDistanceArray = new double[4];
+
+        for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+            int nearestQuadCornerIndex = 0;
+            double nearestQuadCornerDistance = Double.MAX_VALUE;
+
+            for (int quadCornerIndex = 0; quadCornerIndex < 4; quadCornerIndex++) {
+                double quadCornerDistance = Math.hypot(
+                        fittedCornerCoordinateArray[2 * cornerIndex] - quadCornerCoordinateArray[2 * quadCornerIndex],
+                        fittedCornerCoordinateArray[2 * cornerIndex + 1] - quadCornerCoordinateArray[2 * quadCornerIndex + 1]
+                );
+
+                if (quadCornerDistance < nearestQuadCornerDistance) {
+                    nearestQuadCornerDistance = quadCornerDistance;
+                    nearestQuadCornerIndex = quadCornerIndex;
+                }
+            }
+
+            cornerDistanceArray[cornerIndex] = Math.hypot(
+                    refinedCornerCoordinateArray[2 * cornerIndex] - quadCornerCoordinateArray[2 * nearestQuadCornerIndex],
+                    refinedCornerCoordinateArray[2 * cornerIndex + 1] - quadCornerCoordinateArray[2 * nearestQuadCornerIndex + 1]
+            );
+        }
+
+        return cornerDistanceArray;
+    }
+
+    private static void verifyDistinctCorners(PixelCoordinate[] quadrilateralCornerArray, String quadDescription) {
+        if (quadrilateralCornerArray == null || quadrilateralCornerArray.length != 4) {
+            throw new IllegalStateException(quadDescription + ": no quadrilateral fitted");
+        }
+
+        for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+            if (quadrilateralCornerArray[cornerIndex] == null) {
+                throw new IllegalStateException(quadDescription + ": corner " + cornerIndex + " is null");
+            }
+
+            for (int otherCornerIndex = 0; otherCornerIndex < cornerIndex; otherCornerIndex++) {
+                if (quadrilateralCornerArray[cornerIndex].xPixeldCoordinate == quadrilateralCornerArray[otherCornerIndex].xPixeldCoordinate
+                        && quadrilateralCornerArray[cornerIndex].yPixeldCoordinate == quadrilateralCornerArray[otherCornerIndex].yPixeldCoordinate) {
+                    throw new IllegalStateException(quadDescription + ": corners " + otherCornerIndex + " and " + cornerIndex + " repeat");
+                }
+            }
+        }
+    }
+
+    /**
+     * Esquina 0 entre dos crestas de gradiente: la horizontal y = 100 hacia la derecha de x = 200
+     * (borde 0) y una recta hacia abajo a la izquierda (borde 3) con la pendiente dada. Los bordes
+     * 1 y 2 no tienen gradiente, asi que las esquinas 1, 2 y 3 nunca se mueven.
+     */
+    private static void verifyCornerRefinementFallbacks() {
+        AprilTagQuadrilateralFitter aprilTagQuadrilateralFitter = new AprilTagQuadrilateralFitter();
+
+        // Con soporte y 30 grados entre bordes, 4 pixeles de la interseccion: la esquina se mueve a ella
+        double[] movedCornerCoordinateArray = refineCornerBetweenRidges(
+                aprilTagQuadrilateralFitter, Math.tan(Math.toRadians(30.0)), 204.0, 100.0
+        );
+
+        if (Math.hypot(movedCornerCoordinateArray[0] - 200.0, movedCornerCoordinateArray[1] - 100.0) > 0.25) {
+            throw new IllegalStateException(
+                    "Corner 4 px from the ridge intersection refined to (" + movedCornerCoordinateArray[0] + ", "
+                            + movedCornerCoordinateArray[1] + ") instead of (200, 100)"
+            );
+        }
+
+        // Misma geometria a 10 pixeles de la interseccion: salto mayor que 7, se queda
+        verifyCornerUnchanged(
+                refineCornerBetweenRidges(aprilTagQuadrilateralFitter, Math.tan(Math.toRadians(30.0)), 210.0, 100.0),
+                210.0, 100.0, "corner 10 px from the ridge intersection"
+        );
+
+        // Bordes a menos de 3 grados (seno < 0.1) y 2 pixeles de la interseccion: se queda
+        verifyCornerUnchanged(
+                refineCornerBetweenRidges(aprilTagQuadrilateralFitter, 0.05, 200.0, 102.0),
+                200.0, 102.0, "corner between near parallel edges"
+        );
+
+        // Sin gradiente en ningun borde: las cuatro esquinas se quedan
+        double[] initialCornerCoordinateArray = {200.0, 102.0, 400.0, 100.0, 300.0, 300.0, 10.0, 109.5};
+        double[] refinedCornerCoordinateArray = new double[8];
+
+        aprilTagQuadrilateralFitter.refineQuadrilateralCornerCoordinatesWithGradientMagnitude(
+                initialCornerCoordinateArray, 0, new int[FRAME_WIDTH_IN_PIXELS * FRAME_HEIGHT_IN_PIXELS],
+                FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, refinedCornerCoordinateArray, 0
+        );
+
+        if (!Arrays.equals(initialCornerCoordinateArray, refinedCornerCoordinateArray)) {
+            throw new IllegalStateException("Corners moved without gradient support: " + Arrays.toString(refinedCornerCoordinateArray));
+        }
+
+        // Gradiente mas chico que el frame: rechazado
+        try {
+            aprilTagQuadrilateralFitter.refineQuadrilateralCornerCoordinatesWithGradientMagnitude(
+                    initialCornerCoordinateArray, 0, new int[FRAME_WIDTH_IN_PIXELS],
+                    FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, refinedCornerCoordinateArray, 0
+            );
+            throw new IllegalStateException("Gradient array smaller than the frame accepted");
+        } catch (IllegalArgumentException expectedException) {
+            // Rechazado antes de leer fuera del array
+        }
+
+        System.out.println(
+                "Correctness: corners keep their position without line support, between near parallel edges "
+                        + "and when the intersection is more than 7 px away; 4 px away they move onto it"
+        );
+    }
+
+    /**
+     * @param incomingRidgeSlope pendiente (dy / dx hacia la izquierda) de la cresta del borde 3
+     * @return esquinas refinadas
+     */
+    private static double[] refineCornerBetweenRidges(
+            AprilTagQuadrilateralFitter aprilTagQuadrilateralFitter,
+            double incomingRidgeSlope,
+            double initialCornerXCoordinate,
+            double initialCornerYCoordinate
+    ) {
+        int[] gradientMagnitudeIntegerArray = new int[FRAME_WIDTH_IN_PIXELS * FRAME_HEIGHT_IN_PIXELS];
+
+        // Borde 0: y = 100 desde x = 200 a la derecha
+        drawGradientRidge(gradientMagnitudeIntegerArray, 200, FRAME_WIDTH_IN_PIXELS - 2, 100.0, 0.0);
+
+        // Borde 3: desde (200, 100) hacia la izquierda y abajo
+        int ridgeStartXCoordinate = Math.max(1, (int) Math.ceil(200.0 - 300.0 / incomingRidgeSlope));
+        drawGradientRidge(
+                gradientMagnitudeIntegerArray, ridgeStartXCoordinate, 200,
+                100.0 + (200.0 - ridgeStartXCoordinate) * incomingRidgeSlope, -incomingRidgeSlope
+        );
+
+        // Esquina 3 sobre la cresta del borde 3, lejos de la interseccion
+        double incomingEdgeStartXCoordinate = Math.max(10.0, 200.0 - 200.0 / incomingRidgeSlope);
+        double incomingEdgeStartYCoordinate = 100.0 + (200.0 - incomingEdgeStartXCoordinate) * incomingRidgeSlope;
+
+        double[] initialCornerCoordinateArray = {
+                initialCornerXCoordinate, initialCornerYCoordinate,
+                400.0, 100.0,
+                300.0, 400.0,
+                incomingEdgeStartXCoordinate, incomingEdgeStartYCoordinate
+        };
+        double[] refinedCornerCoordinateArray = new double[8];
+
+        aprilTagQuadrilateralFitter.refineQuadrilateralCornerCoordinatesWithGradientMagnitude(
+                initialCornerCoordinateArray, 0, gradientMagnitudeIntegerArray,
+                FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, refinedCornerCoordinateArray, 0
+        );
+
+        for (int coordinateIndex = 2; coordinateIndex < 8; coordinateIndex++) {
+            if (refinedCornerCoordinateArray[coordinateIndex] != initialCornerCoordinateArray[coordinateIndex]) {
+                throw new IllegalStateException(
+                        "Corner without a supported pair of edges moved: " + Arrays.toString(refinedCornerCoordinateArray)
+                );
+            }
+        }
+
+        return refinedCornerCoordinateArray;
+    }
+
+    private static void verifyCornerUnchanged(
+            double[] refinedCornerCoordinateArray,
+            double initialCornerXCoordinate,
+            double initialCornerYCoordinate,
+            String caseDescription
+    ) {
+        if (refinedCornerCoordinateArray[0] != initialCornerXCoordinate
+                || refinedCornerCoordinateArray[1] != initialCornerYCoordinate) {
+            throw new IllegalStateException(
+                    caseDescription + " moved to (" + refinedCornerCoordinateArray[0] + ", " + refinedCornerCoordinateArray[1] + ")"
+            );
+        }
+    }
+
+    /**
+     * Cresta de gradiente y = y0 + slope * (x - x0) para x en [startX, endX], repartida entre los dos
+     * pixeles verticales mas cercanos para que el ajuste por minimos cuadrados caiga sobre la recta.
+     */
+    private static void drawGradientRidge(
+            int[] gradientMagnitudeIntegerArray,
+            int ridgeStartXCoordinate,
+            int ridgeEndXCoordinate,
+            double ridgeStartYCoordinate,
+            double ridgeSlope
+    ) {
+        for (int pixelXPosition = ridgeStartXCoordinate; pixelXPosition <= ridgeEndXCoordinate; pixelXPosition++) {
+            double ridgeYCoordinate = ridgeStartYCoordinate + ridgeSlope * (pixelXPosition - ridgeStartXCoordinate);
+
+            int upperPixelYPosition = (int) Math.floor(ridgeYCoordinate);
+            double lowerPixelFraction = ridgeYCoordinate - upperPixelYPosition;
+
+            if (upperPixelYPosition < 1 || upperPixelYPosition + 1 >= FRAME_HEIGHT_IN_PIXELS - 1) {
+                continue;
+            }
+
+            gradientMagnitudeIntegerArray[upperPixelYPosition * FRAME_WIDTH_IN_PIXELS + pixelXPosition] +=
+                    (int) Math.round(RIDGE_GRADIENT_MAGNITUDE_VALUE * (1.0 - lowerPixelFraction));
+            gradientMagnitudeIntegerArray[(upperPixelYPosition + 1) * FRAME_WIDTH_IN_PIXELS + pixelXPosition] +=
+                    (int) Math.round(RIDGE_GRADIENT_MAGNITUDE_VALUE * lowerPixelFraction);
+        }
+    }
+}
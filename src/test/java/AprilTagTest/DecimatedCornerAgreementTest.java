@@ -0,0 +1,245 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagFramePreProcessing;
+import org.PhantomCamera.AprilTags.DetectedApriltag;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Esquinas con decimacion contra esquinas a resolucion completa.
+ * <p>
+ * Renderiza etiquetas con {@link RenderedTagFrame} y las detecta con decimacion 1, 2, 3 y 4.
+ * Con decimacion, bordes, componentes y cuadrilatero salen del frame reducido pero las
+ * esquinas se refinan sobre el gris completo, asi que cada etiqueta debe aparecer con el mismo
+ * id y rotacion y esquinas a menos de {@link #MAXIMUM_FULL_RESOLUTION_CORNER_DISTANCE_IN_PIXELS}
+ * de las de resolucion completa (y de {@link #MAXIMUM_RENDERED_CORNER_DISTANCE_IN_PIXELS} de las
+ * renderizadas). Verifica tambien que un frame mas chico que el factor se rechaza al construir
+ * el preprocesado. No necesita camara ni OpenCV nativo.
+ */
+public class DecimatedCornerAgreementTest {
+
+    private static final int FRAME_WIDTH_IN_PIXELS = 1920;
+    private static final int FRAME_HEIGHT_IN_PIXELS = 1080;
+
+    private static final int TAG_COUNT = 6;
+    private static final int FRAME_COUNT = 4;
+
+    /**
+     * Hasta este factor toda etiqueta debe encontrarse; con 4 las celdas quedan de 4 a 6 pixeles
+     * decimados y algunas etiquetas muy inclinadas se pierden, pero las que salen deben coincidir.
+     */
+    private static final int MAXIMUM_DECIMATION_FACTOR_WITH_FULL_RECALL = 3;
+
+    private static final double MAXIMUM_FULL_RESOLUTION_CORNER_DISTANCE_IN_PIXELS = 0.75;
+    private static final double MAXIMUM_RENDERED_CORNER_DISTANCE_IN_PIXELS = 1.5;
+
+    public static void main(String[] args) {
+        try {
+            verifyFrameSmallerThanDecimationFactorIsRejected();
+            runDecimatedCornerAgreementTest();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in DecimatedCornerAgreementTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void verifyFrameSmallerThanDecimationFactorIsRejected() {
+        int[][] frameSizeAndDecimationFactorArray = {{3, 8, 4}, {8, 1, 2}, {2, 2, 3}, {0, 8, 1}};
+
+        for (int[] frameSizeAndDecimationFactor : frameSizeAndDecimationFactorArray) {
+            try {
+                new AprilTagFramePreProcessing(
+                        frameSizeAndDecimationFactor[0],
+                        frameSizeAndDecimationFactor[1],
+                        frameSizeAndDecimationFactor[2]
+                );
+                throw new IllegalStateException(
+                        "Frame " + frameSizeAndDecimationFactor[0] + "x" + frameSizeAndDecimationFactor[1]
+                                + " accepted with decimation factor " + frameSizeAndDecimationFactor[2]
+                );
+            } catch (IllegalArgumentException expectedException) {
+                // Rechazado al construir, no con un frame decimado vacio
+            }
+        }
+
+        // Exactamente un bloque: frame decimado de 1x1
+        new AprilTagFramePreProcessing(4, 4, 4);
+
+        System.out.println("Correctness: frames smaller than the decimation factor are rejected up front");
+    }
+
+    private static void runDecimatedCornerAgreementTest() {
+
+        AprilTag36h11Dictionary aprilTag36h11Dictionary = AprilTag36h11Dictionary.createTag36h11Dictionary();
+        long[] tagCodeArray = AprilTag36h11Dictionary.getTag36h11CodeArray();
+
+        AprilTagDetector[] aprilTagDetectorArray = new AprilTagDetector[AprilTagFramePreProcessing.MAXIMUM_DECIMATION_FACTOR];
+
+        for (int decimationFactor = 1; decimationFactor <= aprilTagDetectorArray.length; decimationFactor++) {
+            aprilTagDetectorArray[decimationFactor - 1] = new AprilTagDetector(aprilTag36h11Dictionary);
+            aprilTagDetectorArray[decimationFactor - 1].setDecimationFactor(decimationFactor);
+        }
+
+        Random randomGenerator = new Random(19_2_4L);
+
+        byte[] grayscaleByteArray = new byte[FRAME_WIDTH_IN_PIXELS * FRAME_HEIGHT_IN_PIXELS];
+        byte[] colorBgrByteArray = new byte[FRAME_WIDTH_IN_PIXELS * FRAME_HEIGHT_IN_PIXELS * 3];
+        DirectFrameBuffer colorFrameBuffer = new DirectFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 3);
+
+        long[] codeBitsArray = new long[TAG_COUNT];
+        int[] tagIdArray = new int[TAG_COUNT];
+        int[] imageRotationIndexArray = new int[TAG_COUNT];
+        double[][] imageCornerCoordinateArrays = new double[TAG_COUNT][8];
+
+        double[] maximumFullResolutionDistancePerFactor = new double[aprilTagDetectorArray.length];
+        double[] maximumRenderedDistancePerFactor = new double[aprilTagDetectorArray.length];
+        int[] foundTagCountPerFactor = new int[aprilTagDetectorArray.length];
+        int comparedTagCount = 0;
+
+        for (int frameIndex = 0; frameIndex < FRAME_COUNT; frameIndex++) {
+
+            for (int tagIndex = 0; tagIndex < TAG_COUNT; tagIndex++) {
+                // Ids distintos dentro del frame para emparejar por id
+                tagIdArray[tagIndex] = ((frameIndex * TAG_COUNT + tagIndex) * 37) % tagCodeArray.length;
+                codeBitsArray[tagIndex] = tagCodeArray[tagIdArray[tagIndex]];
+                imageRotationIndexArray[tagIndex] = randomGenerator.nextInt(4);
+
+                RenderedTagFrame.createRandomPerspectiveQuad(
+                        randomGenerator,
+                        (tagIndex % 3 + 0.5) * FRAME_WIDTH_IN_PIXELS / 3.0,
+                        (tagIndex / 3 + 0.5) * FRAME_HEIGHT_IN_PIXELS / 2.0,
+                        85.0 + 30.0 * randomGenerator.nextDouble(),
+                        imageCornerCoordinateArrays[tagIndex]
+                );
+            }
+
+            RenderedTagFrame.renderTagFrame(
+                    FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, TAG_COUNT,
+                    codeBitsArray, imageRotationIndexArray, imageCornerCoordinateArrays,
+                    grayscaleByteArray, randomGenerator
+            );
+
+            // Gris repetido en los tres canales
+            for (int pixelIndex = 0; pixelIndex < grayscaleByteArray.length; pixelIndex++) {
+                colorBgrByteArray[3 * pixelIndex] = grayscaleByteArray[pixelIndex];
+                colorBgrByteArray[3 * pixelIndex + 1] = grayscaleByteArray[pixelIndex];
+                colorBgrByteArray[3 * pixelIndex + 2] = grayscaleByteArray[pixelIndex];
+            }
+            colorFrameBuffer.copyFromByteArray(colorBgrByteArray);
+
+            List<DetectedApriltag> fullResolutionApriltagList = aprilTagDetectorArray[0].detect(colorFrameBuffer);
+
+            for (int decimationFactor = 1; decimationFactor <= aprilTagDetectorArray.length; decimationFactor++) {
+                List<DetectedApriltag> detectedApriltagList = decimationFactor == 1
+                        ? fullResolutionApriltagList
+                        : aprilTagDetectorArray[decimationFactor - 1].detect(colorFrameBuffer);
+
+                for (int tagIndex = 0; tagIndex < TAG_COUNT; tagIndex++) {
+                    DetectedApriltag detectedApriltag = findDetectedApriltag(detectedApriltagList, tagIdArray[tagIndex]);
+                    DetectedApriltag fullResolutionApriltag =
+                            findDetectedApriltag(fullResolutionApriltagList, tagIdArray[tagIndex]);
+
+                    if (detectedApriltag == null
+                            && fullResolutionApriltag != null
+                            && decimationFactor > MAXIMUM_DECIMATION_FACTOR_WITH_FULL_RECALL) {
+                        continue;
+                    }
+
+                    if (detectedApriltag == null || fullResolutionApriltag == null) {
+                        throw new IllegalStateException(
+                                "Frame " + frameIndex + ": tag " + tagIdArray[tagIndex]
+                                        + " missed with decimation factor " + decimationFactor
+                        );
+                    }
+
+                    if (detectedApriltag.getRotationIndex() != fullResolutionApriltag.getRotationIndex()) {
+                        throw new IllegalStateException(
+                                "Frame " + frameIndex + ": tag " + tagIdArray[tagIndex]
+                                        + " has another rotation with decimation factor " + decimationFactor
+                        );
+                    }
+
+                    double fullResolutionCornerDistance = calculateMaximumCornerDistance(
+                            detectedApriltag.getCornerPixelPositionArray(),
+                            fullResolutionApriltag.getCornerPixelPositionArray()
+                    );
+                    double renderedCornerDistance = calculateMaximumCornerDistance(
+                            detectedApriltag.getCornerPixelPositionArray(),
+                            imageCornerCoordinateArrays[tagIndex]
+                    );
+
+                    if (fullResolutionCornerDistance > MAXIMUM_FULL_RESOLUTION_CORNER_DISTANCE_IN_PIXELS
+                            || renderedCornerDistance > MAXIMUM_RENDERED_CORNER_DISTANCE_IN_PIXELS) {
+                        throw new IllegalStateException(String.format(
+                                "Frame %d: tag %d corners %.3f px from full resolution and %.3f px from rendered"
+                                        + " with decimation factor %d",
+                                frameIndex, tagIdArray[tagIndex], fullResolutionCornerDistance, renderedCornerDistance,
+                                decimationFactor
+                        ));
+                    }
+
+                    foundTagCountPerFactor[decimationFactor - 1]++;
+                    maximumFullResolutionDistancePerFactor[decimationFactor - 1] = Math.max(
+                            maximumFullResolutionDistancePerFactor[decimationFactor - 1], fullResolutionCornerDistance
+                    );
+                    maximumRenderedDistancePerFactor[decimationFactor - 1] = Math.max(
+                            maximumRenderedDistancePerFactor[decimationFactor - 1], renderedCornerDistance
+                    );
+                }
+            }
+
+            comparedTagCount += TAG_COUNT;
+        }
+
+        for (int decimationFactor = 1; decimationFactor <= aprilTagDetectorArray.length; decimationFactor++) {
+            System.out.printf(
+                    "Correctness: decimation %d found %d of %d tags, corners within %.3f px of full resolution"
+                            + " and %.3f px of rendered%n",
+                    decimationFactor,
+                    foundTagCountPerFactor[decimationFactor - 1],
+                    comparedTagCount,
+                    maximumFullResolutionDistancePerFactor[decimationFactor - 1],
+                    maximumRenderedDistancePerFactor[decimationFactor - 1]
+            );
+        }
+    }
+
+    private static DetectedApriltag findDetectedApriltag(List<DetectedApriltag> detectedApriltagList, int tagId) {
+        for (DetectedApriltag detectedApriltag : detectedApriltagList) {
+            if (detectedApriltag.getTagIdIdentifier() == tagId) {
+                return detectedApriltag;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Distancia maxima de cada esquina de la primera lista a la esquina mas cercana de la
+     * segunda: no depende del orden en que cada una empieza.
+     */
+    private static double calculateMaximumCornerDistance(
+            double[] cornerCoordinateArray,
+            double[] referenceCornerCoordinateArray
+    ) {
+        double maximumCornerDistance = 0.0;
+
+        for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+            double nearestCornerDistance = Double.MAX_VALUE;
+
+            for (int referenceCornerIndex = 0; referenceCornerIndex < 4; referenceCornerIndex++) {
+                nearestCornerDistance = Math.min(nearestCornerDistance, Math.hypot(
+                        cornerCoordinateArray[2 * cornerIndex] - referenceCornerCoordinateArray[2 * referenceCornerIndex],
+                        cornerCoordinateArray[2 * cornerIndex + 1] - referenceCornerCoordinateArray[2 * referenceCornerIndex + 1]
+                ));
+            }
+
+            maximumCornerDistance = Math.max(maximumCornerDistance, nearestCornerDistance);
+        }
+
+        return maximumCornerDistance;
+    }
+}
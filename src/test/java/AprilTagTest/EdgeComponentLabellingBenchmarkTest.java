@@ -0,0 +1,231 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor.EdgeComponentLabellingMode;
+import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
+import org.PhantomCamera.AprilTags.EdgeConnectedComponent;
+import org.PhantomCamera.Camera.SyntheticFrameSource;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.PhantomCamera.Utils.GrayScaleConvertionUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compara el etiquetado union-find (serial y por tiles en paralelo) contra el BFS por semilla.
+ *
+ * Primero verifica que los dos modos devuelven los mismos componentes (mismo orden,
+ * mismo conteo, bounding box y conjunto de pixeles) y despues mide el tiempo por frame
+ * en mapas de bordes densos, que es donde el BFS da picos de tiempo por frame.
+ * El modo por tiles usa un ForkJoinPool propio de 4 workers y un numero fijo de tiles (el
+ * commonPool puede tener paralelismo 1 y con un solo tile nunca se ejecuta la union de costuras).
+ * No necesita camara ni OpenCV nativo.
+ */
+public class EdgeComponentLabellingBenchmarkTest {
+
+    private static final int FRAME_WIDTH_IN_PIXELS = 1280;
+    private static final int FRAME_HEIGHT_IN_PIXELS = 720;
+
+    private static final int WARMUP_ITERATION_COUNT = 20;
+    private static final int MEASURED_ITERATION_COUNT = 40;
+
+    private static final int TILE_WORKER_COUNT = 4;
+
+    private static final int TILE_COUNT = 6;
+
+    /**
+     * Tiles de 16 filas: muchas costuras por componente.
+     */
+    private static final int THIN_TILE_COUNT = FRAME_HEIGHT_IN_PIXELS / 16;
+
+    public static void main(String[] args) {
+        ForkJoinPool tileForkJoinPool = new ForkJoinPool(TILE_WORKER_COUNT);
+
+        try {
+            runEdgeComponentLabellingBenchmarkTest(tileForkJoinPool);
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in EdgeComponentLabellingBenchmarkTest:");
+            throwable.printStackTrace();
+        } finally {
+            tileForkJoinPool.shutdown();
+        }
+    }
+
+    private static void runEdgeComponentLabellingBenchmarkTest(ForkJoinPool tileForkJoinPool) {
+
+        AprilTagEdgeComponentExtractor unionFindEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, EdgeComponentLabellingMode.UNION_FIND
+        );
+        AprilTagEdgeComponentExtractor breadthFirstSearchEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, EdgeComponentLabellingMode.BREADTH_FIRST_SEARCH
+        );
+        AprilTagEdgeComponentExtractor tiledEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, tileForkJoinPool, TILE_COUNT
+        );
+        AprilTagEdgeComponentExtractor thinTiledEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, tileForkJoinPool, THIN_TILE_COUNT
+        );
+
+        System.out.println("Tiles: " + tiledEdgeComponentExtractor.getTileCount()
+                + " and " + thinTiledEdgeComponentExtractor.getTileCount()
+                + " on " + tileForkJoinPool.getParallelism() + " worker(s)");
+
+        String[] edgeMapNameArray = {
+                "synthetic tags (edge detector)",
+                "random 30% density",
+                "random 55% density",
+                "diagonal stripes"
+        };
+
+        for (int edgeMapIndex = 0; edgeMapIndex < edgeMapNameArray.length; edgeMapIndex++) {
+
+            DirectFrameBuffer edgeBinaryFrameBuffer = createEdgeBinaryFrameBuffer(edgeMapIndex);
+
+            List<EdgeConnectedComponent> unionFindComponentList =
+                    unionFindEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+            List<EdgeConnectedComponent> breadthFirstSearchComponentList =
+                    breadthFirstSearchEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+            verifySameComponents(unionFindComponentList, breadthFirstSearchComponentList);
+            verifySameComponents(
+                    tiledEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer),
+                    unionFindComponentList
+            );
+            verifySameComponents(
+                    thinTiledEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer),
+                    unionFindComponentList
+            );
+            System.out.println("Correctness: union-find, tiled and BFS components match (" + unionFindComponentList.size() + ")");
+
+            double unionFindMillisecondsPerFrame =
+                    measureMillisecondsPerFrame(unionFindEdgeComponentExtractor, edgeBinaryFrameBuffer);
+            double breadthFirstSearchMillisecondsPerFrame =
+                    measureMillisecondsPerFrame(breadthFirstSearchEdgeComponentExtractor, edgeBinaryFrameBuffer);
+            double tiledMillisecondsPerFrame =
+                    measureMillisecondsPerFrame(tiledEdgeComponentExtractor, edgeBinaryFrameBuffer);
+
+            System.out.printf(
+                    "%-32s components: %6d  BFS: %7.2f ms  union-find: %7.2f ms  tiled: %7.2f ms  speedup: %.2fx / %.2fx%n",
+                    edgeMapNameArray[edgeMapIndex],
+                    unionFindComponentList.size(),
+                    breadthFirstSearchMillisecondsPerFrame,
+                    unionFindMillisecondsPerFrame,
+                    tiledMillisecondsPerFrame,
+                    breadthFirstSearchMillisecondsPerFrame / unionFindMillisecondsPerFrame,
+                    breadthFirstSearchMillisecondsPerFrame / tiledMillisecondsPerFrame
+            );
+        }
+    }
+
+    private static DirectFrameBuffer createEdgeBinaryFrameBuffer(int edgeMapIndex) {
+
+        int totalPixelCount = FRAME_WIDTH_IN_PIXELS * FRAME_HEIGHT_IN_PIXELS;
+
+        if (edgeMapIndex == 0) {
+            SyntheticFrameSource syntheticFrameSource =
+                    new SyntheticFrameSource(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 12, 40, 7L);
+
+            byte[] colorByteArray = new byte[totalPixelCount * 3];
+            byte[] grayscaleByteArray = new byte[totalPixelCount];
+
+            syntheticFrameSource.renderFrameIntoBgrByteArray(10, colorByteArray);
+            GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArray(
+                    colorByteArray, FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, grayscaleByteArray
+            );
+
+            DirectFrameBuffer grayscaleFrameBuffer = new DirectFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 1);
+            grayscaleFrameBuffer.copyFromByteArray(grayscaleByteArray);
+
+            return new AprilTagEdgeDetector(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 100)
+                    .calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+        }
+
+        byte[] edgeBinaryByteArray = new byte[totalPixelCount];
+        Random randomGenerator = new Random(edgeMapIndex);
+
+        for (int pixelIndex = 0; pixelIndex < totalPixelCount; pixelIndex++) {
+            boolean isEdgePixel;
+
+            if (edgeMapIndex == 1) {
+                isEdgePixel = randomGenerator.nextInt(100) < 30;
+            } else if (edgeMapIndex == 2) {
+                isEdgePixel = randomGenerator.nextInt(100) < 55;
+            } else {
+                int pixelXPosition = pixelIndex % FRAME_WIDTH_IN_PIXELS;
+                int pixelYPosition = pixelIndex / FRAME_WIDTH_IN_PIXELS;
+                isEdgePixel = (pixelXPosition + pixelYPosition) % 4 == 0;
+            }
+
+            edgeBinaryByteArray[pixelIndex] = isEdgePixel ? (byte) 255 : 0;
+        }
+
+        DirectFrameBuffer edgeBinaryFrameBuffer = new DirectFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 1);
+        edgeBinaryFrameBuffer.copyFromByteArray(edgeBinaryByteArray);
+
+        return edgeBinaryFrameBuffer;
+    }
+
+    private static void verifySameComponents(
+            List<EdgeConnectedComponent> unionFindComponentList,
+            List<EdgeConnectedComponent> breadthFirstSearchComponentList
+    ) {
+        if (unionFindComponentList.size() != breadthFirstSearchComponentList.size()) {
+            throw new IllegalStateException(
+                    "Component count differs. Expected " + breadthFirstSearchComponentList.size()
+                            + " but received " + unionFindComponentList.size()
+            );
+        }
+
+        for (int componentIndex = 0; componentIndex < unionFindComponentList.size(); componentIndex++) {
+
+            EdgeConnectedComponent unionFindComponent = unionFindComponentList.get(componentIndex);
+            EdgeConnectedComponent breadthFirstSearchComponent = breadthFirstSearchComponentList.get(componentIndex);
+
+            boolean sameSummary =
+                    unionFindComponent.componentLabelValue == breadthFirstSearchComponent.componentLabelValue
+                            && unionFindComponent.componentPixelCount == breadthFirstSearchComponent.componentPixelCount
+                            && unionFindComponent.minimumXCoordinate == breadthFirstSearchComponent.minimumXCoordinate
+                            && unionFindComponent.maximumXCoordinate == breadthFirstSearchComponent.maximumXCoordinate
+                            && unionFindComponent.minimumYCoordinate == breadthFirstSearchComponent.minimumYCoordinate
+                            && unionFindComponent.maximumYCoordinate == breadthFirstSearchComponent.maximumYCoordinate;
+
+            if (!sameSummary
+                    || !Arrays.equals(
+                            createSortedPixelIndexArray(unionFindComponent),
+                            createSortedPixelIndexArray(breadthFirstSearchComponent))) {
+                throw new IllegalStateException("Component " + (componentIndex + 1) + " differs between modes");
+            }
+        }
+    }
+
+    private static int[] createSortedPixelIndexArray(EdgeConnectedComponent edgeConnectedComponent) {
+        int[] pixelIndexArray = new int[edgeConnectedComponent.getStoredPixelCoordinateCount()];
+
+        for (int pixelListIndex = 0; pixelListIndex < pixelIndexArray.length; pixelListIndex++) {
+            pixelIndexArray[pixelListIndex] =
+                    edgeConnectedComponent.getPixelYCoordinate(pixelListIndex) * FRAME_WIDTH_IN_PIXELS
+                            + edgeConnectedComponent.getPixelXCoordinate(pixelListIndex);
+        }
+
+        Arrays.sort(pixelIndexArray);
+        return pixelIndexArray;
+    }
+
+    private static double measureMillisecondsPerFrame(
+            AprilTagEdgeComponentExtractor aprilTagEdgeComponentExtractor,
+            DirectFrameBuffer edgeBinaryFrameBuffer
+    ) {
+        for (int iterationIndex = 0; iterationIndex < WARMUP_ITERATION_COUNT; iterationIndex++) {
+            aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+        }
+
+        long startNanoseconds = System.nanoTime();
+        for (int iterationIndex = 0; iterationIndex < MEASURED_ITERATION_COUNT; iterationIndex++) {
+            aprilTagEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+        }
+
+        return (System.nanoTime() - startNanoseconds) / 1e6 / MEASURED_ITERATION_COUNT;
+    }
+}
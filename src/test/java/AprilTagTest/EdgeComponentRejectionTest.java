@@ -0,0 +1,387 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor;
+import org.PhantomCamera.AprilTags.AprilTagEdgeComponentExtractor.EdgeComponentLabellingMode;
+import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
+import org.PhantomCamera.AprilTags.EdgeComponentRejectionCriteria;
+import org.PhantomCamera.AprilTags.EdgeConnectedComponent;
+import org.PhantomCamera.Camera.SyntheticFrameSource;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+import org.PhantomCamera.Utils.GrayScaleConvertionUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compara el rechazo de componentes durante la extraccion contra filtrar despues.
+ *
+ * Para cada mapa de bordes y cada criterio, extrae sin filtro (ACCEPT_ALL_COMPONENTS), filtra
+ * esa lista con {@link EdgeComponentRejectionCriteria#isAccepted}, y verifica que la extraccion
+ * con el criterio aplicado en linea devuelve exactamente los mismos componentes (etiqueta,
+ * conteo, bounding box y pixeles) en union-find, BFS y por tiles. Despues verifica que con
+ * retencion de extremos por fila los pixeles guardados son el minimo y el maximo de cada fila
+ * del componente completo, y que por tiles (5 tiles y un tile por fila), con y sin retencion,
+ * cada componente guarda los mismos pixeles en el mismo orden raster que el labeller serie.
+ * No necesita camara ni OpenCV nativo.
+ */
+public class EdgeComponentRejectionTest {
+
+    private static final int FRAME_WIDTH_IN_PIXELS = 640;
+    private static final int FRAME_HEIGHT_IN_PIXELS = 480;
+
+    private static final int TILE_WORKER_COUNT = 4;
+
+    private static final int TILE_COUNT = 5;
+
+    private static final EdgeComponentRejectionCriteria[] EDGE_COMPONENT_REJECTION_CRITERIA_ARRAY = {
+            AprilTagDetector.DEFAULT_EDGE_COMPONENT_REJECTION_CRITERIA,
+            // Solo limites que crecen: corta componentes a mitad de construccion
+            new EdgeComponentRejectionCriteria(0, 200),
+            new EdgeComponentRejectionCriteria(0, Integer.MAX_VALUE, 0, 40, Double.MAX_VALUE, 0.0, 1.0),
+            // Limites inferiores y de forma, solo al final
+            new EdgeComponentRejectionCriteria(50, Integer.MAX_VALUE, 12, Integer.MAX_VALUE, 2.0, 0.05, 0.6),
+            new EdgeComponentRejectionCriteria(10, 5000, 6, 300, 3.0, 0.0, 0.5)
+    };
+
+    public static void main(String[] args) {
+        ForkJoinPool tileForkJoinPool = new ForkJoinPool(TILE_WORKER_COUNT);
+
+        try {
+            runEdgeComponentRejectionTest(tileForkJoinPool);
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in EdgeComponentRejectionTest:");
+            throwable.printStackTrace();
+        } finally {
+            tileForkJoinPool.shutdown();
+        }
+    }
+
+    private static void runEdgeComponentRejectionTest(ForkJoinPool tileForkJoinPool) {
+
+        String[] edgeMapNameArray = {"synthetic tags (edge detector)", "random 20% density", "random 50% density", "diagonal stripes"};
+
+        for (int edgeMapIndex = 0; edgeMapIndex < edgeMapNameArray.length; edgeMapIndex++) {
+
+            DirectFrameBuffer edgeBinaryFrameBuffer = createEdgeBinaryFrameBuffer(edgeMapIndex);
+
+            int keptComponentCount = 0;
+            int unfilteredComponentCount = 0;
+
+            for (EdgeComponentRejectionCriteria edgeComponentRejectionCriteria : EDGE_COMPONENT_REJECTION_CRITERIA_ARRAY) {
+
+                for (int extractorIndex = 0; extractorIndex < 3; extractorIndex++) {
+
+                    AprilTagEdgeComponentExtractor unfilteredEdgeComponentExtractor =
+                            createEdgeComponentExtractor(extractorIndex, tileForkJoinPool);
+                    AprilTagEdgeComponentExtractor filteredEdgeComponentExtractor =
+                            createEdgeComponentExtractor(extractorIndex, tileForkJoinPool);
+
+                    filteredEdgeComponentExtractor.setEdgeComponentRejectionCriteria(edgeComponentRejectionCriteria);
+
+                    List<EdgeConnectedComponent> unfilteredComponentList =
+                            unfilteredEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+                    List<EdgeConnectedComponent> postFilteredComponentList = new ArrayList<>();
+                    for (EdgeConnectedComponent edgeConnectedComponent : unfilteredComponentList) {
+                        if (edgeComponentRejectionCriteria.isAccepted(
+                                edgeConnectedComponent.componentPixelCount,
+                                edgeConnectedComponent.getComponentWidthInPixels(),
+                                edgeConnectedComponent.getComponentHeightInPixels())) {
+                            postFilteredComponentList.add(edgeConnectedComponent);
+                        }
+                    }
+
+                    List<EdgeConnectedComponent> inlineFilteredComponentList =
+                            filteredEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+                    verifySameComponents(
+                            inlineFilteredComponentList,
+                            postFilteredComponentList,
+                            edgeMapNameArray[edgeMapIndex] + " / " + describeExtractor(extractorIndex)
+                    );
+
+                    if (extractorIndex == 0) {
+                        verifyRowExtremalPixelRetention(edgeBinaryFrameBuffer, edgeComponentRejectionCriteria, postFilteredComponentList);
+                        verifyTiledPixelOrder(
+                                edgeBinaryFrameBuffer, edgeComponentRejectionCriteria, tileForkJoinPool,
+                                edgeMapNameArray[edgeMapIndex]
+                        );
+
+                        keptComponentCount += postFilteredComponentList.size();
+                        unfilteredComponentCount += unfilteredComponentList.size();
+                    }
+                }
+            }
+
+            System.out.printf(
+                    "%-32s kept %d of %d components over %d criteria%n",
+                    edgeMapNameArray[edgeMapIndex], keptComponentCount, unfilteredComponentCount,
+                    EDGE_COMPONENT_REJECTION_CRITERIA_ARRAY.length
+            );
+        }
+
+        System.out.println("Correctness: inline rejection matches post-filtering in union-find, BFS and tiled modes");
+        System.out.println("Correctness: retained pixels are the row extremes of every kept component");
+        System.out.println("Correctness: tiled components store the serial pixels in the same raster order, with and without retention");
+    }
+
+    /**
+     * El modo por tiles escribe los pixeles de cada tile en paralelo desde offsets precalculados:
+     * cada componente debe quedar identico al serie, pixel por pixel y en el mismo orden. Con un
+     * tile por fila casi todo componente cruza costuras. El extractor por tiles se usa dos veces
+     * para que la segunda extraccion parta del estado que dejo la primera.
+     */
+    private static void verifyTiledPixelOrder(
+            DirectFrameBuffer edgeBinaryFrameBuffer,
+            EdgeComponentRejectionCriteria edgeComponentRejectionCriteria,
+            ForkJoinPool tileForkJoinPool,
+            String edgeMapName
+    ) {
+        for (int tileCount : new int[]{TILE_COUNT, FRAME_HEIGHT_IN_PIXELS}) {
+            for (boolean rowExtremalPixelRetentionEnabled : new boolean[]{false, true}) {
+
+                AprilTagEdgeComponentExtractor serialEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                        FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, EdgeComponentLabellingMode.UNION_FIND
+                );
+                AprilTagEdgeComponentExtractor tiledEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                        FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, tileForkJoinPool, tileCount
+                );
+
+                for (AprilTagEdgeComponentExtractor edgeComponentExtractor
+                        : new AprilTagEdgeComponentExtractor[]{serialEdgeComponentExtractor, tiledEdgeComponentExtractor}) {
+                    edgeComponentExtractor.setEdgeComponentRejectionCriteria(edgeComponentRejectionCriteria);
+                    edgeComponentExtractor.setRowExtremalPixelRetentionEnabled(rowExtremalPixelRetentionEnabled);
+                }
+
+                List<EdgeConnectedComponent> serialComponentList =
+                        serialEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+                tiledEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+                List<EdgeConnectedComponent> tiledComponentList =
+                        tiledEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+                String caseDescription = edgeMapName + " / " + tileCount + " tiles"
+                        + (rowExtremalPixelRetentionEnabled ? " with retention" : "");
+
+                if (tiledComponentList.size() != serialComponentList.size()) {
+                    throw new IllegalStateException(
+                            caseDescription + ": " + tiledComponentList.size() + " components instead of " + serialComponentList.size()
+                    );
+                }
+
+                for (int componentIndex = 0; componentIndex < serialComponentList.size(); componentIndex++) {
+
+                    EdgeConnectedComponent serialComponent = serialComponentList.get(componentIndex);
+                    EdgeConnectedComponent tiledComponent = tiledComponentList.get(componentIndex);
+
+                    if (!haveSameSummary(serialComponent, tiledComponent)
+                            || tiledComponent.getStoredPixelCoordinateCount() != serialComponent.getStoredPixelCoordinateCount()
+                            || !tiledComponent.arePixelCoordinatesInRasterOrder()) {
+                        throw new IllegalStateException(caseDescription + ": component " + (componentIndex + 1) + " differs");
+                    }
+
+                    for (int pixelListIndex = 0; pixelListIndex < serialComponent.getStoredPixelCoordinateCount(); pixelListIndex++) {
+                        if (tiledComponent.getPixelXCoordinate(pixelListIndex) != serialComponent.getPixelXCoordinate(pixelListIndex)
+                                || tiledComponent.getPixelYCoordinate(pixelListIndex) != serialComponent.getPixelYCoordinate(pixelListIndex)) {
+                            throw new IllegalStateException(
+                                    caseDescription + ": pixel " + pixelListIndex + " of component " + (componentIndex + 1) + " differs"
+                            );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static AprilTagEdgeComponentExtractor createEdgeComponentExtractor(int extractorIndex, ForkJoinPool tileForkJoinPool) {
+        if (extractorIndex == 0) {
+            return new AprilTagEdgeComponentExtractor(
+                    FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, EdgeComponentLabellingMode.UNION_FIND
+            );
+        }
+        if (extractorIndex == 1) {
+            return new AprilTagEdgeComponentExtractor(
+                    FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, EdgeComponentLabellingMode.BREADTH_FIRST_SEARCH
+            );
+        }
+        return new AprilTagEdgeComponentExtractor(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, tileForkJoinPool, TILE_COUNT);
+    }
+
+    private static String describeExtractor(int extractorIndex) {
+        return extractorIndex == 0 ? "union-find" : extractorIndex == 1 ? "BFS" : "tiled";
+    }
+
+    /**
+     * Con retencion de extremos cada fila guarda su pixel mas a la izquierda y el mas a la
+     * derecha (uno solo si coinciden); conteo y bounding box siguen cubriendo todo el componente.
+     */
+    private static void verifyRowExtremalPixelRetention(
+            DirectFrameBuffer edgeBinaryFrameBuffer,
+            EdgeComponentRejectionCriteria edgeComponentRejectionCriteria,
+            List<EdgeConnectedComponent> fullComponentList
+    ) {
+        AprilTagEdgeComponentExtractor retainingEdgeComponentExtractor = new AprilTagEdgeComponentExtractor(
+                FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, EdgeComponentLabellingMode.UNION_FIND
+        );
+        retainingEdgeComponentExtractor.setEdgeComponentRejectionCriteria(edgeComponentRejectionCriteria);
+        retainingEdgeComponentExtractor.setRowExtremalPixelRetentionEnabled(true);
+
+        List<EdgeConnectedComponent> retainedComponentList =
+                retainingEdgeComponentExtractor.extractEdgeConnectedComponentList(edgeBinaryFrameBuffer);
+
+        if (retainedComponentList.size() != fullComponentList.size()) {
+            throw new IllegalStateException(
+                    "Row extremal retention changed the component count from " + fullComponentList.size()
+                            + " to " + retainedComponentList.size()
+            );
+        }
+
+        for (int componentIndex = 0; componentIndex < fullComponentList.size(); componentIndex++) {
+
+            EdgeConnectedComponent fullComponent = fullComponentList.get(componentIndex);
+            EdgeConnectedComponent retainedComponent = retainedComponentList.get(componentIndex);
+
+            if (!haveSameSummary(fullComponent, retainedComponent)) {
+                throw new IllegalStateException("Row extremal retention changed the summary of component " + (componentIndex + 1));
+            }
+
+            int[] rowMinimumXArray = new int[FRAME_HEIGHT_IN_PIXELS];
+            int[] rowMaximumXArray = new int[FRAME_HEIGHT_IN_PIXELS];
+            Arrays.fill(rowMinimumXArray, Integer.MAX_VALUE);
+            Arrays.fill(rowMaximumXArray, Integer.MIN_VALUE);
+
+            for (int pixelListIndex = 0; pixelListIndex < fullComponent.getStoredPixelCoordinateCount(); pixelListIndex++) {
+                int pixelXCoordinate = fullComponent.getPixelXCoordinate(pixelListIndex);
+                int pixelYCoordinate = fullComponent.getPixelYCoordinate(pixelListIndex);
+
+                rowMinimumXArray[pixelYCoordinate] = Math.min(rowMinimumXArray[pixelYCoordinate], pixelXCoordinate);
+                rowMaximumXArray[pixelYCoordinate] = Math.max(rowMaximumXArray[pixelYCoordinate], pixelXCoordinate);
+            }
+
+            List<Integer> expectedPixelIndexList = new ArrayList<>();
+            for (int pixelYCoordinate = 0; pixelYCoordinate < FRAME_HEIGHT_IN_PIXELS; pixelYCoordinate++) {
+                if (rowMinimumXArray[pixelYCoordinate] == Integer.MAX_VALUE) {
+                    continue;
+                }
+                expectedPixelIndexList.add(pixelYCoordinate * FRAME_WIDTH_IN_PIXELS + rowMinimumXArray[pixelYCoordinate]);
+                if (rowMaximumXArray[pixelYCoordinate] != rowMinimumXArray[pixelYCoordinate]) {
+                    expectedPixelIndexList.add(pixelYCoordinate * FRAME_WIDTH_IN_PIXELS + rowMaximumXArray[pixelYCoordinate]);
+                }
+            }
+
+            int[] expectedPixelIndexArray = expectedPixelIndexList.stream().mapToInt(Integer::intValue).toArray();
+
+            // Retenidos en orden raster: se comparan sin ordenar
+            int[] retainedPixelIndexArray = new int[retainedComponent.getStoredPixelCoordinateCount()];
+            for (int pixelListIndex = 0; pixelListIndex < retainedPixelIndexArray.length; pixelListIndex++) {
+                retainedPixelIndexArray[pixelListIndex] =
+                        retainedComponent.getPixelYCoordinate(pixelListIndex) * FRAME_WIDTH_IN_PIXELS
+                                + retainedComponent.getPixelXCoordinate(pixelListIndex);
+            }
+
+            if (!Arrays.equals(expectedPixelIndexArray, retainedPixelIndexArray)) {
+                throw new IllegalStateException("Retained pixels of component " + (componentIndex + 1) + " are not the row extremes");
+            }
+        }
+    }
+
+    private static DirectFrameBuffer createEdgeBinaryFrameBuffer(int edgeMapIndex) {
+
+        int totalPixelCount = FRAME_WIDTH_IN_PIXELS * FRAME_HEIGHT_IN_PIXELS;
+
+        if (edgeMapIndex == 0) {
+            SyntheticFrameSource syntheticFrameSource =
+                    new SyntheticFrameSource(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 8, 40, 11L);
+
+            byte[] colorByteArray = new byte[totalPixelCount * 3];
+            byte[] grayscaleByteArray = new byte[totalPixelCount];
+
+            syntheticFrameSource.renderFrameIntoBgrByteArray(3, colorByteArray);
+            GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArray(
+                    colorByteArray, FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, grayscaleByteArray
+            );
+
+            DirectFrameBuffer grayscaleFrameBuffer = new DirectFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 1);
+            grayscaleFrameBuffer.copyFromByteArray(grayscaleByteArray);
+
+            return new AprilTagEdgeDetector(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 100)
+                    .calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+        }
+
+        byte[] edgeBinaryByteArray = new byte[totalPixelCount];
+        Random randomGenerator = new Random(edgeMapIndex);
+
+        for (int pixelIndex = 0; pixelIndex < totalPixelCount; pixelIndex++) {
+            boolean isEdgePixel;
+
+            if (edgeMapIndex == 1) {
+                isEdgePixel = randomGenerator.nextInt(100) < 20;
+            } else if (edgeMapIndex == 2) {
+                isEdgePixel = randomGenerator.nextInt(100) < 50;
+            } else {
+                int pixelXPosition = pixelIndex % FRAME_WIDTH_IN_PIXELS;
+                int pixelYPosition = pixelIndex / FRAME_WIDTH_IN_PIXELS;
+                isEdgePixel = (pixelXPosition + 2 * pixelYPosition) % 7 == 0;
+            }
+
+            edgeBinaryByteArray[pixelIndex] = isEdgePixel ? (byte) 255 : 0;
+        }
+
+        DirectFrameBuffer edgeBinaryFrameBuffer = new DirectFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 1);
+        edgeBinaryFrameBuffer.copyFromByteArray(edgeBinaryByteArray);
+
+        return edgeBinaryFrameBuffer;
+    }
+
+    private static void verifySameComponents(
+            List<EdgeConnectedComponent> inlineFilteredComponentList,
+            List<EdgeConnectedComponent> postFilteredComponentList,
+            String caseDescription
+    ) {
+        if (inlineFilteredComponentList.size() != postFilteredComponentList.size()) {
+            throw new IllegalStateException(
+                    caseDescription + ": component count differs. Expected " + postFilteredComponentList.size()
+                            + " but received " + inlineFilteredComponentList.size()
+            );
+        }
+
+        for (int componentIndex = 0; componentIndex < inlineFilteredComponentList.size(); componentIndex++) {
+
+            EdgeConnectedComponent inlineFilteredComponent = inlineFilteredComponentList.get(componentIndex);
+            EdgeConnectedComponent postFilteredComponent = postFilteredComponentList.get(componentIndex);
+
+            if (!haveSameSummary(inlineFilteredComponent, postFilteredComponent)
+                    || !Arrays.equals(
+                            createSortedPixelIndexArray(inlineFilteredComponent),
+                            createSortedPixelIndexArray(postFilteredComponent))) {
+                throw new IllegalStateException(caseDescription + ": component " + (componentIndex + 1) + " differs");
+            }
+        }
+    }
+
+    private static boolean haveSameSummary(EdgeConnectedComponent firstComponent, EdgeConnectedComponent secondComponent) {
+        return firstComponent.componentLabelValue == secondComponent.componentLabelValue
+                && firstComponent.componentPixelCount == secondComponent.componentPixelCount
+                && firstComponent.minimumXCoordinate == secondComponent.minimumXCoordinate
+                && firstComponent.maximumXCoordinate == secondComponent.maximumXCoordinate
+                && firstComponent.minimumYCoordinate == secondComponent.minimumYCoordinate
+                && firstComponent.maximumYCoordinate == secondComponent.maximumYCoordinate;
+    }
+
+    private static int[] createSortedPixelIndexArray(EdgeConnectedComponent edgeConnectedComponent) {
+        int[] pixelIndexArray = new int[edgeConnectedComponent.getStoredPixelCoordinateCount()];
+
+        for (int pixelListIndex = 0; pixelListIndex < pixelIndexArray.length; pixelListIndex++) {
+            pixelIndexArray[pixelListIndex] =
+                    edgeConnectedComponent.getPixelYCoordinate(pixelListIndex) * FRAME_WIDTH_IN_PIXELS
+                            + edgeConnectedComponent.getPixelXCoordinate(pixelListIndex);
+        }
+
+        Arrays.sort(pixelIndexArray);
+        return pixelIndexArray;
+    }
+}
@@ -0,0 +1,178 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Compara el Sobel por bandas de filas de {@link AprilTagEdgeDetector} contra el serial.
+ *
+ * Usa un ForkJoinPool propio de 4 workers (el commonPool tiene paralelismo 1 en maquinas
+ * pequenas y no ejecutaria las bandas en paralelo). Verifica que el mapa de bordes y la
+ * magnitud son identicos para varios numeros de bandas, incluyendo mas bandas que filas y
+ * alturas de 3 y 4, y despues mide el tiempo por frame a 1280x720.
+ */
+public class EdgeDetectorRowBandTest {
+
+    private static final int WORKER_COUNT = 4;
+
+    private static final int[][] FRAME_SIZE_ARRAY = {
+            {3, 3},
+            {17, 3},
+            {17, 4},
+            {64, 5},
+            {33, 17},
+            {641, 479},
+            {1280, 720}
+    };
+
+    /**
+     * 0 elige dos bandas por worker; 10000 es mas que las filas de cualquier frame.
+     */
+    private static final int[] ROW_BAND_COUNT_ARRAY = {0, 1, 2, 3, 4, 7, 16, 10000};
+
+    private static final int GRADIENT_MAGNITUDE_THRESHOLD_VALUE = 80;
+
+    private static final int WARMUP_ITERATION_COUNT = 50;
+
+    private static final int MEASURED_ITERATION_COUNT = 100;
+
+    public static void main(String[] args) {
+        ForkJoinPool rowBandForkJoinPool = new ForkJoinPool(WORKER_COUNT);
+
+        try {
+            runEdgeDetectorRowBandTest(rowBandForkJoinPool);
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in EdgeDetectorRowBandTest:");
+            throwable.printStackTrace();
+        } finally {
+            rowBandForkJoinPool.shutdown();
+        }
+    }
+
+    private static void runEdgeDetectorRowBandTest(ForkJoinPool rowBandForkJoinPool) {
+
+        Random randomGenerator = new Random(7L);
+
+        for (int[] frameSize : FRAME_SIZE_ARRAY) {
+
+            int frameWidthInPixels = frameSize[0];
+            int frameHeightInPixels = frameSize[1];
+
+            DirectFrameBuffer grayscaleFrameBuffer =
+                    createGrayscaleFrameBuffer(frameWidthInPixels, frameHeightInPixels, randomGenerator);
+
+            AprilTagEdgeDetector serialEdgeDetector = new AprilTagEdgeDetector(
+                    frameWidthInPixels, frameHeightInPixels, GRADIENT_MAGNITUDE_THRESHOLD_VALUE
+            );
+
+            byte[] serialEdgeByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+            serialEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer)
+                    .copyToByteArray(serialEdgeByteArray);
+
+            for (int rowBandCount : ROW_BAND_COUNT_ARRAY) {
+
+                AprilTagEdgeDetector bandedEdgeDetector = new AprilTagEdgeDetector(
+                        frameWidthInPixels, frameHeightInPixels, GRADIENT_MAGNITUDE_THRESHOLD_VALUE,
+                        rowBandForkJoinPool, rowBandCount
+                );
+
+                byte[] bandedEdgeByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+
+                // Dos pasadas: la segunda comprueba que el scratch reutilizado no deja restos
+                for (int passIndex = 0; passIndex < 2; passIndex++) {
+                    bandedEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer)
+                            .copyToByteArray(bandedEdgeByteArray);
+
+                    String frameDescription = frameWidthInPixels + "x" + frameHeightInPixels
+                            + " with " + bandedEdgeDetector.getRowBandCount() + " band(s) (requested " + rowBandCount + ")";
+
+                    int edgeMismatchIndex = Arrays.mismatch(serialEdgeByteArray, bandedEdgeByteArray);
+
+                    if (edgeMismatchIndex >= 0) {
+                        throw new IllegalStateException(
+                                "Banded edge map differs from serial at " + frameDescription + " pixel " + edgeMismatchIndex
+                        );
+                    }
+
+                    int magnitudeMismatchIndex = Arrays.mismatch(
+                            serialEdgeDetector.getGradientMagnitudeIntegerArray(),
+                            bandedEdgeDetector.getGradientMagnitudeIntegerArray()
+                    );
+
+                    if (magnitudeMismatchIndex >= 0) {
+                        throw new IllegalStateException(
+                                "Banded gradient magnitude differs from serial at " + frameDescription + " pixel " + magnitudeMismatchIndex
+                        );
+                    }
+                }
+            }
+        }
+
+        System.out.println("Correctness: banded output matches serial output on " + WORKER_COUNT + " workers");
+
+        measureRowBandThroughput(rowBandForkJoinPool, 1280, 720);
+    }
+
+    private static DirectFrameBuffer createGrayscaleFrameBuffer(
+            int frameWidthInPixels,
+            int frameHeightInPixels,
+            Random randomGenerator
+    ) {
+        byte[] grayscaleByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+        randomGenerator.nextBytes(grayscaleByteArray);
+
+        DirectFrameBuffer grayscaleFrameBuffer = new DirectFrameBuffer(frameWidthInPixels, frameHeightInPixels, 1);
+        grayscaleFrameBuffer.copyFromByteArray(grayscaleByteArray);
+
+        return grayscaleFrameBuffer;
+    }
+
+    private static void measureRowBandThroughput(
+            ForkJoinPool rowBandForkJoinPool,
+            int frameWidthInPixels,
+            int frameHeightInPixels
+    ) {
+        DirectFrameBuffer grayscaleFrameBuffer =
+                createGrayscaleFrameBuffer(frameWidthInPixels, frameHeightInPixels, new Random(frameWidthInPixels));
+
+        AprilTagEdgeDetector serialEdgeDetector = new AprilTagEdgeDetector(
+                frameWidthInPixels, frameHeightInPixels, GRADIENT_MAGNITUDE_THRESHOLD_VALUE
+        );
+        AprilTagEdgeDetector bandedEdgeDetector = new AprilTagEdgeDetector(
+                frameWidthInPixels, frameHeightInPixels, GRADIENT_MAGNITUDE_THRESHOLD_VALUE, rowBandForkJoinPool, 0
+        );
+
+        double serialMillisecondsPerFrame = measureMillisecondsPerFrame(serialEdgeDetector, grayscaleFrameBuffer);
+        double bandedMillisecondsPerFrame = measureMillisecondsPerFrame(bandedEdgeDetector, grayscaleFrameBuffer);
+
+        System.out.printf(
+                "%dx%d  serial: %.3f ms  %d bands: %.3f ms  speedup: %.2fx (%d cores)%n",
+                frameWidthInPixels, frameHeightInPixels,
+                serialMillisecondsPerFrame,
+                bandedEdgeDetector.getRowBandCount(),
+                bandedMillisecondsPerFrame,
+                serialMillisecondsPerFrame / bandedMillisecondsPerFrame,
+                Runtime.getRuntime().availableProcessors()
+        );
+    }
+
+    private static double measureMillisecondsPerFrame(
+            AprilTagEdgeDetector aprilTagEdgeDetector,
+            DirectFrameBuffer grayscaleFrameBuffer
+    ) {
+        for (int iterationIndex = 0; iterationIndex < WARMUP_ITERATION_COUNT; iterationIndex++) {
+            aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+        }
+
+        long startNanoseconds = System.nanoTime();
+        for (int iterationIndex = 0; iterationIndex < MEASURED_ITERATION_COUNT; iterationIndex++) {
+            aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+        }
+
+        return (System.nanoTime() - startNanoseconds) / 1e6 / MEASURED_ITERATION_COUNT;
+    }
+}
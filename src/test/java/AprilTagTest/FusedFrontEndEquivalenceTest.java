@@ -0,0 +1,310 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
+import org.PhantomCamera.AprilTags.AprilTagFramePreProcessing;
+import org.PhantomCamera.AprilTags.AprilTagFusedFrontEnd;
+import org.PhantomCamera.AprilTags.DetectedApriltag;
+import org.PhantomCamera.Camera.SyntheticFrameSource;
+import org.PhantomCamera.Stadistics.EdgeStadistics;
+import org.PhantomCamera.Stadistics.EdgeStadistics.EdgeFrameStatistics;
+import org.PhantomCamera.Stadistics.GrayScaleStatistics;
+import org.PhantomCamera.Stadistics.GrayScaleStatistics.GrayscaleFrameStatistics;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compara {@link AprilTagFusedFrontEnd} contra {@link AprilTagFramePreProcessing} +
+ * {@link AprilTagEdgeDetector} (escalar, en serie) + las dos pasadas de estadisticas.
+ * <p>
+ * Gris, mapa de bordes, magnitud del gradiente y estadisticas deben ser identicos para
+ * tamanos desde el minimo de 3x3, anchos impares y varios umbrales, dos frames seguidos por
+ * instancia. Despues {@link AprilTagDetector} con el front end fusionado debe devolver las
+ * mismas etiquetas que con las etapas separadas, y se mide el tiempo de las dos versiones.
+ */
+public class FusedFrontEndEquivalenceTest {
+
+    private static final int[][] FRAME_SIZE_ARRAY = {{3, 3}, {4, 3}, {3, 5}, {17, 4}, {33, 17}, {641, 479}, {1280, 720}};
+
+    private static final int[] GRADIENT_MAGNITUDE_THRESHOLD_ARRAY = {0, 1, 80, 2041};
+
+    private static final int DETECTOR_FRAME_COUNT = 4;
+
+    private static final int WARMUP_ITERATION_COUNT = 50;
+    private static final int MEASURED_ITERATION_COUNT = 100;
+
+    public static void main(String[] args) {
+        try {
+            runFusedFrontEndEquivalenceTest();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in FusedFrontEndEquivalenceTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void runFusedFrontEndEquivalenceTest() {
+
+        Random randomGenerator = new Random(4_004L);
+        int comparedFrameCount = 0;
+
+        for (int[] frameSize : FRAME_SIZE_ARRAY) {
+            for (int gradientMagnitudeThresholdValue : GRADIENT_MAGNITUDE_THRESHOLD_ARRAY) {
+                comparedFrameCount += compareFrontEnds(frameSize[0], frameSize[1], gradientMagnitudeThresholdValue, randomGenerator);
+            }
+        }
+
+        System.out.println("Correctness: fused front end matches the separate passes on " + comparedFrameCount + " frames");
+
+        compareDetectors(randomGenerator);
+
+        measureFrontEnds(1280, 720);
+    }
+
+    /**
+     * Dos frames por instancia: ruido y el frame sintetico con etiquetas.
+     */
+    private static int compareFrontEnds(
+            int frameWidthInPixels,
+            int frameHeightInPixels,
+            int gradientMagnitudeThresholdValue,
+            Random randomGenerator
+    ) {
+        AprilTagFusedFrontEnd aprilTagFusedFrontEnd =
+                new AprilTagFusedFrontEnd(frameWidthInPixels, frameHeightInPixels, gradientMagnitudeThresholdValue);
+
+        AprilTagFramePreProcessing aprilTagFramePreProcessing =
+                new AprilTagFramePreProcessing(frameWidthInPixels, frameHeightInPixels);
+        AprilTagEdgeDetector aprilTagEdgeDetector = new AprilTagEdgeDetector(
+                frameWidthInPixels, frameHeightInPixels, gradientMagnitudeThresholdValue, null, 1, false
+        );
+
+        EdgeStadistics edgeStadistics = new EdgeStadistics();
+
+        byte[] colorBgrByteArray = new byte[frameWidthInPixels * frameHeightInPixels * 3];
+        DirectFrameBuffer colorFrameBuffer = new DirectFrameBuffer(frameWidthInPixels, frameHeightInPixels, 3);
+
+        String frameDescription = frameWidthInPixels + "x" + frameHeightInPixels + " threshold " + gradientMagnitudeThresholdValue;
+
+        for (int frameIndex = 0; frameIndex < 2; frameIndex++) {
+
+            if (frameIndex == 0) {
+                randomGenerator.nextBytes(colorBgrByteArray);
+            } else {
+                new SyntheticFrameSource(frameWidthInPixels, frameHeightInPixels, 4, 16, randomGenerator.nextLong())
+                        .renderFrameIntoBgrByteArray(frameIndex, colorBgrByteArray);
+            }
+            colorFrameBuffer.copyFromByteArray(colorBgrByteArray);
+
+            aprilTagFusedFrontEnd.processColorBgrFrameBuffer(colorFrameBuffer);
+
+            DirectFrameBuffer grayscaleFrameBuffer = aprilTagFramePreProcessing.convertColorBgrFrameBufferToGrayscale(colorFrameBuffer);
+            DirectFrameBuffer edgeBinaryFrameBuffer =
+                    aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+
+            compareFrameBuffers(grayscaleFrameBuffer, aprilTagFusedFrontEnd.getGrayscaleFrameBuffer(), "grayscale", frameDescription);
+            compareFrameBuffers(edgeBinaryFrameBuffer, aprilTagFusedFrontEnd.getEdgeBinaryFrameBuffer(), "edge", frameDescription);
+
+            int gradientMismatchIndex = Arrays.mismatch(
+                    aprilTagEdgeDetector.getGradientMagnitudeIntegerArray(),
+                    aprilTagFusedFrontEnd.getGradientMagnitudeIntegerArray()
+            );
+
+            if (gradientMismatchIndex >= 0) {
+                throw new IllegalStateException("Gradient magnitude differs at " + frameDescription + " pixel " + gradientMismatchIndex);
+            }
+
+            GrayscaleFrameStatistics expectedGrayscaleFrameStatistics = GrayScaleStatistics.calculateGrayscaleFrameStatistics(
+                    frameWidthInPixels, frameHeightInPixels, grayscaleFrameBuffer.getPixelByteBuffer()
+            );
+            GrayscaleFrameStatistics fusedGrayscaleFrameStatistics = aprilTagFusedFrontEnd.getGrayscaleFrameStatistics();
+
+            if (expectedGrayscaleFrameStatistics.minimumIntensityValue != fusedGrayscaleFrameStatistics.minimumIntensityValue
+                    || expectedGrayscaleFrameStatistics.maximumIntensityValue != fusedGrayscaleFrameStatistics.maximumIntensityValue
+                    || expectedGrayscaleFrameStatistics.averageIntensityValue != fusedGrayscaleFrameStatistics.averageIntensityValue) {
+                throw new IllegalStateException("Grayscale statistics differ at " + frameDescription);
+            }
+
+            EdgeFrameStatistics expectedEdgeFrameStatistics = edgeStadistics.calculateEdgeFrameStatistics(
+                    frameWidthInPixels, frameHeightInPixels,
+                    edgeBinaryFrameBuffer.getPixelByteBuffer(), aprilTagEdgeDetector.getGradientMagnitudeIntegerArray()
+            );
+            EdgeFrameStatistics fusedEdgeFrameStatistics = aprilTagFusedFrontEnd.getEdgeFrameStatistics();
+
+            if (expectedEdgeFrameStatistics.edgePixelCount != fusedEdgeFrameStatistics.edgePixelCount
+                    || expectedEdgeFrameStatistics.maximumGradientScaleValue != fusedEdgeFrameStatistics.maximumGradientScaleValue) {
+                throw new IllegalStateException(
+                        "Edge statistics differ at " + frameDescription + ": expected " + expectedEdgeFrameStatistics.edgePixelCount
+                                + " edges, max " + expectedEdgeFrameStatistics.maximumGradientScaleValue
+                                + " but received " + fusedEdgeFrameStatistics.edgePixelCount
+                                + " edges, max " + fusedEdgeFrameStatistics.maximumGradientScaleValue
+                );
+            }
+        }
+
+        return 2;
+    }
+
+    private static void compareFrameBuffers(
+            DirectFrameBuffer expectedFrameBuffer,
+            DirectFrameBuffer receivedFrameBuffer,
+            String frameBufferName,
+            String frameDescription
+    ) {
+        int pixelCount = expectedFrameBuffer.getFrameWidth() * expectedFrameBuffer.getFrameHeight();
+
+        byte[] expectedByteArray = new byte[pixelCount];
+        byte[] receivedByteArray = new byte[pixelCount];
+
+        expectedFrameBuffer.copyToByteArray(expectedByteArray);
+        receivedFrameBuffer.copyToByteArray(receivedByteArray);
+
+        int mismatchIndex = Arrays.mismatch(expectedByteArray, receivedByteArray);
+
+        if (mismatchIndex >= 0) {
+            throw new IllegalStateException(
+                    "Fused " + frameBufferName + " frame differs at " + frameDescription + " pixel " + mismatchIndex
+                            + ": expected " + (expectedByteArray[mismatchIndex] & 0xFF)
+                            + " but received " + (receivedByteArray[mismatchIndex] & 0xFF)
+            );
+        }
+    }
+
+    /**
+     * Detector con y sin el front end fusionado sobre frames con etiquetas reales.
+     */
+    private static void compareDetectors(Random randomGenerator) {
+
+        int frameWidthInPixels = 960;
+        int frameHeightInPixels = 540;
+        int tagCount = 6;
+
+        AprilTag36h11Dictionary aprilTag36h11Dictionary = AprilTag36h11Dictionary.createTag36h11Dictionary();
+        long[] tagCodeArray = AprilTag36h11Dictionary.getTag36h11CodeArray();
+
+        AprilTagDetector fusedAprilTagDetector = new AprilTagDetector(aprilTag36h11Dictionary);
+        AprilTagDetector separateAprilTagDetector = new AprilTagDetector(aprilTag36h11Dictionary);
+        separateAprilTagDetector.setFusedFrontEndEnabled(false);
+
+        if (!fusedAprilTagDetector.isFusedFrontEndInUse() || separateAprilTagDetector.isFusedFrontEndInUse()) {
+            throw new IllegalStateException("Default detector should use the fused front end and the other should not");
+        }
+
+        byte[] grayscaleByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+        byte[] colorBgrByteArray = new byte[frameWidthInPixels * frameHeightInPixels * 3];
+        DirectFrameBuffer colorFrameBuffer = new DirectFrameBuffer(frameWidthInPixels, frameHeightInPixels, 3);
+
+        long[] codeBitsArray = new long[tagCount];
+        int[] imageRotationIndexArray = new int[tagCount];
+        double[][] imageCornerCoordinateArrays = new double[tagCount][8];
+
+        int comparedTagCount = 0;
+
+        for (int frameIndex = 0; frameIndex < DETECTOR_FRAME_COUNT; frameIndex++) {
+
+            for (int tagIndex = 0; tagIndex < tagCount; tagIndex++) {
+                codeBitsArray[tagIndex] = tagCodeArray[randomGenerator.nextInt(tagCodeArray.length)];
+                imageRotationIndexArray[tagIndex] = randomGenerator.nextInt(4);
+
+                RenderedTagFrame.createRandomPerspectiveQuad(
+                        randomGenerator,
+                        (tagIndex % 3 + 0.5) * frameWidthInPixels / 3.0,
+                        (tagIndex / 3 + 0.5) * frameHeightInPixels / 2.0,
+                        35.0 + 30.0 * randomGenerator.nextDouble(),
+                        imageCornerCoordinateArrays[tagIndex]
+                );
+            }
+
+            RenderedTagFrame.renderTagFrame(
+                    frameWidthInPixels, frameHeightInPixels, tagCount,
+                    codeBitsArray, imageRotationIndexArray, imageCornerCoordinateArrays,
+                    grayscaleByteArray, randomGenerator
+            );
+
+            // Gris repetido en los tres canales
+            for (int pixelIndex = 0; pixelIndex < grayscaleByteArray.length; pixelIndex++) {
+                colorBgrByteArray[3 * pixelIndex] = grayscaleByteArray[pixelIndex];
+                colorBgrByteArray[3 * pixelIndex + 1] = grayscaleByteArray[pixelIndex];
+                colorBgrByteArray[3 * pixelIndex + 2] = grayscaleByteArray[pixelIndex];
+            }
+            colorFrameBuffer.copyFromByteArray(colorBgrByteArray);
+
+            List<DetectedApriltag> fusedDetectedApriltagList = fusedAprilTagDetector.detect(colorFrameBuffer);
+            List<DetectedApriltag> separateDetectedApriltagList = separateAprilTagDetector.detect(colorFrameBuffer);
+
+            if (fusedDetectedApriltagList.size() != tagCount || separateDetectedApriltagList.size() != tagCount) {
+                throw new IllegalStateException(
+                        "Frame " + frameIndex + ": expected " + tagCount + " tags but fused found " + fusedDetectedApriltagList.size()
+                                + " and separate found " + separateDetectedApriltagList.size()
+                );
+            }
+
+            for (int tagIndex = 0; tagIndex < tagCount; tagIndex++) {
+                DetectedApriltag fusedApriltag = fusedDetectedApriltagList.get(tagIndex);
+                DetectedApriltag separateApriltag = separateDetectedApriltagList.get(tagIndex);
+
+                if (fusedApriltag.getTagIdIdentifier() != separateApriltag.getTagIdIdentifier()
+                        || fusedApriltag.getRotationIndex() != separateApriltag.getRotationIndex()
+                        || fusedApriltag.getHammingDistance() != separateApriltag.getHammingDistance()
+                        || !Arrays.equals(fusedApriltag.getCornerPixelPositionArray(), separateApriltag.getCornerPixelPositionArray())) {
+                    throw new IllegalStateException("Frame " + frameIndex + ": tag " + tagIndex + " differs between front ends");
+                }
+            }
+
+            comparedTagCount += tagCount;
+        }
+
+        System.out.println("Correctness: detector gives the same " + comparedTagCount + " tags with both front ends");
+    }
+
+    private static void measureFrontEnds(int frameWidthInPixels, int frameHeightInPixels) {
+
+        byte[] colorBgrByteArray = new byte[frameWidthInPixels * frameHeightInPixels * 3];
+        new SyntheticFrameSource(frameWidthInPixels, frameHeightInPixels, 8, 32, 1234L)
+                .renderFrameIntoBgrByteArray(0, colorBgrByteArray);
+
+        DirectFrameBuffer colorFrameBuffer = new DirectFrameBuffer(frameWidthInPixels, frameHeightInPixels, 3);
+        colorFrameBuffer.copyFromByteArray(colorBgrByteArray);
+
+        AprilTagFusedFrontEnd aprilTagFusedFrontEnd = new AprilTagFusedFrontEnd(
+                frameWidthInPixels, frameHeightInPixels, AprilTagDetector.DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE
+        );
+        AprilTagFramePreProcessing aprilTagFramePreProcessing =
+                new AprilTagFramePreProcessing(frameWidthInPixels, frameHeightInPixels);
+        AprilTagEdgeDetector aprilTagEdgeDetector = new AprilTagEdgeDetector(
+                frameWidthInPixels, frameHeightInPixels, AprilTagDetector.DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE, null, 1, false
+        );
+
+        for (int iterationIndex = 0; iterationIndex < WARMUP_ITERATION_COUNT; iterationIndex++) {
+            aprilTagFusedFrontEnd.processColorBgrFrameBuffer(colorFrameBuffer);
+            aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(
+                    aprilTagFramePreProcessing.convertColorBgrFrameBufferToGrayscale(colorFrameBuffer)
+            );
+        }
+
+        long fusedStartNanoseconds = System.nanoTime();
+        for (int iterationIndex = 0; iterationIndex < MEASURED_ITERATION_COUNT; iterationIndex++) {
+            aprilTagFusedFrontEnd.processColorBgrFrameBuffer(colorFrameBuffer);
+        }
+        double fusedMillisecondsPerFrame = (System.nanoTime() - fusedStartNanoseconds) / 1e6 / MEASURED_ITERATION_COUNT;
+
+        long separateStartNanoseconds = System.nanoTime();
+        for (int iterationIndex = 0; iterationIndex < MEASURED_ITERATION_COUNT; iterationIndex++) {
+            aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(
+                    aprilTagFramePreProcessing.convertColorBgrFrameBufferToGrayscale(colorFrameBuffer)
+            );
+        }
+        double separateMillisecondsPerFrame = (System.nanoTime() - separateStartNanoseconds) / 1e6 / MEASURED_ITERATION_COUNT;
+
+        System.out.printf(
+                "%dx%d  separate: %.3f ms  fused: %.3f ms  speedup: %.2fx%n",
+                frameWidthInPixels, frameHeightInPixels,
+                separateMillisecondsPerFrame,
+                fusedMillisecondsPerFrame,
+                separateMillisecondsPerFrame / fusedMillisecondsPerFrame
+        );
+    }
+}
@@ -0,0 +1,144 @@
+package AprilTagTest;
+
+import org.PhantomCamera.Utils.GrayScaleConvertionUtils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compara la conversion BGR -> gris vectorial contra el loop escalar.
+ *
+ * Compilar con -PvectorApi=true y ejecutar con --add-modules jdk.incubator.vector. Primero verifica que las dos
+ * versiones producen exactamente los mismos bytes (incluyendo anchos que no son
+ * multiplo del numero de lanes), y despues mide el tiempo por frame a
+ * 640x480, 1280x720 y 1920x1080.
+ */
+public class GrayscaleVectorizedConversionTest {
+
+    private static final int[][] BENCHMARK_FRAME_SIZES = {
+            {640, 480},
+            {1280, 720},
+            {1920, 1080}
+    };
+
+    private static final int WARMUP_ITERATION_COUNT = 200;
+
+    private static final int MEASURED_ITERATION_COUNT = 300;
+
+    public static void main(String[] args) {
+        try {
+            runGrayscaleVectorizedConversionTest();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in GrayscaleVectorizedConversionTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void runGrayscaleVectorizedConversionTest() {
+
+        if (!GrayScaleConvertionUtils.isVectorizedConversionAvailable()) {
+            System.out.println("Vectorized grayscale is not available. Build with -PvectorApi=true and run with --add-modules jdk.incubator.vector");
+            return;
+        }
+
+        System.out.println("Automatic selection uses vector path: " + GrayScaleConvertionUtils.isVectorizedConversionEnabled());
+
+        verifyVectorizedConversionMatchesScalar();
+
+        for (int[] frameSize : BENCHMARK_FRAME_SIZES) {
+            measureConversionThroughput(frameSize[0], frameSize[1]);
+        }
+    }
+
+    private static void verifyVectorizedConversionMatchesScalar() {
+
+        Random randomGenerator = new Random(12345);
+
+        int[] frameWidthArray = {1, 7, 31, 64, 65, 127, 640, 641, 1280, 1921};
+
+        for (int frameWidthInPixels : frameWidthArray) {
+            for (int frameHeightInPixels = 1; frameHeightInPixels <= 3; frameHeightInPixels++) {
+
+                byte[] colorByteArray = new byte[frameWidthInPixels * frameHeightInPixels * 3];
+                randomGenerator.nextBytes(colorByteArray);
+
+                byte[] scalarGrayscaleByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+                byte[] vectorizedGrayscaleByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+
+                GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArrayScalar(
+                        colorByteArray, frameWidthInPixels, frameHeightInPixels, scalarGrayscaleByteArray
+                );
+                GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArrayVectorized(
+                        colorByteArray, frameWidthInPixels, frameHeightInPixels, vectorizedGrayscaleByteArray
+                );
+
+                int mismatchIndex = Arrays.mismatch(scalarGrayscaleByteArray, vectorizedGrayscaleByteArray);
+
+                if (mismatchIndex >= 0) {
+                    throw new IllegalStateException(
+                            "Vectorized grayscale differs from scalar at " + frameWidthInPixels + "x" + frameHeightInPixels
+                                    + " pixel " + mismatchIndex + ": expected " + (scalarGrayscaleByteArray[mismatchIndex] & 0xFF)
+                                    + " but received " + (vectorizedGrayscaleByteArray[mismatchIndex] & 0xFF)
+                    );
+                }
+            }
+        }
+
+        // Todos los valores extremos de un canal con los otros dos fijos.
+        byte[] extremeColorByteArray = new byte[256 * 3 * 3];
+        for (int channelValue = 0; channelValue < 256; channelValue++) {
+            for (int colorChannelIndex = 0; colorChannelIndex < 3; colorChannelIndex++) {
+                int pixelBaseIndex = (colorChannelIndex * 256 + channelValue) * 3;
+                extremeColorByteArray[pixelBaseIndex] = (byte) 255;
+                extremeColorByteArray[pixelBaseIndex + 1] = (byte) 255;
+                extremeColorByteArray[pixelBaseIndex + 2] = (byte) 255;
+                extremeColorByteArray[pixelBaseIndex + colorChannelIndex] = (byte) channelValue;
+            }
+        }
+
+        byte[] scalarExtremeByteArray = new byte[256 * 3];
+        byte[] vectorizedExtremeByteArray = new byte[256 * 3];
+
+        GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArrayScalar(extremeColorByteArray, 256 * 3, 1, scalarExtremeByteArray);
+        GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArrayVectorized(extremeColorByteArray, 256 * 3, 1, vectorizedExtremeByteArray);
+
+        if (!Arrays.equals(scalarExtremeByteArray, vectorizedExtremeByteArray)) {
+            throw new IllegalStateException("Vectorized grayscale differs from scalar on extreme channel values");
+        }
+
+        System.out.println("Correctness: vectorized output matches scalar output");
+    }
+
+    private static void measureConversionThroughput(int frameWidthInPixels, int frameHeightInPixels) {
+
+        byte[] colorByteArray = new byte[frameWidthInPixels * frameHeightInPixels * 3];
+        new Random(frameWidthInPixels).nextBytes(colorByteArray);
+
+        byte[] grayscaleByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+
+        for (int iterationIndex = 0; iterationIndex < WARMUP_ITERATION_COUNT; iterationIndex++) {
+            GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArrayScalar(colorByteArray, frameWidthInPixels, frameHeightInPixels, grayscaleByteArray);
+            GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArrayVectorized(colorByteArray, frameWidthInPixels, frameHeightInPixels, grayscaleByteArray);
+        }
+
+        long scalarStartNanoseconds = System.nanoTime();
+        for (int iterationIndex = 0; iterationIndex < MEASURED_ITERATION_COUNT; iterationIndex++) {
+            GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArrayScalar(colorByteArray, frameWidthInPixels, frameHeightInPixels, grayscaleByteArray);
+        }
+        double scalarMillisecondsPerFrame = (System.nanoTime() - scalarStartNanoseconds) / 1e6 / MEASURED_ITERATION_COUNT;
+
+        long vectorizedStartNanoseconds = System.nanoTime();
+        for (int iterationIndex = 0; iterationIndex < MEASURED_ITERATION_COUNT; iterationIndex++) {
+            GrayScaleConvertionUtils.convertBgrByteArrayToGrayscaleByteArrayVectorized(colorByteArray, frameWidthInPixels, frameHeightInPixels, grayscaleByteArray);
+        }
+        double vectorizedMillisecondsPerFrame = (System.nanoTime() - vectorizedStartNanoseconds) / 1e6 / MEASURED_ITERATION_COUNT;
+
+        System.out.printf(
+                "%dx%d  scalar: %.3f ms (%.0f Mpx/s)  vectorized: %.3f ms (%.0f Mpx/s)  speedup: %.2fx%n",
+                frameWidthInPixels, frameHeightInPixels,
+                scalarMillisecondsPerFrame, frameWidthInPixels * frameHeightInPixels / scalarMillisecondsPerFrame / 1000.0,
+                vectorizedMillisecondsPerFrame, frameWidthInPixels * frameHeightInPixels / vectorizedMillisecondsPerFrame / 1000.0,
+                scalarMillisecondsPerFrame / vectorizedMillisecondsPerFrame
+        );
+    }
+}
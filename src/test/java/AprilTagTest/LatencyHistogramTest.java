@@ -0,0 +1,246 @@
+package AprilTagTest;
+
+import org.PhantomCamera.Stadistics.LatencyHistogram;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Buckets y percentiles de {@link LatencyHistogram}.
+ * <p>
+ * Los buckets son privados, asi que se miden desde afuera: con un valor v y otro mucho mas grande
+ * registrados, el percentil 50 devuelve el limite superior del bucket de v (el tope por el maximo
+ * no lo toca). Verifica los buckets exactos hasta 31, los bordes 32 / 33 / 63 / 64, cada potencia
+ * de dos hasta 2^40, que todo lo de 2^41 para arriba cae en el ultimo bucket, que los percentiles
+ * de 200000 muestras log-normales nunca quedan por debajo del valor real ni mas de 1/16 por encima,
+ * el tope en el maximo, reset() y el registro desde varios hilos. No necesita camara ni OpenCV nativo.
+ */
+public class LatencyHistogramTest {
+
+    private static final int SUB_BUCKET_COUNT = 16;
+    private static final int LAST_LOGARITHMIC_EXPONENT = 40;
+
+    /**
+     * Primer valor del ultimo bucket: el sub-bucket 15 de 2^40.
+     */
+    private static final long LAST_BUCKET_FIRST_VALUE_NANOSECONDS =
+            (1L << LAST_LOGARITHMIC_EXPONENT) + 15L * (1L << (LAST_LOGARITHMIC_EXPONENT - 4));
+
+    /**
+     * Mayor que cualquier limite de bucket salvo el del ultimo.
+     */
+    private static final long REFERENCE_MAXIMUM_VALUE_NANOSECONDS = 1L << 60;
+
+    private static final int LOG_NORMAL_SAMPLE_COUNT = 200_000;
+    private static final double[] CHECKED_PERCENTILE_ARRAY = {0.0, 1.0, 10.0, 50.0, 90.0, 95.0, 99.0, 99.9, 100.0};
+
+    private static final int RECORDING_THREAD_COUNT = 4;
+    private static final int VALUES_PER_RECORDING_THREAD = 100_000;
+
+    public static void main(String[] args) {
+        try {
+            verifyBucketBoundaries();
+            verifyLogNormalPercentiles();
+            verifyMaximumCapAndReset();
+            verifyConcurrentRecording();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in LatencyHistogramTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void verifyBucketBoundaries() {
+        // Buckets exactos: 0..31 devuelven su propio valor, y los negativos cuentan como 0
+        for (long valueNanoseconds = 0; valueNanoseconds < 2 * SUB_BUCKET_COUNT; valueNanoseconds++) {
+            verifyBucketUpperBound(valueNanoseconds, valueNanoseconds);
+        }
+        verifyBucketUpperBound(-5L, 0L);
+
+        // Primer tramo logaritmico: 32..63 en buckets de 2, 64.. en buckets de 4
+        verifyBucketUpperBound(32L, 33L);
+        verifyBucketUpperBound(33L, 33L);
+        verifyBucketUpperBound(34L, 35L);
+        verifyBucketUpperBound(63L, 63L);
+        verifyBucketUpperBound(64L, 67L);
+
+        // Cada potencia de dos abre un bucket de ancho 2^(k - 4); la anterior cierra en 2^k - 1
+        for (int valueExponent = 5; valueExponent <= LAST_LOGARITHMIC_EXPONENT; valueExponent++) {
+            long powerOfTwoValue = 1L << valueExponent;
+            long bucketWidthNanoseconds = powerOfTwoValue / SUB_BUCKET_COUNT;
+
+            verifyBucketUpperBound(powerOfTwoValue - 1, powerOfTwoValue - 1);
+            verifyBucketUpperBound(powerOfTwoValue, powerOfTwoValue + bucketWidthNanoseconds - 1);
+            verifyBucketUpperBound(powerOfTwoValue + bucketWidthNanoseconds, powerOfTwoValue + 2 * bucketWidthNanoseconds - 1);
+        }
+
+        // Justo antes del ultimo bucket todavia hay limite propio
+        verifyBucketUpperBound(LAST_BUCKET_FIRST_VALUE_NANOSECONDS - 1, LAST_BUCKET_FIRST_VALUE_NANOSECONDS - 1);
+
+        // El ultimo bucket y todo lo que pasa de 2^41 reportan el maximo registrado
+        long[] lastBucketValueArray = {
+                LAST_BUCKET_FIRST_VALUE_NANOSECONDS,
+                (1L << 41) - 1,
+                1L << 41,
+                (1L << 41) + 12345,
+                1L << 50,
+                REFERENCE_MAXIMUM_VALUE_NANOSECONDS - 1
+        };
+
+        for (long lastBucketValue : lastBucketValueArray) {
+            verifyBucketUpperBound(lastBucketValue, REFERENCE_MAXIMUM_VALUE_NANOSECONDS);
+        }
+
+        System.out.println(
+                "Correctness: exact buckets 0-31, boundaries 32/33/63/64, every power of two up to 2^40, "
+                        + "values from 2^41 up in the last bucket"
+        );
+    }
+
+    /**
+     * @param expectedUpperBoundNanoseconds limite superior esperado del bucket de valueNanoseconds
+     */
+    private static void verifyBucketUpperBound(long valueNanoseconds, long expectedUpperBoundNanoseconds) {
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+        latencyHistogram.recordValue(valueNanoseconds);
+        latencyHistogram.recordValue(REFERENCE_MAXIMUM_VALUE_NANOSECONDS);
+
+        long reportedValueNanoseconds = latencyHistogram.getValueAtPercentile(50.0);
+
+        if (reportedValueNanoseconds != expectedUpperBoundNanoseconds) {
+            throw new IllegalStateException(
+                    "Value " + valueNanoseconds + " reported as " + reportedValueNanoseconds
+                            + " instead of bucket upper bound " + expectedUpperBoundNanoseconds
+            );
+        }
+    }
+
+    /**
+     * Mediana de 2 ms y sigma 1: cubre desde microsegundos hasta decenas de milisegundos.
+     */
+    private static void verifyLogNormalPercentiles() {
+        Random randomGenerator = new Random(23L);
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+        long[] sampleValueArray = new long[LOG_NORMAL_SAMPLE_COUNT];
+
+        for (int sampleIndex = 0; sampleIndex < LOG_NORMAL_SAMPLE_COUNT; sampleIndex++) {
+            sampleValueArray[sampleIndex] = Math.round(Math.exp(Math.log(2_000_000.0) + randomGenerator.nextGaussian()));
+            latencyHistogram.recordValue(sampleValueArray[sampleIndex]);
+        }
+
+        Arrays.sort(sampleValueArray);
+
+        double worstRelativeError = 0.0;
+
+        for (double percentile : CHECKED_PERCENTILE_ARRAY) {
+            // Mismo rango que el histograma: el ceil(p * n)-esimo valor, al menos el primero
+            int targetRank = (int) Math.max(1L, (long) Math.ceil(percentile / 100.0 * LOG_NORMAL_SAMPLE_COUNT));
+            long exactValueNanoseconds = sampleValueArray[targetRank - 1];
+
+            long reportedValueNanoseconds = latencyHistogram.getValueAtPercentile(percentile);
+            double relativeError = (double) (reportedValueNanoseconds - exactValueNanoseconds) / exactValueNanoseconds;
+
+            if (reportedValueNanoseconds < exactValueNanoseconds || relativeError > 1.0 / SUB_BUCKET_COUNT) {
+                throw new IllegalStateException(
+                        "p" + percentile + " reported " + reportedValueNanoseconds + " ns for an exact " + exactValueNanoseconds + " ns"
+                );
+            }
+
+            worstRelativeError = Math.max(worstRelativeError, relativeError);
+        }
+
+        if (latencyHistogram.getValueAtPercentile(100.0) != sampleValueArray[LOG_NORMAL_SAMPLE_COUNT - 1]) {
+            throw new IllegalStateException("p100 is not the recorded maximum");
+        }
+
+        System.out.printf(
+                "Correctness: %d log-normal samples, percentiles never under-report, worst over-report %.2f %% (bound 6.25 %%)%n",
+                LOG_NORMAL_SAMPLE_COUNT, 100.0 * worstRelativeError
+        );
+    }
+
+    private static void verifyMaximumCapAndReset() {
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+
+        if (latencyHistogram.getValueAtPercentile(99.0) != 0L || latencyHistogram.getMeanValueNanoseconds() != 0.0) {
+            throw new IllegalStateException("Empty histogram did not report 0");
+        }
+
+        // 1000 cae en el bucket 992..1023: el tope lo baja al maximo real
+        latencyHistogram.recordValue(1_000L);
+        latencyHistogram.recordValue(1_000L);
+
+        if (latencyHistogram.getValueAtPercentile(50.0) != 1_000L
+                || latencyHistogram.getValueAtPercentile(100.0) != 1_000L
+                || latencyHistogram.getMaximumValueNanoseconds() != 1_000L) {
+            throw new IllegalStateException("Percentile not capped at the recorded maximum 1000");
+        }
+
+        latencyHistogram.recordValue(1L << 45);
+        latencyHistogram.reset();
+
+        if (latencyHistogram.getTotalCount() != 0L
+                || latencyHistogram.getMaximumValueNanoseconds() != 0L
+                || latencyHistogram.getMeanValueNanoseconds() != 0.0
+                || latencyHistogram.getValueAtPercentile(100.0) != 0L) {
+            throw new IllegalStateException("reset() left recorded values behind");
+        }
+
+        // Despues del reset no queda nada del maximo ni de los buckets anteriores
+        latencyHistogram.recordValue(40L);
+
+        if (latencyHistogram.getTotalCount() != 1L
+                || latencyHistogram.getValueAtPercentile(100.0) != 40L
+                || latencyHistogram.getMeanValueNanoseconds() != 40.0) {
+            throw new IllegalStateException("Histogram after reset() does not start empty");
+        }
+
+        try {
+            latencyHistogram.getValueAtPercentile(100.5);
+            throw new IllegalStateException("Percentile above 100 accepted");
+        } catch (IllegalArgumentException expectedException) {
+            // Rechazado
+        }
+
+        System.out.println("Correctness: percentiles capped at the maximum, reset() clears buckets, count, mean and maximum");
+    }
+
+    private static void verifyConcurrentRecording() throws InterruptedException {
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+        Thread[] recordingThreadArray = new Thread[RECORDING_THREAD_COUNT];
+
+        for (int threadIndex = 0; threadIndex < RECORDING_THREAD_COUNT; threadIndex++) {
+            long threadValueOffset = threadIndex;
+
+            recordingThreadArray[threadIndex] = new Thread(() -> {
+                for (int valueIndex = 1; valueIndex <= VALUES_PER_RECORDING_THREAD; valueIndex++) {
+                    latencyHistogram.recordValue(valueIndex * RECORDING_THREAD_COUNT + threadValueOffset);
+                }
+            }, "histogram-test-recorder-" + threadIndex);
+
+            recordingThreadArray[threadIndex].start();
+        }
+
+        for (Thread recordingThread : recordingThreadArray) {
+            recordingThread.join();
+        }
+
+        long expectedTotalCount = (long) RECORDING_THREAD_COUNT * VALUES_PER_RECORDING_THREAD;
+        long expectedMaximumValue = (long) VALUES_PER_RECORDING_THREAD * RECORDING_THREAD_COUNT + RECORDING_THREAD_COUNT - 1;
+
+        if (latencyHistogram.getTotalCount() != expectedTotalCount
+                || latencyHistogram.getMaximumValueNanoseconds() != expectedMaximumValue
+                || latencyHistogram.getValueAtPercentile(100.0) != expectedMaximumValue) {
+            throw new IllegalStateException(
+                    "Concurrent recording counted " + latencyHistogram.getTotalCount() + " values with maximum "
+                            + latencyHistogram.getMaximumValueNanoseconds()
+            );
+        }
+
+        System.out.println(
+                "Correctness: " + RECORDING_THREAD_COUNT + " threads recorded " + expectedTotalCount
+                        + " values without losing counts or the maximum"
+        );
+    }
+}
@@ -0,0 +1,211 @@
+package AprilTagTest;
+
+import org.PhantomCamera.Camera.LatestFrameRingBuffer;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Productor y consumidor reales sobre {@link LatestFrameRingBuffer}.
+ * <p>
+ * El productor escribe el numero de secuencia al principio y al final de cada slot y lo publica;
+ * el consumidor adquiere tan rapido como puede, a veces con pausas para forzar descartes. Verifica
+ * que los numeros de secuencia adquiridos nunca retroceden ni se repiten, que ningun slot
+ * adquirido esta a medio escribir, que el ultimo frame publicado siempre llega, y que
+ * publicados = adquiridos + descartados (+1 si queda un frame pendiente). No necesita camara ni
+ * OpenCV nativo.
+ */
+public class LatestFrameRingBufferTest {
+
+    private static final int FRAME_WIDTH_IN_PIXELS = 64;
+    private static final int FRAME_HEIGHT_IN_PIXELS = 16;
+
+    private static final long PUBLISHED_FRAME_COUNT = 2_000_000L;
+
+    public static void main(String[] args) {
+        try {
+            verifySingleThreadedAccounting();
+            runProducerConsumerTest(0);
+            runProducerConsumerTest(1_000);
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in LatestFrameRingBufferTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    /**
+     * Secuencia fija de publicaciones y adquisiciones con contadores conocidos.
+     */
+    private static void verifySingleThreadedAccounting() {
+        LatestFrameRingBuffer latestFrameRingBuffer = new LatestFrameRingBuffer();
+
+        if (latestFrameRingBuffer.acquireLatestFrameBuffer() != null) {
+            throw new IllegalStateException("Empty ring returned a frame");
+        }
+
+        // Tres publicaciones sin consumir: gana la ultima y se descartan dos
+        for (long sequenceNumber = 1; sequenceNumber <= 3; sequenceNumber++) {
+            publishSequenceNumber(latestFrameRingBuffer, sequenceNumber);
+        }
+
+        DirectFrameBuffer acquiredFrameBuffer = latestFrameRingBuffer.acquireLatestFrameBuffer();
+
+        if (acquiredFrameBuffer == null || readSequenceNumber(acquiredFrameBuffer) != 3) {
+            throw new IllegalStateException("Latest frame 3 was not the one acquired");
+        }
+
+        if (latestFrameRingBuffer.acquireLatestFrameBuffer() != null || latestFrameRingBuffer.hasFreshFrame()) {
+            throw new IllegalStateException("Frame 3 acquired twice");
+        }
+
+        publishSequenceNumber(latestFrameRingBuffer, 4);
+
+        // El slot adquirido no se toca mientras el consumidor lo tiene
+        if (readSequenceNumber(acquiredFrameBuffer) != 3) {
+            throw new IllegalStateException("Producer overwrote the slot held by the consumer");
+        }
+
+        verifyCounters(latestFrameRingBuffer, 4, 1, 2);
+
+        System.out.println("Correctness: latest frame wins, held slot untouched, counters 4 = 1 + 2 + 1 pending");
+
+        latestFrameRingBuffer.release();
+    }
+
+    /**
+     * @param consumerPauseNanoseconds pausa del consumidor cada 64 frames adquiridos (0 = sin pausa)
+     */
+    private static void runProducerConsumerTest(long consumerPauseNanoseconds) throws InterruptedException {
+        LatestFrameRingBuffer latestFrameRingBuffer = new LatestFrameRingBuffer();
+
+        AtomicReference<String> consumerFailure = new AtomicReference<>();
+        long[] consumerResultArray = new long[2];
+
+        Thread producerThread = new Thread(() -> {
+            for (long sequenceNumber = 1; sequenceNumber <= PUBLISHED_FRAME_COUNT; sequenceNumber++) {
+                publishSequenceNumber(latestFrameRingBuffer, sequenceNumber);
+
+                // Cede el core de vez en cuando para que productor y consumidor se intercalen tambien en un solo core
+                if (sequenceNumber % 16 == 0) {
+                    Thread.yield();
+                }
+            }
+        }, "ring-test-producer");
+
+        Thread consumerThread = new Thread(() -> {
+            long lastAcquiredSequenceNumber = 0;
+            long locallyAcquiredFrameCount = 0;
+
+            // Hasta ver el ultimo frame: latest wins garantiza que siempre llega
+            while (lastAcquiredSequenceNumber < PUBLISHED_FRAME_COUNT) {
+                DirectFrameBuffer acquiredFrameBuffer = latestFrameRingBuffer.acquireLatestFrameBuffer();
+
+                if (acquiredFrameBuffer == null) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+
+                locallyAcquiredFrameCount++;
+
+                ByteBuffer pixelByteBuffer = acquiredFrameBuffer.getPixelByteBuffer();
+                long headSequenceNumber = pixelByteBuffer.getLong(0);
+                long tailSequenceNumber = pixelByteBuffer.getLong(pixelByteBuffer.capacity() - Long.BYTES);
+
+                if (headSequenceNumber != tailSequenceNumber) {
+                    consumerFailure.compareAndSet(null,
+                            "Torn slot: head " + headSequenceNumber + " tail " + tailSequenceNumber);
+                    break;
+                }
+
+                if (headSequenceNumber <= lastAcquiredSequenceNumber) {
+                    consumerFailure.compareAndSet(null,
+                            "Sequence went from " + lastAcquiredSequenceNumber + " to " + headSequenceNumber);
+                    break;
+                }
+
+                lastAcquiredSequenceNumber = headSequenceNumber;
+
+                if (consumerPauseNanoseconds > 0 && locallyAcquiredFrameCount % 64 == 0) {
+                    long pauseDeadlineNanoseconds = System.nanoTime() + consumerPauseNanoseconds;
+                    while (System.nanoTime() < pauseDeadlineNanoseconds) {
+                        Thread.onSpinWait();
+                    }
+                }
+            }
+
+            consumerResultArray[0] = lastAcquiredSequenceNumber;
+            consumerResultArray[1] = locallyAcquiredFrameCount;
+        }, "ring-test-consumer");
+
+        consumerThread.start();
+        producerThread.start();
+
+        producerThread.join();
+        consumerThread.join(60_000);
+
+        if (consumerThread.isAlive()) {
+            throw new IllegalStateException("Consumer never acquired the last published frame");
+        }
+
+        if (consumerFailure.get() != null) {
+            throw new IllegalStateException(consumerFailure.get());
+        }
+
+        long acquiredFrameCount = latestFrameRingBuffer.getAcquiredFrameCount();
+        long droppedFrameCount = latestFrameRingBuffer.getDroppedFrameCount();
+
+        if (consumerResultArray[1] != acquiredFrameCount) {
+            throw new IllegalStateException(
+                    "Consumer saw " + consumerResultArray[1] + " frames but the ring counted " + acquiredFrameCount
+            );
+        }
+
+        verifyCounters(latestFrameRingBuffer, PUBLISHED_FRAME_COUNT, acquiredFrameCount, droppedFrameCount);
+
+        System.out.println(
+                "Correctness: " + PUBLISHED_FRAME_COUNT + " frames published, " + acquiredFrameCount
+                        + " acquired in increasing order, " + droppedFrameCount + " dropped (consumer pause "
+                        + consumerPauseNanoseconds + " ns)"
+        );
+
+        latestFrameRingBuffer.release();
+    }
+
+    private static void verifyCounters(
+            LatestFrameRingBuffer latestFrameRingBuffer,
+            long expectedPublishedFrameCount,
+            long expectedAcquiredFrameCount,
+            long expectedDroppedFrameCount
+    ) {
+        long publishedFrameCount = latestFrameRingBuffer.getPublishedFrameCount();
+        long acquiredFrameCount = latestFrameRingBuffer.getAcquiredFrameCount();
+        long droppedFrameCount = latestFrameRingBuffer.getDroppedFrameCount();
+        long pendingFrameCount = latestFrameRingBuffer.hasFreshFrame() ? 1 : 0;
+
+        if (publishedFrameCount != expectedPublishedFrameCount
+                || acquiredFrameCount != expectedAcquiredFrameCount
+                || droppedFrameCount != expectedDroppedFrameCount
+                || publishedFrameCount != acquiredFrameCount + droppedFrameCount + pendingFrameCount) {
+            throw new IllegalStateException(
+                    "Published " + publishedFrameCount + ", acquired " + acquiredFrameCount + ", dropped "
+                            + droppedFrameCount + ", pending " + pendingFrameCount
+            );
+        }
+    }
+
+    private static void publishSequenceNumber(LatestFrameRingBuffer latestFrameRingBuffer, long sequenceNumber) {
+        DirectFrameBuffer producerFrameBuffer =
+                latestFrameRingBuffer.prepareProducerFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 1);
+
+        ByteBuffer pixelByteBuffer = producerFrameBuffer.getPixelByteBuffer();
+        pixelByteBuffer.putLong(0, sequenceNumber);
+        pixelByteBuffer.putLong(pixelByteBuffer.capacity() - Long.BYTES, sequenceNumber);
+
+        latestFrameRingBuffer.publishProducerFrame();
+    }
+
+    private static long readSequenceNumber(DirectFrameBuffer frameBuffer) {
+        return frameBuffer.getPixelByteBuffer().getLong(0);
+    }
+}
@@ -0,0 +1,235 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+import org.PhantomCamera.AprilTags.AprilTagDetector;
+import org.PhantomCamera.AprilTags.AprilTagPipelinedDetector;
+import org.PhantomCamera.AprilTags.DetectedApriltag;
+import org.PhantomCamera.Camera.SyntheticFrameSource;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contabilidad de {@link AprilTagPipelinedDetector}.
+ * <p>
+ * Envia frames sinteticos tan rapido como puede con un listener lento y verifica que los
+ * resultados llegan en orden, que cada frame enviado termina entregado, descartado o fallido,
+ * que los frames descartados devuelven su slot (los 5 slots vuelven a estar libres y ningun
+ * frame se rechaza por falta de slot), que un listener que lanza excepciones no para el
+ * pipeline y que despues de release() no se aceptan frames. No necesita camara ni OpenCV nativo.
+ */
+public class PipelinedDetectorTest {
+
+    private static final int FRAME_WIDTH_IN_PIXELS = 640;
+    private static final int FRAME_HEIGHT_IN_PIXELS = 480;
+
+    private static final int SUBMITTED_FRAME_COUNT = 400;
+    private static final int FRAME_SLOT_COUNT = 5;
+
+    private static final DirectFrameBuffer[] colorFrameBufferArray = new DirectFrameBuffer[8];
+
+    public static void main(String[] args) {
+        try {
+            runPipelinedDetectorTest();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in PipelinedDetectorTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void runPipelinedDetectorTest() throws InterruptedException {
+
+        SyntheticFrameSource syntheticFrameSource =
+                new SyntheticFrameSource(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 6, 24, 22L);
+        byte[] colorBgrByteArray = new byte[FRAME_WIDTH_IN_PIXELS * FRAME_HEIGHT_IN_PIXELS * 3];
+
+        for (int frameIndex = 0; frameIndex < colorFrameBufferArray.length; frameIndex++) {
+            syntheticFrameSource.renderFrameIntoBgrByteArray(frameIndex, colorBgrByteArray);
+            colorFrameBufferArray[frameIndex] = new DirectFrameBuffer(FRAME_WIDTH_IN_PIXELS, FRAME_HEIGHT_IN_PIXELS, 3);
+            colorFrameBufferArray[frameIndex].copyFromByteArray(colorBgrByteArray);
+        }
+
+        AprilTag36h11Dictionary aprilTag36h11Dictionary = AprilTag36h11Dictionary.createTag36h11Dictionary();
+
+        verifyPipelineAccounting(aprilTag36h11Dictionary, 0, 2);
+        verifyPipelineAccounting(aprilTag36h11Dictionary, 3, 0);
+        verifyReleasedPipelineRejectsFrames(aprilTag36h11Dictionary);
+    }
+
+    /**
+     * @param failingListenerPeriod el listener lanza en uno de cada tantos frames (0 = nunca)
+     * @param listenerDelayMilliseconds tiempo que el listener retiene el thread de decode
+     */
+    private static void verifyPipelineAccounting(
+            AprilTag36h11Dictionary aprilTag36h11Dictionary,
+            int failingListenerPeriod,
+            int listenerDelayMilliseconds
+    ) throws InterruptedException {
+
+        ConcurrentLinkedQueue<String> orderViolationQueue = new ConcurrentLinkedQueue<>();
+        AtomicLong lastDeliveredFrameSequenceNumber = new AtomicLong();
+        AtomicLong reportedFailureCount = new AtomicLong();
+
+        AprilTagPipelinedDetector.DetectionResultListener detectionResultListener =
+                new AprilTagPipelinedDetector.DetectionResultListener() {
+                    @Override
+                    public void onDetectionResult(
+                            long frameSequenceNumber,
+                            long frameSubmitTimestampNanoseconds,
+                            List<DetectedApriltag> detectedApriltagList
+                    ) {
+                        if (frameSequenceNumber <= lastDeliveredFrameSequenceNumber.getAndSet(frameSequenceNumber)) {
+                            orderViolationQueue.add("frame " + frameSequenceNumber + " delivered out of order");
+                        }
+
+                        if (listenerDelayMilliseconds > 0) {
+                            try {
+                                Thread.sleep(listenerDelayMilliseconds);
+                            } catch (InterruptedException interruptedException) {
+                                Thread.currentThread().interrupt();
+                            }
+                        }
+
+                        if (failingListenerPeriod > 0 && frameSequenceNumber % failingListenerPeriod == 0) {
+                            throw new IllegalStateException("Listener failure on frame " + frameSequenceNumber);
+                        }
+                    }
+
+                    @Override
+                    public void onDetectionFailure(long frameSequenceNumber, RuntimeException stageFailure) {
+                        reportedFailureCount.incrementAndGet();
+                        // Tambien un fallo al reportar debe ignorarse
+                        throw new IllegalStateException("Failure listener failure on frame " + frameSequenceNumber);
+                    }
+                };
+
+        AprilTagPipelinedDetector aprilTagPipelinedDetector = new AprilTagPipelinedDetector(
+                FRAME_WIDTH_IN_PIXELS,
+                FRAME_HEIGHT_IN_PIXELS,
+                aprilTag36h11Dictionary,
+                AprilTagDetector.EdgeSegmentationMode.SOBEL_GRADIENT_THRESHOLD,
+                AprilTagDetector.DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE,
+                1,
+                detectionResultListener
+        );
+
+        try {
+            for (int frameIndex = 0; frameIndex < SUBMITTED_FRAME_COUNT; frameIndex++) {
+                // Como mucho 4 slots estan ocupados (edge, dos mailboxes, decode): siempre queda uno libre
+                if (!aprilTagPipelinedDetector.submitFrame(colorFrameBufferArray[frameIndex % colorFrameBufferArray.length])) {
+                    throw new IllegalStateException("Frame " + frameIndex + " refused for lack of a free slot");
+                }
+            }
+
+            waitUntilPipelineIsIdle(aprilTagPipelinedDetector);
+
+            if (!orderViolationQueue.isEmpty()) {
+                throw new IllegalStateException(orderViolationQueue.peek());
+            }
+
+            long submittedFrameCount = aprilTagPipelinedDetector.getSubmittedFrameCount();
+            long completedFrameCount = aprilTagPipelinedDetector.getCompletedFrameCount();
+            long droppedFrameCount = aprilTagPipelinedDetector.getDroppedFrameCount();
+            long failedFrameCount = aprilTagPipelinedDetector.getFailedFrameCount();
+
+            // Un resultado cuyo listener fallo cuenta como completado y como fallido
+            if (submittedFrameCount != SUBMITTED_FRAME_COUNT
+                    || completedFrameCount + droppedFrameCount != submittedFrameCount) {
+                throw new IllegalStateException(
+                        "Submitted " + submittedFrameCount + " frames but " + completedFrameCount
+                                + " were completed and " + droppedFrameCount + " dropped"
+                );
+            }
+
+            if (aprilTagPipelinedDetector.getFreeFrameSlotCount() != FRAME_SLOT_COUNT) {
+                throw new IllegalStateException(
+                        "Only " + aprilTagPipelinedDetector.getFreeFrameSlotCount() + " of "
+                                + FRAME_SLOT_COUNT + " slots returned after the pipeline went idle"
+                );
+            }
+
+            if (failedFrameCount != reportedFailureCount.get()
+                    || (failingListenerPeriod == 0) != (failedFrameCount == 0)) {
+                throw new IllegalStateException(
+                        failedFrameCount + " failed frames counted and " + reportedFailureCount.get() + " reported"
+                );
+            }
+
+            // Despues de los fallos el pipeline sigue entregando
+            long completedBeforeLastFrame = completedFrameCount;
+            aprilTagPipelinedDetector.submitFrame(colorFrameBufferArray[0]);
+            waitUntilPipelineIsIdle(aprilTagPipelinedDetector);
+
+            if (aprilTagPipelinedDetector.getCompletedFrameCount() != completedBeforeLastFrame + 1) {
+                throw new IllegalStateException("Pipeline stopped delivering after " + failedFrameCount + " failures");
+            }
+
+            System.out.println(
+                    "Correctness: " + submittedFrameCount + " frames submitted, " + completedFrameCount
+                            + " delivered in order, " + droppedFrameCount + " dropped, " + failedFrameCount
+                            + " listener failures survived, all " + FRAME_SLOT_COUNT + " slots returned"
+            );
+        } finally {
+            aprilTagPipelinedDetector.release();
+        }
+    }
+
+    private static void verifyReleasedPipelineRejectsFrames(AprilTag36h11Dictionary aprilTag36h11Dictionary) {
+
+        AprilTagPipelinedDetector aprilTagPipelinedDetector = new AprilTagPipelinedDetector(
+                FRAME_WIDTH_IN_PIXELS,
+                FRAME_HEIGHT_IN_PIXELS,
+                aprilTag36h11Dictionary,
+                AprilTagDetector.EdgeSegmentationMode.SOBEL_GRADIENT_THRESHOLD,
+                AprilTagDetector.DEFAULT_GRADIENT_MAGNITUDE_THRESHOLD_VALUE,
+                1,
+                (frameSequenceNumber, frameSubmitTimestampNanoseconds, detectedApriltagList) -> {
+                }
+        );
+
+        aprilTagPipelinedDetector.submitFrame(colorFrameBufferArray[0]);
+        aprilTagPipelinedDetector.release();
+
+        try {
+            aprilTagPipelinedDetector.submitFrame(colorFrameBufferArray[1]);
+            throw new IllegalStateException("Released pipeline accepted a frame");
+        } catch (IllegalStateException expectedException) {
+            if (!expectedException.getMessage().contains("released")) {
+                throw expectedException;
+            }
+        }
+
+        for (Thread liveThread : Thread.getAllStackTraces().keySet()) {
+            if (liveThread.getName().startsWith("PhantomCamera-apriltag-")) {
+                throw new IllegalStateException("Stage thread " + liveThread.getName() + " alive after release()");
+            }
+        }
+
+        System.out.println("Correctness: released pipeline refuses frames and its stage threads are gone");
+    }
+
+    /**
+     * Espera a que todo frame enviado se haya entregado o descartado y los slots hayan vuelto.
+     */
+    private static void waitUntilPipelineIsIdle(AprilTagPipelinedDetector aprilTagPipelinedDetector)
+            throws InterruptedException {
+
+        long deadlineNanoseconds = System.nanoTime() + 30_000_000_000L;
+
+        while (aprilTagPipelinedDetector.getCompletedFrameCount() + aprilTagPipelinedDetector.getDroppedFrameCount()
+                < aprilTagPipelinedDetector.getSubmittedFrameCount()
+                || aprilTagPipelinedDetector.getFreeFrameSlotCount() < FRAME_SLOT_COUNT) {
+
+            if (System.nanoTime() > deadlineNanoseconds) {
+                throw new IllegalStateException("Pipeline did not go idle within 30 s");
+            }
+
+            Thread.sleep(5);
+        }
+
+        // El listener del ultimo frame puede seguir corriendo despues de devolver el slot
+        Thread.sleep(50);
+    }
+}
@@ -0,0 +1,363 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTagConvexHullCalculator;
+import org.PhantomCamera.AprilTags.AprilTagQuadrilateralFitter;
+import org.PhantomCamera.AprilTags.PixelCoordinate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Douglas-Peucker cerrado de {@link AprilTagQuadrilateralFitter} sobre hulls de cuadrilateros
+ * rasterizados.
+ * <p>
+ * Cada cuadrilatero (cuadrado girado de 0 a 360 grados, con perspectiva) se rasteriza con los
+ * pixeles cuyo centro cae dentro, se calcula su hull por el camino raster y el fitter debe
+ * simplificarlo a exactamente 4 vertices, en sentido horario desde el de menor x + y, a menos de
+ * {@link #MAXIMUM_INTEGER_CORNER_DISTANCE_IN_PIXELS} de las esquinas reales. Hulls de menos de
+ * 4 puntos, triangulos y poligonos regulares de muchos lados se rechazan sin tocar la salida.
+ * No necesita camara ni OpenCV nativo.
+ */
+public class QuadrilateralFitterTest {
+
+    private static final int RASTERISED_QUAD_COUNT = 2000;
+
+    /**
+     * Las esquinas son vertices enteros del hull: en esquinas agudas el pixel mas cercano con centro
+     * adentro puede quedar a mas de un pixel por eje.
+     */
+    private static final double MAXIMUM_INTEGER_CORNER_DISTANCE_IN_PIXELS = 2.5;
+
+    public static void main(String[] args) {
+        try {
+            runQuadrilateralFitterTest();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in QuadrilateralFitterTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void runQuadrilateralFitterTest() {
+        AprilTagQuadrilateralFitter aprilTagQuadrilateralFitter = new AprilTagQuadrilateralFitter();
+        AprilTagConvexHullCalculator aprilTagConvexHullCalculator = new AprilTagConvexHullCalculator();
+        Random randomGenerator = new Random(14L);
+
+        double[] quadCornerCoordinateArray = new double[8];
+        double[] fittedCornerCoordinateArray = new double[8];
+        double maximumCornerDistance = 0.0;
+        double sumCornerDistance = 0.0;
+
+        for (int quadIndex = 0; quadIndex < RASTERISED_QUAD_COUNT; quadIndex++) {
+            createRotatedPerspectiveQuad(
+                    randomGenerator,
+                    320.0, 240.0,
+                    15.0 + 100.0 * randomGenerator.nextDouble(),
+                    360.0 * randomGenerator.nextDouble(),
+                    quadCornerCoordinateArray
+            );
+
+            int[][] hullCoordinateArrays = calculateRasterisedQuadHull(aprilTagConvexHullCalculator, quadCornerCoordinateArray);
+            int hullPointCount = hullCoordinateArrays[2][0];
+
+            if (!aprilTagQuadrilateralFitter.calculateQuadrilateralCornerCoordinatesFromConvexHull(
+                    hullCoordinateArrays[0], hullCoordinateArrays[1], hullPointCount, fittedCornerCoordinateArray, 0)) {
+                throw new IllegalStateException(
+                        "Quad " + quadIndex + " " + Arrays.toString(quadCornerCoordinateArray) + " did not simplify to 4 vertices"
+                );
+            }
+
+            double[] cornerDistanceArray = matchCornersClockwise(
+                    fittedCornerCoordinateArray, quadCornerCoordinateArray, "quad " + quadIndex
+            );
+
+            for (double cornerDistance : cornerDistanceArray) {
+                maximumCornerDistance = Math.max(maximumCornerDistance, cornerDistance);
+                sumCornerDistance += cornerDistance;
+            }
+
+            if (maximumCornerDistance > MAXIMUM_INTEGER_CORNER_DISTANCE_IN_PIXELS) {
+                throw new IllegalStateException(
+                        "Quad " + quadIndex + ": fitted corner " + maximumCornerDistance + " px from the real corner"
+                );
+            }
+        }
+
+        System.out.printf(
+                "Correctness: %d rasterised quads simplified to 4 clockwise vertices, corner error mean %.2f px, worst %.2f px%n",
+                RASTERISED_QUAD_COUNT, sumCornerDistance / (4 * RASTERISED_QUAD_COUNT), maximumCornerDistance
+        );
+
+        verifyNonQuadrilateralHullsAreRejected(aprilTagQuadrilateralFitter, aprilTagConvexHullCalculator);
+    }
+
+    /**
+     * Menos de 4 puntos, triangulo rasterizado, octogono y circulo: false sin escribir nada, y
+     * null en las versiones que devuelven PixelCoordinate.
+     */
+    private static void verifyNonQuadrilateralHullsAreRejected(
+            AprilTagQuadrilateralFitter aprilTagQuadrilateralFitter,
+            AprilTagConvexHullCalculator aprilTagConvexHullCalculator
+    ) {
+        List<int[][]> rejectedHullList = new ArrayList<>();
+        List<String> rejectedHullNameList = new ArrayList<>();
+
+        // Menos de 4 puntos
+        rejectedHullList.add(new int[][]{{}, {}});
+        rejectedHullNameList.add("empty hull");
+        rejectedHullList.add(new int[][]{{10, 60, 30}, {10, 10, 50}});
+        rejectedHullNameList.add("3 point hull");
+
+        // Cuatro puntos casi colineales: el poligono simplificado tiene menos de 4 vertices
+        rejectedHullList.add(new int[][]{{0, 50, 100, 50}, {0, 1, 0, -1}});
+        rejectedHullNameList.add("flat 4 point hull");
+
+        rejectedHullList.add(rasteriseRegularPolygonHull(aprilTagConvexHullCalculator, 3, 80.0));
+        rejectedHullNameList.add("rasterised triangle");
+        rejectedHullList.add(rasteriseRegularPolygonHull(aprilTagConvexHullCalculator, 6, 80.0));
+        rejectedHullNameList.add("rasterised hexagon");
+        rejectedHullList.add(rasteriseRegularPolygonHull(aprilTagConvexHullCalculator, 8, 80.0));
+        rejectedHullNameList.add("rasterised octagon");
+        rejectedHullList.add(rasteriseRegularPolygonHull(aprilTagConvexHullCalculator, 180, 80.0));
+        rejectedHullNameList.add("rasterised circle");
+
+        for (int hullIndex = 0; hullIndex < rejectedHullList.size(); hullIndex++) {
+            int[][] hullCoordinateArrays = rejectedHullList.get(hullIndex);
+            int hullPointCount = hullCoordinateArrays[0].length;
+
+            double[] cornerCoordinateArray = new double[10];
+            Arrays.fill(cornerCoordinateArray, -7.0);
+
+            boolean fittedQuadrilateral = aprilTagQuadrilateralFitter.calculateQuadrilateralCornerCoordinatesFromConvexHull(
+                    hullCoordinateArrays[0], hullCoordinateArrays[1], hullPointCount, cornerCoordinateArray, 2
+            );
+
+            if (fittedQuadrilateral) {
+                throw new IllegalStateException(rejectedHullNameList.get(hullIndex) + " accepted as a quadrilateral");
+            }
+
+            for (double cornerCoordinate : cornerCoordinateArray) {
+                if (cornerCoordinate != -7.0) {
+                    throw new IllegalStateException(rejectedHullNameList.get(hullIndex) + " wrote into the corner array");
+                }
+            }
+
+            List<PixelCoordinate> hullPixelCoordinateList = new ArrayList<>(hullPointCount);
+            for (int hullPointIndex = 0; hullPointIndex < hullPointCount; hullPointIndex++) {
+                hullPixelCoordinateList.add(
+                        new PixelCoordinate(hullCoordinateArrays[0][hullPointIndex], hullCoordinateArrays[1][hullPointIndex])
+                );
+            }
+
+            if (aprilTagQuadrilateralFitter.calculateQuadrilateralCornerArrayFromConvexHullPixelCoordinateList(hullPixelCoordinateList) != null
+                    || aprilTagQuadrilateralFitter.calculateQuadrilateralCornerArrayFromConvexHull(
+                    hullCoordinateArrays[0], hullCoordinateArrays[1], hullPointCount) != null) {
+                throw new IllegalStateException(rejectedHullNameList.get(hullIndex) + " returned corners");
+            }
+        }
+
+        if (aprilTagQuadrilateralFitter.calculateQuadrilateralCornerArrayFromConvexHullPixelCoordinateList(null) != null) {
+            throw new IllegalStateException("Null hull returned corners");
+        }
+
+        System.out.println(
+                "Correctness: " + rejectedHullList.size() + " hulls with too few points or vertices rejected without touching the output"
+        );
+    }
+
+    /**
+     * Cuadrado de lado 2 * halfSideInPixels girado rotationAngleDegrees, con un lado acortado hasta
+     * un 30 % por perspectiva. Esquinas en sentido horario en pantalla, desde cualquiera.
+     */
+    static void createRotatedPerspectiveQuad(
+            Random randomGenerator,
+            double centerXCoordinate,
+            double centerYCoordinate,
+            double halfSideInPixels,
+            double rotationAngleDegrees,
+            double[] quadCornerCoordinateArray
+    ) {
+        double keystoneFactor = 0.3 * randomGenerator.nextDouble();
+
+        double[] squareUCoordinateArray = {-1.0, 1.0, 1.0, -1.0};
+        double[] squareVCoordinateArray = {-1.0, -1.0, 1.0, 1.0};
+
+        double cosineValue = Math.cos(Math.toRadians(rotationAngleDegrees));
+        double sineValue = Math.sin(Math.toRadians(rotationAngleDegrees));
+
+        for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+            double squareUCoordinate = squareUCoordinateArray[cornerIndex];
+
+            if (squareVCoordinateArray[cornerIndex] < 0.0) {
+                squareUCoordinate *= 1.0 - keystoneFactor;
+            }
+
+            double localXCoordinate = squareUCoordinate * halfSideInPixels;
+            double localYCoordinate = squareVCoordinateArray[cornerIndex] * halfSideInPixels;
+
+            quadCornerCoordinateArray[2 * cornerIndex] =
+                    centerXCoordinate + cosineValue * localXCoordinate - sineValue * localYCoordinate;
+            quadCornerCoordinateArray[2 * cornerIndex + 1] =
+                    centerYCoordinate + sineValue * localXCoordinate + cosineValue * localYCoordinate;
+        }
+    }
+
+    /**
+     * Empareja las esquinas ajustadas con las reales: la primera ajustada es la de menor x + y,
+     * y las cuatro siguen el sentido horario de las reales sin repetirse.
+     *
+     * @return distancia de cada esquina ajustada a su esquina real
+     */
+    static double[] matchCornersClockwise(
+            double[] fittedCornerCoordinateArray,
+            double[] quadCornerCoordinateArray,
+            String quadDescription
+    ) {
+        for (int cornerIndex = 1; cornerIndex < 4; cornerIndex++) {
+            if (fittedCornerCoordinateArray[2 * cornerIndex] + fittedCornerCoordinateArray[2 * cornerIndex + 1]
+                    < fittedCornerCoordinateArray[0] + fittedCornerCoordinateArray[1]) {
+                throw new IllegalStateException(quadDescription + ": first corner is not the one with the smallest x + y");
+            }
+        }
+
+        // Esquina real mas cercana a la primera ajustada
+        int firstQuadCornerIndex = 0;
+        for (int cornerIndex = 1; cornerIndex < 4; cornerIndex++) {
+            if (calculateCornerDistance(fittedCornerCoordinateArray, 0, quadCornerCoordinateArray, cornerIndex)
+                    < calculateCornerDistance(fittedCornerCoordinateArray, 0, quadCornerCoordinateArray, firstQuadCornerIndex)) {
+                firstQuadCornerIndex = cornerIndex;
+            }
+        }
+
+        double[] cornerDistanceArray = new double[4];
+
+        for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+            int quadCornerIndex = (firstQuadCornerIndex + cornerIndex) % 4;
+            cornerDistanceArray[cornerIndex] =
+                    calculateCornerDistance(fittedCornerCoordinateArray, cornerIndex, quadCornerCoordinateArray, quadCornerIndex);
+
+            // Otra esquina real mas cerca: orden equivocado o esquina repetida
+            for (int otherQuadCornerIndex = 0; otherQuadCornerIndex < 4; otherQuadCornerIndex++) {
+                if (otherQuadCornerIndex != quadCornerIndex
+                        && calculateCornerDistance(fittedCornerCoordinateArray, cornerIndex, quadCornerCoordinateArray, otherQuadCornerIndex)
+                        < cornerDistanceArray[cornerIndex]) {
+                    throw new IllegalStateException(
+                            quadDescription + ": corner " + cornerIndex + " is out of clockwise order "
+                                    + Arrays.toString(fittedCornerCoordinateArray) + " vs " + Arrays.toString(quadCornerCoordinateArray)
+                    );
+                }
+            }
+        }
+
+        return cornerDistanceArray;
+    }
+
+    private static double calculateCornerDistance(
+            double[] firstCornerCoordinateArray,
+            int firstCornerIndex,
+            double[] secondCornerCoordinateArray,
+            int secondCornerIndex
+    ) {
+        return Math.hypot(
+                firstCornerCoordinateArray[2 * firstCornerIndex] - secondCornerCoordinateArray[2 * secondCornerIndex],
+                firstCornerCoordinateArray[2 * firstCornerIndex + 1] - secondCornerCoordinateArray[2 * secondCornerIndex + 1]
+        );
+    }
+
+    private static int[][] rasteriseRegularPolygonHull(
+            AprilTagConvexHullCalculator aprilTagConvexHullCalculator,
+            int vertexCount,
+            double circumradiusInPixels
+    ) {
+        double[] polygonVertexCoordinateArray = new double[2 * vertexCount];
+
+        // Sentido horario en pantalla (y hacia abajo)
+        for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+            double vertexAngle = 0.3 + 2.0 * Math.PI * vertexIndex / vertexCount;
+            polygonVertexCoordinateArray[2 * vertexIndex] = 200.0 + circumradiusInPixels * Math.cos(vertexAngle);
+            polygonVertexCoordinateArray[2 * vertexIndex + 1] = 200.0 + circumradiusInPixels * Math.sin(vertexAngle);
+        }
+
+        int[][] hullCoordinateArrays = calculateRasterisedQuadHull(aprilTagConvexHullCalculator, polygonVertexCoordinateArray);
+        int hullPointCount = hullCoordinateArrays[2][0];
+
+        return new int[][]{
+                Arrays.copyOf(hullCoordinateArrays[0], hullPointCount),
+                Arrays.copyOf(hullCoordinateArrays[1], hullPointCount)
+        };
+    }
+
+    /**
+     * Hull de los pixeles cuyo centro cae dentro del poligono convexo horario, por el camino raster.
+     *
+     * @return {hull x, hull y, {cantidad de puntos del hull}}
+     */
+    static int[][] calculateRasterisedQuadHull(
+            AprilTagConvexHullCalculator aprilTagConvexHullCalculator,
+            double[] polygonVertexCoordinateArray
+    ) {
+        int vertexCount = polygonVertexCoordinateArray.length / 2;
+
+        double minimumXCoordinate = Double.MAX_VALUE, maximumXCoordinate = -Double.MAX_VALUE;
+        double minimumYCoordinate = Double.MAX_VALUE, maximumYCoordinate = -Double.MAX_VALUE;
+
+        for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+            minimumXCoordinate = Math.min(minimumXCoordinate, polygonVertexCoordinateArray[2 * vertexIndex]);
+            maximumXCoordinate = Math.max(maximumXCoordinate, polygonVertexCoordinateArray[2 * vertexIndex]);
+            minimumYCoordinate = Math.min(minimumYCoordinate, polygonVertexCoordinateArray[2 * vertexIndex + 1]);
+            maximumYCoordinate = Math.max(maximumYCoordinate, polygonVertexCoordinateArray[2 * vertexIndex + 1]);
+        }
+
+        int[] pixelXCoordinateArray = new int[16];
+        int[] pixelYCoordinateArray = new int[16];
+        int pixelCount = 0;
+
+        for (int pixelYPosition = (int) Math.floor(minimumYCoordinate); pixelYPosition <= (int) Math.ceil(maximumYCoordinate); pixelYPosition++) {
+            for (int pixelXPosition = (int) Math.floor(minimumXCoordinate); pixelXPosition <= (int) Math.ceil(maximumXCoordinate); pixelXPosition++) {
+                if (!isInsideClockwisePolygon(polygonVertexCoordinateArray, pixelXPosition, pixelYPosition)) {
+                    continue;
+                }
+
+                if (pixelCount == pixelXCoordinateArray.length) {
+                    pixelXCoordinateArray = Arrays.copyOf(pixelXCoordinateArray, 2 * pixelCount);
+                    pixelYCoordinateArray = Arrays.copyOf(pixelYCoordinateArray, 2 * pixelCount);
+                }
+
+                pixelXCoordinateArray[pixelCount] = pixelXPosition;
+                pixelYCoordinateArray[pixelCount] = pixelYPosition;
+                pixelCount++;
+            }
+        }
+
+        int requiredHullBufferLength = AprilTagConvexHullCalculator.getRequiredHullBufferLength(pixelCount);
+        int[] hullXCoordinateArray = new int[requiredHullBufferLength];
+        int[] hullYCoordinateArray = new int[requiredHullBufferLength];
+
+        int hullPointCount = aprilTagConvexHullCalculator.calculateConvexHullFromRasterOrderedPixels(
+                pixelXCoordinateArray, pixelYCoordinateArray, 0, pixelCount, hullXCoordinateArray, hullYCoordinateArray
+        );
+
+        return new int[][]{hullXCoordinateArray, hullYCoordinateArray, {hullPointCount}};
+    }
+
+    private static boolean isInsideClockwisePolygon(double[] polygonVertexCoordinateArray, double pointXCoordinate, double pointYCoordinate) {
+        int vertexCount = polygonVertexCoordinateArray.length / 2;
+
+        for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+            int nextVertexIndex = (vertexIndex + 1) % vertexCount;
+
+            double edgeDeltaX = polygonVertexCoordinateArray[2 * nextVertexIndex] - polygonVertexCoordinateArray[2 * vertexIndex];
+            double edgeDeltaY = polygonVertexCoordinateArray[2 * nextVertexIndex + 1] - polygonVertexCoordinateArray[2 * vertexIndex + 1];
+            double offsetX = pointXCoordinate - polygonVertexCoordinateArray[2 * vertexIndex];
+            double offsetY = pointYCoordinate - polygonVertexCoordinateArray[2 * vertexIndex + 1];
+
+            // Horario con y hacia abajo: el interior queda a la derecha de cada borde
+            if (edgeDeltaX * offsetY - edgeDeltaY * offsetX < 0.0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,257 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTag36h11Dictionary;
+
+import java.util.Random;
+
+/**
+ * Grayscale frames with real tag36h11 tags, shared by the tests that need decodable input.
+ * <p>
+ * Each tag is drawn the way AprilTag prints it: 6x6 data cells in row-major order (bit 35 at
+ * the top left, 1 = white), a one-cell black border and a one-cell white ring outside. The tag
+ * is projected with the homography of its quadrilateral and turned 0..3 quarter turns; the
+ * frame is lit with a horizontal and vertical gradient, pixels near a tag are supersampled so
+ * the borders are antialiased, and every pixel gets +-2 of noise.
+ */
+final class RenderedTagFrame {
+
+    /**
+     * Cells of the black square (6 data + 2 border).
+     */
+    private static final int TAG_BORDER_GRID_SIZE_IN_CELLS = AprilTag36h11Dictionary.TAG36H11_GRID_SIZE_IN_CELLS + 2;
+
+    private static final int SUPERSAMPLE_COUNT_PER_AXIS = 4;
+
+    private static final double BLACK_REFLECTANCE = 0.12;
+    private static final double WHITE_REFLECTANCE = 0.92;
+    private static final double BACKGROUND_REFLECTANCE = 0.55;
+
+    private RenderedTagFrame() {}
+
+    /**
+     * Convex quadrilateral, clockwise from the top-left corner: a square of side 2 * halfSideInPixels
+     * turned up to 30 degrees in the plane, with one side shortened by up to 35 % for perspective.
+     */
+    static void createRandomPerspectiveQuad(
+            Random randomGenerator,
+            double centerXCoordinate,
+            double centerYCoordinate,
+            double halfSideInPixels,
+            double[] imageCornerCoordinateArray
+    ) {
+        double rotationAngleRadians = Math.toRadians(-30.0 + 60.0 * randomGenerator.nextDouble());
+
+        double keystoneFactor = 0.35 * randomGenerator.nextDouble();
+        boolean horizontalKeystone = randomGenerator.nextBoolean();
+
+        double[] squareUCoordinateArray = {-1.0, 1.0, 1.0, -1.0};
+        double[] squareVCoordinateArray = {-1.0, -1.0, 1.0, 1.0};
+
+        double cosineValue = Math.cos(rotationAngleRadians);
+        double sineValue = Math.sin(rotationAngleRadians);
+
+        for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+            double squareUCoordinate = squareUCoordinateArray[cornerIndex];
+            double squareVCoordinate = squareVCoordinateArray[cornerIndex];
+
+            if (horizontalKeystone && squareVCoordinate < 0.0) {
+                squareUCoordinate *= 1.0 - keystoneFactor;
+            } else if (!horizontalKeystone && squareUCoordinate > 0.0) {
+                squareVCoordinate *= 1.0 - keystoneFactor;
+            }
+
+            double localXCoordinate = squareUCoordinate * halfSideInPixels;
+            double localYCoordinate = squareVCoordinate * halfSideInPixels;
+
+            imageCornerCoordinateArray[2 * cornerIndex] =
+                    centerXCoordinate + cosineValue * localXCoordinate - sineValue * localYCoordinate;
+            imageCornerCoordinateArray[2 * cornerIndex + 1] =
+                    centerYCoordinate + sineValue * localXCoordinate + cosineValue * localYCoordinate;
+        }
+    }
+
+    /**
+     * Draws tagCount tags into grayscaleByteArray. Tag t shows codeBitsArray[t] turned
+     * imageRotationIndexArray[t] quarter turns clockwise, so its own top-left corner lands on
+     * corner imageRotationIndexArray[t] of imageCornerCoordinateArrays[t] (the outer corners of
+     * the black border, clockwise from the top-left). Tags must not overlap.
+     */
+    static void renderTagFrame(
+            int frameWidth,
+            int frameHeight,
+            int tagCount,
+            long[] codeBitsArray,
+            int[] imageRotationIndexArray,
+            double[][] imageCornerCoordinateArrays,
+            byte[] grayscaleByteArray,
+            Random randomGenerator
+    ) {
+        double[][] imageToTagHomographyArrays = new double[tagCount][];
+
+        // Caja de cada etiqueta con su anillo blanco (1/8 del lado) y un margen
+        int[] renderBoxArray = new int[4 * tagCount];
+
+        for (int tagIndex = 0; tagIndex < tagCount; tagIndex++) {
+            double[] imageCornerCoordinateArray = imageCornerCoordinateArrays[tagIndex];
+            double[] tagCornerCoordinateArray = new double[8];
+
+            for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+                int imageCornerIndex = (cornerIndex + imageRotationIndexArray[tagIndex]) % 4;
+                tagCornerCoordinateArray[2 * cornerIndex] = imageCornerCoordinateArray[2 * imageCornerIndex];
+                tagCornerCoordinateArray[2 * cornerIndex + 1] = imageCornerCoordinateArray[2 * imageCornerIndex + 1];
+            }
+
+            imageToTagHomographyArrays[tagIndex] =
+                    invertHomography(createSquareToQuadrilateralHomography(tagCornerCoordinateArray));
+
+            double minimumXCoordinate = Double.MAX_VALUE, maximumXCoordinate = -Double.MAX_VALUE;
+            double minimumYCoordinate = Double.MAX_VALUE, maximumYCoordinate = -Double.MAX_VALUE;
+
+            for (int cornerIndex = 0; cornerIndex < 4; cornerIndex++) {
+                minimumXCoordinate = Math.min(minimumXCoordinate, imageCornerCoordinateArray[2 * cornerIndex]);
+                maximumXCoordinate = Math.max(maximumXCoordinate, imageCornerCoordinateArray[2 * cornerIndex]);
+                minimumYCoordinate = Math.min(minimumYCoordinate, imageCornerCoordinateArray[2 * cornerIndex + 1]);
+                maximumYCoordinate = Math.max(maximumYCoordinate, imageCornerCoordinateArray[2 * cornerIndex + 1]);
+            }
+
+            double renderMarginInPixels =
+                    0.4 * Math.max(maximumXCoordinate - minimumXCoordinate, maximumYCoordinate - minimumYCoordinate);
+
+            renderBoxArray[4 * tagIndex] = (int) Math.floor(minimumXCoordinate - renderMarginInPixels);
+            renderBoxArray[4 * tagIndex + 1] = (int) Math.ceil(maximumXCoordinate + renderMarginInPixels);
+            renderBoxArray[4 * tagIndex + 2] = (int) Math.floor(minimumYCoordinate - renderMarginInPixels);
+            renderBoxArray[4 * tagIndex + 3] = (int) Math.ceil(maximumYCoordinate + renderMarginInPixels);
+        }
+
+        double lightingXGain = 0.35 * randomGenerator.nextDouble();
+        double lightingYGain = 0.35 * randomGenerator.nextDouble();
+
+        for (int pixelYPosition = 0; pixelYPosition < frameHeight; pixelYPosition++) {
+            for (int pixelXPosition = 0; pixelXPosition < frameWidth; pixelXPosition++) {
+
+                int nearTagIndex = -1;
+
+                for (int tagIndex = 0; tagIndex < tagCount && nearTagIndex < 0; tagIndex++) {
+                    if (pixelXPosition >= renderBoxArray[4 * tagIndex]
+                            && pixelXPosition <= renderBoxArray[4 * tagIndex + 1]
+                            && pixelYPosition >= renderBoxArray[4 * tagIndex + 2]
+                            && pixelYPosition <= renderBoxArray[4 * tagIndex + 3]) {
+                        nearTagIndex = tagIndex;
+                    }
+                }
+
+                double reflectanceValue = BACKGROUND_REFLECTANCE;
+
+                if (nearTagIndex >= 0) {
+                    double reflectanceSum = 0.0;
+
+                    for (int subsampleYIndex = 0; subsampleYIndex < SUPERSAMPLE_COUNT_PER_AXIS; subsampleYIndex++) {
+                        for (int subsampleXIndex = 0; subsampleXIndex < SUPERSAMPLE_COUNT_PER_AXIS; subsampleXIndex++) {
+                            reflectanceSum += calculateTagReflectance(
+                                    codeBitsArray[nearTagIndex],
+                                    imageToTagHomographyArrays[nearTagIndex],
+                                    pixelXPosition + (subsampleXIndex + 0.5) / SUPERSAMPLE_COUNT_PER_AXIS,
+                                    pixelYPosition + (subsampleYIndex + 0.5) / SUPERSAMPLE_COUNT_PER_AXIS
+                            );
+                        }
+                    }
+
+                    reflectanceValue = reflectanceSum / (SUPERSAMPLE_COUNT_PER_AXIS * SUPERSAMPLE_COUNT_PER_AXIS);
+                }
+
+                double illuminationValue = 255.0 * (0.45
+                        + lightingXGain * 2.0 * pixelXPosition / frameWidth
+                        + lightingYGain * 2.0 * pixelYPosition / frameHeight);
+
+                int intensityValue = (int) Math.round(reflectanceValue * illuminationValue) + randomGenerator.nextInt(5) - 2;
+
+                grayscaleByteArray[pixelYPosition * frameWidth + pixelXPosition] =
+                        (byte) Math.max(0, Math.min(255, intensityValue));
+            }
+        }
+    }
+
+    private static double calculateTagReflectance(
+            long codeBits,
+            double[] imageToTagHomographyArray,
+            double sampleXCoordinate,
+            double sampleYCoordinate
+    ) {
+        double projectiveDenominator = imageToTagHomographyArray[6] * sampleXCoordinate
+                + imageToTagHomographyArray[7] * sampleYCoordinate + imageToTagHomographyArray[8];
+
+        double tagUCoordinate = (imageToTagHomographyArray[0] * sampleXCoordinate
+                + imageToTagHomographyArray[1] * sampleYCoordinate + imageToTagHomographyArray[2]) / projectiveDenominator;
+        double tagVCoordinate = (imageToTagHomographyArray[3] * sampleXCoordinate
+                + imageToTagHomographyArray[4] * sampleYCoordinate + imageToTagHomographyArray[5]) / projectiveDenominator;
+
+        // Celdas -1..8: anillo blanco en -1 y 8, borde negro en 0 y 7, datos en 1..6
+        int cellColumnIndex = (int) Math.floor(tagUCoordinate * TAG_BORDER_GRID_SIZE_IN_CELLS);
+        int cellRowIndex = (int) Math.floor(tagVCoordinate * TAG_BORDER_GRID_SIZE_IN_CELLS);
+
+        int cellRingIndex = Math.min(
+                Math.min(cellRowIndex, cellColumnIndex),
+                Math.min(TAG_BORDER_GRID_SIZE_IN_CELLS - 1 - cellRowIndex, TAG_BORDER_GRID_SIZE_IN_CELLS - 1 - cellColumnIndex)
+        );
+
+        if (cellRingIndex < -1) {
+            return BACKGROUND_REFLECTANCE;
+        }
+        if (cellRingIndex == -1) {
+            return WHITE_REFLECTANCE;
+        }
+        if (cellRingIndex == 0) {
+            return BLACK_REFLECTANCE;
+        }
+
+        int codeBitIndex = AprilTag36h11Dictionary.getCellBitIndex(cellRowIndex - 1, cellColumnIndex - 1);
+
+        return ((codeBits >>> codeBitIndex) & 1L) != 0L ? WHITE_REFLECTANCE : BLACK_REFLECTANCE;
+    }
+
+    /**
+     * Homography (row-major, h8 = 1) taking the unit square to the quadrilateral:
+     * (0,0) -> corner 0, (1,0) -> corner 1, (1,1) -> corner 2, (0,1) -> corner 3.
+     */
+    private static double[] createSquareToQuadrilateralHomography(double[] cornerCoordinateArray) {
+        double sumX = cornerCoordinateArray[0] - cornerCoordinateArray[2] + cornerCoordinateArray[4] - cornerCoordinateArray[6];
+        double sumY = cornerCoordinateArray[1] - cornerCoordinateArray[3] + cornerCoordinateArray[5] - cornerCoordinateArray[7];
+
+        double deltaX1 = cornerCoordinateArray[2] - cornerCoordinateArray[4];
+        double deltaX2 = cornerCoordinateArray[6] - cornerCoordinateArray[4];
+        double deltaY1 = cornerCoordinateArray[3] - cornerCoordinateArray[5];
+        double deltaY2 = cornerCoordinateArray[7] - cornerCoordinateArray[5];
+
+        double denominatorValue = deltaX1 * deltaY2 - deltaX2 * deltaY1;
+
+        double homographyG = (sumX * deltaY2 - deltaX2 * sumY) / denominatorValue;
+        double homographyH = (deltaX1 * sumY - sumX * deltaY1) / denominatorValue;
+
+        return new double[]{
+                cornerCoordinateArray[2] - cornerCoordinateArray[0] + homographyG * cornerCoordinateArray[2],
+                cornerCoordinateArray[6] - cornerCoordinateArray[0] + homographyH * cornerCoordinateArray[6],
+                cornerCoordinateArray[0],
+                cornerCoordinateArray[3] - cornerCoordinateArray[1] + homographyG * cornerCoordinateArray[3],
+                cornerCoordinateArray[7] - cornerCoordinateArray[1] + homographyH * cornerCoordinateArray[7],
+                cornerCoordinateArray[1],
+                homographyG,
+                homographyH,
+                1.0
+        };
+    }
+
+    /**
+     * Inverse of a 3x3 matrix (row-major) by its adjugate; the scale does not matter for a homography.
+     */
+    private static double[] invertHomography(double[] homographyArray) {
+        double a = homographyArray[0], b = homographyArray[1], c = homographyArray[2];
+        double d = homographyArray[3], e = homographyArray[4], f = homographyArray[5];
+        double g = homographyArray[6], h = homographyArray[7], i = homographyArray[8];
+
+        return new double[]{
+                e * i - f * h, c * h - b * i, b * f - c * e,
+                f * g - d * i, a * i - c * g, c * d - a * f,
+                d * h - e * g, b * g - a * h, a * e - b * d
+        };
+    }
+}
@@ -0,0 +1,194 @@
+package AprilTagTest;
+
+import org.PhantomCamera.AprilTags.AprilTagEdgeDetector;
+import org.PhantomCamera.Utils.DirectFrameBuffer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compara el Sobel vectorial de {@link AprilTagEdgeDetector} contra el loop escalar.
+ *
+ * Compilar con -PvectorApi=true y ejecutar con --add-modules jdk.incubator.vector. Primero
+ * verifica que las dos versiones producen exactamente el mismo mapa de bordes y la misma
+ * magnitud (anchos impares, anchos menores que un vector, el minimo de 3x3, umbrales en los
+ * extremos del rango), y despues mide el tiempo por frame a 1280x720.
+ */
+public class SobelVectorizedEdgeTest {
+
+    private static final int[] FRAME_WIDTH_ARRAY = {3, 4, 5, 7, 8, 9, 15, 16, 17, 31, 33, 63, 65, 127, 641, 1280};
+
+    private static final int[] FRAME_HEIGHT_ARRAY = {3, 4, 5, 17};
+
+    /**
+     * |Gx| + |Gy| esta entre 0 y 2040: se prueban los bordes y valores fuera del rango.
+     */
+    private static final int[] GRADIENT_MAGNITUDE_THRESHOLD_ARRAY = {Integer.MIN_VALUE, 0, 1, 80, 2040, 2041, Integer.MAX_VALUE};
+
+    private static final int WARMUP_ITERATION_COUNT = 100;
+
+    private static final int MEASURED_ITERATION_COUNT = 200;
+
+    public static void main(String[] args) {
+        try {
+            runSobelVectorizedEdgeTest();
+        } catch (Throwable throwable) {
+            System.out.println("Unexpected error in SobelVectorizedEdgeTest:");
+            throwable.printStackTrace();
+        }
+    }
+
+    private static void runSobelVectorizedEdgeTest() {
+
+        if (!AprilTagEdgeDetector.isVectorizedSobelAvailable()) {
+            System.out.println("Vectorized Sobel is not available. Build with -PvectorApi=true and run with --add-modules jdk.incubator.vector");
+            return;
+        }
+
+        System.out.println("Automatic selection uses vector path: " + AprilTagEdgeDetector.isVectorizedSobelEnabled());
+
+        verifyVectorizedSobelMatchesScalar();
+
+        measureSobelThroughput(1280, 720);
+    }
+
+    private static void verifyVectorizedSobelMatchesScalar() {
+
+        Random randomGenerator = new Random(3_3L);
+        int comparedFrameCount = 0;
+
+        for (int frameWidthInPixels : FRAME_WIDTH_ARRAY) {
+            for (int frameHeightInPixels : FRAME_HEIGHT_ARRAY) {
+                for (int patternIndex = 0; patternIndex < 3; patternIndex++) {
+
+                    DirectFrameBuffer grayscaleFrameBuffer = createGrayscaleFrameBuffer(
+                            frameWidthInPixels, frameHeightInPixels, patternIndex, randomGenerator
+                    );
+
+                    for (int gradientMagnitudeThresholdValue : GRADIENT_MAGNITUDE_THRESHOLD_ARRAY) {
+                        compareKernels(grayscaleFrameBuffer, gradientMagnitudeThresholdValue);
+                        comparedFrameCount++;
+                    }
+                }
+            }
+        }
+
+        System.out.println("Correctness: vectorized Sobel matches scalar Sobel on " + comparedFrameCount + " frames");
+    }
+
+    private static void compareKernels(DirectFrameBuffer grayscaleFrameBuffer, int gradientMagnitudeThresholdValue) {
+
+        int frameWidthInPixels = grayscaleFrameBuffer.getFrameWidth();
+        int frameHeightInPixels = grayscaleFrameBuffer.getFrameHeight();
+
+        AprilTagEdgeDetector scalarEdgeDetector = new AprilTagEdgeDetector(
+                frameWidthInPixels, frameHeightInPixels, gradientMagnitudeThresholdValue, null, 1, false
+        );
+        AprilTagEdgeDetector vectorizedEdgeDetector = new AprilTagEdgeDetector(
+                frameWidthInPixels, frameHeightInPixels, gradientMagnitudeThresholdValue, null, 1, true
+        );
+
+        byte[] scalarEdgeByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+        byte[] vectorizedEdgeByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+
+        scalarEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer)
+                .copyToByteArray(scalarEdgeByteArray);
+        vectorizedEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer)
+                .copyToByteArray(vectorizedEdgeByteArray);
+
+        String frameDescription = frameWidthInPixels + "x" + frameHeightInPixels + " threshold " + gradientMagnitudeThresholdValue;
+
+        int edgeMismatchIndex = Arrays.mismatch(scalarEdgeByteArray, vectorizedEdgeByteArray);
+
+        if (edgeMismatchIndex >= 0) {
+            throw new IllegalStateException(
+                    "Vectorized edge map differs from scalar at " + frameDescription + " pixel " + edgeMismatchIndex
+                            + ": expected " + (scalarEdgeByteArray[edgeMismatchIndex] & 0xFF)
+                            + " but received " + (vectorizedEdgeByteArray[edgeMismatchIndex] & 0xFF)
+            );
+        }
+
+        int[] scalarGradientMagnitudeIntegerArray = scalarEdgeDetector.getGradientMagnitudeIntegerArray();
+        int[] vectorizedGradientMagnitudeIntegerArray = vectorizedEdgeDetector.getGradientMagnitudeIntegerArray();
+
+        int magnitudeMismatchIndex = Arrays.mismatch(scalarGradientMagnitudeIntegerArray, vectorizedGradientMagnitudeIntegerArray);
+
+        if (magnitudeMismatchIndex >= 0) {
+            throw new IllegalStateException(
+                    "Vectorized gradient magnitude differs from scalar at " + frameDescription + " pixel " + magnitudeMismatchIndex
+                            + ": expected " + scalarGradientMagnitudeIntegerArray[magnitudeMismatchIndex]
+                            + " but received " + vectorizedGradientMagnitudeIntegerArray[magnitudeMismatchIndex]
+            );
+        }
+    }
+
+    /**
+     * 0: ruido aleatorio, 1: tablero de 0 / 255 por pixel (magnitud maxima), 2: rampa horizontal y vertical.
+     */
+    private static DirectFrameBuffer createGrayscaleFrameBuffer(
+            int frameWidthInPixels,
+            int frameHeightInPixels,
+            int patternIndex,
+            Random randomGenerator
+    ) {
+        byte[] grayscaleByteArray = new byte[frameWidthInPixels * frameHeightInPixels];
+
+        if (patternIndex == 0) {
+            randomGenerator.nextBytes(grayscaleByteArray);
+        } else {
+            for (int pixelYPosition = 0; pixelYPosition < frameHeightInPixels; pixelYPosition++) {
+                for (int pixelXPosition = 0; pixelXPosition < frameWidthInPixels; pixelXPosition++) {
+
+                    int intensityValue = patternIndex == 1
+                            ? ((pixelXPosition + pixelYPosition) % 2 == 0 ? 255 : 0)
+                            : (pixelXPosition * 37 + pixelYPosition * 91) & 0xFF;
+
+                    grayscaleByteArray[pixelYPosition * frameWidthInPixels + pixelXPosition] = (byte) intensityValue;
+                }
+            }
+        }
+
+        DirectFrameBuffer grayscaleFrameBuffer = new DirectFrameBuffer(frameWidthInPixels, frameHeightInPixels, 1);
+        grayscaleFrameBuffer.copyFromByteArray(grayscaleByteArray);
+
+        return grayscaleFrameBuffer;
+    }
+
+    private static void measureSobelThroughput(int frameWidthInPixels, int frameHeightInPixels) {
+
+        DirectFrameBuffer grayscaleFrameBuffer =
+                createGrayscaleFrameBuffer(frameWidthInPixels, frameHeightInPixels, 0, new Random(frameWidthInPixels));
+
+        AprilTagEdgeDetector scalarEdgeDetector =
+                new AprilTagEdgeDetector(frameWidthInPixels, frameHeightInPixels, 80, null, 1, false);
+        AprilTagEdgeDetector vectorizedEdgeDetector =
+                new AprilTagEdgeDetector(frameWidthInPixels, frameHeightInPixels, 80, null, 1, true);
+
+        double scalarMillisecondsPerFrame = measureMillisecondsPerFrame(scalarEdgeDetector, grayscaleFrameBuffer);
+        double vectorizedMillisecondsPerFrame = measureMillisecondsPerFrame(vectorizedEdgeDetector, grayscaleFrameBuffer);
+
+        System.out.printf(
+                "%dx%d  scalar: %.3f ms  vectorized: %.3f ms  speedup: %.2fx%n",
+                frameWidthInPixels, frameHeightInPixels,
+                scalarMillisecondsPerFrame,
+                vectorizedMillisecondsPerFrame,
+                scalarMillisecondsPerFrame / vectorizedMillisecondsPerFrame
+        );
+    }
+
+    private static double measureMillisecondsPerFrame(
+            AprilTagEdgeDetector aprilTagEdgeDetector,
+            DirectFrameBuffer grayscaleFrameBuffer
+    ) {
+        for (int iterationIndex = 0; iterationIndex < WARMUP_ITERATION_COUNT; iterationIndex++) {
+            aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+        }
+
+        long startNanoseconds = System.nanoTime();
+        for (int iterationIndex = 0; iterationIndex < MEASURED_ITERATION_COUNT; iterationIndex++) {
+            aprilTagEdgeDetector.calculateEdgeBinaryFrameBufferFromGrayscaleFrameBuffer(grayscaleFrameBuffer);
+        }
+
+        return (System.nanoTime() - startNanoseconds) / 1e6 / MEASURED_ITERATION_COUNT;
+    }
+}